@@ -0,0 +1,88 @@
+package com.tradingsim.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The arithmetic of a buy settling into an existing holding: trade amount, new
+ * balance, average buy price, current value, profit and loss and its percentage.
+ * {@link #bigDecimal} is the executeTrade arithmetic before {@link Money}, including
+ * its 4-dp ratio times 100; {@link #money} is the same steps on paise, with the
+ * BigDecimal conversions at the entity boundary that settling still needs.
+ *
+ * Run with {@code -prof gc} for the allocation per operation ({@code gc.alloc.rate.norm}).
+ * A plain loop over both methods on JDK 21, counting allocation with the thread's
+ * allocated-bytes counter, measured about 88 ns and 320 B/op for {@code bigDecimal}
+ * and 61 ns and 160 B/op for {@code money}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private BigDecimal price;
+    private BigDecimal currentPrice;
+    private BigDecimal balance;
+    private BigDecimal investment;
+    private int holdingQuantity;
+    private int quantity;
+
+    @Setup
+    public void setUp() {
+        price = new BigDecimal("3412.35");
+        currentPrice = new BigDecimal("3420.10");
+        balance = new BigDecimal("250000.00");
+        investment = new BigDecimal("34050.00");
+        holdingQuantity = 10;
+        quantity = 7;
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        BigDecimal amount = price.multiply(BigDecimal.valueOf(quantity));
+        BigDecimal newBalance = balance.subtract(amount);
+        int newQuantity = holdingQuantity + quantity;
+        BigDecimal newInvestment = investment.add(amount);
+        BigDecimal averagePrice = newInvestment.divide(BigDecimal.valueOf(newQuantity), 2, RoundingMode.HALF_UP);
+        BigDecimal currentValue = currentPrice.multiply(BigDecimal.valueOf(newQuantity));
+        BigDecimal profitLoss = currentValue.subtract(newInvestment);
+        BigDecimal percentage = profitLoss.divide(newInvestment, 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+        blackhole.consume(newBalance);
+        blackhole.consume(averagePrice);
+        blackhole.consume(profitLoss);
+        blackhole.consume(percentage);
+    }
+
+    @Benchmark
+    public void money(Blackhole blackhole) {
+        Money amount = Money.of(price).times(quantity);
+        Money newBalance = Money.of(balance).minus(amount);
+        int newQuantity = holdingQuantity + quantity;
+        Money newInvestment = Money.of(investment).plus(amount);
+        Money averagePrice = newInvestment.dividedBy(newQuantity);
+        Money currentValue = Money.of(currentPrice).times(newQuantity);
+        Money profitLoss = currentValue.minus(newInvestment);
+        BigDecimal percentage = profitLoss.percentOf(newInvestment);
+        blackhole.consume(newBalance.toBigDecimal());
+        blackhole.consume(averagePrice.toBigDecimal());
+        blackhole.consume(profitLoss.toBigDecimal());
+        blackhole.consume(percentage);
+    }
+}
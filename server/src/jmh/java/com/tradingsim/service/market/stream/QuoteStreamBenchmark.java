@@ -0,0 +1,172 @@
+package com.tradingsim.service.market.stream;
+
+import com.tradingsim.model.Stock;
+import com.tradingsim.repository.StockRepository;
+import com.tradingsim.service.market.MarketSimulator;
+import com.tradingsim.service.market.MarketSimulatorProperties;
+import com.tradingsim.service.market.QuoteListener;
+import com.tradingsim.service.market.QuoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * One node pushing a simulated market to {@code subscribers} SSE-like clients, each
+ * watching 20 of the 500 most active symbols. One in twenty clients takes 500 ms per
+ * write. Each operation is one market-wide tick of 2,000 symbols including the
+ * fan-out to subscriber slots; delivery runs on the stream's own threads.
+ *
+ * Besides the tick time, the {@code quotes} and {@code messages} counters report what
+ * reached the clients per second, and {@code maxLagMs} the worst age of a quote a fast
+ * client received in the iteration. Run with {@code -prof gc} to see the heap churn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class QuoteStreamBenchmark {
+
+    private static final int SYMBOLS = 2_000;
+    private static final int SYMBOLS_PER_SUBSCRIBER = 20;
+
+    @Param({"10000"})
+    private int subscribers;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final AtomicLong maxLagMs = new AtomicLong();
+
+    private QuoteStore quoteStore;
+    private QuoteStream quoteStream;
+    private MarketSimulator simulator;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Delivery {
+        public long quotes;
+        public long messages;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Lag {
+        public long maxLagMs;
+    }
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        List<Stock> stocks = new ArrayList<>(SYMBOLS);
+        for (int i = 0; i < SYMBOLS; i++) {
+            Stock stock = new Stock();
+            stock.setId(i + 1L);
+            stock.setSymbol("S" + i);
+            stock.setName("S" + i);
+            stock.setCurrentPrice(new BigDecimal("1000.00"));
+            stock.setPreviousClose(new BigDecimal("1000.00"));
+            stocks.add(stock);
+        }
+        StockRepository stockRepository = mock(StockRepository.class);
+        when(stockRepository.findAll()).thenReturn(stocks);
+        ObjectProvider<QuoteListener> listenerProvider = mock(ObjectProvider.class);
+        when(listenerProvider.orderedStream()).thenAnswer(invocation -> Stream.of(quoteStream));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        quoteStore = new QuoteStore();
+        ReflectionTestUtils.setField(quoteStore, "capacity", 4096);
+        ReflectionTestUtils.setField(quoteStore, "stockRepository", stockRepository);
+        ReflectionTestUtils.setField(quoteStore, "jdbcTemplate", mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(quoteStore, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(quoteStore, "listenerProvider", listenerProvider);
+        quoteStore.load();
+
+        quoteStream = new QuoteStream();
+        ReflectionTestUtils.setField(quoteStream, "capacity", 4096);
+        ReflectionTestUtils.setField(quoteStream, "maxSubscribers", subscribers);
+        ReflectionTestUtils.setField(quoteStream, "maxSymbols", 200);
+        ReflectionTestUtils.setField(quoteStream, "flushMs", 100L);
+        ReflectionTestUtils.setField(quoteStream, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(quoteStream, "meterRegistry", meterRegistry);
+        quoteStream.start();
+
+        MarketSimulatorProperties properties = new MarketSimulatorProperties();
+        properties.setTimeScale(3600);
+        simulator = new MarketSimulator();
+        ReflectionTestUtils.setField(simulator, "properties", properties);
+        ReflectionTestUtils.setField(simulator, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(simulator, "meterRegistry", meterRegistry);
+        simulator.start();
+
+        Random random = new Random(1);
+        for (int i = 0; i < subscribers; i++) {
+            List<String> symbols = new ArrayList<>(SYMBOLS_PER_SUBSCRIBER);
+            for (int k = 0; k < SYMBOLS_PER_SUBSCRIBER; k++) {
+                symbols.add("S" + random.nextInt(500));
+            }
+            boolean slow = i % 20 == 0;
+            quoteStream.subscribe(symbols, quotes -> {
+                if (slow) {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else {
+                    long now = System.currentTimeMillis();
+                    for (int q = 0; q < quotes.size(); q++) {
+                        maxLagMs.accumulateAndGet(now - quotes.get(q).updatedAtMillis(), Math::max);
+                    }
+                }
+                delivered.add(quotes.size());
+                messages.increment();
+            });
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLag() {
+        maxLagMs.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        quoteStream.stop();
+    }
+
+    @Benchmark
+    public void tick(Delivery delivery, Lag lag) {
+        simulator.tick();
+        delivery.quotes += delivered.sumThenReset();
+        delivery.messages += messages.sumThenReset();
+        lag.maxLagMs = maxLagMs.get();
+    }
+}
@@ -0,0 +1,81 @@
+package com.tradingsim.service.trading.matching;
+
+import com.tradingsim.model.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Match throughput and per-order latency of one book on its matching thread. Orders
+ * are limits around a random-walk reference price, so some rest, some match other
+ * users and some fill against the simulator; the price moves every
+ * {@code ordersPerTick} orders and sweeps what it crosses.
+ *
+ * Run with {@code -bm thrpt} for orders per second or {@code -bm sample} for the
+ * latency percentiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+
+    @Param({"16", "256"})
+    private int ordersPerTick;
+
+    private OrderBook book;
+    private SplittableRandom random;
+    private long referencePaise;
+    private long orderId;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        book = new OrderBook("TCS", new OrderBook.Listener() {
+            @Override
+            public void onFill(Order order, Order counter, int quantity, long pricePaise) {
+                blackhole.consume(quantity);
+            }
+
+            @Override
+            public void onClosed(Order order) {
+                blackhole.consume(order);
+            }
+        });
+        random = new SplittableRandom(42);
+        referencePaise = 3_500_00;
+    }
+
+    @Setup(Level.Iteration)
+    public void clearDayOrders() {
+        book.expire(Order.TimeInForce.DAY);
+    }
+
+    @Benchmark
+    public Order submit() {
+        if (++orderId % ordersPerTick == 0) {
+            referencePaise = Math.max(100_00, referencePaise + random.nextLong(-200, 201));
+            book.onPrice(referencePaise);
+        }
+        Trade.TradeType side = random.nextBoolean() ? Trade.TradeType.BUY : Trade.TradeType.SELL;
+        long limitPaise = referencePaise + random.nextLong(-500, 501);
+        Order order = new Order(orderId, random.nextLong(1, 1_000), "TCS", side, Order.OrderType.LIMIT,
+                Order.TimeInForce.DAY, limitPaise, 0, 1 + random.nextInt(100));
+        book.submit(order, referencePaise);
+        return order;
+    }
+}
@@ -0,0 +1,106 @@
+package com.tradingsim.service.trading.risk;
+
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.Wallet;
+import com.tradingsim.service.trading.AccountStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost the risk engine adds to one order: reserving it against all four limits and
+ * releasing it again, for a user with 50 holdings and 20 orders already in flight.
+ * The exposure is loaded in setup, as it is after a user's first order.
+ *
+ * The budget is 10 µs per order; run with {@code -bm sample} for the percentiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RiskBenchmark {
+
+    private static final Long USER_ID = 1L;
+
+    private RiskEngine riskEngine;
+    private String[] symbols;
+    private long orderId;
+
+    @Setup
+    public void setUp() {
+        RiskProperties properties = new RiskProperties();
+        properties.setEnabled(true);
+        properties.getDefaults().setMaxOrderNotional(new BigDecimal("1000000.00"));
+        properties.getDefaults().setMaxPositionValue(new BigDecimal("5000000.00"));
+        properties.getDefaults().setMaxDailyTurnover(new BigDecimal("1000000000.00"));
+        properties.getDefaults().setMaxConcentrationPercent(new BigDecimal("90"));
+
+        symbols = new String[50];
+        Map<String, Portfolio> holdings = new HashMap<>();
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = "SYM" + i;
+            Portfolio holding = new Portfolio();
+            holding.setStockSymbol(symbols[i]);
+            holding.setQuantity(100);
+            holding.setTotalInvestment(new BigDecimal("10000.00"));
+            holdings.put(symbols[i], holding);
+        }
+        Wallet wallet = new Wallet();
+        wallet.setBalance(new BigDecimal("10000000.00"));
+        AccountStore.Account account = mock(AccountStore.Account.class);
+        when(account.getWallet()).thenReturn(wallet);
+        when(account.getHoldings()).thenReturn(holdings);
+        AccountStore accountStore = mock(AccountStore.class);
+        when(accountStore.load(USER_ID)).thenReturn(account);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(Object[].class))).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(anyString(), eq(BigDecimal.class), any(Object[].class)))
+                .thenReturn(BigDecimal.ZERO);
+
+        riskEngine = new RiskEngine();
+        ReflectionTestUtils.setField(riskEngine, "properties", properties);
+        ReflectionTestUtils.setField(riskEngine, "accountStore", accountStore);
+        ReflectionTestUtils.setField(riskEngine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(riskEngine, "meterRegistry", new SimpleMeterRegistry());
+
+        for (int i = 0; i < 20; i++) {
+            riskEngine.reserve(--orderId, USER_ID, symbols[i], Trade.TradeType.BUY, 10, 100_00);
+        }
+        orderId = 0;
+    }
+
+    @Benchmark
+    public long reserveAndRelease() {
+        long id = ++orderId;
+        String symbol = symbols[(int) (id % symbols.length)];
+        riskEngine.reserve(id, USER_ID, symbol, Trade.TradeType.BUY, 10, 100_00);
+        riskEngine.release(USER_ID, id);
+        return id;
+    }
+}
@@ -9,6 +9,7 @@ import com.tradingsim.repository.StockRepository;
 import com.tradingsim.repository.TutorialRepository;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -27,12 +28,26 @@ public class DatabaseInitializer {
     
     @Autowired
     private TutorialRepository tutorialRepository;  // Added missing repository
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @PostConstruct
     public void initialize() {
         initRoles();
         initStocks();
         initTutorials();
+        initIdSequences();
+    }
+    
+    private void initIdSequences() {
+        // Trades and transactions take pooled ids from id_sequences; start past any existing rows
+        for (String table : Arrays.asList("trades", "transactions")) {
+            jdbcTemplate.update("insert into id_sequences (sequence_name, next_val) select ?, 1 from dual " +
+                    "where not exists (select 1 from id_sequences where sequence_name = ?)", table, table);
+            jdbcTemplate.update("update id_sequences set next_val = greatest(next_val, " +
+                    "(select coalesce(max(id), 0) + 1 from " + table + ")) where sequence_name = ?", table);
+        }
     }
     
     private void initRoles() {
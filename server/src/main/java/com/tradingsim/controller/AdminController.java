@@ -1,25 +1,38 @@
 package com.tradingsim.controller;
 
 import com.tradingsim.dto.request.AdminRegisterRequest;
+import com.tradingsim.dto.request.HistoryImportRequest;
 import com.tradingsim.dto.response.MessageResponse;
+import com.tradingsim.model.Candle;
 import com.tradingsim.model.ERole;
 import com.tradingsim.model.Role;
 import com.tradingsim.model.User;
+import com.tradingsim.repository.PortfolioRiskRepository;
 import com.tradingsim.repository.RoleRepository;
 import com.tradingsim.repository.StockRepository;
 import com.tradingsim.repository.TransactionRepository;
 import com.tradingsim.repository.UserRepository;
 import com.tradingsim.repository.WalletRepository;
 import com.tradingsim.model.Wallet;
+import com.tradingsim.service.eod.EndOfDayJob;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.market.history.HistoryImporter;
+import com.tradingsim.service.portfolio.risk.RiskEngine;
+import com.tradingsim.service.trading.TradeExecutor;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -46,10 +59,25 @@ public class AdminController {
     
     @Autowired
     private WalletRepository walletRepository;
+
+    @Autowired
+    private TradeExecutor tradeExecutor;
     
     @Autowired
     private PasswordEncoder encoder;
     
+    @Autowired
+    private HistoryImporter historyImporter;
+    
+    @Autowired
+    private EndOfDayJob endOfDayJob;
+    
+    @Autowired
+    private RiskEngine riskEngine;
+    
+    @Autowired
+    private PortfolioRiskRepository portfolioRiskRepository;
+    
     @Value("${admin.registration.key}")
     private String adminRegistrationKey;
     
@@ -95,6 +123,62 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Loads historical bars from CSV or JSON files in the import directory and reports
+     * rows per second. Runs until every file is done.
+     */
+    @PostMapping("/market/import")
+    public ResponseEntity<?> importHistory(@Valid @RequestBody HistoryImportRequest importRequest) throws IOException {
+        Candle.Interval interval = Candle.Interval.fromLabel(importRequest.getInterval());
+        if (interval == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Interval must be one of 1m, 5m, 15m, 1h, 1d"));
+        }
+        try {
+            return ResponseEntity.ok(historyImporter.importPaths(importRequest.getPaths(), interval));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Runs the end-of-day batch for the date (today by default), resuming from its
+     * checkpoint if an earlier run stopped part way, and reports users per second. An
+     * earlier date can only be resumed.
+     */
+    @PostMapping("/eod/run")
+    public ResponseEntity<?> runEndOfDay(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            return ResponseEntity.ok(endOfDayJob.run(date != null ? date : LocalDate.now(CandleAggregator.MARKET_ZONE)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Runs the overnight value-at-risk estimate for every user holding stocks now
+     * instead of waiting for its schedule.
+     */
+    @PostMapping("/risk/run")
+    public ResponseEntity<?> runRisk() {
+        try {
+            return ResponseEntity.ok(riskEngine.runOvernight());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Users with the largest one-day 99% value at risk from the last overnight run.
+     */
+    @GetMapping("/risk")
+    public ResponseEntity<?> getRiskiestPortfolios(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(portfolioRiskRepository.findAllByOrderByDailyVar99Desc(
+                PageRequest.of(0, Math.max(1, Math.min(limit, 500)))));
+    }
+    
     @PostMapping("/register")
     public ResponseEntity<?> registerAdmin(@Valid @RequestBody AdminRegisterRequest registerRequest) {
         // Verify the admin key
@@ -137,6 +221,7 @@ public class AdminController {
         wallet.setUser(savedUser);
         wallet.setBalance(BigDecimal.valueOf(1000000)); // Starting balance of ₹10 lakh
         walletRepository.save(wallet);
+        tradeExecutor.evict(savedUser.getId());
 
         return ResponseEntity.ok(new MessageResponse("Admin registered successfully!"));
     }
@@ -13,6 +13,7 @@ import com.tradingsim.repository.UserRepository;
 import com.tradingsim.repository.WalletRepository;
 import com.tradingsim.security.jwt.JwtUtils;
 import com.tradingsim.security.services.UserDetailsImpl;
+import com.tradingsim.service.trading.TradeExecutor;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -45,6 +46,9 @@ public class AuthController {
     @Autowired
     WalletRepository walletRepository;
 
+    @Autowired
+    TradeExecutor tradeExecutor;
+
     @Autowired
     PasswordEncoder encoder;
 
@@ -105,6 +109,7 @@ public class AuthController {
         wallet.setUser(savedUser);
         wallet.setBalance(BigDecimal.valueOf(1000000)); // Starting balance of ₹10 lakh for new users
         walletRepository.save(wallet);
+        tradeExecutor.evict(savedUser.getId());
 
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
@@ -164,6 +169,7 @@ public class AuthController {
         wallet.setUser(savedUser);
         wallet.setBalance(BigDecimal.valueOf(1000000)); // Starting balance of ₹10 lakh
         walletRepository.save(wallet);
+        tradeExecutor.evict(savedUser.getId());
 
         return ResponseEntity.ok(new MessageResponse("First admin registered successfully!"));
     }
@@ -0,0 +1,78 @@
+package com.tradingsim.controller;
+
+import com.tradingsim.dto.response.CandleResponse;
+import com.tradingsim.dto.response.IndexResponse;
+import com.tradingsim.dto.response.MessageResponse;
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.market.index.IndexSnapshot;
+import com.tradingsim.service.market.index.MarketIndices;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@CrossOrigin(origins = {"http://localhost:5000", "http://127.0.0.1:5000"}, maxAge = 3600, allowCredentials = "true")
+@RestController
+@RequestMapping("/api/indices")
+public class MarketIndexController {
+    
+    @Autowired
+    private MarketIndices marketIndices;
+    
+    @Autowired
+    private CandleAggregator candleAggregator;
+    
+    @GetMapping
+    public ResponseEntity<?> getIndices() {
+        List<IndexResponse> indices = new ArrayList<>();
+        for (IndexSnapshot index : marketIndices.getAll()) {
+            indices.add(IndexResponse.from(index));
+        }
+        return ResponseEntity.ok(indices);
+    }
+    
+    @GetMapping("/{code}")
+    public ResponseEntity<?> getIndex(@PathVariable String code) {
+        Optional<IndexSnapshot> index = marketIndices.get(code.toUpperCase());
+        if (index.isEmpty()) {
+            return notFound(code);
+        }
+        return ResponseEntity.ok(IndexResponse.from(index.get()));
+    }
+    
+    /**
+     * Bars of the index level opening between {@code from} and {@code to}, as for stocks.
+     */
+    @GetMapping("/{code}/candles")
+    public ResponseEntity<?> getCandles(@PathVariable String code,
+                                        @RequestParam(defaultValue = "1m") String interval,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        Candle.Interval barInterval = Candle.Interval.fromLabel(interval);
+        if (barInterval == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Interval must be one of 1m, 5m, 15m, 1h, 1d"));
+        }
+        if (marketIndices.get(code.toUpperCase()).isEmpty()) {
+            return notFound(code);
+        }
+        
+        long toMillis = to != null ? CandleAggregator.toEpochMillis(to) : System.currentTimeMillis() + 1;
+        long fromMillis = from != null ? CandleAggregator.toEpochMillis(from) : toMillis - 100 * barInterval.getMillis();
+        List<CandleResponse> candles = new ArrayList<>();
+        for (Bar bar : candleAggregator.getCandles(code.toUpperCase(), barInterval, fromMillis, toMillis)) {
+            candles.add(CandleResponse.from(bar));
+        }
+        return ResponseEntity.ok(candles);
+    }
+    
+    private static ResponseEntity<?> notFound(String code) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Index not found: " + code);
+        return ResponseEntity.status(404).body(errorResponse);
+    }
+}
@@ -1,11 +1,15 @@
 package com.tradingsim.controller;
 
-import com.tradingsim.model.Portfolio;
-import com.tradingsim.model.Trade;
-import com.tradingsim.model.User;
+import com.tradingsim.dto.response.HoldingResponse;
+import com.tradingsim.dto.response.PortfolioAnalyticsResponse;
+import com.tradingsim.dto.response.PortfolioRiskResponse;
+import com.tradingsim.model.Money;
 import com.tradingsim.repository.PortfolioRepository;
 import com.tradingsim.repository.TradeRepository;
 import com.tradingsim.security.services.UserDetailsImpl;
+import com.tradingsim.service.portfolio.PortfolioAnalytics;
+import com.tradingsim.service.portfolio.risk.RiskEngine;
+import com.tradingsim.service.trading.MarkToMarket;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -13,7 +17,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,56 +32,89 @@ public class PortfolioController {
     @Autowired
     private TradeRepository tradeRepository;
     
+    @Autowired
+    private MarkToMarket markToMarket;
+    
+    @Autowired
+    private PortfolioAnalytics portfolioAnalytics;
+    
+    @Autowired
+    private RiskEngine riskEngine;
+    
     @GetMapping
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> getUserPortfolio() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        User user = new User();
-        user.setId(userDetails.getId());
+        List<HoldingResponse> holdings;
+        long totalInvestmentPaise = 0;
+        long currentValuePaise = 0;
         
-        List<Portfolio> holdings = portfolioRepository.findByUser(user);
-        
-        // Calculate portfolio summary
-        BigDecimal totalInvestment = BigDecimal.ZERO;
-        BigDecimal currentValue = BigDecimal.ZERO;
-        
-        for (Portfolio holding : holdings) {
-            totalInvestment = totalInvestment.add(holding.getTotalInvestment());
-            currentValue = currentValue.add(holding.getCurrentValue());
+        if (markToMarket.isEnabled()) {
+            // Valued at the latest prices, straight from memory
+            MarkToMarket.Marks marks = markToMarket.marks(userDetails.getId());
+            holdings = marks.holdings();
+            totalInvestmentPaise = marks.investmentPaise();
+            currentValuePaise = marks.valuePaise();
+        } else {
+            holdings = portfolioRepository.findResponsesByUserId(userDetails.getId());
+            
+            // Calculate portfolio summary
+            for (HoldingResponse holding : holdings) {
+                totalInvestmentPaise += Money.toPaise(holding.getTotalInvestment());
+                currentValuePaise += Money.toPaise(holding.getCurrentValue());
+            }
         }
         
-        BigDecimal profitLoss = currentValue.subtract(totalInvestment);
-        BigDecimal profitLossPercentage = BigDecimal.ZERO;
-        if (totalInvestment.compareTo(BigDecimal.ZERO) > 0) {
-            profitLossPercentage = profitLoss.divide(totalInvestment, 4, BigDecimal.ROUND_HALF_UP)
-                    .multiply(BigDecimal.valueOf(100));
-        }
+        Money totalInvestment = Money.ofPaise(totalInvestmentPaise);
+        Money currentValue = Money.ofPaise(currentValuePaise);
+        Money profitLoss = currentValue.minus(totalInvestment);
         
         Map<String, Object> response = new HashMap<>();
         response.put("holdings", holdings);
         response.put("summary", Map.of(
-            "totalInvestment", totalInvestment,
-            "currentValue", currentValue,
-            "profitLoss", profitLoss,
-            "profitLossPercentage", profitLossPercentage
+            "totalInvestment", totalInvestment.toBigDecimal(),
+            "currentValue", currentValue.toBigDecimal(),
+            "profitLoss", profitLoss.toBigDecimal(),
+            "profitLossPercentage", profitLoss.percentOf(totalInvestment)
         ));
         
         return ResponseEntity.ok(response);
     }
     
-    @GetMapping("/trades")
+    /**
+     * Daily NAV history with drawdown, volatility, Sharpe ratio and money-weighted return,
+     * built from the stored daily snapshots plus today's live value.
+     */
+    @GetMapping("/analytics")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> getUserTrades() {
+    public ResponseEntity<?> getAnalytics() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        User user = new User();
-        user.setId(userDetails.getId());
+        return ResponseEntity.ok(PortfolioAnalyticsResponse.from(portfolioAnalytics.performance(userDetails.getId())));
+    }
+    
+    /**
+     * One-day and multi-day value at risk and expected shortfall of the holdings, from a
+     * Monte Carlo simulation of correlated daily returns.
+     */
+    @GetMapping("/risk")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> getRisk() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        List<Trade> trades = tradeRepository.findByUserOrderByDateDesc(user);
+        return ResponseEntity.ok(PortfolioRiskResponse.from(riskEngine.estimate(userDetails.getId())));
+    }
+    
+    @GetMapping("/trades")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> getUserTrades() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        return ResponseEntity.ok(trades);
+        return ResponseEntity.ok(tradeRepository.findResponsesByUserId(userDetails.getId()));
     }
 }
@@ -1,13 +1,38 @@
 package com.tradingsim.controller;
 
-import com.tradingsim.model.Stock;
-import com.tradingsim.repository.StockRepository;
+import com.tradingsim.dto.response.CandleResponse;
+import com.tradingsim.dto.response.IndicatorResponse;
+import com.tradingsim.dto.response.MessageResponse;
+import com.tradingsim.dto.response.StockPriceResponse;
+import com.tradingsim.dto.response.StockQuoteResponse;
+import com.tradingsim.model.Candle;
+import com.tradingsim.model.Money;
+import com.tradingsim.service.market.MarketMovers;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.SymbolIndex;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.market.indicators.IndicatorEngine;
+import com.tradingsim.service.market.indicators.Indicators;
+import com.tradingsim.service.market.provider.LiveQuotes;
+import com.tradingsim.service.market.stream.QuoteStream;
+import com.tradingsim.service.market.stream.QuoteSubscriber;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 
 @CrossOrigin(origins = {"http://localhost:5000", "http://127.0.0.1:5000"}, maxAge = 3600, allowCredentials = "true")
@@ -15,28 +40,48 @@ import java.util.*;
 @RequestMapping("/api/stocks")
 public class StockController {
     
+    private static final String SEQUENCE_HEADER = "X-Quote-Sequence";
+    
+    @Autowired
+    private QuoteStore quoteStore;
+    
+    @Autowired
+    private LiveQuotes liveQuotes;
+    
+    @Autowired
+    private QuoteStream quoteStream;
+    
+    @Autowired
+    private CandleAggregator candleAggregator;
+    
     @Autowired
-    private StockRepository stockRepository;
+    private SymbolIndex symbolIndex;
+    
+    @Autowired
+    private IndicatorEngine indicatorEngine;
+    
+    @Autowired
+    private MarketMovers marketMovers;
+    
+    @Value("${market.stream.timeout-ms:1800000}")
+    private long streamTimeoutMs;
+    
+    @Value("${market.search.max-results:50}")
+    private int maxSearchResults;
+    
+    @Value("${market.movers.max-results:50}")
+    private int maxMovers;
     
     @GetMapping("/price/{symbol}")
     public ResponseEntity<?> getStockPrice(@PathVariable String symbol) {
-        Optional<Stock> stockOpt = stockRepository.findBySymbol(symbol.toUpperCase());
-        
-        if (stockOpt.isPresent()) {
-            Stock stock = stockOpt.get();
-            Map<String, Object> response = new HashMap<>();
-            response.put("symbol", stock.getSymbol());
-            response.put("name", stock.getName());
-            response.put("price", stock.getCurrentPrice());
-            response.put("previousClose", stock.getPreviousClose());
-            response.put("change", stock.getCurrentPrice().subtract(stock.getPreviousClose()));
-            response.put("changePercent", 
-                stock.getCurrentPrice().subtract(stock.getPreviousClose())
-                .divide(stock.getPreviousClose(), 4, BigDecimal.ROUND_HALF_UP)
-                .multiply(BigDecimal.valueOf(100)));
-            response.put("lastUpdated", stock.getLastUpdated());
-            
-            return ResponseEntity.ok(response);
+        Optional<Quote> quoteOpt = liveQuotes.get(symbol.toUpperCase());
+        
+        if (quoteOpt.isPresent()) {
+            Quote quote = quoteOpt.get();
+            Money change = Money.ofPaise(quote.changePaise());
+            return ResponseEntity.ok(new StockPriceResponse(quote.symbol(), quote.name(), quote.price(),
+                    rupeesOrNull(quote.previousClosePaise()), change.toBigDecimal(),
+                    change.percentOf(Money.ofPaise(quote.previousClosePaise())), lastUpdated(quote)));
         } else {
             Map<String, String> errorResponse = new HashMap<>();
             errorResponse.put("error", "Stock not found with symbol: " + symbol);
@@ -44,9 +89,184 @@ public class StockController {
         }
     }
     
+    /**
+     * All quotes, or with {@code ?since=<version>} only those changed after that
+     * version. The ETag and X-Quote-Sequence headers carry the current version,
+     * {@code <epoch>-<sequence>}: send it back as If-None-Match to get 304 when nothing
+     * changed, or as {@code since} to fetch just the changes. Sequences start over when
+     * the server restarts, so a version from an earlier run gets the full list.
+     */
     @GetMapping("/list")
-    public ResponseEntity<?> getAllStocks() {
-        List<Stock> stocks = stockRepository.findAll();
-        return ResponseEntity.ok(stocks);
+    public ResponseEntity<?> getAllStocks(@RequestParam(required = false) String since,
+                                          @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        // Read before the quotes, so nothing changed after it is missing from the response
+        long sequence = quoteStore.sequence();
+        String version = quoteStore.epoch() + "-" + sequence;
+        String eTag = "\"" + version + "\"";
+        long sinceSequence = sinceSequence(since);
+        if (eTag.equals(ifNoneMatch) || sinceSequence >= sequence) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .header(SEQUENCE_HEADER, version)
+                    .build();
+        }
+        
+        List<Quote> quotes = sinceSequence >= 0 ? quoteStore.changedSince(sinceSequence) : quoteStore.getAll();
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .header(SEQUENCE_HEADER, version)
+                .body(toResponses(quotes));
+    }
+    
+    // The sequence a since version names, or -1 if there is none or it is from an earlier run
+    private long sinceSequence(String since) {
+        String prefix = quoteStore.epoch() + "-";
+        if (since == null || !since.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(since.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Stocks whose symbol or company name matches {@code q}, e.g. {@code ?q=tata}: exact
+     * symbol first, then symbol and name prefixes, then names containing the text; the
+     * most traded stocks first within each group.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchStocks(@RequestParam String q,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Search text is required"));
+        }
+        
+        return ResponseEntity.ok(toResponses(symbolIndex.search(q, Math.max(1, Math.min(limit, maxSearchResults)))));
+    }
+    
+    @GetMapping("/top-gainers")
+    public ResponseEntity<?> getTopGainers(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(toResponses(marketMovers.topGainers(Math.max(1, Math.min(limit, maxMovers)))));
+    }
+    
+    @GetMapping("/top-losers")
+    public ResponseEntity<?> getTopLosers(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(toResponses(marketMovers.topLosers(Math.max(1, Math.min(limit, maxMovers)))));
+    }
+    
+    @GetMapping("/most-active")
+    public ResponseEntity<?> getMostActive(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(toResponses(marketMovers.mostActive(Math.max(1, Math.min(limit, maxMovers)))));
+    }
+    
+    /**
+     * OHLCV bars opening between {@code from} and {@code to} (ISO date-times, default:
+     * the last 100 bars up to now) at an interval of 1m, 5m, 15m, 1h or 1d.
+     */
+    @GetMapping("/{symbol}/candles")
+    public ResponseEntity<?> getCandles(@PathVariable String symbol,
+                                        @RequestParam(defaultValue = "1m") String interval,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        Candle.Interval barInterval = Candle.Interval.fromLabel(interval);
+        if (barInterval == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Interval must be one of 1m, 5m, 15m, 1h, 1d"));
+        }
+        if (quoteStore.idOf(symbol.toUpperCase()) < 0) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Stock not found with symbol: " + symbol);
+            return ResponseEntity.status(404).body(errorResponse);
+        }
+        
+        long toMillis = to != null ? CandleAggregator.toEpochMillis(to) : System.currentTimeMillis() + 1;
+        long fromMillis = from != null ? CandleAggregator.toEpochMillis(from) : toMillis - 100 * barInterval.getMillis();
+        List<Bar> bars = candleAggregator.getCandles(symbol.toUpperCase(), barInterval, fromMillis, toMillis);
+        
+        List<CandleResponse> candles = new ArrayList<>(bars.size());
+        for (Bar bar : bars) {
+            candles.add(CandleResponse.from(bar));
+        }
+        return ResponseEntity.ok(candles);
+    }
+    
+    /**
+     * SMA, EMA, RSI, MACD, Bollinger Bands and ATR over the symbol's bars at an interval
+     * of 1m, 5m, 15m, 1h or 1d, including the bar still forming.
+     */
+    @GetMapping("/{symbol}/indicators")
+    public ResponseEntity<?> getIndicators(@PathVariable String symbol,
+                                           @RequestParam(defaultValue = "1d") String interval) {
+        Candle.Interval barInterval = Candle.Interval.fromLabel(interval);
+        if (barInterval == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Interval must be one of 1m, 5m, 15m, 1h, 1d"));
+        }
+        
+        Optional<Indicators> indicators = indicatorEngine.get(symbol.toUpperCase(), barInterval);
+        if (indicators.isEmpty()) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Stock not found with symbol: " + symbol);
+            return ResponseEntity.status(404).body(errorResponse);
+        }
+        return ResponseEntity.ok(IndicatorResponse.from(indicators.get()));
+    }
+    
+    /**
+     * Server-sent events with the latest quotes for the requested symbols, e.g.
+     * {@code /api/stocks/stream?symbols=TCS,INFY}. Each "quotes" event carries every
+     * symbol that changed since the previous one; a client that falls behind skips
+     * straight to the newest prices.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamQuotes(@RequestParam List<String> symbols) throws IOException {
+        if (symbols.isEmpty() || symbols.size() > quoteStream.getMaxSymbols()) {
+            return rejectStream(HttpStatus.BAD_REQUEST, "Subscribe to between 1 and " + quoteStream.getMaxSymbols() + " symbols");
+        }
+        
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        QuoteSubscriber subscriber = quoteStream.subscribe(symbols.stream().map(String::toUpperCase).toList(), quotes -> {
+            List<StockQuoteResponse> updates = new ArrayList<>(quotes.size());
+            for (Quote quote : quotes) {
+                updates.add(StockQuoteResponse.from(quote));
+            }
+            emitter.send(SseEmitter.event().name("quotes").data(updates, MediaType.APPLICATION_JSON));
+        });
+        if (subscriber == null) {
+            return rejectStream(HttpStatus.SERVICE_UNAVAILABLE, "Too many subscribers, try again later");
+        }
+        emitter.onCompletion(() -> quoteStream.unsubscribe(subscriber));
+        emitter.onTimeout(() -> quoteStream.unsubscribe(subscriber));
+        emitter.onError(error -> quoteStream.unsubscribe(subscriber));
+        
+        return ResponseEntity.ok(emitter);
+    }
+    
+    /**
+     * An event stream that only carries the error, since the client asked for
+     * text/event-stream rather than JSON.
+     */
+    private static ResponseEntity<SseEmitter> rejectStream(HttpStatus status, String message) throws IOException {
+        SseEmitter emitter = new SseEmitter();
+        emitter.send(SseEmitter.event().name("error").data(new MessageResponse(message), MediaType.APPLICATION_JSON));
+        emitter.complete();
+        return ResponseEntity.status(status).body(emitter);
+    }
+    
+    private static List<StockQuoteResponse> toResponses(List<Quote> quotes) {
+        List<StockQuoteResponse> stocks = new ArrayList<>(quotes.size());
+        for (Quote quote : quotes) {
+            stocks.add(StockQuoteResponse.from(quote));
+        }
+        return stocks;
+    }
+    
+    private static BigDecimal rupeesOrNull(long paise) {
+        return paise == 0 ? null : Money.toRupees(paise);
+    }
+    
+    private static LocalDateTime lastUpdated(Quote quote) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(quote.updatedAtMillis()), ZoneId.systemDefault());
     }
 }
@@ -2,12 +2,22 @@ package com.tradingsim.controller;
 
 import com.tradingsim.dto.request.TradeRequest;
 import com.tradingsim.dto.response.MessageResponse;
+import com.tradingsim.dto.response.TradeResult;
+import com.tradingsim.exception.TradeRejectedException;
 import com.tradingsim.model.*;
-import com.tradingsim.repository.*;
 import com.tradingsim.security.services.UserDetailsImpl;
-import jakarta.transaction.Transactional;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.trading.BatchSettlement;
+import com.tradingsim.service.trading.OrderService;
+import com.tradingsim.service.trading.TradeInstruction;
+import com.tradingsim.service.trading.matching.MatchingEngine;
+import com.tradingsim.service.trading.matching.Order;
+import com.tradingsim.service.trading.pipeline.OrderPipeline;
+import com.tradingsim.service.trading.pipeline.OrderTicket;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -15,9 +25,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @CrossOrigin(origins = {"http://localhost:5000", "http://127.0.0.1:5000"}, maxAge = 3600, allowCredentials = "true")
 @RestController
@@ -25,144 +38,232 @@ import java.util.Map;
 public class TradeController {
     
     @Autowired
-    private UserRepository userRepository;
+    private QuoteStore quoteStore;
     
     @Autowired
-    private WalletRepository walletRepository;
+    private MatchingEngine matchingEngine;
     
     @Autowired
-    private TradeRepository tradeRepository;
+    private OrderService orderService;
     
     @Autowired
-    private TransactionRepository transactionRepository;
+    private OrderPipeline orderPipeline;
     
-    @Autowired
-    private PortfolioRepository portfolioRepository;
-    
-    @Autowired
-    private StockRepository stockRepository;
+    @Value("${trading.batch.max-orders:100}")
+    private int maxBatchOrders;
     
     @PostMapping
     @PreAuthorize("hasRole('USER')")
-    @Transactional
     public ResponseEntity<?> executeTrade(@Valid @RequestBody TradeRequest tradeRequest) {
-        User user = getCurrentUser();
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseThrow(() -> new RuntimeException("Error: Wallet not found for user"));
+        Trade.TradeType side = parseEnum(Trade.TradeType.class, tradeRequest.getType(), null);
+        if (side == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Invalid trade type"));
+        }
+        Order.OrderType orderType = parseEnum(Order.OrderType.class, tradeRequest.getOrderType(), Order.OrderType.MARKET);
+        Order.TimeInForce timeInForce = parseEnum(Order.TimeInForce.class, tradeRequest.getTimeInForce(), Order.TimeInForce.DAY);
+        if (orderType == null || timeInForce == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Invalid order type or time in force"));
+        }
         
-        // Validate stock
-        Stock stock = stockRepository.findBySymbol(tradeRequest.getSymbol())
-                .orElseThrow(() -> new RuntimeException("Error: Stock not found"));
+        long limitPaise = tradeRequest.getPrice() != null ? Money.toPaise(tradeRequest.getPrice()) : 0;
+        long stopPaise = tradeRequest.getStopPrice() != null ? Money.toPaise(tradeRequest.getStopPrice()) : 0;
+        if (orderType == Order.OrderType.LIMIT && limitPaise <= 0) {
+            return ResponseEntity.badRequest().body(new MessageResponse("A positive price is required for LIMIT orders"));
+        }
+        if (orderType == Order.OrderType.STOP && stopPaise <= 0) {
+            return ResponseEntity.badRequest().body(new MessageResponse("A positive stopPrice is required for STOP orders"));
+        }
+        if (orderType == Order.OrderType.MARKET) {
+            limitPaise = 0;
+        }
+        if (orderType != Order.OrderType.STOP) {
+            stopPaise = 0;
+        }
         
-        BigDecimal tradeAmount = stock.getCurrentPrice().multiply(BigDecimal.valueOf(tradeRequest.getQuantity()));
+        Long userId = getCurrentUserId();
         
-        if (tradeRequest.getType().equals(Trade.TradeType.BUY.toString())) {
-            // Check if user has enough balance
-            if (wallet.getBalance().compareTo(tradeAmount) < 0) {
-                return ResponseEntity.badRequest().body(new MessageResponse("Insufficient balance for this trade"));
-            }
+        if (orderPipeline.isEnabled()) {
+            // Answer right away; the outcome is available from GET /api/trade/orders/{id}
+            OrderTicket ticket = orderPipeline.submit(userId, tradeRequest.getSymbol(), side, orderType, timeInForce,
+                    limitPaise, stopPaise, tradeRequest.getQuantity());
             
-            // Update wallet
-            wallet.setBalance(wallet.getBalance().subtract(tradeAmount));
-            walletRepository.save(wallet);
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Order accepted");
+            response.put("orderId", ticket.getId());
+            response.put("stage", ticket.getStage());
             
-            // Record transaction
-            Transaction transaction = new Transaction();
-            transaction.setWallet(wallet);
-            transaction.setType(Transaction.TransactionType.TRADE_BUY);
-            transaction.setAmount(tradeAmount);
-            transaction.setDescription("Bought " + tradeRequest.getQuantity() + " " + tradeRequest.getSymbol() + " shares");
-            transaction.setBalanceAfter(wallet.getBalance());
-            transactionRepository.save(transaction);
+            return ResponseEntity.accepted().body(response);
+        }
+        
+        // Validate stock
+        Stock stock = quoteStore.findBySymbol(tradeRequest.getSymbol())
+                .orElseThrow(() -> new RuntimeException("Error: Stock not found"));
+        
+        if (orderType == Order.OrderType.MARKET) {
+            // Market orders fill instantly at the current price, leaving resting orders' cash and shares alone
+            BigDecimal walletBalance = orderService.executeMarket(userId, stock, side, tradeRequest.getQuantity());
             
-            // Update or create portfolio entry
-            Portfolio portfolio = portfolioRepository.findByUserAndStockSymbol(user, tradeRequest.getSymbol())
-                    .orElse(new Portfolio());
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Trade executed successfully");
+            response.put("walletBalance", walletBalance);
             
-            if (portfolio.getId() == null) {
-                portfolio.setUser(user);
-                portfolio.setStockSymbol(tradeRequest.getSymbol());
-                portfolio.setStockName(stock.getName());
-                portfolio.setQuantity(tradeRequest.getQuantity());
-                portfolio.setAverageBuyPrice(stock.getCurrentPrice());
-                portfolio.setTotalInvestment(tradeAmount);
-            } else {
-                // Calculate new average buy price
-                int newQuantity = portfolio.getQuantity() + tradeRequest.getQuantity();
-                BigDecimal newTotalInvestment = portfolio.getTotalInvestment().add(tradeAmount);
-                @SuppressWarnings("deprecation")
-                BigDecimal newAverageBuyPrice = newTotalInvestment.divide(BigDecimal.valueOf(newQuantity), 2, BigDecimal.ROUND_HALF_UP);
-                
-                portfolio.setQuantity(newQuantity);
-                portfolio.setAverageBuyPrice(newAverageBuyPrice);
-                portfolio.setTotalInvestment(newTotalInvestment);
+            return ResponseEntity.ok(response);
+        }
+        
+        long orderId = orderService.receive(userId, stock.getSymbol(), side, orderType, timeInForce,
+                limitPaise, stopPaise, tradeRequest.getQuantity());
+        Order order = orderService.placeOrder(orderId, userId, stock, side, orderType, timeInForce,
+                        limitPaise, stopPaise, tradeRequest.getQuantity())
+                .completeOnTimeout(null, 1, TimeUnit.SECONDS)
+                .join();
+        if (order == null) {
+            // Still queued behind other work on its book
+            order = matchingEngine.getOrder(orderId);
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Order accepted");
+        response.put("order", order);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Executes a list of market orders against one snapshot of the user's wallet and
+     * holdings and writes all resulting rows in a single transaction. Orders are applied
+     * in the order given; each gets its own EXECUTED or REJECTED status.
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> executeBatch(@RequestBody List<TradeRequest> tradeRequests) {
+        if (tradeRequests == null || tradeRequests.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Batch contains no orders"));
+        }
+        if (tradeRequests.size() > maxBatchOrders) {
+            return ResponseEntity.badRequest().body(new MessageResponse("A batch can contain at most " + maxBatchOrders + " orders"));
+        }
+        
+        Long userId = getCurrentUserId();
+        Map<String, Stock> stocks = new HashMap<>();
+        for (TradeRequest tradeRequest : tradeRequests) {
+            if (tradeRequest.getSymbol() != null && !stocks.containsKey(tradeRequest.getSymbol())) {
+                quoteStore.findBySymbol(tradeRequest.getSymbol())
+                        .ifPresent(stock -> stocks.put(stock.getSymbol(), stock));
             }
+        }
+        long heldPaise = orderService.heldPaise(userId);
+        
+        TradeResult[] results = new TradeResult[tradeRequests.size()];
+        List<Long> orderIds = new ArrayList<>();
+        List<TradeInstruction> instructions = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < tradeRequests.size(); i++) {
+            TradeRequest tradeRequest = tradeRequests.get(i);
+            Trade.TradeType side = parseEnum(Trade.TradeType.class, tradeRequest.getType(), null);
+            Order.OrderType orderType = parseEnum(Order.OrderType.class, tradeRequest.getOrderType(), Order.OrderType.MARKET);
+            Stock stock = tradeRequest.getSymbol() != null ? stocks.get(tradeRequest.getSymbol()) : null;
             
-            portfolio.setCurrentValue(stock.getCurrentPrice().multiply(BigDecimal.valueOf(portfolio.getQuantity())));
-            portfolio.setProfitLoss(portfolio.getCurrentValue().subtract(portfolio.getTotalInvestment()));
-            portfolioRepository.save(portfolio);
-            
-        } else if (tradeRequest.getType().equals(Trade.TradeType.SELL.toString())) {
-            // Check if user owns the stock and has enough quantity
-            Portfolio portfolio = portfolioRepository.findByUserAndStockSymbol(user, tradeRequest.getSymbol())
-                    .orElseThrow(() -> new RuntimeException("Error: You don't own this stock"));
-            
-            if (portfolio.getQuantity() < tradeRequest.getQuantity()) {
-                return ResponseEntity.badRequest().body(new MessageResponse("Not enough shares to sell"));
+            String rejection = null;
+            if (side == null || tradeRequest.getQuantity() < 1) {
+                rejection = "Invalid trade type or quantity";
+            } else if (orderType != Order.OrderType.MARKET) {
+                rejection = "Only MARKET orders can be batched";
+            } else if (stock == null) {
+                rejection = "Stock not found";
+            }
+            if (rejection != null) {
+                results[i] = TradeResult.rejected(i, tradeRequest.getSymbol(), tradeRequest.getType(),
+                        tradeRequest.getQuantity(), rejection);
+                continue;
             }
             
-            // Update wallet
-            wallet.setBalance(wallet.getBalance().add(tradeAmount));
-            walletRepository.save(wallet);
-            
-            // Record transaction
-            Transaction transaction = new Transaction();
-            transaction.setWallet(wallet);
-            transaction.setType(Transaction.TransactionType.TRADE_SELL);
-            transaction.setAmount(tradeAmount);
-            transaction.setDescription("Sold " + tradeRequest.getQuantity() + " " + tradeRequest.getSymbol() + " shares");
-            transaction.setBalanceAfter(wallet.getBalance());
-            transactionRepository.save(transaction);
-            
-            // Update portfolio
-            int newQuantity = portfolio.getQuantity() - tradeRequest.getQuantity();
-            if (newQuantity == 0) {
-                portfolioRepository.delete(portfolio);
-            } else {
-                // Adjust total investment and average buy price proportionally
-                BigDecimal soldInvestment = portfolio.getAverageBuyPrice().multiply(BigDecimal.valueOf(tradeRequest.getQuantity()));
-                portfolio.setTotalInvestment(portfolio.getTotalInvestment().subtract(soldInvestment));
-                portfolio.setQuantity(newQuantity);
-                portfolio.setCurrentValue(stock.getCurrentPrice().multiply(BigDecimal.valueOf(newQuantity)));
-                portfolio.setProfitLoss(portfolio.getCurrentValue().subtract(portfolio.getTotalInvestment()));
-                portfolioRepository.save(portfolio);
+            // Reservations add up, so the batch as a whole is held to the limits
+            long orderId = orderService.receiveMarket(userId, stock.getSymbol(), side, tradeRequest.getQuantity());
+            try {
+                orderService.reserve(orderId, userId, stock.getSymbol(), side, tradeRequest.getQuantity(),
+                        Money.toPaise(stock.getCurrentPrice()));
+            } catch (TradeRejectedException e) {
+                results[i] = TradeResult.rejected(i, tradeRequest.getSymbol(), tradeRequest.getType(),
+                        tradeRequest.getQuantity(), e.getMessage());
+                continue;
             }
-        } else {
-            return ResponseEntity.badRequest().body(new MessageResponse("Invalid trade type"));
+            
+            orderIds.add(orderId);
+            int heldShares = orderService.heldShares(userId, stock.getSymbol());
+            instructions.add(new TradeInstruction(userId, stock, side, tradeRequest.getQuantity(),
+                    Money.of(stock.getCurrentPrice()), heldPaise, heldShares));
+            indexes.add(i);
         }
         
-        // Record trade
-        Trade trade = new Trade();
-        trade.setUser(user);
-        trade.setStockSymbol(tradeRequest.getSymbol());
-        trade.setType(Trade.TradeType.valueOf(tradeRequest.getType()));
-        trade.setQuantity(tradeRequest.getQuantity());
-        trade.setPrice(stock.getCurrentPrice());
-        trade.setDate(LocalDateTime.now());
-        tradeRepository.save(trade);
-        
         Map<String, Object> response = new HashMap<>();
-        response.put("message", "Trade executed successfully");
-        response.put("walletBalance", wallet.getBalance());
+        if (!instructions.isEmpty()) {
+            BatchSettlement batch = orderService.executeBatch(userId, orderIds, instructions, indexes);
+            for (TradeResult result : batch.getResults()) {
+                results[result.getIndex()] = result;
+            }
+            response.put("walletBalance", batch.getWalletBalance());
+        }
+        
+        long executed = Arrays.stream(results).filter(result -> "EXECUTED".equals(result.getStatus())).count();
+        response.put("message", "Batch processed: " + executed + " executed, " + (results.length - executed) + " rejected");
+        response.put("results", Arrays.asList(results));
         
         return ResponseEntity.ok(response);
     }
     
-    private User getCurrentUser() {
+    @GetMapping("/orders")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> getOpenOrders() {
+        return ResponseEntity.ok(matchingEngine.getOpenOrders(getCurrentUserId()));
+    }
+    
+    /**
+     * Status of one order: its pipeline ticket while it has one, otherwise the open order.
+     */
+    @GetMapping("/orders/{id}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> getOrder(@PathVariable Long id) {
+        Long userId = getCurrentUserId();
+        
+        OrderTicket ticket = orderPipeline.isEnabled() ? orderPipeline.getTicket(id) : null;
+        if (ticket != null && ticket.getUserId().equals(userId)) {
+            return ResponseEntity.ok(ticket);
+        }
+        Order order = matchingEngine.getOrder(id);
+        if (order != null && order.getUserId().equals(userId)) {
+            return ResponseEntity.ok(order);
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse("Order not found"));
+    }
+    
+    @DeleteMapping("/orders/{id}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> cancelOrder(@PathVariable Long id) {
+        boolean cancelled = matchingEngine.cancel(getCurrentUserId(), id)
+                .completeOnTimeout(false, 1, TimeUnit.SECONDS)
+                .join();
+        
+        if (!cancelled) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Order is not open or does not belong to you"));
+        }
+        return ResponseEntity.ok(new MessageResponse("Order cancelled"));
+    }
+    
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, E defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        return userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new RuntimeException("Error: User is not found."));
+        return userDetails.getId();
     }
 }
@@ -2,8 +2,6 @@ package com.tradingsim.controller;
 
 import com.tradingsim.dto.request.TradeRequest;
 import com.tradingsim.dto.response.MessageResponse;
-import com.tradingsim.model.Trade;
-import com.tradingsim.model.User;
 import com.tradingsim.repository.TradeRepository;
 import com.tradingsim.security.services.UserDetailsImpl;
 import jakarta.validation.Valid;
@@ -14,8 +12,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @CrossOrigin(origins = {"http://localhost:5000", "http://127.0.0.1:5000"}, maxAge = 3600, allowCredentials = "true")
 @RestController
 @RequestMapping("/api/trades")
@@ -33,12 +29,7 @@ public class TradesController {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        User user = new User();
-        user.setId(userDetails.getId());
-        
-        List<Trade> trades = tradeRepository.findByUserOrderByDateDesc(user);
-        
-        return ResponseEntity.ok(trades);
+        return ResponseEntity.ok(tradeRepository.findResponsesByUserId(userDetails.getId()));
     }
     
     @PostMapping("/buy")
@@ -1,10 +1,6 @@
 package com.tradingsim.controller;
 
-import com.tradingsim.model.Transaction;
-import com.tradingsim.model.User;
-import com.tradingsim.model.Wallet;
 import com.tradingsim.repository.TransactionRepository;
-import com.tradingsim.repository.UserRepository;
 import com.tradingsim.repository.WalletRepository;
 import com.tradingsim.security.services.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,16 +12,12 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @CrossOrigin(origins = {"http://localhost:5000", "http://127.0.0.1:5000"}, maxAge = 3600, allowCredentials = "true")
 @RestController
 @RequestMapping("/api/wallet")
 public class WalletController {
-    @Autowired
-    private UserRepository userRepository;
-    
     @Autowired
     private WalletRepository walletRepository;
     
@@ -35,12 +27,11 @@ public class WalletController {
     @GetMapping("/balance")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> getWalletBalance() {
-        User user = getCurrentUser();
-        Wallet wallet = walletRepository.findByUser(user)
+        BigDecimal balance = walletRepository.findBalanceByUserId(getCurrentUserId())
                 .orElseThrow(() -> new RuntimeException("Error: Wallet not found for user"));
         
         Map<String, BigDecimal> response = new HashMap<>();
-        response.put("balance", wallet.getBalance());
+        response.put("balance", balance);
         
         return ResponseEntity.ok(response);
     }
@@ -48,20 +39,13 @@ public class WalletController {
     @GetMapping("/transactions")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> getTransactions() {
-        User user = getCurrentUser();
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseThrow(() -> new RuntimeException("Error: Wallet not found for user"));
-        
-        List<Transaction> transactions = transactionRepository.findByWalletOrderByCreatedAtDesc(wallet);
-        
-        return ResponseEntity.ok(transactions);
+        return ResponseEntity.ok(transactionRepository.findResponsesByUserId(getCurrentUserId()));
     }
     
-    private User getCurrentUser() {
+    private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        return userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new RuntimeException("Error: User is not found."));
+        return userDetails.getId();
     }
 }
@@ -0,0 +1,14 @@
+package com.tradingsim.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class HistoryImportRequest {
+    @NotEmpty
+    private List<String> paths;  // Files or directories under market.import.directory
+    
+    private String interval = "1d";  // 1m, 5m, 15m, 1h or 1d
+}
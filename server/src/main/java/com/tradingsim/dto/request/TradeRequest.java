@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Data
 public class TradeRequest {
     @NotBlank
@@ -16,4 +18,12 @@ public class TradeRequest {
     @NotNull
     @Min(1)
     private int quantity;
+    
+    private String orderType = "MARKET";  // MARKET, LIMIT or STOP
+    
+    private BigDecimal price;  // Limit price, required for LIMIT orders
+    
+    private BigDecimal stopPrice;  // Trigger price, required for STOP orders
+    
+    private String timeInForce = "DAY";  // DAY, GTC, IOC or FOK
 }
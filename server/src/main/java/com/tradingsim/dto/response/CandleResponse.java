@@ -0,0 +1,26 @@
+package com.tradingsim.dto.response;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class CandleResponse {
+    private LocalDateTime openTime;
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private Long volume;
+
+    public static CandleResponse from(Bar bar) {
+        return new CandleResponse(CandleAggregator.toDateTime(bar.openTime()), Money.toRupees(bar.open()),
+                Money.toRupees(bar.high()), Money.toRupees(bar.low()), Money.toRupees(bar.close()), bar.volume());
+    }
+}
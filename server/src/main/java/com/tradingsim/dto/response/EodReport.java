@@ -0,0 +1,20 @@
+package com.tradingsim.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+public class EodReport {
+    private LocalDate businessDate;
+    private String phase;
+    private long resumedAfterUserId;  // Checkpoint the run started from, 0 for a fresh run
+    private long users;
+    private long snapshots;
+    private int chunks;
+    private int symbols;
+    private long elapsedMs;
+    private long usersPerSecond;
+}
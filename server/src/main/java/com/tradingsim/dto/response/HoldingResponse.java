@@ -0,0 +1,23 @@
+package com.tradingsim.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * One holding as returned by the portfolio endpoints; read straight from the
+ * {@code portfolios} columns, without the owning user.
+ */
+@Data
+@AllArgsConstructor
+public class HoldingResponse {
+    private Long id;
+    private String stockSymbol;
+    private String stockName;
+    private int quantity;
+    private BigDecimal averageBuyPrice;
+    private BigDecimal currentValue;
+    private BigDecimal profitLoss;
+    private BigDecimal totalInvestment;
+}
@@ -0,0 +1,30 @@
+package com.tradingsim.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ImportReport {
+    private List<FileResult> files = new ArrayList<>();
+    private long rows;
+    private long rejected;
+    private long skipped;  // Valid rows the store already had
+    private long elapsedMs;
+    private long rowsPerSecond;
+    
+    @Data
+    @AllArgsConstructor
+    public static class FileResult {
+        private String file;
+        private String symbol;
+        private long rows;
+        private long rejected;
+        private long skipped;
+        private String error;
+    }
+}
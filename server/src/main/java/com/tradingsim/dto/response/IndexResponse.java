@@ -0,0 +1,47 @@
+package com.tradingsim.dto.response;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.market.index.IndexSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class IndexResponse {
+    private String code;
+    private String name;
+    private BigDecimal level;
+    private BigDecimal previousClose;
+    private BigDecimal change;
+    private BigDecimal changePercent;
+    private LocalDateTime lastUpdated;
+    private List<ConstituentResponse> constituents;
+
+    @Data
+    @AllArgsConstructor
+    public static class ConstituentResponse {
+        private String symbol;
+        private BigDecimal price;
+        private BigDecimal weightPercent;
+    }
+
+    public static IndexResponse from(IndexSnapshot index) {
+        List<ConstituentResponse> constituents = new ArrayList<>(index.constituents().length);
+        for (IndexSnapshot.Constituent constituent : index.constituents()) {
+            constituents.add(new ConstituentResponse(constituent.symbol(), Money.toRupees(constituent.pricePaise()),
+                    BigDecimal.valueOf(constituent.weightPercent()).setScale(2, RoundingMode.HALF_UP)));
+        }
+        Money change = Money.ofPaise(index.changePaise());
+        return new IndexResponse(index.code(), index.name(), Money.toRupees(index.levelPaise()),
+                Money.toRupees(index.previousClosePaise()), change.toBigDecimal(),
+                change.percentOf(Money.ofPaise(index.previousClosePaise())),
+                CandleAggregator.toDateTime(index.updatedAtMillis()), constituents);
+    }
+}
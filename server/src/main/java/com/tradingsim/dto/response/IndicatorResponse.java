@@ -0,0 +1,53 @@
+package com.tradingsim.dto.response;
+
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.market.indicators.Indicators;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * Indicator values in rupees (RSI from 0 to 100); null until enough bars have closed.
+ */
+@Data
+@AllArgsConstructor
+public class IndicatorResponse {
+    private String symbol;
+    private String interval;
+    private LocalDateTime barOpenTime;
+    private Integer bars;
+    private BigDecimal close;
+    private BigDecimal sma20;
+    private BigDecimal ema12;
+    private BigDecimal ema26;
+    private BigDecimal ema50;
+    private BigDecimal ema200;
+    private BigDecimal rsi14;
+    private BigDecimal macd;
+    private BigDecimal macdSignal;
+    private BigDecimal macdHistogram;
+    private BigDecimal bollingerUpper;
+    private BigDecimal bollingerLower;
+    private BigDecimal atr14;
+
+    public static IndicatorResponse from(Indicators indicators) {
+        return new IndicatorResponse(indicators.symbol(), indicators.interval().getLabel(),
+                indicators.bars() == 0 ? null : CandleAggregator.toDateTime(indicators.openTime()), indicators.bars(),
+                rupees(indicators.close()), rupees(indicators.sma20()), rupees(indicators.ema12()),
+                rupees(indicators.ema26()), rupees(indicators.ema50()), rupees(indicators.ema200()),
+                round(indicators.rsi14()), rupees(indicators.macd()), rupees(indicators.macdSignal()),
+                rupees(indicators.macdHistogram()), rupees(indicators.bollingerUpper()),
+                rupees(indicators.bollingerLower()), rupees(indicators.atr14()));
+    }
+
+    private static BigDecimal rupees(double paise) {
+        return Double.isNaN(paise) ? null : BigDecimal.valueOf(paise).movePointLeft(2).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal round(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
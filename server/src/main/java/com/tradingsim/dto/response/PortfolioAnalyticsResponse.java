@@ -0,0 +1,53 @@
+package com.tradingsim.dto.response;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.service.portfolio.Performance;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Portfolio performance in rupees and percent (Sharpe ratio as a plain ratio); ratios are
+ * null until there is enough history to compute them.
+ */
+@Data
+@AllArgsConstructor
+public class PortfolioAnalyticsResponse {
+    private BigDecimal nav;
+    private Integer days;
+    private BigDecimal timeWeightedReturnPercent;
+    private BigDecimal xirrPercent;
+    private BigDecimal maxDrawdownPercent;
+    private BigDecimal volatilityPercent;
+    private BigDecimal sharpeRatio;
+    private List<NavPointResponse> navHistory;
+
+    @Data
+    @AllArgsConstructor
+    public static class NavPointResponse {
+        private LocalDate date;
+        private BigDecimal nav;
+        private BigDecimal netFlow;
+    }
+
+    public static PortfolioAnalyticsResponse from(Performance performance) {
+        List<NavPointResponse> history = new ArrayList<>(performance.navHistory().size());
+        for (Performance.NavPoint point : performance.navHistory()) {
+            history.add(new NavPointResponse(point.date(), Money.toRupees(point.navPaise()),
+                    Money.toRupees(point.netFlowPaise())));
+        }
+        return new PortfolioAnalyticsResponse(Money.toRupees(performance.navPaise()), performance.days(),
+                round(performance.timeWeightedReturn() * 100), round(performance.xirr() * 100),
+                round(performance.maxDrawdown() * 100), round(performance.volatility() * 100),
+                round(performance.sharpeRatio()), history);
+    }
+
+    private static BigDecimal round(double value) {
+        return Double.isFinite(value) ? BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP) : null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.tradingsim.dto.response;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.service.portfolio.risk.RiskEstimate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Value at risk and expected shortfall in rupees, as positive losses, over one day and
+ * over horizonDays.
+ */
+@Data
+@AllArgsConstructor
+public class PortfolioRiskResponse {
+    private LocalDate asOf;
+    private List<String> symbols;
+    private BigDecimal portfolioValue;
+    private Integer paths;
+    private Integer historyDays;
+    private Integer horizonDays;
+    private TailResponse oneDay;
+    private TailResponse horizon;
+
+    @Data
+    @AllArgsConstructor
+    public static class TailResponse {
+        private BigDecimal var95;
+        private BigDecimal expectedShortfall95;
+        private BigDecimal var99;
+        private BigDecimal expectedShortfall99;
+
+        static TailResponse from(RiskEstimate.Tail tail) {
+            return new TailResponse(Money.toRupees(tail.var95Paise()), Money.toRupees(tail.expectedShortfall95Paise()),
+                    Money.toRupees(tail.var99Paise()), Money.toRupees(tail.expectedShortfall99Paise()));
+        }
+    }
+
+    public static PortfolioRiskResponse from(RiskEstimate estimate) {
+        return new PortfolioRiskResponse(estimate.asOf(), estimate.symbols(), Money.toRupees(estimate.valuePaise()),
+                estimate.paths(), estimate.historyDays(), estimate.horizonDays(), TailResponse.from(estimate.daily()),
+                TailResponse.from(estimate.horizon()));
+    }
+}
@@ -0,0 +1,19 @@
+package com.tradingsim.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class StockPriceResponse {
+    private String symbol;
+    private String name;
+    private BigDecimal price;
+    private BigDecimal previousClose;
+    private BigDecimal change;
+    private BigDecimal changePercent;
+    private LocalDateTime lastUpdated;
+}
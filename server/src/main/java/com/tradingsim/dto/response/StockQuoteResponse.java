@@ -0,0 +1,37 @@
+package com.tradingsim.dto.response;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.service.market.Quote;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+@Data
+@AllArgsConstructor
+public class StockQuoteResponse {
+    private Long id;
+    private String symbol;
+    private String name;
+    private BigDecimal currentPrice;
+    private BigDecimal previousClose;
+    private BigDecimal openPrice;
+    private BigDecimal dayHigh;
+    private BigDecimal dayLow;
+    private Long volume;
+    private LocalDateTime lastUpdated;
+
+    public static StockQuoteResponse from(Quote quote) {
+        return new StockQuoteResponse(quote.stockId(), quote.symbol(), quote.name(), quote.price(),
+                rupeesOrNull(quote.previousClosePaise()), rupeesOrNull(quote.openPaise()),
+                rupeesOrNull(quote.highPaise()), rupeesOrNull(quote.lowPaise()), quote.volume(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(quote.updatedAtMillis()), ZoneId.systemDefault()));
+    }
+
+    private static BigDecimal rupeesOrNull(long paise) {
+        return paise == 0 ? null : Money.toRupees(paise);
+    }
+}
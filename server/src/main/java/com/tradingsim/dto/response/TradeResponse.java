@@ -0,0 +1,22 @@
+package com.tradingsim.dto.response;
+
+import com.tradingsim.model.Trade;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One executed trade as returned by the trade history endpoints, without the owning user.
+ */
+@Data
+@AllArgsConstructor
+public class TradeResponse {
+    private Long id;
+    private String stockSymbol;
+    private Trade.TradeType type;
+    private int quantity;
+    private BigDecimal price;
+    private LocalDateTime date;
+}
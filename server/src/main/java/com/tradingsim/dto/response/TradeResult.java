@@ -0,0 +1,26 @@
+package com.tradingsim.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class TradeResult {
+    private int index;  // Position of the order in the submitted batch
+    private String symbol;
+    private String type;
+    private int quantity;
+    private String status;  // EXECUTED or REJECTED
+    private BigDecimal price;
+    private String message;
+
+    public static TradeResult executed(int index, String symbol, String type, int quantity, BigDecimal price) {
+        return new TradeResult(index, symbol, type, quantity, "EXECUTED", price, null);
+    }
+
+    public static TradeResult rejected(int index, String symbol, String type, int quantity, String message) {
+        return new TradeResult(index, symbol, type, quantity, "REJECTED", null, message);
+    }
+}
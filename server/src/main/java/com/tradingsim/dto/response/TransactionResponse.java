@@ -0,0 +1,22 @@
+package com.tradingsim.dto.response;
+
+import com.tradingsim.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One wallet transaction as returned by GET /api/wallet/transactions, without the wallet.
+ */
+@Data
+@AllArgsConstructor
+public class TransactionResponse {
+    private Long id;
+    private Transaction.TransactionType type;
+    private BigDecimal amount;
+    private String description;
+    private LocalDateTime createdAt;
+    private BigDecimal balanceAfter;
+}
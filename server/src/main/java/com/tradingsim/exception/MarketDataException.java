@@ -0,0 +1,17 @@
+package com.tradingsim.exception;
+
+/**
+ * Thrown when market data cannot be fetched from the upstream provider, either because
+ * it failed or because it is being spared (rate limit, open circuit breaker).
+ */
+public class MarketDataException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public MarketDataException(String message) {
+        super(message);
+    }
+    
+    public MarketDataException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package com.tradingsim.exception;
+
+/**
+ * Thrown when an order fails a business check (balance, holdings, limits)
+ * and should be reported to the client as a bad request rather than a server error.
+ */
+public class TradeRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public TradeRejectedException(String message) {
+        super(message);
+    }
+}
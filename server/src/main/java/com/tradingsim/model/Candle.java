@@ -0,0 +1,89 @@
+package com.tradingsim.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An OHLCV bar, closed or, after a shutdown, still forming. Recent bars are served from
+ * memory; this table holds the full history.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "candles",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"stock_symbol", "bar_interval", "open_time"}))
+public class Candle {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "stock_symbol", nullable = false)
+    private String stockSymbol;
+    
+    @Column(name = "bar_interval", nullable = false, length = 8)
+    @Enumerated(EnumType.STRING)
+    private Interval barInterval;
+    
+    @Column(name = "open_time", nullable = false)
+    private LocalDateTime openTime;
+    
+    @Column(nullable = false)
+    private BigDecimal open;
+    
+    @Column(nullable = false)
+    private BigDecimal high;
+    
+    @Column(nullable = false)
+    private BigDecimal low;
+    
+    @Column(name = "close_price", nullable = false)
+    private BigDecimal close;
+    
+    @Column(nullable = false)
+    private long volume;
+    
+    public enum Interval {
+        M1("1m", 60_000L),
+        M5("5m", 300_000L),
+        M15("15m", 900_000L),
+        H1("1h", 3_600_000L),
+        D1("1d", 86_400_000L);
+        
+        private final String label;
+        private final long millis;
+        
+        Interval(String label, long millis) {
+            this.label = label;
+            this.millis = millis;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+        
+        public long getMillis() {
+            return millis;
+        }
+        
+        /**
+         * Start of the bar containing the instant; bars are aligned to the given UTC offset,
+         * so daily bars start at local midnight.
+         */
+        public long bucket(long epochMillis, long offsetMillis) {
+            return Math.floorDiv(epochMillis + offsetMillis, millis) * millis - offsetMillis;
+        }
+        
+        public static Interval fromLabel(String label) {
+            for (Interval interval : values()) {
+                if (interval.label.equalsIgnoreCase(label)) {
+                    return interval;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.tradingsim.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the end-of-day job for one business date. {@code lastUserId} is the
+ * checkpoint: every user up to it has been snapshotted, so a restarted run resumes
+ * after it.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "eod_runs")
+public class EodRun {
+    @Id
+    @Column(name = "business_date")
+    private LocalDate businessDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Phase phase = Phase.SNAPSHOTS;
+    
+    @Column(name = "last_user_id", nullable = false)
+    private long lastUserId;
+    
+    @Column(nullable = false)
+    private long users;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    // Cut-off for the day's flows, fixed when the run starts so a resumed run keeps it
+    @Column(name = "cutoff_at")
+    private LocalDateTime cutoffAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    private String error;
+    
+    public enum Phase {
+        SNAPSHOTS,
+        ROLL,
+        DONE
+    }
+    
+    public EodRun(LocalDate businessDate) {
+        this.businessDate = businessDate;
+    }
+}
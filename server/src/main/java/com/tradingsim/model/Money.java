@@ -0,0 +1,119 @@
+package com.tradingsim.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of rupees held as a whole number of paise. Sums and products are exact;
+ * the only rounding is in {@link #of(BigDecimal)}, {@link #dividedBy} and
+ * {@link #percentOf}, each half-up. Entities and responses keep using
+ * {@link BigDecimal}: convert with {@link #of} and {@link #toBigDecimal} at that boundary.
+ * Arithmetic throws {@link ArithmeticException} on overflow.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long paise;
+
+    private Money(long paise) {
+        this.paise = paise;
+    }
+
+    public static Money ofPaise(long paise) {
+        return paise == 0 ? ZERO : new Money(paise);
+    }
+
+    /**
+     * Rounds the amount half-up to whole paise.
+     */
+    public static Money of(BigDecimal rupees) {
+        return ofPaise(toPaise(rupees));
+    }
+
+    public static long toPaise(BigDecimal rupees) {
+        // setScale is a no-op for amounts already in paise, and scaling by 100 keeps
+        // the compact long representation, so the common case allocates one object
+        return rupees.setScale(2, RoundingMode.HALF_UP).scaleByPowerOfTen(2).longValueExact();
+    }
+
+    public static BigDecimal toRupees(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    public long paise() {
+        return paise;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toRupees(paise);
+    }
+
+    public Money plus(Money other) {
+        return ofPaise(Math.addExact(paise, other.paise));
+    }
+
+    public Money minus(Money other) {
+        return ofPaise(Math.subtractExact(paise, other.paise));
+    }
+
+    public Money times(long quantity) {
+        return ofPaise(Math.multiplyExact(paise, quantity));
+    }
+
+    /**
+     * This amount split into {@code parts}, rounded half-up to whole paise.
+     */
+    public Money dividedBy(long parts) {
+        return ofPaise(divideHalfUp(paise, parts));
+    }
+
+    /**
+     * This amount as a percentage of {@code base}, rounded half-up to two decimals;
+     * zero when the base is zero.
+     */
+    public BigDecimal percentOf(Money base) {
+        if (base.paise == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(divideHalfUp(Math.multiplyExact(paise, 10_000L), base.paise), 2);
+    }
+
+    public boolean isNegative() {
+        return paise < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return paise < other.paise;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(paise, other.paise);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.paise == paise;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(paise);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        // Round away from zero when the remainder is at least half the divisor
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,57 @@
+package com.tradingsim.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A user's latest overnight value-at-risk estimate, in rupees.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "portfolio_risk")
+public class PortfolioRisk {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "as_of", nullable = false)
+    private LocalDate asOf;
+    
+    @Column(name = "portfolio_value", nullable = false)
+    private BigDecimal portfolioValue;
+    
+    @Column(name = "horizon_days", nullable = false)
+    private int horizonDays;
+    
+    @Column(nullable = false)
+    private int paths;
+    
+    @Column(name = "daily_var95", nullable = false)
+    private BigDecimal dailyVar95;
+    
+    @Column(name = "daily_es95", nullable = false)
+    private BigDecimal dailyEs95;
+    
+    @Column(name = "daily_var99", nullable = false)
+    private BigDecimal dailyVar99;
+    
+    @Column(name = "daily_es99", nullable = false)
+    private BigDecimal dailyEs99;
+    
+    @Column(name = "horizon_var95", nullable = false)
+    private BigDecimal horizonVar95;
+    
+    @Column(name = "horizon_es95", nullable = false)
+    private BigDecimal horizonEs95;
+    
+    @Column(name = "horizon_var99", nullable = false)
+    private BigDecimal horizonVar99;
+    
+    @Column(name = "horizon_es99", nullable = false)
+    private BigDecimal horizonEs99;
+}
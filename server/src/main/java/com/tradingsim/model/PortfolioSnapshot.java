@@ -0,0 +1,66 @@
+package com.tradingsim.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A user's net asset value at the end of one trading day, with the running return
+ * statistics up to that day so analytics never replay earlier days.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "portfolio_snapshots",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "snapshot_date"}))
+public class PortfolioSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+    
+    // Flows up to this time belong to this snapshot, later ones to the next
+    @Column(name = "snapshot_at", nullable = false)
+    private LocalDateTime snapshotAt;
+    
+    @Column(nullable = false)
+    private BigDecimal cash;
+    
+    @Column(nullable = false)
+    private BigDecimal holdingsValue;
+    
+    @Column(nullable = false)
+    private BigDecimal nav;
+    
+    // Deposits less withdrawals since the previous snapshot
+    @Column(nullable = false)
+    private BigDecimal netFlow;
+    
+    // Growth of one rupee invested at the first snapshot, net of flows
+    @Column(nullable = false)
+    private double unitValue;
+    
+    @Column(nullable = false)
+    private double peakUnitValue;
+    
+    @Column(nullable = false)
+    private double maxDrawdown;
+    
+    @Column(nullable = false)
+    private int returnCount;
+    
+    @Column(nullable = false)
+    private double returnSum;
+    
+    @Column(nullable = false)
+    private double returnSumSquares;
+}
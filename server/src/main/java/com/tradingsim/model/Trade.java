@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 @Table(name = "trades")
 public class Trade {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "trade_ids")
+    @TableGenerator(name = "trade_ids", table = "id_sequences", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "trades", allocationSize = 100)
     private Long id;
     
     @ManyToOne
@@ -0,0 +1,17 @@
+package com.tradingsim.repository;
+
+import com.tradingsim.model.Candle;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CandleRepository extends JpaRepository<Candle, Long> {
+    List<Candle> findByStockSymbolAndBarIntervalAndOpenTimeGreaterThanEqualAndOpenTimeLessThanOrderByOpenTimeDesc(
+            String stockSymbol, Candle.Interval barInterval, LocalDateTime from, LocalDateTime to, Limit limit);
+
+    List<Candle> findByOpenTimeGreaterThanEqual(LocalDateTime from);
+}
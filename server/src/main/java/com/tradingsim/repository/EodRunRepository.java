@@ -0,0 +1,11 @@
+package com.tradingsim.repository;
+
+import com.tradingsim.model.EodRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface EodRunRepository extends JpaRepository<EodRun, LocalDate> {
+}
@@ -1,10 +1,15 @@
 package com.tradingsim.repository;
 
+import com.tradingsim.dto.response.HoldingResponse;
 import com.tradingsim.model.Portfolio;
 import com.tradingsim.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +17,22 @@ import java.util.Optional;
 public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     List<Portfolio> findByUser(User user);
     Optional<Portfolio> findByUserAndStockSymbol(User user, String stockSymbol);
+
+    @Query("select new com.tradingsim.dto.response.HoldingResponse(p.id, p.stockSymbol, p.stockName, p.quantity, " +
+           "p.averageBuyPrice, p.currentValue, p.profitLoss, p.totalInvestment) from Portfolio p where p.user.id = :userId")
+    List<HoldingResponse> findResponsesByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("update Portfolio p set p.quantity = :quantity, p.averageBuyPrice = :averageBuyPrice, " +
+           "p.totalInvestment = :totalInvestment, p.currentValue = :currentValue, p.profitLoss = :profitLoss " +
+           "where p.id = :id")
+    int updateHolding(@Param("id") Long id, @Param("quantity") int quantity,
+                      @Param("averageBuyPrice") BigDecimal averageBuyPrice,
+                      @Param("totalInvestment") BigDecimal totalInvestment,
+                      @Param("currentValue") BigDecimal currentValue,
+                      @Param("profitLoss") BigDecimal profitLoss);
+
+    @Modifying
+    @Query("delete from Portfolio p where p.id = :id")
+    int deleteHolding(@Param("id") Long id);
 }
@@ -0,0 +1,13 @@
+package com.tradingsim.repository;
+
+import com.tradingsim.model.PortfolioRisk;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PortfolioRiskRepository extends JpaRepository<PortfolioRisk, Long> {
+    List<PortfolioRisk> findAllByOrderByDailyVar99Desc(Pageable pageable);
+}
@@ -0,0 +1,12 @@
+package com.tradingsim.repository;
+
+import com.tradingsim.model.PortfolioSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PortfolioSnapshotRepository extends JpaRepository<PortfolioSnapshot, Long> {
+    List<PortfolioSnapshot> findByUserIdOrderBySnapshotDateAsc(Long userId);
+}
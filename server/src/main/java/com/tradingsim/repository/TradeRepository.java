@@ -1,13 +1,17 @@
 package com.tradingsim.repository;
 
+import com.tradingsim.dto.response.TradeResponse;
 import com.tradingsim.model.Trade;
-import com.tradingsim.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface TradeRepository extends JpaRepository<Trade, Long> {
-    List<Trade> findByUserOrderByDateDesc(User user);
+    @Query("select new com.tradingsim.dto.response.TradeResponse(t.id, t.stockSymbol, t.type, t.quantity, t.price, t.date) " +
+           "from Trade t where t.user.id = :userId order by t.date desc")
+    List<TradeResponse> findResponsesByUserId(@Param("userId") Long userId);
 }
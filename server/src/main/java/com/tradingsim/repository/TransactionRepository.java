@@ -1,16 +1,22 @@
 package com.tradingsim.repository;
 
+import com.tradingsim.dto.response.TransactionResponse;
 import com.tradingsim.model.Transaction;
 import com.tradingsim.model.Wallet;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    List<Transaction> findByWalletOrderByCreatedAtDesc(Wallet wallet);
+    @Query("select new com.tradingsim.dto.response.TransactionResponse(t.id, t.type, t.amount, t.description, " +
+           "t.createdAt, t.balanceAfter) from Transaction t where t.wallet.user.id = :userId order by t.createdAt desc")
+    List<TransactionResponse> findResponsesByUserId(@Param("userId") Long userId);
+
     Page<Transaction> findByWallet(Wallet wallet, Pageable pageable);
 }
@@ -2,12 +2,37 @@ package com.tradingsim.repository;
 
 import com.tradingsim.model.User;
 import com.tradingsim.model.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
     Optional<Wallet> findByUser(User user);
+
+    @Query("select w.balance from Wallet w where w.user.id = :userId")
+    Optional<BigDecimal> findBalanceByUserId(@Param("userId") Long userId);
+
+    /**
+     * Reads the wallet and holds its row lock until the transaction ends, so fills
+     * for the same user settle one after another.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from Wallet w where w.user = :user")
+    Optional<Wallet> lockByUser(@Param("user") User user);
+
+    /**
+     * Applies a change relative to whatever the row holds, so a cached wallet can
+     * never overwrite a write it has not seen.
+     */
+    @Modifying
+    @Query("update Wallet w set w.balance = w.balance + :change where w.id = :id")
+    int adjustBalance(@Param("id") Long id, @Param("change") BigDecimal change);
 }
@@ -87,6 +87,14 @@ public class WebSecurityConfig {
                     .requestMatchers(apiBaseUrl + "/health/**").permitAll()
                     .requestMatchers(apiBaseUrl + "/stocks/list").permitAll()
                     .requestMatchers(apiBaseUrl + "/stocks/price/**").permitAll()
+                    .requestMatchers(apiBaseUrl + "/stocks/stream").permitAll()
+                    .requestMatchers(apiBaseUrl + "/stocks/search").permitAll()
+                    .requestMatchers(apiBaseUrl + "/stocks/top-gainers").permitAll()
+                    .requestMatchers(apiBaseUrl + "/stocks/top-losers").permitAll()
+                    .requestMatchers(apiBaseUrl + "/stocks/most-active").permitAll()
+                    .requestMatchers(apiBaseUrl + "/stocks/*/candles").permitAll()
+                    .requestMatchers(apiBaseUrl + "/stocks/*/indicators").permitAll()
+                    .requestMatchers(apiBaseUrl + "/indices/**").permitAll()
                     .requestMatchers(apiBaseUrl + "/market-news").permitAll()
                     .requestMatchers(apiBaseUrl + "/tutorials").permitAll()
                     .requestMatchers(apiBaseUrl + "/test/**").permitAll()
@@ -0,0 +1,238 @@
+package com.tradingsim.service.eod;
+
+import com.tradingsim.dto.response.EodReport;
+import com.tradingsim.model.EodRun;
+import com.tradingsim.repository.EodRunRepository;
+import com.tradingsim.service.ledger.TradeLedger;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.portfolio.PortfolioAnalytics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * End-of-day batch: snapshots every user's wallet balance and portfolio value, then
+ * rolls the trading day (last price becomes the previous close, day high, low and
+ * volume reset) and writes the quotes back to {@code stocks}.
+ *
+ * Users are walked in id order with keyset queries, {@code eod.chunk-size} at a time,
+ * and the chunks are snapshotted in parallel on {@code eod.threads} threads, each with
+ * a few range queries and one batched upsert. Chunks are retired in id order and the
+ * last retired id is checkpointed in {@code eod_runs}, so a run that stops part way
+ * resumes after the last completed chunk.
+ *
+ * Only today can be started. An earlier date that stopped part way can still be resumed
+ * to finish its snapshots, but it is not rolled: the quotes have moved on to a later
+ * session and rolling them would reset that session's range and volume.
+ */
+@Service
+public class EndOfDayJob {
+    private static final Logger logger = LoggerFactory.getLogger(EndOfDayJob.class);
+
+    private static final String SELECT_USER_IDS = "select id from users where id > ? order by id limit ?";
+
+    @Value("${eod.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${eod.threads:0}")
+    private int threads;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EodRunRepository eodRunRepository;
+
+    @Autowired
+    private PortfolioAnalytics portfolioAnalytics;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private TradeLedger tradeLedger;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private Timer runTimer;
+
+    @PostConstruct
+    public void start() {
+        runTimer = Timer.builder("eod.run.duration")
+                .description("Time taken by the end-of-day batch")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${eod.cron:0 0 16 * * MON-FRI}", zone = "Asia/Kolkata")
+    public void runScheduled() {
+        try {
+            run(LocalDate.now(CandleAggregator.MARKET_ZONE));
+        } catch (RuntimeException e) {
+            logger.error("End-of-day run failed; it resumes from its checkpoint when run again", e);
+        }
+    }
+
+    /**
+     * Runs, or resumes, the end-of-day batch for the date. A date that has already
+     * completed is reported without running again.
+     *
+     * @throws IllegalArgumentException if the date is after today, or before today with no run to resume
+     */
+    public EodReport run(LocalDate businessDate) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An end-of-day run is already in progress");
+        }
+        long start = System.nanoTime();
+        try {
+            LocalDate today = LocalDate.now(CandleAggregator.MARKET_ZONE);
+            if (businessDate.isAfter(today)) {
+                throw new IllegalArgumentException("End of day cannot run for " + businessDate
+                        + " before the day is over");
+            }
+            EodRun run = eodRunRepository.findById(businessDate).orElse(null);
+            if (run == null) {
+                if (businessDate.isBefore(today)) {
+                    throw new IllegalArgumentException("End of day for " + businessDate
+                            + " was never started; only today can be started");
+                }
+                run = new EodRun(businessDate);
+            }
+            boolean pastDate = businessDate.isBefore(today);
+            EodReport report = new EodReport();
+            report.setBusinessDate(businessDate);
+            report.setResumedAfterUserId(run.getLastUserId());
+            if (run.getStartedAt() == null) {
+                run.setStartedAt(LocalDateTime.now());
+            }
+            if (run.getCutoffAt() == null) {
+                run.setCutoffAt(run.getStartedAt());
+            }
+            run.setError(null);
+
+            try {
+                if (run.getPhase() == EodRun.Phase.SNAPSHOTS) {
+                    // The snapshots read the day's flows from the ledger tables
+                    awaitLedger();
+                    snapshot(run, report);
+                    run.setPhase(EodRun.Phase.ROLL);
+                    eodRunRepository.save(run);
+                }
+                if (run.getPhase() == EodRun.Phase.ROLL && pastDate) {
+                    logger.warn("End of day {} resumed after its session; quotes are not rolled", businessDate);
+                    run.setPhase(EodRun.Phase.DONE);
+                    run.setFinishedAt(LocalDateTime.now());
+                    eodRunRepository.save(run);
+                }
+                if (run.getPhase() == EodRun.Phase.ROLL) {
+                    quoteStore.openSession();
+                    quoteStore.writeBack();
+                    report.setSymbols(quoteStore.size());
+                    run.setPhase(EodRun.Phase.DONE);
+                    run.setFinishedAt(LocalDateTime.now());
+                    eodRunRepository.save(run);
+                }
+            } catch (RuntimeException e) {
+                run.setError(e.getMessage());
+                eodRunRepository.save(run);
+                throw e;
+            }
+
+            long elapsedNanos = System.nanoTime() - start;
+            runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            report.setPhase(run.getPhase().name());
+            report.setElapsedMs(elapsedNanos / 1_000_000);
+            report.setUsersPerSecond(elapsedNanos > 0 ? report.getUsers() * 1_000_000_000L / elapsedNanos : 0);
+            logger.info("End of day {}: {} users in {} chunks, {} snapshots, {} symbols rolled in {} ms ({} users/s)",
+                    businessDate, report.getUsers(), report.getChunks(), report.getSnapshots(), report.getSymbols(),
+                    report.getElapsedMs(), report.getUsersPerSecond());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void awaitLedger() {
+        try {
+            tradeLedger.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the trade ledger", e);
+        }
+    }
+
+    private void snapshot(EodRun run, EodReport report) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        // Chunks in id order; at most two per thread are read ahead
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+        try {
+            long afterUserId = run.getLastUserId();
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_USER_IDS, Long.class, afterUserId, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                long from = afterUserId;
+                long to = ids.get(ids.size() - 1);
+                inFlight.add(new Chunk(to, ids.size(), pool.submit(() ->
+                        portfolioAnalytics.takeSnapshots(run.getBusinessDate(), run.getCutoffAt(), from, to))));
+                afterUserId = to;
+                if (inFlight.size() >= poolSize * 2) {
+                    retire(inFlight.poll(), run, report);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                retire(inFlight.poll(), run, report);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the oldest chunk and moves the checkpoint past it.
+     */
+    private void retire(Chunk chunk, EodRun run, EodReport report) {
+        int snapshots;
+        try {
+            snapshots = chunk.snapshots().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during the end-of-day run", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("End-of-day snapshots after user " + run.getLastUserId() + " failed",
+                    e.getCause());
+        }
+        run.setLastUserId(chunk.lastUserId());
+        run.setUsers(run.getUsers() + chunk.users());
+        eodRunRepository.save(run);
+        report.setUsers(report.getUsers() + chunk.users());
+        report.setSnapshots(report.getSnapshots() + snapshots);
+        report.setChunks(report.getChunks() + 1);
+    }
+
+    private record Chunk(long lastUserId, int users, Future<Integer> snapshots) {
+    }
+}
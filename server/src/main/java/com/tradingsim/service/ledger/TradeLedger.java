@@ -0,0 +1,299 @@
+package com.tradingsim.service.ledger;
+
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.Transaction;
+import com.tradingsim.repository.TradeRepository;
+import com.tradingsim.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the append-only history of a fill: its trade and wallet transaction.
+ *
+ * By default the rows are saved in the caller's transaction. With
+ * {@code trading.ledger.write-behind=true} they are queued once the caller's
+ * transaction commits and written by a background thread in batches of up to
+ * {@code batch-size} entries, or whatever arrived within {@code flush-interval-ms}.
+ * Pooled ids let Hibernate send each batch as JDBC batch inserts. An entry is only
+ * durable once it has been flushed; {@link #flush()} waits for that. A batch that
+ * still fails after {@code max-attempts} is appended to the {@code dead-letter-file}
+ * and dropped, so a database outage never stops the writer or, through the full
+ * queue, the trading threads behind it.
+ */
+@Component
+public class TradeLedger implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(TradeLedger.class);
+
+    @Value("${trading.ledger.write-behind:false}")
+    private boolean writeBehind;
+
+    @Value("${trading.ledger.batch-size:500}")
+    private int batchSize;
+
+    @Value("${trading.ledger.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${trading.ledger.capacity:100000}")
+    private int capacity;
+
+    @Value("${trading.ledger.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${trading.ledger.dead-letter-file:./data/ledger-dead-letter.tsv}")
+    private Path deadLetterFile;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private record Entry(Trade trade, Transaction transaction) {
+    }
+
+    private BlockingQueue<Entry> queue;
+    private Thread thread;
+    private volatile boolean running = true;
+    private long appended;
+    private long flushed;
+    private Timer flushTimer;
+    private Counter flushedRows;
+    private Counter deadLetterRows;
+
+    @PostConstruct
+    public void start() {
+        if (!writeBehind) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        flushTimer = Timer.builder("trading.ledger.flush.latency")
+                .description("Time to write one batch of ledger entries")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        flushedRows = meterRegistry.counter("trading.ledger.rows.flushed");
+        deadLetterRows = meterRegistry.counter("trading.ledger.rows.dead-lettered");
+        meterRegistry.gauge("trading.ledger.queue.depth", queue, BlockingQueue::size);
+
+        thread = new Thread(this, "trade-ledger");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Write-behind trade ledger started (batch size {}, flush interval {} ms)", batchSize, flushIntervalMs);
+    }
+
+    /**
+     * Drains everything still queued before the application context goes away.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(60));
+        if (!queue.isEmpty()) {
+            logger.error("Trade ledger stopped with {} unwritten entries", queue.size());
+        }
+    }
+
+    public void record(Trade trade, Transaction transaction) {
+        record(List.of(trade), List.of(transaction));
+    }
+
+    /**
+     * Records trades and their matching transactions; both lists are in the same order.
+     */
+    public void record(List<Trade> trades, List<Transaction> transactions) {
+        if (!writeBehind) {
+            transactionRepository.saveAll(transactions);
+            tradeRepository.saveAll(trades);
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(trades, transactions);
+                }
+            });
+        } else {
+            enqueue(trades, transactions);
+        }
+    }
+
+    /**
+     * Blocks until every entry recorded before the call has been written, or
+     * dead-lettered. The end-of-day job calls this before it reads the day's flows.
+     */
+    public void flush() throws InterruptedException {
+        if (!writeBehind) {
+            return;
+        }
+        synchronized (this) {
+            long target = appended;
+            while (flushed < target) {
+                wait(flushIntervalMs);
+            }
+        }
+    }
+
+    private void enqueue(List<Trade> trades, List<Transaction> transactions) {
+        for (int i = 0; i < trades.size(); i++) {
+            try {
+                // Blocks when the queue is full, pushing back on the trading path instead of growing the heap
+                queue.put(new Entry(trades.get(i), transactions.get(i)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while recording trade", e);
+            }
+            synchronized (this) {
+                appended++;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for the first entry, then keeps collecting until the batch is full or the
+     * flush interval since that first entry has passed.
+     */
+    private void collect(List<Entry> batch) throws InterruptedException {
+        Entry first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize && running) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        queue.drainTo(batch, batchSize - batch.size());
+    }
+
+    private void write(List<Entry> batch) {
+        List<Trade> trades = new ArrayList<>(batch.size());
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            trades.add(entry.trade());
+            transactions.add(entry.transaction());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long start = System.nanoTime();
+                transactionTemplate.executeWithoutResult(status -> {
+                    transactionRepository.saveAll(transactions);
+                    tradeRepository.saveAll(trades);
+                });
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                flushedRows.increment(trades.size() + transactions.size());
+                break;
+            } catch (RuntimeException e) {
+                // The entities keep the ids the failed attempt assigned. Pooled ids are not
+                // handed out again, so clear them and let the retry take fresh ones.
+                trades.forEach(trade -> trade.setId(null));
+                transactions.forEach(transaction -> transaction.setId(null));
+                if (attempt >= maxAttempts || !running) {
+                    logger.error("Ledger flush of {} entries failed {} times, moving them to {}",
+                            batch.size(), attempt, deadLetterFile, e);
+                    deadLetter(batch);
+                    break;
+                }
+                logger.warn("Ledger flush of {} entries failed (attempt {} of {}), retrying",
+                        batch.size(), attempt, maxAttempts, e);
+                try {
+                    Thread.sleep(Math.min(5000, flushIntervalMs * attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        synchronized (this) {
+            flushed += batch.size();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Appends the entries as tab-separated lines, one per trade and its transaction,
+     * so they can be inspected and loaded again by hand.
+     */
+    private void deadLetter(List<Entry> batch) {
+        List<String> lines = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            Trade trade = entry.trade();
+            Transaction transaction = entry.transaction();
+            lines.add(String.join("\t", String.valueOf(trade.getUser().getId()), trade.getStockSymbol(),
+                    trade.getType().name(), String.valueOf(trade.getQuantity()), trade.getPrice().toPlainString(),
+                    String.valueOf(trade.getDate()), String.valueOf(transaction.getWallet().getId()),
+                    transaction.getType().name(), transaction.getAmount().toPlainString(),
+                    transaction.getBalanceAfter().toPlainString(), String.valueOf(transaction.getCreatedAt()),
+                    String.valueOf(transaction.getDescription())));
+        }
+        try {
+            Path parent = deadLetterFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.write(deadLetterFile, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            deadLetterRows.increment(batch.size());
+        } catch (IOException e) {
+            logger.error("Could not write {} ledger entries to {}, logging them instead: {}", batch.size(), deadLetterFile,
+                    lines, e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.tradingsim.service.market;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Top gainers, losers and most active stocks, kept in order as quotes tick. Each tick
+ * re-sifts its symbol in three indexed heaps (by gain, by loss and by volume) at
+ * O(log n); reading the top N expands N entries from a heap's root instead of sorting
+ * the market. Every quote in the store is ranked at startup and again when a session
+ * opens, so rankings never wait for a symbol's next tick.
+ */
+@Service
+public class MarketMovers implements QuoteListener {
+
+    @Value("${market.quotes.capacity:4096}")
+    private int capacity;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private RankHeap gainers;   // change in millionths of the previous close
+    private RankHeap losers;    // the same, negated
+    private RankHeap active;    // the day's volume
+    private long[] sequences;
+
+    @PostConstruct
+    public void start() {
+        gainers = new RankHeap(capacity);
+        losers = new RankHeap(capacity);
+        active = new RankHeap(capacity);
+        sequences = new long[capacity];
+        meterRegistry.gauge("market.movers.ranked", this, MarketMovers::ranked);
+        rankAll();
+    }
+
+    @Override
+    public void onQuote(Quote quote) {
+        if (quote.id() >= capacity) {
+            return;
+        }
+        synchronized (this) {
+            // Listeners run outside the store's lock, so two updates can arrive out of order
+            if (quote.sequence() < sequences[quote.id()]) {
+                return;
+            }
+            sequences[quote.id()] = quote.sequence();
+            update(quote);
+        }
+    }
+
+    @Override
+    public void onSessionOpen() {
+        rankAll();
+    }
+
+    private void rankAll() {
+        int count = Math.min(quoteStore.size(), capacity);
+        for (int id = 0; id < count; id++) {
+            onQuote(quoteStore.get(id));
+        }
+    }
+
+    /**
+     * Stocks up the most since the previous close, best first.
+     */
+    public List<Quote> topGainers(int limit) {
+        return top(gainers, limit);
+    }
+
+    /**
+     * Stocks down the most since the previous close, worst first.
+     */
+    public List<Quote> topLosers(int limit) {
+        return top(losers, limit);
+    }
+
+    /**
+     * Stocks with the highest volume today.
+     */
+    public List<Quote> mostActive(int limit) {
+        return top(active, limit);
+    }
+
+    // Callers hold this
+    private void update(Quote quote) {
+        int id = quote.id();
+        if (quote.previousClosePaise() > 0 && quote.pricePaise() > 0) {
+            long change = quote.changePaise() * 1_000_000 / quote.previousClosePaise();
+            gainers.set(id, change);
+            losers.set(id, -change);
+        } else {
+            gainers.remove(id);
+            losers.remove(id);
+        }
+        active.set(id, quote.volume());
+    }
+
+    private List<Quote> top(RankHeap heap, int limit) {
+        int[] ids;
+        synchronized (this) {
+            // Only positive keys: a gainer must be up, a loser down, an active stock traded
+            ids = heap.top(limit, 0);
+        }
+        List<Quote> quotes = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            quotes.add(quoteStore.get(id));
+        }
+        return quotes;
+    }
+
+    private synchronized double ranked() {
+        return active.size();
+    }
+}
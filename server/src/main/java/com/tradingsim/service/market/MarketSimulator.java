@@ -0,0 +1,140 @@
+package com.tradingsim.service.market;
+
+import com.tradingsim.service.market.candles.CandleAggregator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves every listed stock along a geometric Brownian motion, one step every
+ * {@code market.simulator.tick-ms}. Each step is
+ * {@code S * exp((drift - volatility^2 / 2) dt + volatility * sqrt(dt) * Z)} with
+ * {@code dt} measured in trading years, so the configured volatility and drift are
+ * the annual figures a real stock would show.
+ *
+ * The unrounded price is kept per symbol and only the published price is rounded to
+ * the exchange tick, so rounding never biases the walk. Prices go to {@link QuoteStore},
+ * which keeps open, high, low and volume and writes changed rows back in batches.
+ *
+ * Ticks only run during the trading session in market time, so prices, volume and
+ * candles stay put between the end-of-day roll and the next open. Set
+ * {@code market.simulator.around-the-clock} to keep the market moving regardless.
+ */
+@Component
+@ConditionalOnProperty(prefix = "market.simulator", name = "enabled", havingValue = "true")
+public class MarketSimulator {
+    private static final Logger logger = LoggerFactory.getLogger(MarketSimulator.class);
+
+    private static final double TRADING_SECONDS_PER_YEAR = 252 * 6.25 * 3600;
+    private static final long TICK_SIZE_PAISE = 5;
+    private static final double MEAN_ABS_NORMAL = Math.sqrt(2 / Math.PI);
+
+    @Autowired
+    private MarketSimulatorProperties properties;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    // Indexed by quote id; only touched from the scheduler thread
+    private double[] levels = new double[0];
+    private double[] drifts = new double[0];
+    private double[] diffusions = new double[0];
+    private int modelled;
+
+    private Timer tickTimer;
+
+    @PostConstruct
+    public void start() {
+        tickTimer = Timer.builder("market.simulator.tick.latency")
+                .description("Time to advance every symbol by one step")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        logger.info("Market simulator started: {} ms ticks, default volatility {}, drift {}",
+                properties.getTickMs(), properties.getVolatility(), properties.getDrift());
+    }
+
+    @Scheduled(fixedRateString = "${market.simulator.tick-ms:100}")
+    public void tickDuringSession() {
+        if (properties.isAroundTheClock() || inSession(ZonedDateTime.now(CandleAggregator.MARKET_ZONE))) {
+            tick();
+        }
+    }
+
+    public void tick() {
+        long start = System.nanoTime();
+        int count = quoteStore.size();
+        if (count > modelled) {
+            model(count);
+        }
+
+        long volumePerTick = properties.getVolumePerTick();
+        for (int id = 0; id < count; id++) {
+            double level = levels[id];
+            if (level <= 0) {
+                continue;
+            }
+            double z = random.nextGaussian();
+            level *= Math.exp(drifts[id] + diffusions[id] * z);
+            levels[id] = level;
+
+            // Bigger moves trade more shares; on average a tick trades volumePerTick
+            long volume = Math.round(volumePerTick * Math.abs(z) / MEAN_ABS_NORMAL);
+            quoteStore.tick(id, toTick(level), volume);
+        }
+        tickTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    boolean inSession(ZonedDateTime at) {
+        DayOfWeek day = at.getDayOfWeek();
+        if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY) {
+            return false;
+        }
+        LocalTime time = at.toLocalTime();
+        return !time.isBefore(properties.getSessionOpen()) && time.isBefore(properties.getSessionClose());
+    }
+
+    /**
+     * Sets up the per-step terms for symbols listed since the last tick.
+     */
+    private void model(int count) {
+        levels = Arrays.copyOf(levels, count);
+        drifts = Arrays.copyOf(drifts, count);
+        diffusions = Arrays.copyOf(diffusions, count);
+
+        double dt = properties.getTickMs() / 1000.0 * properties.getTimeScale() / TRADING_SECONDS_PER_YEAR;
+        for (int id = modelled; id < count; id++) {
+            Quote quote = quoteStore.get(id);
+            MarketSimulatorProperties.Model model = properties.getSymbols().get(quote.symbol());
+            double volatility = model != null && model.getVolatility() != null ? model.getVolatility() : properties.getVolatility();
+            double drift = model != null && model.getDrift() != null ? model.getDrift() : properties.getDrift();
+
+            levels[id] = quote.pricePaise();
+            drifts[id] = (drift - volatility * volatility / 2) * dt;
+            diffusions[id] = volatility * Math.sqrt(dt);
+        }
+        modelled = count;
+    }
+
+    private static long toTick(double level) {
+        long ticks = Math.round(level / TICK_SIZE_PAISE);
+        return Math.max(1, ticks) * TICK_SIZE_PAISE;
+    }
+}
@@ -0,0 +1,46 @@
+package com.tradingsim.service.market;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for the simulated market under {@code market.simulator}. Volatility and
+ * drift are annualised; a symbol without its own entry uses the defaults.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "market.simulator")
+public class MarketSimulatorProperties {
+
+    private boolean enabled = false;
+
+    private long tickMs = 100;
+
+    private double timeScale = 1.0;         // Simulated seconds per wall-clock second
+
+    private double volatility = 0.30;
+
+    private double drift = 0.08;
+
+    private long volumePerTick = 100;       // Mean shares traded per symbol per tick
+
+    // Trading session in market time, Monday to Friday; prices only move while it is open
+    private LocalTime sessionOpen = LocalTime.of(9, 15);
+
+    private LocalTime sessionClose = LocalTime.of(15, 30);
+
+    private boolean aroundTheClock = false; // Tick outside the session too, e.g. for demos
+
+    private Map<String, Model> symbols = new HashMap<>();
+
+    @Data
+    public static class Model {
+        private Double volatility;
+        private Double drift;
+    }
+}
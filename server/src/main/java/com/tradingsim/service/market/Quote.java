@@ -0,0 +1,22 @@
+package com.tradingsim.service.market;
+
+import com.tradingsim.model.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * A consistent snapshot of one symbol's quote. Prices are in paise; a zero price means
+ * the value is not known yet. {@code sequence} is the store-wide change number of the
+ * update that produced this snapshot.
+ */
+public record Quote(int id, long stockId, String symbol, String name, long pricePaise, long previousClosePaise,
+                    long openPaise, long highPaise, long lowPaise, long volume, long updatedAtMillis, long sequence) {
+
+    public BigDecimal price() {
+        return Money.toRupees(pricePaise);
+    }
+
+    public long changePaise() {
+        return previousClosePaise == 0 ? 0 : pricePaise - previousClosePaise;
+    }
+}
@@ -0,0 +1,17 @@
+package com.tradingsim.service.market;
+
+/**
+ * Notified after every quote update, on the updating thread. Implementations must
+ * return quickly and must not update quotes themselves.
+ */
+public interface QuoteListener {
+
+    void onQuote(Quote quote);
+
+    /**
+     * Called once every quote has been rolled over to a new trading day, which resets
+     * previous closes and volumes without a tick.
+     */
+    default void onSessionOpen() {
+    }
+}
@@ -0,0 +1,385 @@
+package com.tradingsim.service.market;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Stock;
+import com.tradingsim.repository.StockRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory quotes for every listed stock, the source of prices for the stock
+ * endpoints and the trade path. Symbols are interned to int ids and each field lives
+ * in a primitive array indexed by id.
+ *
+ * Each symbol has a sequence lock: writers make its sequence odd, write, and make it
+ * even again; readers retry until they see the same even sequence before and after
+ * reading, so they never block and never see a half-applied update. Changed quotes are
+ * written back to the {@code stocks} table every {@code market.quotes.write-back-ms}.
+ * Stocks listed after startup are registered every {@code market.quotes.listing-refresh-ms},
+ * so looking up a symbol never goes to the database.
+ */
+@Service
+@DependsOn("databaseInitializer")
+public class QuoteStore {
+    private static final Logger logger = LoggerFactory.getLogger(QuoteStore.class);
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int LOCK_STRIPES = 64;
+
+    @Value("${market.quotes.capacity:4096}")
+    private int capacity;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectProvider<QuoteListener> listenerProvider;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicLong changes = new AtomicLong();
+    private final long epoch = System.currentTimeMillis();
+    private volatile List<QuoteListener> listeners;
+    private volatile int size;
+    private volatile long lastStockId;
+
+    private String[] symbols;
+    private String[] names;
+    private long[] stockIds;
+    private long[] seqlocks;
+    private long[] prices;
+    private long[] previousCloses;
+    private long[] opens;
+    private long[] highs;
+    private long[] lows;
+    private long[] volumes;
+    private long[] updatedAt;
+    private long[] sequences;
+    private long[] persisted;  // sequence last written back to the stocks table
+
+    @PostConstruct
+    public void load() {
+        symbols = new String[capacity];
+        names = new String[capacity];
+        stockIds = new long[capacity];
+        seqlocks = new long[capacity];
+        prices = new long[capacity];
+        previousCloses = new long[capacity];
+        opens = new long[capacity];
+        highs = new long[capacity];
+        lows = new long[capacity];
+        volumes = new long[capacity];
+        updatedAt = new long[capacity];
+        sequences = new long[capacity];
+        persisted = new long[capacity];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        for (Stock stock : stockRepository.findAll()) {
+            register(stock);
+        }
+        meterRegistry.gauge("market.quotes.symbols", this, QuoteStore::size);
+        logger.info("Loaded {} quotes", size);
+    }
+
+    @PreDestroy
+    public void stop() {
+        writeBack();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The symbol's id, or -1 if it is not listed.
+     */
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Registers stocks added to the {@code stocks} table since the last look.
+     */
+    @Scheduled(fixedDelayString = "${market.quotes.listing-refresh-ms:60000}")
+    public void registerNewListings() {
+        List<Stock> listed = stockRepository.findByIdGreaterThan(lastStockId);
+        for (Stock stock : listed) {
+            register(stock);
+        }
+        if (!listed.isEmpty()) {
+            logger.info("Registered {} new listings", listed.size());
+        }
+    }
+
+    public Optional<Quote> get(String symbol) {
+        int id = idOf(symbol);
+        return id < 0 ? Optional.empty() : Optional.of(get(id));
+    }
+
+    public Quote get(int id) {
+        while (true) {
+            long before = (long) LONGS.getAcquire(seqlocks, id);
+            if ((before & 1) == 0) {
+                Quote quote = snapshot(id);
+                VarHandle.loadLoadFence();
+                if ((long) LONGS.getOpaque(seqlocks, id) == before) {
+                    return quote;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * The day's traded volume for the id, read without a snapshot.
+     */
+    public long volume(int id) {
+        return (long) LONGS.getOpaque(volumes, id);
+    }
+
+    /**
+     * Identifies this run of the store. Sequences start over at every boot, so they are
+     * only comparable between values of the same epoch.
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * The sequence of the latest change to any quote. Every change gets a higher one,
+     * so an unchanged value means no quote has changed.
+     */
+    public long sequence() {
+        return changes.get();
+    }
+
+    /**
+     * Quotes changed after the given sequence, in id order.
+     */
+    public List<Quote> changedSince(long sequence) {
+        int count = size;
+        List<Quote> quotes = new ArrayList<>();
+        for (int id = 0; id < count; id++) {
+            // A write in progress may already have taken its sequence, so read it through the lock
+            long lock = (long) LONGS.getAcquire(seqlocks, id);
+            if ((lock & 1) != 0 || sequences[id] > sequence) {
+                Quote quote = get(id);
+                if (quote.sequence() > sequence) {
+                    quotes.add(quote);
+                }
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Snapshots of every quote, in id order.
+     */
+    public List<Quote> getAll() {
+        int count = size;
+        List<Quote> quotes = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            quotes.add(get(id));
+        }
+        return quotes;
+    }
+
+    /**
+     * A detached {@link Stock} carrying the current quote, for code that works with entities.
+     */
+    public Optional<Stock> findBySymbol(String symbol) {
+        return get(symbol).map(QuoteStore::toStock);
+    }
+
+    /**
+     * Records a trade at the given price: moves the price, widens the day's range and
+     * adds to the volume.
+     */
+    public Quote tick(int id, long pricePaise, long volume) {
+        Quote quote;
+        synchronized (locks[id % LOCK_STRIPES]) {
+            long seq = beginWrite(id);
+            prices[id] = pricePaise;
+            if (opens[id] == 0) {
+                opens[id] = pricePaise;
+            }
+            highs[id] = Math.max(highs[id], pricePaise);
+            lows[id] = lows[id] == 0 ? pricePaise : Math.min(lows[id], pricePaise);
+            volumes[id] += volume;
+            endWrite(id, seq);
+            quote = snapshot(id);
+        }
+        for (QuoteListener listener : listeners()) {
+            listener.onQuote(quote);
+        }
+        return quote;
+    }
+
+    /**
+     * Starts a new trading day: the last price becomes the previous close and the
+     * day's open, range and volume start over with the next tick.
+     */
+    @Scheduled(cron = "${market.session.open-cron:0 15 9 * * MON-FRI}", zone = "Asia/Kolkata")
+    public void openSession() {
+        int count = size;
+        for (int id = 0; id < count; id++) {
+            synchronized (locks[id % LOCK_STRIPES]) {
+                long seq = beginWrite(id);
+                previousCloses[id] = prices[id];
+                opens[id] = 0;
+                highs[id] = 0;
+                lows[id] = 0;
+                volumes[id] = 0;
+                endWrite(id, seq);
+            }
+        }
+        for (QuoteListener listener : listeners()) {
+            listener.onSessionOpen();
+        }
+        logger.info("Opened trading session for {} symbols", count);
+    }
+
+    // Callers hold the symbol's lock stripe
+    private long beginWrite(int id) {
+        long seq = seqlocks[id];
+        LONGS.setOpaque(seqlocks, id, seq + 1);
+        VarHandle.storeStoreFence();
+        return seq;
+    }
+
+    private void endWrite(int id, long seq) {
+        updatedAt[id] = System.currentTimeMillis();
+        sequences[id] = changes.incrementAndGet();
+        LONGS.setRelease(seqlocks, id, seq + 2);
+    }
+
+    private Quote snapshot(int id) {
+        return new Quote(id, stockIds[id], symbols[id], names[id], prices[id], previousCloses[id], opens[id],
+                highs[id], lows[id], volumes[id], updatedAt[id], sequences[id]);
+    }
+
+    /**
+     * Looked up on first use, since listeners may depend on beans that read quotes.
+     */
+    private List<QuoteListener> listeners() {
+        List<QuoteListener> current = listeners;
+        if (current == null) {
+            current = listenerProvider.orderedStream().toList();
+            listeners = current;
+        }
+        return current;
+    }
+
+    /**
+     * Writes quotes changed since the last write-back to the {@code stocks} table.
+     */
+    @Scheduled(fixedDelayString = "${market.quotes.write-back-ms:5000}")
+    public void writeBack() {
+        List<Quote> changed = new ArrayList<>();
+        int count = size;
+        for (int id = 0; id < count; id++) {
+            Quote quote = get(id);
+            if (quote.sequence() > persisted[id]) {
+                changed.add(quote);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(changed.size());
+        for (Quote quote : changed) {
+            rows.add(new Object[]{Money.toRupees(quote.pricePaise()), rupeesOrNull(quote.previousClosePaise()),
+                    rupeesOrNull(quote.openPaise()), rupeesOrNull(quote.highPaise()), rupeesOrNull(quote.lowPaise()),
+                    quote.volume(), new Timestamp(quote.updatedAtMillis()), quote.stockId()});
+        }
+        jdbcTemplate.batchUpdate("update stocks set current_price = ?, previous_close = ?, open_price = ?, " +
+                "day_high = ?, day_low = ?, volume = ?, last_updated = ? where id = ?", rows);
+        for (Quote quote : changed) {
+            persisted[quote.id()] = Math.max(persisted[quote.id()], quote.sequence());
+        }
+    }
+
+    private synchronized int register(Stock stock) {
+        Integer existing = ids.get(stock.getSymbol());
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id == capacity) {
+            throw new IllegalStateException("Quote store is full; raise market.quotes.capacity above " + capacity);
+        }
+        symbols[id] = stock.getSymbol();
+        names[id] = stock.getName();
+        stockIds[id] = stock.getId();
+        prices[id] = Money.toPaise(stock.getCurrentPrice());
+        previousCloses[id] = paiseOrZero(stock.getPreviousClose());
+        opens[id] = paiseOrZero(stock.getOpenPrice());
+        highs[id] = paiseOrZero(stock.getDayHigh());
+        lows[id] = paiseOrZero(stock.getDayLow());
+        volumes[id] = stock.getVolume() == null ? 0 : stock.getVolume();
+        updatedAt[id] = stock.getLastUpdated() == null ? System.currentTimeMillis()
+                : stock.getLastUpdated().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // Publishing the id after the arrays are filled makes them visible to readers
+        size = id + 1;
+        ids.put(stock.getSymbol(), id);
+        lastStockId = Math.max(lastStockId, stock.getId());
+        return id;
+    }
+
+    static Stock toStock(Quote quote) {
+        Stock stock = new Stock();
+        stock.setId(quote.stockId());
+        stock.setSymbol(quote.symbol());
+        stock.setName(quote.name());
+        stock.setCurrentPrice(Money.toRupees(quote.pricePaise()));
+        stock.setPreviousClose(rupeesOrNull(quote.previousClosePaise()));
+        stock.setOpenPrice(rupeesOrNull(quote.openPaise()));
+        stock.setDayHigh(rupeesOrNull(quote.highPaise()));
+        stock.setDayLow(rupeesOrNull(quote.lowPaise()));
+        stock.setVolume(quote.volume());
+        stock.setLastUpdated(LocalDateTime.ofInstant(Instant.ofEpochMilli(quote.updatedAtMillis()), ZoneId.systemDefault()));
+        return stock;
+    }
+
+    private static long paiseOrZero(BigDecimal rupees) {
+        return rupees == null ? 0 : Money.toPaise(rupees);
+    }
+
+    private static BigDecimal rupeesOrNull(long paise) {
+        return paise == 0 ? null : Money.toRupees(paise);
+    }
+}
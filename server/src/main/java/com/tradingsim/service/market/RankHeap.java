@@ -0,0 +1,168 @@
+package com.tradingsim.service.market;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary max-heap of quote ids by a long key. Each id knows its slot, so a key
+ * change sifts just that entry, in O(log n) over flat arrays. Not thread-safe;
+ * {@link MarketMovers} locks each heap.
+ */
+final class RankHeap {
+
+    private final long[] keys;     // by id
+    private final int[] slots;     // by id, -1 when absent
+    private final int[] heap;      // ids, largest key first
+    private int size;
+
+    RankHeap(int capacity) {
+        keys = new long[capacity];
+        slots = new int[capacity];
+        heap = new int[capacity];
+        Arrays.fill(slots, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void set(int id, long key) {
+        int slot = slots[id];
+        if (slot < 0) {
+            keys[id] = key;
+            heap[size] = id;
+            slots[id] = size;
+            siftUp(size++);
+        } else if (key != keys[id]) {
+            boolean up = key > keys[id];
+            keys[id] = key;
+            if (up) {
+                siftUp(slot);
+            } else {
+                siftDown(slot);
+            }
+        }
+    }
+
+    void remove(int id) {
+        int slot = slots[id];
+        if (slot < 0) {
+            return;
+        }
+        slots[id] = -1;
+        int last = heap[--size];
+        if (slot < size) {
+            heap[slot] = last;
+            slots[last] = slot;
+            siftDown(slot);
+            siftUp(slots[last]);
+        }
+    }
+
+    /**
+     * Ids of the {@code limit} largest keys above {@code floor}, largest first. Expands the
+     * heap best-first from the root, so it touches about limit * 2 entries.
+     */
+    int[] top(int limit, long floor) {
+        int[] ids = new int[Math.min(limit, size)];
+        int count = 0;
+        // Frontier of heap slots whose parents have been taken, itself kept as a small heap
+        int[] frontier = new int[2 * ids.length + 1];
+        int frontierSize = 0;
+        if (size > 0) {
+            frontier[frontierSize++] = 0;
+        }
+        while (count < ids.length && frontierSize > 0) {
+            int slot = frontier[0];
+            frontier[0] = frontier[--frontierSize];
+            siftFrontier(frontier, frontierSize);
+            int id = heap[slot];
+            if (keys[id] <= floor) {
+                break;
+            }
+            ids[count++] = id;
+            for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < size; child++) {
+                frontier[frontierSize] = child;
+                raiseFrontier(frontier, frontierSize++);
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    // Larger key first; the lower id wins ties, so the order is stable
+    private boolean before(int a, int b) {
+        return keys[a] > keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    private void siftUp(int slot) {
+        int id = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!before(id, heap[parent])) {
+                break;
+            }
+            move(heap[parent], slot);
+            slot = parent;
+        }
+        move(id, slot);
+    }
+
+    private void siftDown(int slot) {
+        int id = heap[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], id)) {
+                break;
+            }
+            move(heap[child], slot);
+            slot = child;
+        }
+        move(id, slot);
+    }
+
+    private void move(int id, int slot) {
+        heap[slot] = id;
+        slots[id] = slot;
+    }
+
+    private void raiseFrontier(int[] frontier, int i) {
+        int slot = frontier[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(heap[slot], heap[frontier[parent]])) {
+                break;
+            }
+            frontier[i] = frontier[parent];
+            i = parent;
+        }
+        frontier[i] = slot;
+    }
+
+    private void siftFrontier(int[] frontier, int size) {
+        if (size == 0) {
+            return;
+        }
+        int i = 0;
+        int slot = frontier[0];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[frontier[child + 1]], heap[frontier[child]])) {
+                child++;
+            }
+            if (!before(heap[frontier[child]], heap[slot])) {
+                break;
+            }
+            frontier[i] = frontier[child];
+            i = child;
+        }
+        frontier[i] = slot;
+    }
+}
@@ -0,0 +1,212 @@
+package com.tradingsim.service.market;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Search-as-you-type over stock symbols and company names. Symbols, full names and
+ * every word of a name are kept as lowercase keys in one sorted array, so a prefix
+ * lookup is a binary search plus a scan over the matches; queries of three or more
+ * characters that match no prefix fall back to a trigram index of the names.
+ *
+ * Results rank exact symbol, then symbol prefix, then name prefix, then word prefix,
+ * then anywhere in the name, and by the day's volume within each rank. The index is an
+ * immutable snapshot; stocks listed after it was built are merged in on the next search.
+ */
+@Service
+public class SymbolIndex {
+
+    private static final byte EXACT_SYMBOL = 0;
+    private static final byte SYMBOL_PREFIX = 1;
+    private static final byte NAME_PREFIX = 2;
+    private static final byte WORD_PREFIX = 3;
+    private static final byte NAME_CONTAINS = 4;
+
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::rank)
+            .thenComparing(Comparator.comparingLong(Match::volume).reversed())
+            .thenComparing(Match::symbol);
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new int[0], new byte[0], new String[0], new String[0], Map.of(), 0);
+
+    private record Snapshot(String[] keys, int[] ids, byte[] kinds, String[] symbols, String[] names, Map<String, int[]> trigrams,
+                            int indexed) {
+    }
+
+    private record Match(int id, int rank, long volume, String symbol) {
+    }
+
+    /**
+     * Up to {@code limit} quotes matching the query, best first.
+     */
+    public List<Quote> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot index = current();
+
+        Map<Integer, Integer> ranks = new HashMap<>();
+        for (int i = lowerBound(index.keys(), q); i < index.keys().length && index.keys()[i].startsWith(q); i++) {
+            int rank = index.kinds()[i] == SYMBOL_PREFIX && index.keys()[i].length() == q.length()
+                    ? EXACT_SYMBOL : index.kinds()[i];
+            ranks.merge(index.ids()[i], rank, Math::min);
+        }
+        if (ranks.size() < limit && q.length() >= 3) {
+            for (int id : trigramCandidates(index, q)) {
+                if (!ranks.containsKey(id) && index.names()[id].contains(q)) {
+                    ranks.put(id, (int) NAME_CONTAINS);
+                }
+            }
+        }
+
+        // Keep the best limit matches; only those are snapshotted
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        ranks.forEach((id, rank) -> {
+            best.add(new Match(id, rank, quoteStore.volume(id), index.symbols()[id]));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(RANKING);
+
+        List<Quote> results = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            results.add(quoteStore.get(match.id()));
+        }
+        return results;
+    }
+
+    private Snapshot current() {
+        Snapshot index = snapshot;
+        return quoteStore.size() > index.indexed() ? extend() : index;
+    }
+
+    /**
+     * Merges stocks listed since the snapshot was built into a new snapshot.
+     */
+    private synchronized Snapshot extend() {
+        Snapshot index = snapshot;
+        int count = quoteStore.size();
+        if (count <= index.indexed()) {
+            return index;
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<int[]> entries = new ArrayList<>();  // {id, kind} per key
+        String[] symbols = Arrays.copyOf(index.symbols(), count);
+        String[] names = Arrays.copyOf(index.names(), count);
+        Map<String, List<Integer>> newTrigrams = new HashMap<>();
+        for (int id = index.indexed(); id < count; id++) {
+            Quote quote = quoteStore.get(id);
+            String name = normalize(quote.name());
+            symbols[id] = quote.symbol();
+            names[id] = name;
+            keys.add(normalize(quote.symbol()));
+            entries.add(new int[]{id, SYMBOL_PREFIX});
+            if (!name.isEmpty()) {
+                keys.add(name);
+                entries.add(new int[]{id, NAME_PREFIX});
+            }
+            String[] words = name.split("[^a-z0-9&]+");
+            for (int w = 1; w < words.length; w++) {
+                if (!words[w].isEmpty()) {
+                    keys.add(words[w]);
+                    entries.add(new int[]{id, WORD_PREFIX});
+                }
+            }
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                List<Integer> posting = newTrigrams.computeIfAbsent(name.substring(i, i + 3), t -> new ArrayList<>());
+                if (posting.isEmpty() || posting.get(posting.size() - 1) != id) {
+                    posting.add(id);
+                }
+            }
+        }
+
+        // Merge the new keys into the sorted arrays
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+        int total = index.keys().length + order.length;
+        String[] mergedKeys = new String[total];
+        int[] mergedIds = new int[total];
+        byte[] mergedKinds = new byte[total];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < total; k++) {
+            if (j >= order.length || (i < index.keys().length && index.keys()[i].compareTo(keys.get(order[j])) <= 0)) {
+                mergedKeys[k] = index.keys()[i];
+                mergedIds[k] = index.ids()[i];
+                mergedKinds[k] = index.kinds()[i];
+                i++;
+            } else {
+                mergedKeys[k] = keys.get(order[j]);
+                mergedIds[k] = entries.get(order[j])[0];
+                mergedKinds[k] = (byte) entries.get(order[j])[1];
+                j++;
+            }
+        }
+
+        // Ids only grow, so appending keeps every posting list sorted
+        Map<String, int[]> trigrams = new HashMap<>(index.trigrams());
+        newTrigrams.forEach((trigram, ids) -> {
+            int[] old = trigrams.getOrDefault(trigram, new int[0]);
+            int[] posting = Arrays.copyOf(old, old.length + ids.size());
+            for (int n = 0; n < ids.size(); n++) {
+                posting[old.length + n] = ids.get(n);
+            }
+            trigrams.put(trigram, posting);
+        });
+
+        Snapshot extended = new Snapshot(mergedKeys, mergedIds, mergedKinds, symbols, names, trigrams, count);
+        snapshot = extended;
+        return extended;
+    }
+
+    // Names containing every trigram of the query, taken from the rarest trigram's postings
+    private static int[] trigramCandidates(Snapshot index, String q) {
+        int[] rarest = null;
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            int[] posting = index.trigrams().get(q.substring(i, i + 3));
+            if (posting == null) {
+                return new int[0];
+            }
+            if (rarest == null || posting.length < rarest.length) {
+                rarest = posting;
+            }
+        }
+        return rarest;
+    }
+
+    private static int lowerBound(String[] keys, String q) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(q) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,10 @@
+package com.tradingsim.service.market.candles;
+
+import com.tradingsim.model.Candle;
+
+/**
+ * One OHLCV bar with prices in paise and the open time in epoch milliseconds.
+ */
+public record Bar(String symbol, Candle.Interval interval, long openTime, long open, long high, long low,
+                  long close, long volume) {
+}
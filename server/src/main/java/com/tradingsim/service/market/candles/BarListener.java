@@ -0,0 +1,10 @@
+package com.tradingsim.service.market.candles;
+
+/**
+ * Notified when a bar closes, on the ticking thread and while the symbol's candles are
+ * locked. Implementations must return quickly.
+ */
+public interface BarListener {
+
+    void onBar(Bar bar);
+}
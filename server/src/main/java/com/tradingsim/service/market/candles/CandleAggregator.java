@@ -0,0 +1,352 @@
+package com.tradingsim.service.market.candles;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.model.Money;
+import com.tradingsim.repository.CandleRepository;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteListener;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.history.HistoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Builds 1m, 5m, 15m, 1h and 1d OHLCV bars from quote ticks and from other recorded
+ * series such as index levels. Each tick touches the current bar of every interval
+ * and nothing else. The latest {@code market.candles.ring-size} bars per symbol and
+ * interval stay in memory; closed bars are queued and written every
+ * {@code market.candles.flush-ms}, and older ranges are read back from there: the
+ * {@link HistoryStore} when it is enabled, otherwise the {@code candles} table.
+ *
+ * A row in the candles table always holds the whole bar, so writing it again, say on a
+ * retried flush, changes nothing. Bars still forming at shutdown are written too and
+ * picked up again on startup, so a bar that spans a restart is continued, not split.
+ */
+@Service
+public class CandleAggregator implements QuoteListener {
+    private static final Logger logger = LoggerFactory.getLogger(CandleAggregator.class);
+
+    private static final Candle.Interval[] INTERVALS = Candle.Interval.values();
+    public static final ZoneId MARKET_ZONE = ZoneId.of("Asia/Kolkata");
+    public static final long MARKET_OFFSET_MILLIS =
+            MARKET_ZONE.getRules().getOffset(Instant.EPOCH).getTotalSeconds() * 1000L;
+
+    private static final String UPSERT = "insert into candles (stock_symbol, bar_interval, open_time, open, high, low, " +
+            "close_price, volume) values (?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update " +
+            "open = values(open), high = values(high), low = values(low), close_price = values(close_price), " +
+            "volume = values(volume)";
+
+    @Value("${market.quotes.capacity:4096}")
+    private int capacity;
+
+    @Value("${market.candles.ring-size:120}")
+    private int ringSize;
+
+    @Value("${market.candles.max-bars:1000}")
+    private int maxBars;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private CandleRepository candleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HistoryStore historyStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectProvider<BarListener> barListenerProvider;
+
+    private final Queue<Bar> closed = new ConcurrentLinkedQueue<>();
+    private AtomicReferenceArray<Series> series;  // indexed by quote id
+    private final Map<String, Series> instruments = new ConcurrentHashMap<>();  // series without a quote
+    private volatile List<BarListener> barListeners;
+    private Map<String, Bar[]> resumable = Map.of();  // bars written at the last shutdown, by interval
+
+    private static final class Series {
+        final CandleRing[] rings;
+        long lastVolume;
+
+        /**
+         * @param resumed the bars to continue, by interval; entries may be null
+         * @param volume  the day's volume already seen, so it does not count toward the first bar
+         */
+        Series(String symbol, int ringSize, Bar[] resumed, long volume) {
+            rings = new CandleRing[INTERVALS.length];
+            for (int i = 0; i < INTERVALS.length; i++) {
+                rings[i] = new CandleRing(symbol, INTERVALS[i], ringSize);
+                if (resumed != null && resumed[i] != null) {
+                    rings[i].resume(resumed[i]);
+                }
+            }
+            lastVolume = volume;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        series = new AtomicReferenceArray<>(capacity);
+        meterRegistry.gauge("market.candles.unflushed", closed, Queue::size);
+        if (!historyStore.isEnabled()) {
+            resumable = forming(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * The stored bars of each symbol whose interval contains {@code now}.
+     */
+    private Map<String, Bar[]> forming(long now) {
+        long dayStart = Candle.Interval.D1.bucket(now, MARKET_OFFSET_MILLIS);
+        Map<String, Bar[]> bars = new HashMap<>();
+        for (Candle candle : candleRepository.findByOpenTimeGreaterThanEqual(toDateTime(dayStart))) {
+            Candle.Interval interval = candle.getBarInterval();
+            Bar bar = toBar(candle);
+            if (bar.openTime() == interval.bucket(now, MARKET_OFFSET_MILLIS)) {
+                bars.computeIfAbsent(bar.symbol(), symbol -> new Bar[INTERVALS.length])[interval.ordinal()] = bar;
+            }
+        }
+        if (!bars.isEmpty()) {
+            logger.info("Continuing the forming candles of {} symbols", bars.size());
+        }
+        return bars;
+    }
+
+    /**
+     * Writes the bars still forming to the candles table too, so a restart continues them
+     * instead of losing them.
+     */
+    @PreDestroy
+    public void stop() {
+        flush();
+        if (historyStore.isEnabled()) {
+            // Append-only history cannot merge a half-formed bar with its continuation
+            return;
+        }
+        List<Series> all = new ArrayList<>(instruments.values());
+        for (int id = 0; id < series.length(); id++) {
+            Series s = series.get(id);
+            if (s != null) {
+                all.add(s);
+            }
+        }
+        List<Bar> current = new ArrayList<>();
+        for (Series s : all) {
+            synchronized (s) {
+                for (CandleRing ring : s.rings) {
+                    Bar bar = ring.current();
+                    if (bar != null) {
+                        current.add(bar);
+                    }
+                }
+            }
+        }
+        write(current);
+    }
+
+    @Override
+    public void onQuote(Quote quote) {
+        if (quote.id() >= series.length() || quote.pricePaise() <= 0) {
+            return;
+        }
+        Series s = series.get(quote.id());
+        if (s == null) {
+            series.compareAndSet(quote.id(), null,
+                    new Series(quote.symbol(), ringSize, resumable.get(quote.symbol()), quote.volume()));
+            s = series.get(quote.id());
+        }
+
+        synchronized (s) {
+            // Quotes carry the day's cumulative volume, which starts over each session
+            long volume = quote.volume() >= s.lastVolume ? quote.volume() - s.lastVolume : quote.volume();
+            s.lastVolume = quote.volume();
+            add(s, quote.updatedAtMillis(), quote.pricePaise(), volume);
+        }
+    }
+
+    /**
+     * Adds a value of a series that is not a quote, such as an index level, in paise.
+     */
+    public void record(String symbol, long timeMillis, long valuePaise) {
+        if (valuePaise <= 0) {
+            return;
+        }
+        Series s = instruments.computeIfAbsent(symbol, key -> new Series(key, ringSize, resumable.get(key), 0));
+        synchronized (s) {
+            add(s, timeMillis, valuePaise, 0);
+        }
+    }
+
+    // Callers hold the series lock
+    private void add(Series s, long time, long pricePaise, long volume) {
+        for (int i = 0; i < INTERVALS.length; i++) {
+            Bar bar = s.rings[i].add(INTERVALS[i].bucket(time, MARKET_OFFSET_MILLIS), pricePaise, volume);
+            if (bar != null) {
+                closed.add(bar);
+                for (BarListener listener : barListeners()) {
+                    listener.onBar(bar);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bars opening in {@code [from, to)} (epoch milliseconds), oldest first and at most
+     * {@code market.candles.max-bars} of the newest. Recent bars come from memory and
+     * only the part of the range older than that is read from the database, limited to
+     * the newest rows that still fit.
+     */
+    public List<Bar> getCandles(String symbol, Candle.Interval interval, long from, long to) {
+        List<Bar> recent = List.of();
+        long oldest = Long.MAX_VALUE;
+        Series s = seriesOf(symbol);
+        if (s != null) {
+            CandleRing ring = s.rings[interval.ordinal()];
+            synchronized (s) {
+                oldest = ring.oldest();
+                recent = ring.range(from, to);
+            }
+        }
+
+        int older = maxBars - recent.size();
+        if (older <= 0) {
+            return new ArrayList<>(recent.subList(recent.size() - maxBars, recent.size()));
+        }
+        List<Bar> bars = new ArrayList<>();
+        if (from < oldest && historyStore.isEnabled()) {
+            bars.addAll(historyStore.bars(symbol, interval, from, Math.min(to, oldest), older));
+        } else if (from < oldest) {
+            // Only the newest rows that still fit are read, then put back in time order
+            List<Candle> candles = candleRepository
+                    .findByStockSymbolAndBarIntervalAndOpenTimeGreaterThanEqualAndOpenTimeLessThanOrderByOpenTimeDesc(
+                            symbol, interval, toDateTime(from), toDateTime(Math.min(to, oldest)), Limit.of(older));
+            for (int i = candles.size() - 1; i >= 0; i--) {
+                bars.add(toBar(candles.get(i)));
+            }
+        }
+        bars.addAll(recent);
+        return bars;
+    }
+
+    /**
+     * The symbol's bar still forming at the interval, if it has had a tick.
+     */
+    public Optional<Bar> current(String symbol, Candle.Interval interval) {
+        Series s = seriesOf(symbol);
+        if (s == null) {
+            return Optional.empty();
+        }
+        synchronized (s) {
+            return Optional.ofNullable(s.rings[interval.ordinal()].current());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${market.candles.flush-ms:5000}")
+    public void flush() {
+        List<Bar> bars = new ArrayList<>();
+        Bar bar;
+        while ((bar = closed.poll()) != null) {
+            bars.add(bar);
+        }
+        write(bars);
+    }
+
+    private void write(List<Bar> bars) {
+        try {
+            save(bars);
+        } catch (IOException e) {
+            logger.error("Could not append {} candles to the price history", bars.size(), e);
+        } catch (RuntimeException e) {
+            // Keep them for the next flush rather than leave a gap in the history
+            closed.addAll(bars);
+            logger.warn("Could not write {} candles, will retry: {}", bars.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Stores bars where older candles are read from: appended to the price history, or
+     * upserted into the candles table in one JDBC batch. Returns how many were stored;
+     * the price history skips bars older than the last one of their series.
+     */
+    public int save(List<Bar> bars) throws IOException {
+        if (bars.isEmpty()) {
+            return 0;
+        }
+        if (historyStore.isEnabled()) {
+            return historyStore.appendBars(bars);
+        }
+        List<Object[]> rows = new ArrayList<>(bars.size());
+        for (Bar bar : bars) {
+            rows.add(new Object[]{bar.symbol(), bar.interval().name(), Timestamp.valueOf(toDateTime(bar.openTime())),
+                    Money.toRupees(bar.open()), Money.toRupees(bar.high()), Money.toRupees(bar.low()),
+                    Money.toRupees(bar.close()), bar.volume()});
+        }
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+        return rows.size();
+    }
+
+    private Series seriesOf(String symbol) {
+        Series s = instruments.get(symbol);
+        if (s != null) {
+            return s;
+        }
+        int id = quoteStore.idOf(symbol);
+        return id >= 0 && id < series.length() ? series.get(id) : null;
+    }
+
+    /**
+     * Looked up on first use, since listeners may read candles themselves.
+     */
+    private List<BarListener> barListeners() {
+        List<BarListener> current = barListeners;
+        if (current == null) {
+            current = barListenerProvider.orderedStream().toList();
+            barListeners = current;
+        }
+        return current;
+    }
+
+    private static Bar toBar(Candle candle) {
+        return new Bar(candle.getStockSymbol(), candle.getBarInterval(), toEpochMillis(candle.getOpenTime()),
+                Money.toPaise(candle.getOpen()), Money.toPaise(candle.getHigh()), Money.toPaise(candle.getLow()),
+                Money.toPaise(candle.getClose()), candle.getVolume());
+    }
+
+    public static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
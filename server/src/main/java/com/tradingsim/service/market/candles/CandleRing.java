@@ -0,0 +1,130 @@
+package com.tradingsim.service.market.candles;
+
+import com.tradingsim.model.Candle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most recent bars of one symbol and interval in a fixed-size ring of primitive
+ * columns. The newest bar is the one still forming; once the ring is full each new
+ * bar overwrites the oldest. Not thread-safe; {@link CandleAggregator} locks per symbol.
+ */
+final class CandleRing {
+
+    private final String symbol;
+    private final Candle.Interval interval;
+    private final long[] openTimes;
+    private final long[] opens;
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] closes;
+    private final long[] volumes;
+    private int head = -1;  // slot of the newest bar
+    private int count;
+
+    CandleRing(String symbol, Candle.Interval interval, int capacity) {
+        this.symbol = symbol;
+        this.interval = interval;
+        openTimes = new long[capacity];
+        opens = new long[capacity];
+        highs = new long[capacity];
+        lows = new long[capacity];
+        closes = new long[capacity];
+        volumes = new long[capacity];
+    }
+
+    /**
+     * Adds a tick to the bar starting at {@code bucket}. Returns the bar it closed, if
+     * the tick started a new one.
+     */
+    Bar add(long bucket, long pricePaise, long volume) {
+        if (count > 0 && bucket <= openTimes[head]) {
+            // A late tick for a bar that has moved on still counts toward the current one
+            highs[head] = Math.max(highs[head], pricePaise);
+            lows[head] = Math.min(lows[head], pricePaise);
+            closes[head] = pricePaise;
+            volumes[head] += volume;
+            return null;
+        }
+
+        Bar closed = count > 0 ? bar(head) : null;
+        head = (head + 1) % openTimes.length;
+        count = Math.min(count + 1, openTimes.length);
+        openTimes[head] = bucket;
+        opens[head] = pricePaise;
+        highs[head] = pricePaise;
+        lows[head] = pricePaise;
+        closes[head] = pricePaise;
+        volumes[head] = volume;
+        return closed;
+    }
+
+    /**
+     * Makes the bar the one still forming, so ticks in its interval continue it. Only
+     * for an empty ring.
+     */
+    void resume(Bar bar) {
+        head = 0;
+        count = 1;
+        openTimes[0] = bar.openTime();
+        opens[0] = bar.open();
+        highs[0] = bar.high();
+        lows[0] = bar.low();
+        closes[0] = bar.close();
+        volumes[0] = bar.volume();
+    }
+
+    /**
+     * Open time of the oldest bar still held, or {@code Long.MAX_VALUE} if there is none.
+     */
+    long oldest() {
+        return count == 0 ? Long.MAX_VALUE : openTimes[slot(0)];
+    }
+
+    /**
+     * Bars opening in {@code [from, to)}, oldest first.
+     */
+    List<Bar> range(long from, long to) {
+        List<Bar> bars = new ArrayList<>();
+        for (int i = firstAtOrAfter(from); i < count; i++) {
+            int slot = slot(i);
+            if (openTimes[slot] >= to) {
+                break;
+            }
+            bars.add(bar(slot));
+        }
+        return bars;
+    }
+
+    /**
+     * The bar still forming, or null.
+     */
+    Bar current() {
+        return count == 0 ? null : bar(head);
+    }
+
+    // Open times increase with position, so the first bar in range is found by binary search
+    private int firstAtOrAfter(long from) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (openTimes[slot(mid)] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Slot of the i-th oldest bar
+    private int slot(int i) {
+        return Math.floorMod(head - count + 1 + i, openTimes.length);
+    }
+
+    private Bar bar(int slot) {
+        return new Bar(symbol, interval, openTimes[slot], opens[slot], highs[slot], lows[slot], closes[slot], volumes[slot]);
+    }
+}
@@ -0,0 +1,309 @@
+package com.tradingsim.service.market.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * An append-only time series of long columns on memory-mapped segment files. Each
+ * segment {@code %020d.seg} (named after its first row) holds {@code segmentRows} rows
+ * column by column: all timestamps, then each value column. Column 0 is the timestamp,
+ * which must never decrease and is written last, so a row only exists once its
+ * timestamp is non-zero and a crash mid-append leaves no partial row. The column count
+ * and segment size are recorded in {@code series.hdr} and checked on every open, since
+ * rows cannot be found again with a different segment size.
+ *
+ * Reads go straight to the mapped pages, so history lives in the page cache rather
+ * than on the heap. Only the segment being appended to stays mapped; older segments
+ * are mapped read-only on demand and at most {@code mappedSegments} of them are kept,
+ * least recently used first out, so a series holds a bounded number of the process's
+ * memory maps however long it grows. An evicted segment is unmapped once the garbage
+ * collector frees its buffer. One writer at a time; readers may run concurrently with it.
+ */
+public class ColumnSeries implements Closeable {
+
+    private static final String HEADER = "series.hdr";
+    private static final int MAGIC = 0x434F4C53;
+
+    private final Path directory;
+    private final int columns;
+    private final int segmentRows;
+    private final long segmentBytes;
+    private final Map<Long, MappedByteBuffer> readable;
+    private volatile Segment tail;
+    private volatile Segment lastRead;
+    // First timestamp of each segment, so a lookup maps only the segment it lands in
+    private volatile long[] firstTimes;
+    private volatile long size;
+
+    private record Segment(long index, MappedByteBuffer buffer) {
+    }
+
+    public ColumnSeries(Path directory, int columns, int segmentRows, int mappedSegments) throws IOException {
+        this.directory = directory;
+        this.columns = columns;
+        this.segmentRows = segmentRows;
+        this.segmentBytes = (long) columns * segmentRows * Long.BYTES;
+        if (segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segments of " + segmentRows + " rows x " + columns + " columns exceed 2 GB");
+        }
+        this.readable = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MappedByteBuffer> eldest) {
+                return size() > mappedSegments;
+            }
+        };
+        Files.createDirectories(directory);
+
+        long segmentCount;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentCount = files.filter(path -> path.getFileName().toString().endsWith(".seg")).count();
+        }
+        checkLayout(segmentCount);
+
+        long[] firsts = new long[(int) Math.max(16, segmentCount)];
+        ByteBuffer first = ByteBuffer.allocate(Long.BYTES);
+        for (long i = 0; i < segmentCount; i++) {
+            try (FileChannel channel = FileChannel.open(path(i), StandardOpenOption.READ)) {
+                channel.read(first.clear(), 0);
+                firsts[(int) i] = first.getLong(0);
+            }
+        }
+        firstTimes = firsts;
+        if (segmentCount > 0) {
+            tail = new Segment(segmentCount - 1, map(segmentCount - 1, FileChannel.MapMode.READ_WRITE));
+            size = (segmentCount - 1) * segmentRows + usedRows(tail.buffer());
+        }
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Appends a row; {@code values} holds the columns after the timestamp. Rows older
+     * than the last one are refused and false is returned.
+     */
+    public synchronized boolean append(long time, long... values) throws IOException {
+        if (time <= 0 || values.length != columns - 1) {
+            throw new IllegalArgumentException("A row needs a positive time and " + (columns - 1) + " values");
+        }
+        long row = size;
+        if (row > 0 && time < time(row - 1)) {
+            return false;
+        }
+        long index = row / segmentRows;
+        int offset = (int) (row % segmentRows);
+        Segment segment = tail;
+        if (segment == null || segment.index() != index) {
+            segment = roll(index);
+        }
+        MappedByteBuffer buffer = segment.buffer();
+        for (int column = 1; column < columns; column++) {
+            buffer.putLong(position(column, offset), values[column - 1]);
+        }
+        buffer.putLong(position(0, offset), time);
+        if (offset == 0) {
+            long[] firsts = firstTimes;
+            if (index == firsts.length) {
+                firsts = Arrays.copyOf(firsts, firsts.length * 2);
+                firsts[(int) index] = time;
+                firstTimes = firsts;
+            } else {
+                firsts[(int) index] = time;
+            }
+        }
+        size = row + 1;
+        return true;
+    }
+
+    public long time(long row) {
+        return get(row, 0);
+    }
+
+    public long get(long row, int column) {
+        return buffer(row / segmentRows).getLong(position(column, (int) (row % segmentRows)));
+    }
+
+    /**
+     * Index of the first row at or after {@code time}, or {@link #size()} if there is none.
+     */
+    public long lowerBound(long time) {
+        long end = size;
+        long[] firsts = firstTimes;
+        int low = 0;
+        int high = (int) ((end + segmentRows - 1) / segmentRows);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (firsts[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+        // Every segment from 'low' on starts at or after time, so the row is in the one before
+        long index = low - 1;
+        MappedByteBuffer buffer = buffer(index);
+        int first = 0;
+        int last = (int) Math.min(segmentRows, end - index * segmentRows);
+        while (first < last) {
+            int mid = (first + last) >>> 1;
+            if (buffer.getLong(position(0, mid)) < time) {
+                first = mid + 1;
+            } else {
+                last = mid;
+            }
+        }
+        return index * segmentRows + first;
+    }
+
+    /**
+     * Visits rows with a timestamp in {@code [from, to)} in time order and returns how
+     * many were visited. The visitor reads columns through {@link #get(long, int)}.
+     */
+    public long scan(long from, long to, RowVisitor visitor) {
+        long end = size;
+        long row = lowerBound(from);
+        long visited = 0;
+        for (; row < end && time(row) < to; row++) {
+            visitor.visit(this, row);
+            visited++;
+        }
+        return visited;
+    }
+
+    public synchronized void force() {
+        Segment segment = tail;
+        if (segment != null) {
+            segment.buffer().force();
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private int position(int column, int offset) {
+        return (column * segmentRows + offset) * Long.BYTES;
+    }
+
+    // Rows in use in a segment: the timestamps form a non-zero prefix
+    private int usedRows(MappedByteBuffer segment) {
+        int low = 0;
+        int high = segmentRows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (segment.getLong(position(0, mid)) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private MappedByteBuffer buffer(long index) {
+        Segment segment = tail;
+        if (segment != null && segment.index() == index) {
+            return segment.buffer();
+        }
+        segment = lastRead;
+        if (segment != null && segment.index() == index) {
+            return segment.buffer();
+        }
+        MappedByteBuffer buffer;
+        synchronized (readable) {
+            buffer = readable.get(index);
+            if (buffer == null) {
+                try {
+                    buffer = map(index, FileChannel.MapMode.READ_ONLY);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not map price history segment " + path(index), e);
+                }
+                readable.put(index, buffer);
+            }
+        }
+        lastRead = new Segment(index, buffer);
+        return buffer;
+    }
+
+    // The full segment is flushed when appends move on; from then on it is only read
+    private Segment roll(long index) throws IOException {
+        Segment previous = tail;
+        if (previous != null) {
+            previous.buffer().force();
+        }
+        Segment segment = new Segment(index, map(index, FileChannel.MapMode.READ_WRITE));
+        tail = segment;
+        return segment;
+    }
+
+    private MappedByteBuffer map(long index, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path(index), options)) {
+            return channel.map(mode, 0, segmentBytes);
+        }
+    }
+
+    private Path path(long index) {
+        return directory.resolve(String.format("%020d.seg", index * segmentRows));
+    }
+
+    /**
+     * Checks the existing segments against the configured layout and records it in the
+     * header if there is none yet.
+     *
+     * @throws IllegalStateException if the series was written with other columns or another segment size
+     */
+    private void checkLayout(long segmentCount) throws IOException {
+        Path header = directory.resolve(HEADER);
+        if (Files.exists(header)) {
+            ByteBuffer stored = ByteBuffer.wrap(Files.readAllBytes(header));
+            if (stored.remaining() != 3 * Integer.BYTES || stored.getInt() != MAGIC) {
+                throw new IllegalStateException(header + " is not a column series header");
+            }
+            int storedColumns = stored.getInt();
+            int storedRows = stored.getInt();
+            if (storedColumns != columns || storedRows != segmentRows) {
+                throw new IllegalStateException("Price history at " + directory + " has " + storedColumns + " columns in "
+                        + storedRows + "-row segments, not " + columns + " columns in " + segmentRows + "-row segments");
+            }
+        }
+        for (long i = 0; i < segmentCount; i++) {
+            Path path = path(i);
+            if (!Files.exists(path) || Files.size(path) != segmentBytes) {
+                throw new IllegalStateException("Price history at " + directory + " does not have " + segmentCount
+                        + " segments of " + segmentRows + " rows x " + columns + " columns (" + path.getFileName() + ")");
+            }
+        }
+        if (!Files.exists(header)) {
+            Files.write(header, ByteBuffer.allocate(3 * Integer.BYTES)
+                    .putInt(MAGIC).putInt(columns).putInt(segmentRows).array());
+        }
+    }
+
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(ColumnSeries series, long row);
+    }
+}
@@ -0,0 +1,404 @@
+package com.tradingsim.service.market.history;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.tradingsim.dto.response.ImportReport;
+import com.tradingsim.model.Candle;
+import com.tradingsim.model.Money;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Loads historical bars from files under {@code market.import.directory} into the
+ * candle history, reading each file as a stream and writing in batches of
+ * {@code market.import.batch-size} through {@link CandleAggregator#save}. Files are
+ * imported in parallel on {@code market.import.threads} threads.
+ *
+ * Two formats are read:
+ * <ul>
+ *   <li>CSV with a header naming {@code date} (or {@code time}, {@code datetime},
+ *   {@code timestamp}), {@code open}, {@code high}, {@code low}, {@code close},
+ *   {@code volume} and optionally {@code symbol};</li>
+ *   <li>JSON saved from the {@code /historical_data} endpoint: a {@code datasets}
+ *   array whose {@code Price} and {@code Volume} metrics hold {@code [date, value]}
+ *   pairs. Only closing prices are published, so each bar opens, peaks and closes at
+ *   that price.</li>
+ * </ul>
+ * Without a symbol column the symbol is the file name up to the first '_' or '.',
+ * e.g. {@code TCS_1d.csv}. Local times are taken as Indian market time.
+ */
+@Service
+public class HistoryImporter {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryImporter.class);
+
+    @Value("${market.import.directory:./data/import}")
+    private String directory;
+
+    @Value("${market.import.threads:0}")
+    private int threads;
+
+    @Value("${market.import.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    private CandleAggregator candleAggregator;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Imports the given files, and the CSV and JSON files in the given directories, as
+     * bars of one interval. Paths are relative to {@code market.import.directory}.
+     */
+    public ImportReport importPaths(List<String> paths, Candle.Interval interval) throws IOException {
+        Path base = Path.of(directory).toAbsolutePath().normalize();
+        List<Path> files = new ArrayList<>();
+        for (String name : paths) {
+            Path path = base.resolve(name).normalize();
+            if (!path.startsWith(base) || !Files.exists(path)) {
+                throw new IllegalArgumentException("No such file in the import directory: " + name);
+            }
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> listing = Files.list(path)) {
+                    listing.filter(HistoryImporter::isImportable).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        int poolSize = Math.min(files.size(), threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        ImportReport report = new ImportReport();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, poolSize));
+        try {
+            List<Future<ImportReport.FileResult>> results = new ArrayList<>();
+            for (Path file : files) {
+                results.add(pool.submit(() -> importFile(base, file, interval)));
+            }
+            for (Future<ImportReport.FileResult> result : results) {
+                ImportReport.FileResult fileResult = result.get();
+                report.getFiles().add(fileResult);
+                report.setRows(report.getRows() + fileResult.getRows());
+                report.setRejected(report.getRejected() + fileResult.getRejected());
+                report.setSkipped(report.getSkipped() + fileResult.getSkipped());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing history", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("History import failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        report.setElapsedMs(elapsedNanos / 1_000_000);
+        report.setRowsPerSecond(elapsedNanos > 0 ? report.getRows() * 1_000_000_000L / elapsedNanos : 0);
+        logger.info("Imported {} {} bars from {} files in {} ms ({} rows/s, {} rejected, {} already stored)",
+                report.getRows(), interval.getLabel(), files.size(), report.getElapsedMs(), report.getRowsPerSecond(),
+                report.getRejected(), report.getSkipped());
+        return report;
+    }
+
+    private ImportReport.FileResult importFile(Path base, Path file, Candle.Interval interval) {
+        String name = base.relativize(file).toString();
+        String symbol = symbolOf(file);
+        BarWriter writer = new BarWriter();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+                readJson(reader, symbol, interval, writer);
+            } else {
+                readCsv(reader, symbol, interval, writer);
+            }
+            writer.flush();
+            return new ImportReport.FileResult(name, symbol, writer.rows, writer.rejected, writer.skipped, null);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Import of {} stopped after {} rows: {}", name, writer.rows, e.getMessage());
+            return new ImportReport.FileResult(name, symbol, writer.rows, writer.rejected, writer.skipped, e.getMessage());
+        }
+    }
+
+    private void readCsv(BufferedReader reader, String fileSymbol, Candle.Interval interval, BarWriter writer)
+            throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        List<String> columns = Arrays.stream(header.split(","))
+                .map(column -> unquote(column).toLowerCase(Locale.ROOT))
+                .toList();
+        int time = firstIndexOf(columns, "date", "time", "datetime", "timestamp");
+        int open = columns.indexOf("open");
+        int high = columns.indexOf("high");
+        int low = columns.indexOf("low");
+        int close = columns.indexOf("close");
+        int volume = columns.indexOf("volume");
+        int symbolColumn = columns.indexOf("symbol");
+        if (time < 0 || open < 0 || high < 0 || low < 0 || close < 0 || volume < 0) {
+            throw new IllegalArgumentException("CSV header needs date, open, high, low, close and volume columns");
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] cells = line.split(",", -1);
+            try {
+                String symbol = symbolColumn >= 0 ? unquote(cells[symbolColumn]).toUpperCase(Locale.ROOT) : fileSymbol;
+                writer.add(symbol, interval, interval.bucket(parseTime(unquote(cells[time])), CandleAggregator.MARKET_OFFSET_MILLIS),
+                        paise(cells[open]), paise(cells[high]), paise(cells[low]), paise(cells[close]),
+                        Long.parseLong(unquote(cells[volume])));
+            } catch (RuntimeException e) {
+                writer.reject(line, e);
+            }
+        }
+    }
+
+    private void readJson(BufferedReader reader, String symbol, Candle.Interval interval, BarWriter writer)
+            throws IOException {
+        Column priceTimes = null;
+        Column prices = null;
+        Column volumeTimes = null;
+        Column volumes = null;
+
+        try (JsonParser parser = jsonFactory.createParser(reader)) {
+            while (parser.nextToken() != null) {
+                if (parser.currentToken() != JsonToken.FIELD_NAME || !"datasets".equals(parser.currentName())) {
+                    continue;
+                }
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("datasets is not an array");
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String metric = null;
+                    Column times = new Column();
+                    Column values = new Column();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        parser.nextToken();
+                        if ("metric".equals(field)) {
+                            metric = parser.getText();
+                        } else if ("values".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                            readPairs(parser, times, values, writer);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    if ("Price".equalsIgnoreCase(metric)) {
+                        priceTimes = times;
+                        prices = values;
+                    } else if ("Volume".equalsIgnoreCase(metric)) {
+                        volumeTimes = times;
+                        volumes = values;
+                    }
+                }
+            }
+        }
+        if (prices == null) {
+            throw new IllegalArgumentException("No Price dataset found");
+        }
+
+        // The API lists the newest day first in some responses
+        priceTimes.sortWith(prices);
+        if (volumeTimes != null) {
+            volumeTimes.sortWith(volumes);
+        }
+        for (int i = 0; i < priceTimes.size; i++) {
+            long time = priceTimes.values[i];
+            long price = prices.values[i];
+            int v = volumeTimes != null ? Arrays.binarySearch(volumeTimes.values, 0, volumeTimes.size, time) : -1;
+            writer.add(symbol, interval, interval.bucket(time, CandleAggregator.MARKET_OFFSET_MILLIS),
+                    price, price, price, price, v >= 0 ? volumes.values[v] / 100 : 0);
+        }
+    }
+
+    // Reads [[date, value, ...], ...], keeping each value in hundredths like a price in paise
+    private void readPairs(JsonParser parser, Column times, Column values, BarWriter writer) throws IOException {
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            String date = null;
+            String value = null;
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (index == 0) {
+                    date = parser.getText();
+                } else if (index == 1) {
+                    value = parser.getText();
+                }
+                parser.skipChildren();
+                index++;
+            }
+            try {
+                long time = parseTime(date);
+                long paise = paise(value);
+                times.add(time);
+                values.add(paise);
+            } catch (RuntimeException e) {
+                writer.reject(date + "," + value, e);
+            }
+        }
+    }
+
+    /**
+     * Validates bars and saves them in batches, counting what happened to each.
+     */
+    private final class BarWriter {
+        private final List<Bar> batch = new ArrayList<>(batchSize);
+        private final Map<String, Boolean> listed = new HashMap<>();
+        private long rows;
+        private long rejected;
+        private long skipped;
+
+        void add(String symbol, Candle.Interval interval, long openTime, long open, long high, long low, long close,
+                 long volume) throws IOException {
+            if (!listed.computeIfAbsent(symbol, s -> quoteStore.idOf(s) >= 0)) {
+                throw new IllegalArgumentException("Symbol " + symbol + " is not listed");
+            }
+            if (open <= 0 || low <= 0 || high < Math.max(open, close) || low > Math.min(open, close) || volume < 0) {
+                throw new IllegalArgumentException("Prices are not a valid bar");
+            }
+            batch.add(new Bar(symbol, interval, openTime, open, high, low, close, volume));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(String row, RuntimeException e) {
+            if (rejected++ < 5) {
+                logger.debug("Rejected history row '{}': {}", row, e.getMessage());
+            }
+        }
+
+        void flush() throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            int saved = candleAggregator.save(batch);
+            rows += saved;
+            skipped += batch.size() - saved;
+            batch.clear();
+        }
+    }
+
+    /**
+     * A growable column of longs.
+     */
+    private static final class Column {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        // Sorts by this column, keeping the other column's rows aligned
+        void sortWith(Column other) {
+            boolean ascending = true;
+            for (int i = 1; i < size && ascending; i++) {
+                ascending = values[i - 1] <= values[i];
+            }
+            if (ascending) {
+                return;
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(values[a], values[b]));
+            long[] sorted = new long[size];
+            long[] otherSorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = values[order[i]];
+                otherSorted[i] = other.values[order[i]];
+            }
+            values = sorted;
+            other.values = otherSorted;
+        }
+    }
+
+    private static long parseTime(String value) {
+        if (value.chars().allMatch(Character::isDigit)) {
+            long epoch = Long.parseLong(value);
+            return epoch < 100_000_000_000L ? epoch * 1000 : epoch;
+        }
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay(CandleAggregator.MARKET_ZONE).toInstant().toEpochMilli();
+        }
+        String iso = value.replace(' ', 'T');
+        if (iso.endsWith("Z") || iso.lastIndexOf('+') > 10 || iso.lastIndexOf('-') > 10) {
+            return OffsetDateTime.parse(iso).toInstant().toEpochMilli();
+        }
+        return LocalDateTime.parse(iso).atZone(CandleAggregator.MARKET_ZONE).toInstant().toEpochMilli();
+    }
+
+    private static long paise(String value) {
+        return Money.toPaise(new BigDecimal(unquote(value)));
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        return trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")
+                ? trimmed.substring(1, trimmed.length() - 1).trim() : trimmed;
+    }
+
+    private static int firstIndexOf(List<String> columns, String... names) {
+        for (String name : names) {
+            int index = columns.indexOf(name);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static String symbolOf(Path file) {
+        String name = file.getFileName().toString();
+        int end = name.length();
+        for (char separator : new char[]{'_', '.'}) {
+            int index = name.indexOf(separator);
+            if (index > 0) {
+                end = Math.min(end, index);
+            }
+        }
+        return name.substring(0, end).toUpperCase(Locale.ROOT);
+    }
+
+    private static boolean isImportable(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return Files.isRegularFile(path) && (name.endsWith(".csv") || name.endsWith(".json"));
+    }
+}
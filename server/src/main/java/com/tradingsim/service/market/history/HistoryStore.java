@@ -0,0 +1,160 @@
+package com.tradingsim.service.market.history;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteListener;
+import com.tradingsim.service.market.candles.Bar;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Price history on memory-mapped column files instead of database rows: every tick
+ * per symbol ({@code ticks/<SYMBOL>}: time, price, volume) and every closed candle
+ * ({@code bars/<interval>/<SYMBOL>}: time, open, high, low, close, volume), prices in
+ * paise and times in epoch milliseconds. Range reads binary-search the time column
+ * and read the mapped pages directly, so the heap stays the same size however much
+ * history is kept. Each open series keeps its newest segment mapped plus at most
+ * {@code market.history.mapped-segments} older ones, which bounds the memory maps used
+ * against {@code vm.max_map_count}. Enabled with {@code market.history.enabled}.
+ */
+@Service
+public class HistoryStore implements QuoteListener {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryStore.class);
+
+    public static final int TICK_PRICE = 1;
+    public static final int TICK_VOLUME = 2;
+
+    @Value("${market.history.enabled:false}")
+    private boolean enabled;
+
+    @Value("${market.history.directory:./data/history}")
+    private String directory;
+
+    @Value("${market.history.segment-rows:65536}")
+    private int segmentRows;
+
+    @Value("${market.history.mapped-segments:4}")
+    private int mappedSegments;
+
+    private final Map<String, TickSeries> ticks = new ConcurrentHashMap<>();
+    private final Map<String, ColumnSeries> bars = new ConcurrentHashMap<>();
+
+    private static final class TickSeries {
+        final ColumnSeries series;
+        // -1 until the first quote, whose volume was traded before it was seen
+        long lastVolume = -1;
+
+        TickSeries(ColumnSeries series) {
+            this.series = series;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PreDestroy
+    public void stop() {
+        force();
+    }
+
+    @Scheduled(fixedDelayString = "${market.history.force-ms:60000}")
+    public void force() {
+        ticks.values().forEach(tickSeries -> tickSeries.series.force());
+        bars.values().forEach(ColumnSeries::force);
+    }
+
+    @Override
+    public void onQuote(Quote quote) {
+        if (!enabled || quote.pricePaise() <= 0) {
+            return;
+        }
+        TickSeries tickSeries = ticks.computeIfAbsent(quote.symbol(),
+                s -> new TickSeries(open(Path.of(directory, "ticks", s), 3)));
+        try {
+            synchronized (tickSeries) {
+                // Quotes carry the day's cumulative volume, which starts over each session
+                long volume = tickSeries.lastVolume < 0 ? 0
+                        : quote.volume() >= tickSeries.lastVolume ? quote.volume() - tickSeries.lastVolume : quote.volume();
+                tickSeries.lastVolume = quote.volume();
+                tickSeries.series.append(quote.updatedAtMillis(), quote.pricePaise(), volume);
+            }
+        } catch (IOException e) {
+            logger.error("Could not record tick for {}", quote.symbol(), e);
+        }
+    }
+
+    /**
+     * The symbol's ticks, or null if history is disabled. Read them with
+     * {@link ColumnSeries#scan} and the {@code TICK_*} columns.
+     */
+    public ColumnSeries ticks(String symbol) {
+        if (!enabled) {
+            return null;
+        }
+        return ticks.computeIfAbsent(symbol, s -> new TickSeries(open(Path.of(directory, "ticks", s), 3))).series;
+    }
+
+    /**
+     * Appends closed bars and returns how many were stored; a bar older than the last
+     * one stored for its series, or at the same time, is skipped.
+     */
+    public int appendBars(List<Bar> closed) throws IOException {
+        int appended = 0;
+        for (Bar bar : closed) {
+            ColumnSeries series = barSeries(bar.symbol(), bar.interval());
+            long size = series.size();
+            if (size > 0 && series.time(size - 1) >= bar.openTime()) {
+                continue;
+            }
+            if (series.append(bar.openTime(), bar.open(), bar.high(), bar.low(), bar.close(), bar.volume())) {
+                appended++;
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * The newest {@code maxBars} stored bars opening in {@code [from, to)}, oldest first.
+     * Only those rows are read, found by searching back from the end of the range.
+     */
+    public List<Bar> bars(String symbol, Candle.Interval interval, long from, long to, int maxBars) {
+        if (!enabled || maxBars <= 0) {
+            return List.of();
+        }
+        ColumnSeries series = barSeries(symbol, interval);
+        long end = series.lowerBound(to);
+        long start = Math.max(series.lowerBound(from), end - maxBars);
+        List<Bar> result = new ArrayList<>((int) Math.max(0, end - start));
+        for (long row = start; row < end; row++) {
+            result.add(new Bar(symbol, interval, series.time(row), series.get(row, 1), series.get(row, 2),
+                    series.get(row, 3), series.get(row, 4), series.get(row, 5)));
+        }
+        return result;
+    }
+
+    private ColumnSeries barSeries(String symbol, Candle.Interval interval) {
+        return bars.computeIfAbsent(interval.getLabel() + "/" + symbol,
+                key -> open(Path.of(directory, "bars", interval.getLabel(), symbol), 6));
+    }
+
+    private ColumnSeries open(Path path, int columns) {
+        try {
+            return new ColumnSeries(path, columns, segmentRows, mappedSegments);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open price history at " + path, e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.tradingsim.service.market.index;
+
+/**
+ * An index's level and previous close in paise of index points, with each
+ * constituent's price in paise and weight in percent of the index.
+ */
+public record IndexSnapshot(String code, String name, long levelPaise, long previousClosePaise, long updatedAtMillis,
+                            Constituent[] constituents) {
+
+    public record Constituent(String symbol, long pricePaise, double weightPercent) {
+    }
+
+    public long changePaise() {
+        return levelPaise - previousClosePaise;
+    }
+}
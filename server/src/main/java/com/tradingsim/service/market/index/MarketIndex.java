@@ -0,0 +1,102 @@
+package com.tradingsim.service.market.index;
+
+/**
+ * One capitalisation-weighted index: level = sum(shares * price) / divisor, kept in
+ * paise of index points. A constituent's tick moves the sum by its own price change,
+ * so an update costs the same however many constituents there are.
+ */
+public final class MarketIndex {
+
+    private final String code;
+    private final String name;
+    private final String[] symbols;
+    private final int[] ids;
+    private final double[] shares;
+    private final long[] prices;
+    private final long[] previousCloses;
+    private final long[] sequences;
+    private double capitalisation;
+    private double previousCapitalisation;
+    private double divisor;
+    private long updatedAtMillis;
+
+    MarketIndex(String code, String name, String[] symbols, int[] ids, double[] shares) {
+        this.code = code;
+        this.name = name;
+        this.symbols = symbols;
+        this.ids = ids;
+        this.shares = shares;
+        prices = new long[ids.length];
+        previousCloses = new long[ids.length];
+        sequences = new long[ids.length];
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    int[] ids() {
+        return ids;
+    }
+
+    double shares(int member) {
+        return shares[member];
+    }
+
+    /**
+     * Sets every constituent's price and previous close and recomputes both sums, which
+     * also clears any rounding drift from incremental updates.
+     */
+    synchronized void reset(long[] prices, long[] previousCloses, long[] sequences, long timeMillis) {
+        System.arraycopy(prices, 0, this.prices, 0, prices.length);
+        System.arraycopy(previousCloses, 0, this.previousCloses, 0, previousCloses.length);
+        System.arraycopy(sequences, 0, this.sequences, 0, sequences.length);
+        capitalisation = 0;
+        previousCapitalisation = 0;
+        for (int m = 0; m < ids.length; m++) {
+            capitalisation += shares[m] * prices[m];
+            previousCapitalisation += shares[m] * previousCloses[m];
+        }
+        updatedAtMillis = timeMillis;
+    }
+
+    /**
+     * Fixes the divisor so the previous close is at {@code previousLevelPaise}.
+     */
+    synchronized void anchor(long previousLevelPaise) {
+        divisor = previousCapitalisation / previousLevelPaise;
+    }
+
+    /**
+     * Applies a constituent's new price and returns the new level, or -1 if a later
+     * update for it has already been applied.
+     */
+    synchronized long move(int member, long pricePaise, long sequence, long timeMillis) {
+        if (sequence < sequences[member]) {
+            return -1;
+        }
+        sequences[member] = sequence;
+        capitalisation += shares[member] * (pricePaise - prices[member]);
+        prices[member] = pricePaise;
+        updatedAtMillis = timeMillis;
+        return level();
+    }
+
+    public synchronized IndexSnapshot snapshot() {
+        IndexSnapshot.Constituent[] constituents = new IndexSnapshot.Constituent[ids.length];
+        for (int m = 0; m < ids.length; m++) {
+            constituents[m] = new IndexSnapshot.Constituent(symbols[m], prices[m],
+                    capitalisation > 0 ? shares[m] * prices[m] / capitalisation * 100 : 0);
+        }
+        return new IndexSnapshot(code, name, level(), Math.round(previousCapitalisation / divisor), updatedAtMillis,
+                constituents);
+    }
+
+    private long level() {
+        return Math.round(capitalisation / divisor);
+    }
+}
@@ -0,0 +1,30 @@
+package com.tradingsim.service.market.index;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Index definitions under {@code market.index.definitions.<CODE>}. A constituent is
+ * given either as free-float shares or as a weight in percent at the previous close,
+ * which is turned into an equivalent share count when the index starts.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "market.index")
+public class MarketIndexProperties {
+
+    private double baseLevel = 1000;        // Level of a new index with no stored history
+
+    private Map<String, Definition> definitions = new LinkedHashMap<>();
+
+    @Data
+    public static class Definition {
+        private String name;
+        private Map<String, Long> shares = new LinkedHashMap<>();
+        private Map<String, Double> weights = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,180 @@
+package com.tradingsim.service.market.index;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteListener;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the indices configured under {@code market.index.definitions} as their
+ * constituents tick. Each tick updates only the indices the symbol belongs to, and
+ * every new level is recorded as a candle series under the index code. The divisor is
+ * set so the previous close matches the last stored daily close, or the base level
+ * for a new index, so levels carry on across restarts.
+ */
+@Service
+public class MarketIndices implements QuoteListener {
+    private static final Logger logger = LoggerFactory.getLogger(MarketIndices.class);
+
+    @Value("${market.quotes.capacity:4096}")
+    private int capacity;
+
+    @Autowired
+    private MarketIndexProperties properties;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private CandleAggregator candleAggregator;
+
+    private final Map<String, MarketIndex> indices = new LinkedHashMap<>();
+    private Member[][] members;  // indices each quote id belongs to, by quote id
+
+    private record Member(MarketIndex index, int position) {
+    }
+
+    @PostConstruct
+    public void start() {
+        members = new Member[capacity][];
+        properties.getDefinitions().forEach((code, definition) -> {
+            MarketIndex index = create(code.toUpperCase(), definition);
+            if (index == null) {
+                return;
+            }
+            reset(index);
+            index.anchor(previousClose(index.getCode()));
+            indices.put(index.getCode(), index);
+
+            int[] ids = index.ids();
+            for (int m = 0; m < ids.length; m++) {
+                Member[] current = members[ids[m]];
+                Member[] next = current == null ? new Member[1] : Arrays.copyOf(current, current.length + 1);
+                next[next.length - 1] = new Member(index, m);
+                members[ids[m]] = next;
+            }
+        });
+        logger.info("Computing {} market indices", indices.size());
+    }
+
+    @Override
+    public void onQuote(Quote quote) {
+        if (quote.id() >= members.length || quote.pricePaise() <= 0) {
+            return;
+        }
+        Member[] memberOf = members[quote.id()];
+        if (memberOf == null) {
+            return;
+        }
+        for (Member member : memberOf) {
+            long level = member.index().move(member.position(), quote.pricePaise(), quote.sequence(),
+                    quote.updatedAtMillis());
+            if (level > 0) {
+                candleAggregator.record(member.index().getCode(), quote.updatedAtMillis(), level);
+            }
+        }
+    }
+
+    @Override
+    public void onSessionOpen() {
+        for (MarketIndex index : indices.values()) {
+            reset(index);
+        }
+    }
+
+    public List<IndexSnapshot> getAll() {
+        List<IndexSnapshot> snapshots = new ArrayList<>(indices.size());
+        for (MarketIndex index : indices.values()) {
+            snapshots.add(index.snapshot());
+        }
+        return snapshots;
+    }
+
+    public Optional<IndexSnapshot> get(String code) {
+        return Optional.ofNullable(indices.get(code)).map(MarketIndex::snapshot);
+    }
+
+    private MarketIndex create(String code, MarketIndexProperties.Definition definition) {
+        Map<String, Double> shares = new LinkedHashMap<>();
+        definition.getShares().forEach((symbol, count) -> shares.put(symbol, (double) count));
+        definition.getWeights().forEach((symbol, weight) -> {
+            // A weight becomes the share count that gives it that weight at the reference price
+            long reference = referencePrice(symbol);
+            if (reference > 0) {
+                shares.put(symbol, weight / reference);
+            }
+        });
+
+        List<String> symbols = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        List<Double> counts = new ArrayList<>();
+        shares.forEach((symbol, count) -> {
+            int id = quoteStore.idOf(symbol);
+            if (id < 0 || id >= capacity || referencePrice(symbol) <= 0 || count <= 0) {
+                logger.warn("Index {} skips constituent {}: not listed or has no price", code, symbol);
+                return;
+            }
+            symbols.add(symbol);
+            ids.add(id);
+            counts.add(count);
+        });
+        if (ids.isEmpty()) {
+            logger.warn("Index {} has no usable constituents", code);
+            return null;
+        }
+        return new MarketIndex(code, definition.getName() != null ? definition.getName() : code,
+                symbols.toArray(new String[0]), ids.stream().mapToInt(Integer::intValue).toArray(),
+                counts.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    private void reset(MarketIndex index) {
+        int[] ids = index.ids();
+        long[] prices = new long[ids.length];
+        long[] previousCloses = new long[ids.length];
+        long[] sequences = new long[ids.length];
+        for (int m = 0; m < ids.length; m++) {
+            Quote quote = quoteStore.get(ids[m]);
+            long reference = quote.previousClosePaise() > 0 ? quote.previousClosePaise() : quote.pricePaise();
+            prices[m] = quote.pricePaise() > 0 ? quote.pricePaise() : reference;
+            previousCloses[m] = reference;
+            sequences[m] = quote.sequence();
+        }
+        index.reset(prices, previousCloses, sequences, System.currentTimeMillis());
+    }
+
+    // Last stored daily close before today's session, in paise of index points
+    private long previousClose(String code) {
+        long today = Candle.Interval.D1.bucket(System.currentTimeMillis(), CandleAggregator.MARKET_OFFSET_MILLIS);
+        try {
+            List<Bar> days = candleAggregator.getCandles(code, Candle.Interval.D1, today - TimeUnit.DAYS.toMillis(30), today);
+            if (!days.isEmpty()) {
+                return days.get(days.size() - 1).close();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not read the history of index {}, starting at the base level: {}", code, e.getMessage());
+        }
+        return Math.round(properties.getBaseLevel() * 100);
+    }
+
+    private long referencePrice(String symbol) {
+        return quoteStore.get(symbol)
+                .map(quote -> quote.previousClosePaise() > 0 ? quote.previousClosePaise() : quote.pricePaise())
+                .orElse(0L);
+    }
+}
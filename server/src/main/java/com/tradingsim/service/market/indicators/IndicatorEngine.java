@@ -0,0 +1,148 @@
+package com.tradingsim.service.market.indicators;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.BarListener;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Technical indicators per symbol and interval, updated in O(1) as each bar closes.
+ * A series starts on first request: it is seeded once from the last
+ * {@code market.indicators.seed-bars} stored candles and from then on follows closed
+ * bars from {@link CandleAggregator}. Reads add the bar still forming to a copy of the
+ * state, so values move with every tick without touching the history.
+ */
+@Service
+public class IndicatorEngine implements BarListener {
+
+    @Value("${market.indicators.seed-bars:400}")
+    private int seedBars;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private CandleAggregator candleAggregator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    private static final class Series {
+        final IndicatorState state;
+        List<Bar> pending = new ArrayList<>();  // bars closed while seeding, null once seeded
+
+        Series(String symbol, Candle.Interval interval) {
+            state = new IndicatorState(symbol, interval);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        meterRegistry.gauge("market.indicators.series", series, Map::size);
+    }
+
+    @Override
+    public void onBar(Bar bar) {
+        Series s = series.get(key(bar.symbol(), bar.interval()));
+        if (s == null) {
+            return;
+        }
+        synchronized (s) {
+            if (s.pending != null) {
+                s.pending.add(bar);
+            } else {
+                s.state.add(bar);
+            }
+        }
+    }
+
+    /**
+     * Current indicator values, or empty if the symbol is not listed.
+     */
+    public Optional<Indicators> get(String symbol, Candle.Interval interval) {
+        if (quoteStore.idOf(symbol) < 0) {
+            return Optional.empty();
+        }
+        Series s = series(symbol, interval);
+
+        // Read outside the series lock: closing bars lock the candles first, then the series
+        Bar forming = candleAggregator.current(symbol, interval).orElse(null);
+        synchronized (s) {
+            return Optional.of(s.state.snapshot(forming));
+        }
+    }
+
+    private Series series(String symbol, Candle.Interval interval) {
+        String key = key(symbol, interval);
+        Series s = series.get(key);
+        if (s != null) {
+            return awaitSeeded(s);
+        }
+        Series created = new Series(symbol, interval);
+        s = series.putIfAbsent(key, created);
+        if (s != null) {
+            return awaitSeeded(s);
+        }
+
+        boolean seeded = false;
+        try {
+            long to = candleAggregator.current(symbol, interval).map(Bar::openTime)
+                    .orElse(System.currentTimeMillis() + 1);
+            // Twice the span leaves room for weekends and holidays
+            List<Bar> bars = candleAggregator.getCandles(symbol, interval, to - 2L * seedBars * interval.getMillis(), to);
+            synchronized (created) {
+                for (Bar bar : bars.subList(Math.max(0, bars.size() - seedBars), bars.size())) {
+                    created.state.add(bar);
+                }
+                for (Bar bar : created.pending) {
+                    created.state.add(bar);
+                }
+                created.pending = null;
+                created.notifyAll();
+            }
+            seeded = true;
+            return created;
+        } finally {
+            if (!seeded) {
+                // Let the next request try again
+                series.remove(key, created);
+                synchronized (created) {
+                    created.pending = null;
+                    created.notifyAll();
+                }
+            }
+        }
+    }
+
+    private static Series awaitSeeded(Series s) {
+        synchronized (s) {
+            while (s.pending != null) {
+                try {
+                    s.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return s;
+    }
+
+    private static String key(String symbol, Candle.Interval interval) {
+        return interval.getLabel() + ":" + symbol;
+    }
+}
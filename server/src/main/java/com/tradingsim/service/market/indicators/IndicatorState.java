@@ -0,0 +1,124 @@
+package com.tradingsim.service.market.indicators;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.candles.Bar;
+
+/**
+ * Running state of SMA(20), EMA(12, 26, 50, 200), RSI(14), MACD(12, 26, 9), Bollinger
+ * Bands(20, 2) and ATR(14) over the closed bars of one symbol and interval. Adding a
+ * bar costs the same however many came before. Not thread-safe; {@link IndicatorEngine}
+ * locks per series.
+ */
+final class IndicatorState {
+
+    private final String symbol;
+    private final Candle.Interval interval;
+    private final Window window;
+    private final Smoother ema12;
+    private final Smoother ema26;
+    private final Smoother ema50;
+    private final Smoother ema200;
+    private final Smoother signal;
+    private final Smoother averageGain;
+    private final Smoother averageLoss;
+    private final Smoother averageRange;
+    private long lastOpenTime = Long.MIN_VALUE;
+    private long lastClose;
+    private int bars;
+
+    IndicatorState(String symbol, Candle.Interval interval) {
+        this.symbol = symbol;
+        this.interval = interval;
+        window = new Window(20);
+        ema12 = Smoother.ema(12);
+        ema26 = Smoother.ema(26);
+        ema50 = Smoother.ema(50);
+        ema200 = Smoother.ema(200);
+        signal = Smoother.ema(9);
+        averageGain = Smoother.wilder(14);
+        averageLoss = Smoother.wilder(14);
+        averageRange = Smoother.wilder(14);
+    }
+
+    private IndicatorState(IndicatorState other) {
+        symbol = other.symbol;
+        interval = other.interval;
+        window = other.window.copy();
+        ema12 = other.ema12.copy();
+        ema26 = other.ema26.copy();
+        ema50 = other.ema50.copy();
+        ema200 = other.ema200.copy();
+        signal = other.signal.copy();
+        averageGain = other.averageGain.copy();
+        averageLoss = other.averageLoss.copy();
+        averageRange = other.averageRange.copy();
+        lastOpenTime = other.lastOpenTime;
+        lastClose = other.lastClose;
+        bars = other.bars;
+    }
+
+    long lastOpenTime() {
+        return lastOpenTime;
+    }
+
+    /**
+     * Adds a closed bar; bars no newer than the last one are ignored.
+     */
+    void add(Bar bar) {
+        if (bar.openTime() <= lastOpenTime) {
+            return;
+        }
+        long close = bar.close();
+        window.add(close);
+        ema12.add(close);
+        ema26.add(close);
+        ema50.add(close);
+        ema200.add(close);
+        if (ema26.isReady()) {
+            signal.add(ema12.value() - ema26.value());
+        }
+
+        if (bars == 0) {
+            averageRange.add(bar.high() - bar.low());
+        } else {
+            long change = close - lastClose;
+            averageGain.add(Math.max(change, 0));
+            averageLoss.add(Math.max(-change, 0));
+            averageRange.add(Math.max(bar.high() - bar.low(),
+                    Math.max(Math.abs(bar.high() - lastClose), Math.abs(bar.low() - lastClose))));
+        }
+
+        lastOpenTime = bar.openTime();
+        lastClose = close;
+        bars++;
+    }
+
+    /**
+     * Values as if {@code forming} closed now, or as of the last closed bar when it is
+     * null or already counted. The state itself is left as it was.
+     */
+    Indicators snapshot(Bar forming) {
+        if (forming != null && forming.openTime() > lastOpenTime) {
+            IndicatorState live = new IndicatorState(this);
+            live.add(forming);
+            return live.values();
+        }
+        return values();
+    }
+
+    private Indicators values() {
+        double macd = ema26.isReady() ? ema12.value() - ema26.value() : Double.NaN;
+        double signalValue = signal.value();
+        double rsi = Double.NaN;
+        if (averageGain.isReady()) {
+            double loss = averageLoss.value();
+            rsi = loss == 0 ? 100 : 100 - 100 / (1 + averageGain.value() / loss);
+        }
+        double mean = window.mean();
+        double deviation = window.standardDeviation();
+        return new Indicators(symbol, interval, lastOpenTime, bars, bars == 0 ? Double.NaN : lastClose,
+                mean, ema12.value(), ema26.value(), ema50.value(), ema200.value(), rsi,
+                macd, signalValue, macd - signalValue, mean + 2 * deviation, mean - 2 * deviation,
+                averageRange.value());
+    }
+}
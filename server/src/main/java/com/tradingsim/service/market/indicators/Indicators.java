@@ -0,0 +1,14 @@
+package com.tradingsim.service.market.indicators;
+
+import com.tradingsim.model.Candle;
+
+/**
+ * Indicator values of one symbol and interval as of its latest bar, the one still
+ * forming included. Prices are in paise and RSI runs from 0 to 100; a value is NaN
+ * until enough bars have closed to compute it.
+ */
+public record Indicators(String symbol, Candle.Interval interval, long openTime, int bars, double close,
+                         double sma20, double ema12, double ema26, double ema50, double ema200, double rsi14,
+                         double macd, double macdSignal, double macdHistogram,
+                         double bollingerUpper, double bollingerLower, double atr14) {
+}
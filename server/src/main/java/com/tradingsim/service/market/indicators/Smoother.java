@@ -0,0 +1,62 @@
+package com.tradingsim.service.market.indicators;
+
+/**
+ * Exponential moving average seeded with the simple average of its first
+ * {@code period} values. Holds the running sum until then, so each value is O(1).
+ */
+final class Smoother {
+
+    private final int period;
+    private final double alpha;
+    private int count;
+    private double value;
+
+    private Smoother(int period, double alpha) {
+        this.period = period;
+        this.alpha = alpha;
+    }
+
+    private Smoother(Smoother other) {
+        period = other.period;
+        alpha = other.alpha;
+        count = other.count;
+        value = other.value;
+    }
+
+    static Smoother ema(int period) {
+        return new Smoother(period, 2.0 / (period + 1));
+    }
+
+    /**
+     * Wilder's smoothing, as used by RSI and ATR.
+     */
+    static Smoother wilder(int period) {
+        return new Smoother(period, 1.0 / period);
+    }
+
+    void add(double x) {
+        if (count < period) {
+            value += x;
+            if (++count == period) {
+                value /= period;
+            }
+        } else {
+            value += alpha * (x - value);
+        }
+    }
+
+    boolean isReady() {
+        return count >= period;
+    }
+
+    /**
+     * The average, or NaN until {@code period} values have been added.
+     */
+    double value() {
+        return isReady() ? value : Double.NaN;
+    }
+
+    Smoother copy() {
+        return new Smoother(this);
+    }
+}
@@ -0,0 +1,65 @@
+package com.tradingsim.service.market.indicators;
+
+import java.util.Arrays;
+
+/**
+ * The last {@code size} prices in paise with their running sum and sum of squares,
+ * for a simple moving average and standard deviation without rescanning the window.
+ * Sums stay exact in longs.
+ */
+final class Window {
+
+    private final long[] values;
+    private int next;
+    private int count;
+    private long sum;
+    private long sumOfSquares;
+
+    Window(int size) {
+        values = new long[size];
+    }
+
+    private Window(Window other) {
+        values = Arrays.copyOf(other.values, other.values.length);
+        next = other.next;
+        count = other.count;
+        sum = other.sum;
+        sumOfSquares = other.sumOfSquares;
+    }
+
+    void add(long value) {
+        if (count == values.length) {
+            long oldest = values[next];
+            sum -= oldest;
+            sumOfSquares -= oldest * oldest;
+        } else {
+            count++;
+        }
+        values[next] = value;
+        next = (next + 1) % values.length;
+        sum += value;
+        sumOfSquares += value * value;
+    }
+
+    /**
+     * Mean of the window, or NaN until it is full.
+     */
+    double mean() {
+        return count == values.length ? (double) sum / count : Double.NaN;
+    }
+
+    /**
+     * Population standard deviation of the window, or NaN until it is full.
+     */
+    double standardDeviation() {
+        if (count < values.length) {
+            return Double.NaN;
+        }
+        double mean = (double) sum / count;
+        return Math.sqrt(Math.max(0, (double) sumOfSquares / count - mean * mean));
+    }
+
+    Window copy() {
+        return new Window(this);
+    }
+}
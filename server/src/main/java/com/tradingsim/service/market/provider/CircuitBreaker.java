@@ -0,0 +1,59 @@
+package com.tradingsim.service.market.provider;
+
+/**
+ * Stops calls to a failing upstream. After {@code failureThreshold} consecutive
+ * failures the breaker opens and refuses calls for {@code openMs}; then it lets a
+ * single trial call through, closing again if it succeeds and reopening if not. A
+ * call that was allowed must end in {@link #success}, {@link #failure} or, if it never
+ * reached the upstream, {@link #abandon}.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMs;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    synchronized boolean allow() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    synchronized void success() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    synchronized void failure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Gives back a trial call that was never made, so the next caller gets to make it.
+     */
+    synchronized void abandon() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis() - openMs;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
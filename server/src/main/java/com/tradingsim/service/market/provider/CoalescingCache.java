@@ -0,0 +1,103 @@
+package com.tradingsim.service.market.provider;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * A cache where each key is loaded by at most one caller at a time: callers asking for
+ * a key that is already loading wait for that load instead of starting their own.
+ * Values are fresh for {@code ttlMs}; for {@code staleMs} after that they are still
+ * returned while one background load replaces them, and they are also returned if a
+ * load fails.
+ */
+final class CoalescingCache<K, V> {
+
+    enum Outcome { HIT, STALE, COALESCED, LOADED }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final long ttlMs;
+    private final long staleMs;
+    private final int maxEntries;
+    private final Executor refresher;
+    private final OutcomeListener listener;
+
+    interface OutcomeListener {
+        void on(Outcome outcome);
+    }
+
+    CoalescingCache(long ttlMs, long staleMs, int maxEntries, Executor refresher, OutcomeListener listener) {
+        this.ttlMs = ttlMs;
+        this.staleMs = staleMs;
+        this.maxEntries = maxEntries;
+        this.refresher = refresher;
+        this.listener = listener;
+    }
+
+    V get(K key, Supplier<V> loader) {
+        Entry<V> entry = entries.get(key);
+        long age = entry != null ? System.currentTimeMillis() - entry.loadedAt() : Long.MAX_VALUE;
+        if (age < ttlMs) {
+            listener.on(Outcome.HIT);
+            return entry.value();
+        }
+        if (age < ttlMs + staleMs) {
+            listener.on(Outcome.STALE);
+            if (!loading.containsKey(key)) {
+                refresher.execute(() -> load(key, loader));
+            }
+            return entry.value();
+        }
+
+        try {
+            return load(key, loader).join();
+        } catch (CompletionException e) {
+            if (entry != null) {
+                return entry.value();
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private CompletableFuture<V> load(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> current = loading.putIfAbsent(key, mine);
+        if (current != null) {
+            listener.on(Outcome.COALESCED);
+            return current;
+        }
+        listener.on(Outcome.LOADED);
+        try {
+            V value = loader.get();
+            put(key, value);
+            mine.complete(value);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+        } finally {
+            loading.remove(key, mine);
+        }
+        return mine;
+    }
+
+    private void put(K key, V value) {
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> now - entry.loadedAt() >= ttlMs + staleMs);
+            if (entries.size() >= maxEntries) {
+                entries.keySet().stream().findAny().ifPresent(entries::remove);
+            }
+        }
+        entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,178 @@
+package com.tradingsim.service.market.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tradingsim.exception.MarketDataException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MarketDataProvider} for the Indian Stock API described in
+ * {@code indian-stock-api.json}. Every call goes through one {@link CoalescingCache},
+ * so any number of users asking for the same thing at once cost one upstream request.
+ * Upstream requests are capped at {@code market.provider.max-requests-per-second} and
+ * stop while the {@link CircuitBreaker} is open; cached answers are served meanwhile.
+ */
+@Service
+@ConditionalOnProperty(prefix = "market.provider", name = "enabled", havingValue = "true")
+public class IndianStockApiProvider implements MarketDataProvider {
+    private static final Logger logger = LoggerFactory.getLogger(IndianStockApiProvider.class);
+
+    @Autowired
+    private MarketProviderProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private HttpClient httpClient;
+    private ExecutorService refresher;
+    private CoalescingCache<String, JsonNode> cache;
+    private RateLimiter rateLimiter;
+    private CircuitBreaker circuitBreaker;
+    private Timer upstreamTimer;
+
+    @PostConstruct
+    public void start() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(properties.getTimeoutMs()))
+                .build();
+        refresher = Executors.newVirtualThreadPerTaskExecutor();
+        Counter[] outcomes = new Counter[CoalescingCache.Outcome.values().length];
+        for (CoalescingCache.Outcome outcome : CoalescingCache.Outcome.values()) {
+            outcomes[outcome.ordinal()] = meterRegistry.counter("market.provider.requests", "outcome", outcome.name().toLowerCase());
+        }
+        cache = new CoalescingCache<>(properties.getTtlMs(), properties.getStaleMs(), properties.getMaxEntries(), refresher,
+                outcome -> outcomes[outcome.ordinal()].increment());
+        rateLimiter = new RateLimiter(properties.getMaxRequestsPerSecond());
+        circuitBreaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenMs());
+
+        upstreamTimer = Timer.builder("market.provider.upstream.latency")
+                .description("Time for one request to the market data API")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("market.provider.circuit.open", circuitBreaker,
+                breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1);
+        meterRegistry.gauge("market.provider.cache.size", cache, CoalescingCache::size);
+        logger.info("Market data provider enabled for {}", properties.getBaseUrl());
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    @Override
+    public JsonNode stock(String name) {
+        return get("/stock", Map.of("name", name));
+    }
+
+    @Override
+    public JsonNode trending() {
+        return get("/trending", Map.of());
+    }
+
+    @Override
+    public JsonNode nseMostActive() {
+        return get("/NSE_most_active", Map.of());
+    }
+
+    @Override
+    public JsonNode historicalData(String stockName, String period, String filter) {
+        return get("/historical_data", Map.of("stock_name", stockName, "period", period, "filter", filter));
+    }
+
+    private JsonNode get(String path, Map<String, String> query) {
+        StringBuilder uri = new StringBuilder(path);
+        char separator = '?';
+        for (Map.Entry<String, String> parameter : new TreeMap<>(query).entrySet()) {
+            uri.append(separator).append(parameter.getKey()).append('=')
+                    .append(URLEncoder.encode(parameter.getValue(), StandardCharsets.UTF_8));
+            separator = '&';
+        }
+        String key = uri.toString();
+        return cache.get(key, () -> fetch(key));
+    }
+
+    private JsonNode fetch(String pathAndQuery) {
+        // Checked first so calls the breaker refuses do not use up rate limit slots
+        if (!circuitBreaker.allow()) {
+            throw new MarketDataException("Market data provider is unavailable");
+        }
+        try {
+            if (!rateLimiter.acquire(properties.getMaxQueueMs())) {
+                circuitBreaker.abandon();
+                throw new MarketDataException("Market data rate limit reached, try again shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.abandon();
+            throw new MarketDataException("Interrupted while waiting for the market data rate limit", e);
+        }
+
+        HttpResponse<String> response = send(pathAndQuery);
+        int status = response.statusCode();
+        if (status == 429 || status >= 500) {
+            circuitBreaker.failure();
+            throw new MarketDataException("Market data provider answered " + status);
+        }
+        // The upstream is healthy even when it has nothing for this request
+        circuitBreaker.success();
+        if (status != 200) {
+            throw new MarketDataException("Market data provider answered " + status + " for " + pathAndQuery);
+        }
+        try {
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            throw new MarketDataException("Market data provider sent invalid JSON", e);
+        }
+    }
+
+    // Every way the request can fail counts against the breaker, so a trial call always settles it
+    private HttpResponse<String> send(String pathAndQuery) {
+        long start = System.nanoTime();
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(properties.getBaseUrl() + pathAndQuery))
+                    .timeout(Duration.ofMillis(properties.getTimeoutMs()))
+                    .header("Accept", "application/json")
+                    .GET();
+            if (properties.getApiKey() != null && !properties.getApiKey().isBlank()) {
+                request.header("x-api-key", properties.getApiKey());
+            }
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException | RuntimeException e) {
+            circuitBreaker.failure();
+            throw new MarketDataException("Market data request failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.failure();
+            throw new MarketDataException("Interrupted during market data request", e);
+        } finally {
+            upstreamTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
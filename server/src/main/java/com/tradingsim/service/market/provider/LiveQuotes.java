@@ -0,0 +1,72 @@
+package com.tradingsim.service.market.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.tradingsim.exception.MarketDataException;
+import com.tradingsim.model.Money;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Brings a symbol's quote up to date from the {@link MarketDataProvider} when one is
+ * configured. The provider caches and coalesces, so this can run on every price
+ * request; if the provider has no answer the stored quote is used as it is.
+ */
+@Service
+public class LiveQuotes {
+    private static final Logger logger = LoggerFactory.getLogger(LiveQuotes.class);
+
+    @Autowired
+    private ObjectProvider<MarketDataProvider> providers;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    public boolean isEnabled() {
+        return providers.getIfAvailable() != null;
+    }
+
+    /**
+     * The symbol's quote, refreshed from the provider if there is one.
+     */
+    public Optional<Quote> get(String symbol) {
+        MarketDataProvider provider = providers.getIfAvailable();
+        Optional<Quote> quote = quoteStore.get(symbol);
+        if (provider == null || quote.isEmpty()) {
+            return quote;
+        }
+
+        try {
+            long pricePaise = lastPrice(provider.stock(quote.get().name()));
+            if (pricePaise > 0 && pricePaise != quote.get().pricePaise()) {
+                return Optional.of(quoteStore.tick(quote.get().id(), pricePaise, 0));
+            }
+        } catch (MarketDataException e) {
+            logger.debug("Serving stored quote for {}: {}", symbol, e.getMessage());
+        }
+        return quote;
+    }
+
+    // The /stock response lists the current price per exchange; NSE is preferred
+    private static long lastPrice(JsonNode stock) {
+        JsonNode prices = stock.path("currentPrice");
+        for (String exchange : new String[]{"NSE", "BSE"}) {
+            JsonNode price = prices.path(exchange);
+            if (!price.isMissingNode() && !price.isNull()) {
+                try {
+                    return Money.toPaise(new BigDecimal(price.asText()));
+                } catch (NumberFormatException e) {
+                    // Try the other exchange
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.tradingsim.service.market.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A source of live market data. Responses are returned as the upstream's JSON; all
+ * methods throw {@link com.tradingsim.exception.MarketDataException} when no answer
+ * can be given.
+ */
+public interface MarketDataProvider {
+
+    /**
+     * Quote and company details, looked up by company name (e.g. "Tata Steel").
+     */
+    JsonNode stock(String name);
+
+    JsonNode trending();
+
+    JsonNode nseMostActive();
+
+    /**
+     * Price history for a period such as {@code 1yr} and a filter such as {@code price}.
+     */
+    JsonNode historicalData(String stockName, String period, String filter);
+}
@@ -0,0 +1,36 @@
+package com.tradingsim.service.market.provider;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the upstream market data API under {@code market.provider}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "market.provider")
+public class MarketProviderProperties {
+
+    private boolean enabled = false;
+
+    private String baseUrl = "https://stock.indianapi.in";
+
+    private String apiKey;
+
+    private long timeoutMs = 5000;
+
+    private long ttlMs = 5000;              // Answers younger than this are served without asking upstream
+
+    private long staleMs = 30000;           // After the TTL, served for this long more while refreshing in the background
+
+    private int maxEntries = 10000;
+
+    private double maxRequestsPerSecond = 5;
+
+    private long maxQueueMs = 2000;         // Longest a request waits for its turn under the rate limit
+
+    private int failureThreshold = 5;       // Consecutive failures that open the circuit breaker
+
+    private long openMs = 30000;            // Time the breaker stays open before letting one trial request through
+}
@@ -0,0 +1,37 @@
+package com.tradingsim.service.market.provider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces calls evenly at a fixed rate, letting up to one second's worth through at
+ * once after a quiet spell. A caller reserves the next free slot and sleeps until it
+ * comes, unless that would take longer than it is willing to wait.
+ */
+final class RateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private long nextFree = System.nanoTime();
+
+    RateLimiter(double permitsPerSecond) {
+        intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        burstNanos = TimeUnit.SECONDS.toNanos(1) - intervalNanos;
+    }
+
+    boolean acquire(long maxWaitMs) throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(nextFree, now - burstNanos);
+            wait = slot - now;
+            if (wait > TimeUnit.MILLISECONDS.toNanos(maxWaitMs)) {
+                return false;
+            }
+            nextFree = slot + intervalNanos;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return true;
+    }
+}
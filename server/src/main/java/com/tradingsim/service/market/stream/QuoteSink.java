@@ -0,0 +1,15 @@
+package com.tradingsim.service.market.stream;
+
+import com.tradingsim.service.market.Quote;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where a subscriber's quotes are written, e.g. an SSE connection. Called from one
+ * thread at a time per subscriber and allowed to block.
+ */
+public interface QuoteSink {
+
+    void send(List<Quote> quotes) throws IOException;
+}
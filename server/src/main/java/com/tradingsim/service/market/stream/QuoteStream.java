@@ -0,0 +1,199 @@
+package com.tradingsim.service.market.stream;
+
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteListener;
+import com.tradingsim.service.market.QuoteStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pushes quote updates to subscribers. A quote update only stores the quote in each
+ * interested subscriber's slot and queues the subscriber once; every
+ * {@code market.stream.flush-ms} a dispatcher hands queued subscribers to virtual
+ * threads that write everything pending in one message. A slow client only delays
+ * its own thread, and while it is busy its newer quotes overwrite the older ones.
+ */
+@Service
+public class QuoteStream implements QuoteListener, Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(QuoteStream.class);
+
+    @Value("${market.quotes.capacity:4096}")
+    private int capacity;
+
+    @Value("${market.stream.max-subscribers:20000}")
+    private int maxSubscribers;
+
+    @Value("${market.stream.max-symbols:200}")
+    private int maxSymbols;
+
+    @Value("${market.stream.flush-ms:100}")
+    private long flushMs;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final Map<Long, QuoteSubscriber> subscribers = new ConcurrentHashMap<>();
+    private final Queue<QuoteSubscriber> queued = new ConcurrentLinkedQueue<>();
+    private AtomicReferenceArray<Set<QuoteSubscriber>> bySymbol;  // indexed by quote id
+
+    private ExecutorService senders;
+    private Thread dispatcher;
+    private volatile boolean running = true;
+    private Counter sent;
+    private Counter conflated;
+
+    @PostConstruct
+    public void start() {
+        bySymbol = new AtomicReferenceArray<>(capacity);
+        senders = Executors.newVirtualThreadPerTaskExecutor();
+        sent = meterRegistry.counter("market.stream.quotes.sent");
+        conflated = meterRegistry.counter("market.stream.quotes.conflated");
+        meterRegistry.gauge("market.stream.subscribers", subscribers, Map::size);
+
+        dispatcher = new Thread(this, "quote-stream");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        senders.shutdownNow();
+    }
+
+    public int getMaxSymbols() {
+        return maxSymbols;
+    }
+
+    /**
+     * Subscribes the sink to the given symbols and sends their current quotes straight
+     * away. Unknown symbols are ignored. Returns null if the node has no room for
+     * another subscriber.
+     */
+    public QuoteSubscriber subscribe(Collection<String> symbols, QuoteSink sink) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        int[] quoteIds = symbols.stream()
+                .mapToInt(symbol -> quoteStore.idOf(symbol))
+                .filter(id -> id >= 0)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        QuoteSubscriber subscriber = new QuoteSubscriber(subscriberIds.incrementAndGet(), quoteIds, sink);
+        subscribers.put(subscriber.getId(), subscriber);
+        for (int id : quoteIds) {
+            Set<QuoteSubscriber> set = bySymbol.get(id);
+            if (set == null) {
+                bySymbol.compareAndSet(id, null, ConcurrentHashMap.newKeySet());
+                set = bySymbol.get(id);
+            }
+            set.add(subscriber);
+            subscriber.offer(quoteStore.get(id));
+        }
+        enqueue(subscriber);
+        return subscriber;
+    }
+
+    public void unsubscribe(QuoteSubscriber subscriber) {
+        if (subscribers.remove(subscriber.getId()) == null) {
+            return;
+        }
+        subscriber.close();
+        for (int id : subscriber.quoteIds()) {
+            bySymbol.get(id).remove(subscriber);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onQuote(Quote quote) {
+        if (quote.id() >= bySymbol.length()) {
+            return;
+        }
+        Set<QuoteSubscriber> set = bySymbol.get(quote.id());
+        if (set == null) {
+            return;
+        }
+        for (QuoteSubscriber subscriber : set) {
+            if (subscriber.offer(quote)) {
+                conflated.increment();
+            }
+            enqueue(subscriber);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Thread.sleep(flushMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            QuoteSubscriber subscriber;
+            while ((subscriber = queued.poll()) != null) {
+                QuoteSubscriber next = subscriber;
+                senders.execute(() -> flush(next));
+            }
+        }
+    }
+
+    private void enqueue(QuoteSubscriber subscriber) {
+        if (subscriber.markQueued()) {
+            queued.add(subscriber);
+        }
+    }
+
+    private void flush(QuoteSubscriber subscriber) {
+        if (subscriber.isClosed()) {
+            return;
+        }
+        List<Quote> quotes = subscriber.drain();
+        if (!quotes.isEmpty()) {
+            try {
+                subscriber.sink().send(quotes);
+                sent.increment(quotes.size());
+            } catch (IOException | RuntimeException e) {
+                // The client went away; the container may not tell us otherwise
+                logger.debug("Dropping quote subscriber {}: {}", subscriber.getId(), e.getMessage());
+                unsubscribe(subscriber);
+                return;
+            }
+        }
+        if (subscriber.finishFlush()) {
+            queued.add(subscriber);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.tradingsim.service.market.stream;
+
+import com.tradingsim.service.market.Quote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One client's subscription. It holds a single slot per subscribed symbol and a new
+ * quote replaces whatever is still waiting there, so however slow the client is, it
+ * never has more than one pending quote per symbol and always gets the latest.
+ */
+public final class QuoteSubscriber {
+
+    private final long id;
+    private final int[] quoteIds;  // sorted
+    private final QuoteSink sink;
+    private final AtomicReferenceArray<Quote> slots;
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private volatile boolean closed;
+
+    QuoteSubscriber(long id, int[] quoteIds, QuoteSink sink) {
+        this.id = id;
+        this.quoteIds = quoteIds;
+        this.sink = sink;
+        this.slots = new AtomicReferenceArray<>(quoteIds.length);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    int[] quoteIds() {
+        return quoteIds;
+    }
+
+    QuoteSink sink() {
+        return sink;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * Stores the quote in its symbol's slot. Returns true if it replaced a quote that
+     * had not been sent yet.
+     */
+    boolean offer(Quote quote) {
+        int slot = Arrays.binarySearch(quoteIds, quote.id());
+        return slot >= 0 && slots.getAndSet(slot, quote) != null;
+    }
+
+    /**
+     * Marks the subscriber as waiting for a flush; false if it already was.
+     */
+    boolean markQueued() {
+        return queued.compareAndSet(false, true);
+    }
+
+    /**
+     * Takes every pending quote, emptying the slots.
+     */
+    List<Quote> drain() {
+        List<Quote> quotes = new ArrayList<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Quote quote = slots.getAndSet(i, null);
+            if (quote != null) {
+                quotes.add(quote);
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Clears the queued mark after a flush. Returns true if quotes arrived during the
+     * flush and the caller has to queue the subscriber again.
+     */
+    boolean finishFlush() {
+        queued.set(false);
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                return markQueued();
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,66 @@
+package com.tradingsim.service.portfolio;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.PortfolioSnapshot;
+
+/**
+ * Running return statistics over a series of daily NAVs. A day's return is measured net
+ * of that day's deposits and withdrawals, so money moved in or out does not count as
+ * performance; chaining the returns gives the unit value that drawdown is measured on.
+ */
+final class NavStats {
+
+    long navPaise;
+    double unitValue = 1;
+    double peakUnitValue = 1;
+    double maxDrawdown;
+    int returnCount;
+    double returnSum;
+    double returnSumSquares;
+    private boolean started;
+
+    static NavStats of(PortfolioSnapshot snapshot) {
+        NavStats stats = new NavStats();
+        stats.navPaise = Money.toPaise(snapshot.getNav());
+        stats.unitValue = snapshot.getUnitValue();
+        stats.peakUnitValue = snapshot.getPeakUnitValue();
+        stats.maxDrawdown = snapshot.getMaxDrawdown();
+        stats.returnCount = snapshot.getReturnCount();
+        stats.returnSum = snapshot.getReturnSum();
+        stats.returnSumSquares = snapshot.getReturnSumSquares();
+        stats.started = true;
+        return stats;
+    }
+
+    /**
+     * Adds the next day's closing NAV and the net flow received during that day.
+     */
+    void add(long navPaise, long netFlowPaise) {
+        if (started && this.navPaise > 0) {
+            double dailyReturn = (double) (navPaise - netFlowPaise) / this.navPaise - 1;
+            returnCount++;
+            returnSum += dailyReturn;
+            returnSumSquares += dailyReturn * dailyReturn;
+            unitValue *= 1 + dailyReturn;
+            peakUnitValue = Math.max(peakUnitValue, unitValue);
+            maxDrawdown = Math.max(maxDrawdown, 1 - unitValue / peakUnitValue);
+        }
+        this.navPaise = navPaise;
+        started = true;
+    }
+
+    /**
+     * Sample standard deviation of daily returns, or NaN with fewer than two.
+     */
+    double dailyVolatility() {
+        if (returnCount < 2) {
+            return Double.NaN;
+        }
+        double mean = returnSum / returnCount;
+        return Math.sqrt(Math.max(0, (returnSumSquares - returnCount * mean * mean) / (returnCount - 1)));
+    }
+
+    double meanDailyReturn() {
+        return returnCount == 0 ? Double.NaN : returnSum / returnCount;
+    }
+}
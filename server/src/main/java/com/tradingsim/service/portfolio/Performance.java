@@ -0,0 +1,15 @@
+package com.tradingsim.service.portfolio;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A user's portfolio performance: daily NAVs (today's live) and ratios as fractions,
+ * annualised over 252 trading days. Ratios are NaN until there is enough history.
+ */
+public record Performance(List<NavPoint> navHistory, long navPaise, double timeWeightedReturn, double maxDrawdown,
+                          double volatility, double sharpeRatio, double xirr, int days) {
+
+    public record NavPoint(LocalDate date, long navPaise, long netFlowPaise) {
+    }
+}
@@ -0,0 +1,206 @@
+package com.tradingsim.service.portfolio;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.PortfolioSnapshot;
+import com.tradingsim.repository.PortfolioSnapshotRepository;
+import com.tradingsim.repository.WalletRepository;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.trading.MarkToMarket;
+import com.tradingsim.service.trading.Settlement;
+import com.tradingsim.service.trading.SettlementListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NAV history, drawdown, volatility, Sharpe ratio and XIRR per user. The end-of-day job
+ * stores each user's NAV as a daily snapshot carrying the running statistics, built
+ * from the previous snapshot alone; a request reads the snapshots and adds today's
+ * live NAV on top. Each snapshot records its cut-off, and a day's deposits and
+ * withdrawals are those made after the previous snapshot's cut-off up to its own, so
+ * money moved after the close counts towards the next day. Results are cached per user until a fill settles for them or
+ * {@code portfolio.analytics.cache-ttl-ms} passes.
+ */
+@Service
+public class PortfolioAnalytics implements SettlementListener {
+    private static final int TRADING_DAYS = 252;
+
+    private static final String FLOW = "case when t.type = 'DEPOSIT' then t.amount else -t.amount end";
+    private static final String SELECT_CASH = "select user_id, balance from wallets where user_id > ? and user_id <= ?";
+    private static final String SELECT_HOLDINGS_VALUE = "select user_id, sum(current_value) from portfolios " +
+            "where user_id > ? and user_id <= ? group by user_id";
+    private static final String SELECT_FLOWS = "select w.user_id, sum(" + FLOW + ") from transactions t " +
+            "join wallets w on w.id = t.wallet_id where w.user_id > ? and w.user_id <= ? " +
+            "and t.type in ('DEPOSIT', 'WITHDRAWAL') and t.created_at <= ? and t.created_at > coalesce(" +
+            "(select max(s.snapshot_at) from portfolio_snapshots s where s.user_id = w.user_id " +
+            "and s.snapshot_date < ?), timestamp '1970-01-01 00:00:00') group by w.user_id";
+    private static final String SELECT_USER_FLOW = "select coalesce(sum(" + FLOW + "), 0) from transactions t " +
+            "join wallets w on w.id = t.wallet_id where w.user_id = ? and t.type in ('DEPOSIT', 'WITHDRAWAL') " +
+            "and t.created_at > ?";
+    private static final String SELECT_USER_HOLDINGS_VALUE =
+            "select coalesce(sum(current_value), 0) from portfolios where user_id = ?";
+    private static final String SELECT_LATEST = "select s.* from portfolio_snapshots s join (select user_id, " +
+            "max(snapshot_date) as last_date from portfolio_snapshots where user_id > ? and user_id <= ? " +
+            "and snapshot_date < ? group by user_id) m " +
+            "on m.user_id = s.user_id and m.last_date = s.snapshot_date";
+    private static final String UPSERT = "insert into portfolio_snapshots (user_id, snapshot_date, cash, holdings_value, " +
+            "snapshot_at, nav, net_flow, unit_value, peak_unit_value, max_drawdown, return_count, return_sum, return_sum_squares) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update " +
+            "cash = values(cash), snapshot_at = values(snapshot_at), holdings_value = values(holdings_value), nav = values(nav), net_flow = values(net_flow), " +
+            "unit_value = values(unit_value), peak_unit_value = values(peak_unit_value), " +
+            "max_drawdown = values(max_drawdown), return_count = values(return_count), " +
+            "return_sum = values(return_sum), return_sum_squares = values(return_sum_squares)";
+
+    @Value("${portfolio.analytics.risk-free-rate:0.065}")
+    private double riskFreeRate;
+
+    @Value("${portfolio.analytics.cache-ttl-ms:60000}")
+    private long cacheTtlMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PortfolioSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MarkToMarket markToMarket;
+
+    private final Map<Long, Cached> cache = new ConcurrentHashMap<>();
+
+    private record Cached(Performance performance, long expiresAt) {
+    }
+
+    /**
+     * Stores the NAV for the date of every user with an id after {@code afterUserId} up
+     * to {@code lastUserId}, extending their latest earlier snapshot. The day's flows are
+     * those after that snapshot's cut-off up to {@code cutoff}. Taking the same date
+     * again replaces it. Returns the number of snapshots written.
+     */
+    public int takeSnapshots(LocalDate date, LocalDateTime cutoff, long afterUserId, long lastUserId) {
+        Map<Long, Long> cash = sums(SELECT_CASH, afterUserId, lastUserId);
+        Map<Long, Long> holdings = markToMarket.isEnabled() ? null : sums(SELECT_HOLDINGS_VALUE, afterUserId, lastUserId);
+        Map<Long, Long> flows = sums(SELECT_FLOWS, afterUserId, lastUserId, Timestamp.valueOf(cutoff),
+                Date.valueOf(date));
+        Map<Long, NavStats> previous = new HashMap<>();
+        for (PortfolioSnapshot snapshot : jdbcTemplate.query(SELECT_LATEST,
+                new BeanPropertyRowMapper<>(PortfolioSnapshot.class), afterUserId, lastUserId, Date.valueOf(date))) {
+            previous.put(snapshot.getUserId(), NavStats.of(snapshot));
+        }
+
+        List<Object[]> rows = new ArrayList<>(cash.size());
+        cash.forEach((userId, cashPaise) -> {
+            long holdingsPaise = holdings != null ? holdings.getOrDefault(userId, 0L) : markToMarket.valuePaise(userId);
+            long flowPaise = flows.getOrDefault(userId, 0L);
+            NavStats stats = previous.getOrDefault(userId, new NavStats());
+            stats.add(cashPaise + holdingsPaise, flowPaise);
+            rows.add(new Object[]{userId, Date.valueOf(date), Money.toRupees(cashPaise), Money.toRupees(holdingsPaise),
+                    Timestamp.valueOf(cutoff), Money.toRupees(stats.navPaise), Money.toRupees(flowPaise), stats.unitValue, stats.peakUnitValue,
+                    stats.maxDrawdown, stats.returnCount, stats.returnSum, stats.returnSumSquares});
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        }
+        cache.keySet().removeIf(userId -> userId > afterUserId && userId <= lastUserId);
+        return rows.size();
+    }
+
+    @Override
+    public void onSettled(List<Settlement> settlements) {
+        for (Settlement settlement : settlements) {
+            cache.remove(settlement.getTrade().getUser().getId());
+        }
+    }
+
+    public Performance performance(Long userId) {
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(userId);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.performance();
+        }
+        Performance performance = compute(userId);
+        cache.put(userId, new Cached(performance, now + cacheTtlMs));
+        return performance;
+    }
+
+    private Performance compute(Long userId) {
+        LocalDate today = LocalDate.now(CandleAggregator.MARKET_ZONE);
+        List<Performance.NavPoint> history = new ArrayList<>();
+        List<Integer> days = new ArrayList<>();
+        List<Double> amounts = new ArrayList<>();
+        PortfolioSnapshot last = null;
+        LocalDate first = null;
+        for (PortfolioSnapshot snapshot : snapshotRepository.findByUserIdOrderBySnapshotDateAsc(userId)) {
+            if (!snapshot.getSnapshotDate().isBefore(today)) {
+                // Today's NAV is taken live
+                break;
+            }
+            long navPaise = Money.toPaise(snapshot.getNav());
+            long flowPaise = Money.toPaise(snapshot.getNetFlow());
+            history.add(new Performance.NavPoint(snapshot.getSnapshotDate(), navPaise, flowPaise));
+            if (first == null) {
+                // The starting NAV counts as the first investment
+                first = snapshot.getSnapshotDate();
+                days.add(0);
+                amounts.add((double) -navPaise);
+            } else if (flowPaise != 0) {
+                days.add((int) ChronoUnit.DAYS.between(first, snapshot.getSnapshotDate()));
+                amounts.add((double) -flowPaise);
+            }
+            last = snapshot;
+        }
+
+        long cashPaise = walletRepository.findBalanceByUserId(userId).map(Money::toPaise).orElse(0L);
+        long holdingsPaise = markToMarket.isEnabled() ? markToMarket.valuePaise(userId)
+                : Money.toPaise(jdbcTemplate.queryForObject(SELECT_USER_HOLDINGS_VALUE, BigDecimal.class, userId));
+        // Flows since the last cut-off, or every flow if there is no snapshot yet
+        LocalDateTime flowsAfter = last != null ? last.getSnapshotAt() : LocalDateTime.of(1970, 1, 1, 0, 0);
+        long flowPaise = Money.toPaise(jdbcTemplate.queryForObject(SELECT_USER_FLOW, BigDecimal.class, userId,
+                Timestamp.valueOf(flowsAfter)));
+        long navPaise = cashPaise + holdingsPaise;
+
+        NavStats stats = last != null ? NavStats.of(last) : new NavStats();
+        stats.add(navPaise, flowPaise);
+        history.add(new Performance.NavPoint(today, navPaise, flowPaise));
+
+        double xirr = Double.NaN;
+        if (first != null && first.isBefore(today)) {
+            int offset = (int) ChronoUnit.DAYS.between(first, today);
+            days.add(offset);
+            amounts.add((double) (navPaise - flowPaise));
+            xirr = Xirr.solve(days.stream().mapToInt(Integer::intValue).toArray(),
+                    amounts.stream().mapToDouble(Double::doubleValue).toArray());
+        }
+
+        double volatility = stats.dailyVolatility() * Math.sqrt(TRADING_DAYS);
+        double sharpe = volatility > 0 ? (stats.meanDailyReturn() * TRADING_DAYS - riskFreeRate) / volatility : Double.NaN;
+        return new Performance(history, navPaise, stats.unitValue - 1, stats.maxDrawdown, volatility, sharpe, xirr,
+                history.size());
+    }
+
+    private Map<Long, Long> sums(String sql, Object... args) {
+        Map<Long, Long> sums = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            BigDecimal amount = rs.getBigDecimal(2);
+            sums.put(rs.getLong(1), amount != null ? Money.toPaise(amount) : 0L);
+        }, args);
+        return sums;
+    }
+}
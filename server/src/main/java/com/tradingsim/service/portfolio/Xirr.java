@@ -0,0 +1,86 @@
+package com.tradingsim.service.portfolio;
+
+/**
+ * Money-weighted annual return: the rate at which the cash flows, discounted over
+ * actual days, sum to zero. Newton's method with a bisection fallback.
+ */
+final class Xirr {
+
+    private static final double TOLERANCE = 1e-9;
+    private static final int MAX_ITERATIONS = 100;
+
+    private Xirr() {
+    }
+
+    /**
+     * @param days    day offset of each flow from the first
+     * @param amounts flows from the investor's side: money in negative, money out positive
+     * @return the annual rate, or NaN if the flows do not change sign
+     */
+    static double solve(int[] days, double[] amounts) {
+        boolean hasIn = false;
+        boolean hasOut = false;
+        for (double amount : amounts) {
+            hasIn |= amount < 0;
+            hasOut |= amount > 0;
+        }
+        if (!hasIn || !hasOut) {
+            return Double.NaN;
+        }
+
+        double rate = 0.1;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double value = 0;
+            double derivative = 0;
+            for (int k = 0; k < amounts.length; k++) {
+                double years = days[k] / 365.0;
+                double discount = Math.pow(1 + rate, -years);
+                value += amounts[k] * discount;
+                derivative -= years * amounts[k] * discount / (1 + rate);
+            }
+            if (Math.abs(value) < TOLERANCE) {
+                return rate;
+            }
+            double next = rate - value / derivative;
+            if (!Double.isFinite(next) || next <= -1) {
+                break;
+            }
+            if (Math.abs(next - rate) < TOLERANCE) {
+                return next;
+            }
+            rate = next;
+        }
+        return bisect(days, amounts);
+    }
+
+    private static double bisect(int[] days, double[] amounts) {
+        double low = -0.9999;
+        double high = 100;
+        double lowValue = presentValue(days, amounts, low);
+        if (lowValue * presentValue(days, amounts, high) > 0) {
+            return Double.NaN;
+        }
+        for (int i = 0; i < 200; i++) {
+            double mid = (low + high) / 2;
+            double midValue = presentValue(days, amounts, mid);
+            if (Math.abs(midValue) < TOLERANCE || high - low < TOLERANCE) {
+                return mid;
+            }
+            if (lowValue * midValue < 0) {
+                high = mid;
+            } else {
+                low = mid;
+                lowValue = midValue;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    private static double presentValue(int[] days, double[] amounts, double rate) {
+        double value = 0;
+        for (int k = 0; k < amounts.length; k++) {
+            value += amounts[k] * Math.pow(1 + rate, -days[k] / 365.0);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,37 @@
+package com.tradingsim.service.portfolio.risk;
+
+/**
+ * Cholesky factor of a covariance matrix, both stored row-major in flat arrays. A
+ * covariance estimated from history is only positive semi-definite when two series
+ * move exactly together or one never moves; such a pivot gets a zero column, so the
+ * dependent series simply follows the ones before it.
+ */
+final class Cholesky {
+
+    private static final double EPSILON = 1e-14;
+
+    private Cholesky() {
+    }
+
+    /**
+     * Lower-triangular {@code l} with {@code l * l^T = covariance}.
+     */
+    static double[] factor(double[] covariance, int n) {
+        double[] l = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = covariance[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i * n + k] * l[j * n + k];
+                }
+                if (i == j) {
+                    l[i * n + i] = sum > EPSILON * Math.max(1, covariance[i * n + i]) ? Math.sqrt(sum) : 0;
+                } else {
+                    double pivot = l[j * n + j];
+                    l[i * n + j] = pivot > 0 ? sum / pivot : 0;
+                }
+            }
+        }
+        return l;
+    }
+}
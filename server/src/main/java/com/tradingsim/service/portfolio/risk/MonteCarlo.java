@@ -0,0 +1,91 @@
+package com.tradingsim.service.portfolio.risk;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulated losses of a portfolio over one day and over a longer horizon. Each path
+ * draws independent standard normals, correlates them through the Cholesky factor of
+ * the daily log-return covariance and revalues every position; the horizon reuses the
+ * same draws scaled by the square root of its length. Paths are split across a
+ * fork/join pool; each leaf owns its random generator and one scratch array, so no
+ * path allocates and a given seed always gives the same losses.
+ */
+final class MonteCarlo {
+
+    private static final int LEAF_PATHS = 2048;
+
+    private MonteCarlo() {
+    }
+
+    /**
+     * @param values        position values, in any unit the losses should be in
+     * @param cholesky      lower-triangular factor of the daily covariance, row-major
+     * @param dailyLosses   receives the one-day loss of each path (gains are negative)
+     * @param horizonLosses receives the loss over {@code horizonDays} of each path
+     */
+    static void simulate(ForkJoinPool pool, double[] values, double[] cholesky, int horizonDays, long seed,
+                         double[] dailyLosses, double[] horizonLosses) {
+        pool.invoke(new Paths(values, cholesky, Math.sqrt(horizonDays), seed, dailyLosses, horizonLosses,
+                0, dailyLosses.length));
+    }
+
+    private static final class Paths extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final double[] cholesky;
+        private final double horizonScale;
+        private final long seed;
+        private final double[] dailyLosses;
+        private final double[] horizonLosses;
+        private final int from;
+        private final int to;
+
+        Paths(double[] values, double[] cholesky, double horizonScale, long seed, double[] dailyLosses,
+              double[] horizonLosses, int from, int to) {
+            this.values = values;
+            this.cholesky = cholesky;
+            this.horizonScale = horizonScale;
+            this.seed = seed;
+            this.dailyLosses = dailyLosses;
+            this.horizonLosses = horizonLosses;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_PATHS) {
+                // Split on leaf boundaries so the streams do not depend on the pool size
+                int mid = from + Math.max(1, (to - from) / LEAF_PATHS / 2) * LEAF_PATHS;
+                invokeAll(new Paths(values, cholesky, horizonScale, seed, dailyLosses, horizonLosses, from, mid),
+                        new Paths(values, cholesky, horizonScale, seed, dailyLosses, horizonLosses, mid, to));
+                return;
+            }
+
+            int n = values.length;
+            double[] z = new double[n];
+            SplittableRandom random = new SplittableRandom(seed ^ (from * 0x9E3779B97F4A7C15L));
+            for (int path = from; path < to; path++) {
+                for (int i = 0; i < n; i++) {
+                    z[i] = random.nextGaussian();
+                }
+                double daily = 0;
+                double horizon = 0;
+                for (int i = 0; i < n; i++) {
+                    double r = 0;
+                    int row = i * n;
+                    for (int j = 0; j <= i; j++) {
+                        r += cholesky[row + j] * z[j];
+                    }
+                    daily += values[i] * Math.expm1(r);
+                    horizon += values[i] * Math.expm1(r * horizonScale);
+                }
+                dailyLosses[path] = -daily;
+                horizonLosses[path] = -horizon;
+            }
+        }
+    }
+}
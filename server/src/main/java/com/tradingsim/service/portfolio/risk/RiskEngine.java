@@ -0,0 +1,356 @@
+package com.tradingsim.service.portfolio.risk;
+
+import com.tradingsim.dto.response.HoldingResponse;
+import com.tradingsim.model.Candle;
+import com.tradingsim.model.Money;
+import com.tradingsim.repository.PortfolioRepository;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.trading.MarkToMarket;
+import com.tradingsim.service.trading.Settlement;
+import com.tradingsim.service.trading.SettlementListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Monte Carlo value at risk and expected shortfall of users' holdings. Daily log
+ * returns of the held symbols over {@code portfolio.risk.lookback-days} closed daily
+ * bars give the covariance matrix; {@link MonteCarlo} simulates correlated returns
+ * through its Cholesky factor on a fork/join pool. Daily closes are cached per symbol
+ * for {@code portfolio.risk.history-ttl-ms}, and estimates per user until one of their
+ * fills settles or {@code portfolio.risk.cache-ttl-ms} passes.
+ *
+ * The overnight run estimates every user holding stocks, with
+ * {@code portfolio.risk.overnight-paths} paths each, into {@code portfolio_risk}.
+ */
+@Service
+public class RiskEngine implements SettlementListener {
+    private static final Logger logger = LoggerFactory.getLogger(RiskEngine.class);
+
+    private static final String SELECT_HOLDER_IDS =
+            "select distinct user_id from portfolios where user_id > ? order by user_id limit ?";
+    private static final String SELECT_HOLDINGS = "select user_id, stock_symbol, current_value from portfolios " +
+            "where user_id > ? and user_id <= ? order by user_id";
+    private static final String UPSERT = "insert into portfolio_risk (user_id, as_of, portfolio_value, horizon_days, " +
+            "paths, daily_var95, daily_es95, daily_var99, daily_es99, horizon_var95, horizon_es95, horizon_var99, " +
+            "horizon_es99) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update " +
+            "as_of = values(as_of), portfolio_value = values(portfolio_value), horizon_days = values(horizon_days), " +
+            "paths = values(paths), daily_var95 = values(daily_var95), daily_es95 = values(daily_es95), " +
+            "daily_var99 = values(daily_var99), daily_es99 = values(daily_es99), " +
+            "horizon_var95 = values(horizon_var95), horizon_es95 = values(horizon_es95), " +
+            "horizon_var99 = values(horizon_var99), horizon_es99 = values(horizon_es99)";
+
+    @Value("${portfolio.risk.paths:100000}")
+    private int paths;
+
+    @Value("${portfolio.risk.horizon-days:10}")
+    private int horizonDays;
+
+    @Value("${portfolio.risk.lookback-days:250}")
+    private int lookbackDays;
+
+    @Value("${portfolio.risk.parallelism:0}")
+    private int parallelism;
+
+    @Value("${portfolio.risk.history-ttl-ms:3600000}")
+    private long historyTtlMs;
+
+    @Value("${portfolio.risk.cache-ttl-ms:60000}")
+    private long cacheTtlMs;
+
+    @Value("${portfolio.risk.overnight-paths:20000}")
+    private int overnightPaths;
+
+    @Value("${portfolio.risk.overnight-chunk-size:1000}")
+    private int overnightChunkSize;
+
+    @Autowired
+    private CandleAggregator candleAggregator;
+
+    @Autowired
+    private MarkToMarket markToMarket;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Closes> history = new ConcurrentHashMap<>();
+    private final Map<Long, Cached> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean overnightRunning = new AtomicBoolean();
+    private ForkJoinPool pool;
+
+    /**
+     * Daily closes in paise by bar open time, oldest first.
+     */
+    private record Closes(long[] times, long[] closes, long loadedAt) {
+    }
+
+    private record Cached(RiskEstimate estimate, long expiresAt) {
+    }
+
+    public record OvernightRun(LocalDate asOf, int users, long elapsedMs, long usersPerSecond) {
+    }
+
+    @PostConstruct
+    public void start() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    public RiskEstimate estimate(Long userId) {
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(userId);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.estimate();
+        }
+        List<HoldingResponse> holdings = markToMarket.isEnabled() ? markToMarket.marks(userId).holdings()
+                : portfolioRepository.findResponsesByUserId(userId);
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (HoldingResponse holding : holdings) {
+            values.put(holding.getStockSymbol(), Money.toPaise(holding.getCurrentValue()));
+        }
+        RiskEstimate estimate = estimate(userId, values, paths);
+        cache.put(userId, new Cached(estimate, now + cacheTtlMs));
+        return estimate;
+    }
+
+    @Override
+    public void onSettled(List<Settlement> settlements) {
+        for (Settlement settlement : settlements) {
+            cache.remove(settlement.getTrade().getUser().getId());
+        }
+    }
+
+    @Scheduled(cron = "${portfolio.risk.overnight-cron:0 0 2 * * TUE-SAT}", zone = "Asia/Kolkata")
+    public void runOvernightScheduled() {
+        try {
+            runOvernight();
+        } catch (RuntimeException e) {
+            logger.error("Overnight risk run failed", e);
+        }
+    }
+
+    /**
+     * Estimates every user holding stocks, walking users in id order a chunk at a time,
+     * and stores the results in {@code portfolio_risk}. Paths run in parallel, users one
+     * after another.
+     */
+    public OvernightRun runOvernight() {
+        if (!overnightRunning.compareAndSet(false, true)) {
+            throw new IllegalStateException("An overnight risk run is already in progress");
+        }
+        try {
+            LocalDate asOf = LocalDate.now(CandleAggregator.MARKET_ZONE);
+            long start = System.nanoTime();
+            int users = 0;
+            long afterUserId = 0;
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_HOLDER_IDS, Long.class, afterUserId, overnightChunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                long lastUserId = ids.get(ids.size() - 1);
+                Map<Long, Map<String, Long>> holdings = new LinkedHashMap<>();
+                jdbcTemplate.query(SELECT_HOLDINGS, rs -> {
+                    holdings.computeIfAbsent(rs.getLong(1), id -> new LinkedHashMap<>())
+                            .put(rs.getString(2), Money.toPaise(rs.getBigDecimal(3)));
+                }, afterUserId, lastUserId);
+
+                List<Object[]> rows = new ArrayList<>(holdings.size());
+                holdings.forEach((userId, values) -> rows.add(row(userId, estimate(userId, values, overnightPaths))));
+                if (!rows.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPSERT, rows);
+                }
+                users += holdings.size();
+                afterUserId = lastUserId;
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            OvernightRun run = new OvernightRun(asOf, users, elapsedNanos / 1_000_000,
+                    elapsedNanos > 0 ? users * 1_000_000_000L / elapsedNanos : 0);
+            logger.info("Overnight risk run: {} users with {} paths each in {} ms ({} users/s)", users,
+                    overnightPaths, run.elapsedMs(), run.usersPerSecond());
+            return run;
+        } finally {
+            overnightRunning.set(false);
+        }
+    }
+
+    RiskEstimate estimate(long userId, Map<String, Long> valuesBySymbol, int pathCount) {
+        LocalDate asOf = LocalDate.now(CandleAggregator.MARKET_ZONE);
+        List<String> symbols = new ArrayList<>();
+        List<Closes> series = new ArrayList<>();
+        long totalPaise = 0;
+        for (Map.Entry<String, Long> entry : valuesBySymbol.entrySet()) {
+            if (entry.getValue() > 0) {
+                symbols.add(entry.getKey());
+                series.add(closes(entry.getKey()));
+                totalPaise += entry.getValue();
+            }
+        }
+        int n = symbols.size();
+        double[][] returns = alignedReturns(series);
+        int days = returns.length == 0 ? 0 : returns[0].length;
+        if (n == 0 || days < 2) {
+            RiskEstimate.Tail none = new RiskEstimate.Tail(0, 0, 0, 0);
+            return new RiskEstimate(asOf, symbols, totalPaise, 0, days, horizonDays, none, none);
+        }
+
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = valuesBySymbol.get(symbols.get(i));
+        }
+        double[] dailyLosses = new double[pathCount];
+        double[] horizonLosses = new double[pathCount];
+        MonteCarlo.simulate(pool, values, Cholesky.factor(covariance(returns), n), horizonDays,
+                userId * 31 + asOf.toEpochDay(), dailyLosses, horizonLosses);
+        return new RiskEstimate(asOf, symbols, totalPaise, pathCount, days, horizonDays, tail(dailyLosses),
+                tail(horizonLosses));
+    }
+
+    private Closes closes(String symbol) {
+        long now = System.currentTimeMillis();
+        Closes cached = history.get(symbol);
+        if (cached != null && now - cached.loadedAt() < historyTtlMs) {
+            return cached;
+        }
+        long to = candleAggregator.current(symbol, Candle.Interval.D1).map(Bar::openTime).orElse(now + 1);
+        // Twice the span leaves room for weekends and holidays
+        List<Bar> bars = candleAggregator.getCandles(symbol, Candle.Interval.D1,
+                to - 2L * (lookbackDays + 1) * Candle.Interval.D1.getMillis(), to);
+        int count = bars.size();
+        long[] times = new long[count];
+        long[] closes = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = bars.get(i).openTime();
+            closes[i] = bars.get(i).close();
+        }
+        Closes loaded = new Closes(times, closes, now);
+        history.put(symbol, loaded);
+        return loaded;
+    }
+
+    /**
+     * Daily log returns over the last {@code lookback-days} days on which any of the
+     * symbols traded, one row per symbol. A symbol with no bar on a day keeps its last
+     * close, and one that started trading later is flat before its first bar.
+     */
+    private double[][] alignedReturns(List<Closes> series) {
+        long[] grid = series.stream().flatMapToLong(closes -> Arrays.stream(closes.times())).sorted().distinct()
+                .toArray();
+        grid = Arrays.copyOfRange(grid, Math.max(0, grid.length - lookbackDays - 1), grid.length);
+        if (grid.length < 2) {
+            return new double[series.size()][0];
+        }
+
+        double[][] returns = new double[series.size()][grid.length - 1];
+        for (int i = 0; i < series.size(); i++) {
+            Closes closes = series.get(i);
+            if (closes.closes().length == 0) {
+                continue;
+            }
+            int next = 0;
+            long last = closes.closes()[0];
+            for (int t = 0; t < grid.length; t++) {
+                long previous = last;
+                while (next < closes.times().length && closes.times()[next] <= grid[t]) {
+                    last = closes.closes()[next++];
+                }
+                if (t > 0 && previous > 0 && last > 0) {
+                    returns[i][t - 1] = Math.log((double) last / previous);
+                }
+            }
+        }
+        return returns;
+    }
+
+    /**
+     * Sample covariance of the return rows, row-major.
+     */
+    private static double[] covariance(double[][] returns) {
+        int n = returns.length;
+        int days = returns[0].length;
+        double[][] centred = new double[n][days];
+        for (int i = 0; i < n; i++) {
+            double mean = 0;
+            for (double r : returns[i]) {
+                mean += r;
+            }
+            mean /= days;
+            for (int t = 0; t < days; t++) {
+                centred[i][t] = returns[i][t] - mean;
+            }
+        }
+        double[] covariance = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = 0;
+                for (int t = 0; t < days; t++) {
+                    sum += centred[i][t] * centred[j][t];
+                }
+                covariance[i * n + j] = covariance[j * n + i] = sum / (days - 1);
+            }
+        }
+        return covariance;
+    }
+
+    private static RiskEstimate.Tail tail(double[] losses) {
+        Arrays.sort(losses);
+        return new RiskEstimate.Tail(quantile(losses, 0.95), shortfall(losses, 0.95), quantile(losses, 0.99),
+                shortfall(losses, 0.99));
+    }
+
+    private static long quantile(double[] sorted, double confidence) {
+        return Math.round(sorted[tailStart(sorted.length, confidence)]);
+    }
+
+    /**
+     * Mean loss at or beyond the quantile.
+     */
+    private static long shortfall(double[] sorted, double confidence) {
+        int from = tailStart(sorted.length, confidence);
+        double sum = 0;
+        for (int i = from; i < sorted.length; i++) {
+            sum += sorted[i];
+        }
+        return Math.round(sum / (sorted.length - from));
+    }
+
+    private static int tailStart(int count, double confidence) {
+        return Math.min(count - 1, Math.max(0, (int) Math.ceil(confidence * count) - 1));
+    }
+
+    private static Object[] row(long userId, RiskEstimate estimate) {
+        RiskEstimate.Tail daily = estimate.daily();
+        RiskEstimate.Tail horizon = estimate.horizon();
+        return new Object[]{userId, Date.valueOf(estimate.asOf()), Money.toRupees(estimate.valuePaise()),
+                estimate.horizonDays(), estimate.paths(),
+                Money.toRupees(daily.var95Paise()), Money.toRupees(daily.expectedShortfall95Paise()),
+                Money.toRupees(daily.var99Paise()), Money.toRupees(daily.expectedShortfall99Paise()),
+                Money.toRupees(horizon.var95Paise()), Money.toRupees(horizon.expectedShortfall95Paise()),
+                Money.toRupees(horizon.var99Paise()), Money.toRupees(horizon.expectedShortfall99Paise())};
+    }
+}
@@ -0,0 +1,16 @@
+package com.tradingsim.service.portfolio.risk;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Value at risk and expected shortfall of a user's holdings, in paise, over one day and
+ * over {@code horizonDays}. Losses are positive.
+ */
+public record RiskEstimate(LocalDate asOf, List<String> symbols, long valuePaise, int paths, int historyDays,
+                           int horizonDays, Tail daily, Tail horizon) {
+
+    public record Tail(long var95Paise, long expectedShortfall95Paise, long var99Paise,
+                       long expectedShortfall99Paise) {
+    }
+}
@@ -0,0 +1,197 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.Transaction;
+import com.tradingsim.model.User;
+import com.tradingsim.model.Wallet;
+import com.tradingsim.repository.PortfolioRepository;
+import com.tradingsim.repository.WalletRepository;
+import com.tradingsim.service.ledger.TradeLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Loads and writes detached account snapshots for {@link ShardedTradeExecutor} and
+ * batch execution. Writes use targeted statements so a settled fill costs no reads,
+ * and the balance is moved by the fill's change rather than overwritten, so a write
+ * the snapshot has not seen is never lost.
+ * Holdings still use identity ids, so batched holding writes go through JDBC
+ * batching; trades and transactions go to the {@link TradeLedger}.
+ */
+@Service
+public class AccountStore {
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private TradeLedger tradeLedger;
+
+    @Autowired
+    private SettlementEvents settlementEvents;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String INSERT_HOLDING =
+            "insert into portfolios (user_id, stock_symbol, stock_name, quantity, average_buy_price, current_value, profit_loss, total_investment) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_HOLDING =
+            "update portfolios set quantity = ?, average_buy_price = ?, current_value = ?, profit_loss = ?, total_investment = ? where id = ?";
+    private static final String DELETE_HOLDING = "delete from portfolios where id = ?";
+
+    /**
+     * A user's wallet and holdings, keyed by symbol. Only ever touched by the user's shard thread.
+     */
+    public static class Account {
+        private final User user;
+        private final Wallet wallet;
+        private final Map<String, Portfolio> holdings;
+
+        Account(User user, Wallet wallet, Map<String, Portfolio> holdings) {
+            this.user = user;
+            this.wallet = wallet;
+            this.holdings = holdings;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public Wallet getWallet() {
+            return wallet;
+        }
+
+        public Map<String, Portfolio> getHoldings() {
+            return holdings;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Account load(Long userId) {
+        User user = new User();
+        user.setId(userId);
+        return load(user, walletRepository.findByUser(user));
+    }
+
+    /**
+     * Loads the account and keeps its wallet row locked until the caller's
+     * transaction ends.
+     */
+    @Transactional
+    public Account lock(Long userId) {
+        User user = new User();
+        user.setId(userId);
+        return load(user, walletRepository.lockByUser(user));
+    }
+
+    private Account load(User user, Optional<Wallet> found) {
+        Wallet wallet = found.orElseThrow(() -> new RuntimeException("Error: Wallet not found for user"));
+        Map<String, Portfolio> holdings = new HashMap<>();
+        for (Portfolio holding : portfolioRepository.findByUser(user)) {
+            holdings.put(holding.getStockSymbol(), holding);
+        }
+        return new Account(user, wallet, holdings);
+    }
+
+    @Transactional
+    public void persist(Settlement settlement) {
+        write(settlement);
+    }
+
+    /**
+     * Writes the settlements of one match, one per side, in a single transaction.
+     */
+    @Transactional
+    public void persistAll(List<Settlement> settlements) {
+        settlements.forEach(this::write);
+    }
+
+    private void write(Settlement settlement) {
+        walletRepository.adjustBalance(settlement.getWallet().getId(), settlement.getBalanceChange().toBigDecimal());
+
+        Portfolio holding = settlement.getHolding();
+        if (settlement.isHoldingClosed()) {
+            portfolioRepository.deleteHolding(holding.getId());
+        } else if (holding.getId() == null) {
+            portfolioRepository.save(holding);
+        } else {
+            portfolioRepository.updateHolding(holding.getId(), holding.getQuantity(), holding.getAverageBuyPrice(),
+                    holding.getTotalInvestment(), holding.getCurrentValue(), holding.getProfitLoss());
+        }
+        tradeLedger.record(settlement.getTrade(), settlement.getTransaction());
+        settlementEvents.publish(settlement);
+    }
+
+    /**
+     * Writes everything a batch produced in one transaction: one balance update, the
+     * ledger entries and a JDBC batch per holding statement type. Ids of newly inserted
+     * holdings are read back so the snapshot stays usable for later fills.
+     */
+    @Transactional
+    public void persistBatch(BatchSettlement batch) {
+        if (batch.getSettlements().isEmpty()) {
+            return;
+        }
+        Account account = batch.getAccount();
+
+        Money balanceChange = Money.ZERO;
+        List<Trade> trades = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (Settlement settlement : batch.getSettlements()) {
+            balanceChange = balanceChange.plus(settlement.getBalanceChange());
+            trades.add(settlement.getTrade());
+            transactions.add(settlement.getTransaction());
+        }
+        walletRepository.adjustBalance(account.getWallet().getId(), balanceChange.toBigDecimal());
+        tradeLedger.record(trades, transactions);
+        settlementEvents.publish(batch.getSettlements());
+
+        List<Object[]> deletes = new ArrayList<>();
+        for (Portfolio holding : batch.getClosedHoldings()) {
+            deletes.add(new Object[]{holding.getId()});
+        }
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        Map<String, Portfolio> inserted = new HashMap<>();
+        for (Portfolio holding : batch.getChangedHoldings()) {
+            if (holding.getId() == null) {
+                inserts.add(new Object[]{account.getUser().getId(), holding.getStockSymbol(), holding.getStockName(),
+                        holding.getQuantity(), holding.getAverageBuyPrice(), holding.getCurrentValue(),
+                        holding.getProfitLoss(), holding.getTotalInvestment()});
+                inserted.put(holding.getStockSymbol(), holding);
+            } else {
+                updates.add(new Object[]{holding.getQuantity(), holding.getAverageBuyPrice(), holding.getCurrentValue(),
+                        holding.getProfitLoss(), holding.getTotalInvestment(), holding.getId()});
+            }
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_HOLDING, deletes);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_HOLDING, updates);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_HOLDING, inserts);
+            jdbcTemplate.query("select id, stock_symbol from portfolios where user_id = ?", rs -> {
+                Portfolio holding = inserted.get(rs.getString("stock_symbol"));
+                if (holding != null) {
+                    holding.setId(rs.getLong("id"));
+                }
+            }, account.getUser().getId());
+        }
+    }
+}
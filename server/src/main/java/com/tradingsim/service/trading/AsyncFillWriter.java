@@ -0,0 +1,215 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.trading.matching.Fill;
+import com.tradingsim.service.trading.risk.RiskEngine;
+import com.tradingsim.model.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Settles matching-engine fills on a background thread so the matching threads never
+ * wait on the database. Until a fill is settled its cash and shares are reported as
+ * pending, so pre-trade checks do not spend them twice.
+ *
+ * Both sides of a user-to-user match are settled in one transaction. A write that
+ * fails on the database is retried with backoff; a fill that is refused outright, or
+ * still fails after the last attempt, is handed back to the matching engine together
+ * with the side that was refused, so only that order is rejected.
+ */
+@Component
+public class AsyncFillWriter implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncFillWriter.class);
+
+    @Value("${trading.fills.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${trading.fills.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Autowired
+    private TradeExecutor tradeExecutor;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private RiskEngine riskEngine;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final BlockingQueue<Execution> executions = new LinkedBlockingQueue<>();
+    private final AtomicInteger retrying = new AtomicInteger();
+    private final Map<Long, Long> pendingBuyPaise = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pendingSellShares = new ConcurrentHashMap<>();
+
+    private Thread thread;
+    private Counter rejected;
+    private volatile boolean running = true;
+
+    /**
+     * The fills of one execution, one per side, and what to do if they cannot be settled.
+     */
+    private record Execution(List<Fill> fills, BiConsumer<Fill, String> onRejected, int attempt) {
+    }
+
+    @PostConstruct
+    public void start() {
+        meterRegistry.gauge("trading.fills.pending", executions, BlockingQueue::size);
+        rejected = meterRegistry.counter("trading.fills.rejected");
+        thread = new Thread(this, "fill-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The trade executor is destroyed after this bean, so fills handed to it still settle
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Queues the fills of one execution.
+     *
+     * @param onRejected called if the fills could not be settled, with the fill whose
+     *                   side was refused (null when it was not down to one side) and the reason
+     */
+    public void enqueue(List<Fill> fills, BiConsumer<Fill, String> onRejected) {
+        fills.forEach(fill -> track(fill, 1));
+        executions.add(new Execution(fills, onRejected, 1));
+    }
+
+    public long pendingBuyPaise(Long userId) {
+        return pendingBuyPaise.getOrDefault(userId, 0L);
+    }
+
+    public int pendingSellShares(Long userId, String symbol) {
+        return pendingSellShares.getOrDefault(userId + ":" + symbol, 0);
+    }
+
+    @Override
+    public void run() {
+        while (running || !executions.isEmpty() || retrying.get() > 0) {
+            Execution execution;
+            try {
+                execution = executions.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (execution != null) {
+                settle(execution);
+            }
+        }
+    }
+
+    private void settle(Execution execution) {
+        CompletableFuture<Void> settled;
+        List<TradeInstruction> instructions = new ArrayList<>(execution.fills().size());
+        try {
+            for (Fill fill : execution.fills()) {
+                Stock stock = quoteStore.findBySymbol(fill.symbol())
+                        .orElseThrow(() -> new RuntimeException("Error: Stock not found"));
+                instructions.add(TradeInstruction.fill(fill.userId(), stock, fill.side(), fill.quantity(),
+                        Money.ofPaise(fill.pricePaise())));
+            }
+            settled = tradeExecutor.submitMatch(instructions);
+        } catch (RuntimeException e) {
+            settled = CompletableFuture.failedFuture(e);
+        }
+        settled.whenComplete((result, error) -> {
+            if (error == null) {
+                for (Fill fill : execution.fills()) {
+                    track(fill, -1);
+                    // Now counted as settled exposure
+                    riskEngine.release(fill.userId(), fill.orderId(), fill.quantity());
+                }
+            } else {
+                failed(execution, instructions, error);
+            }
+        });
+    }
+
+    private void failed(Execution execution, List<TradeInstruction> instructions, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        Fill refused = null;
+        if (cause instanceof SideRejectedException side) {
+            cause = side.getCause();
+            int index = instructions.indexOf(side.getInstruction());
+            // Database trouble is nobody's fault; a business refusal is down to that side
+            if (index >= 0 && !retryable(cause)) {
+                refused = execution.fills().get(index);
+            }
+        }
+        Fill fill = refused != null ? refused : execution.fills().get(0);
+
+        if (retryable(cause) && execution.attempt() < maxAttempts) {
+            logger.warn("Could not settle fill of order {} ({} {} x{}), attempt {} of {}: {}", fill.orderId(),
+                    fill.side(), fill.symbol(), fill.quantity(), execution.attempt(), maxAttempts, cause.getMessage());
+            retrying.incrementAndGet();
+            Execution retry = new Execution(execution.fills(), execution.onRejected(), execution.attempt() + 1);
+            long delay = retryBackoffMs << (execution.attempt() - 1);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                executions.add(retry);
+                retrying.decrementAndGet();
+            });
+            return;
+        }
+
+        logger.error("Could not settle fill of order {} ({} {} x{}): {}", fill.orderId(),
+                fill.side(), fill.symbol(), fill.quantity(), cause.getMessage());
+        rejected.increment();
+        execution.fills().forEach(f -> track(f, -1));
+        execution.onRejected().accept(refused, cause.getMessage());
+    }
+
+    /**
+     * Database trouble may clear up; a business rejection or a bad instruction will not.
+     */
+    private static boolean retryable(Throwable cause) {
+        return cause instanceof DataAccessException || cause instanceof TransactionException;
+    }
+
+    private void track(Fill fill, int sign) {
+        if (fill.side() == Trade.TradeType.BUY) {
+            pendingBuyPaise.merge(fill.userId(), sign * fill.pricePaise() * fill.quantity(), AsyncFillWriter::sumOrRemove);
+        } else {
+            pendingSellShares.merge(fill.userId() + ":" + fill.symbol(), sign * fill.quantity(), AsyncFillWriter::sumOrRemove);
+        }
+    }
+
+    private static Long sumOrRemove(Long a, Long b) {
+        long sum = a + b;
+        return sum == 0 ? null : sum;
+    }
+
+    private static Integer sumOrRemove(Integer a, Integer b) {
+        int sum = a + b;
+        return sum == 0 ? null : sum;
+    }
+}
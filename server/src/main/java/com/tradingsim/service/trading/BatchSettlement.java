@@ -0,0 +1,100 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.dto.response.TradeResult;
+import com.tradingsim.model.Portfolio;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a list of instructions, in order, to one in-memory snapshot of a user's
+ * account. Each instruction is checked against the balance and holdings left by the
+ * ones before it; rejected instructions leave the snapshot untouched and the rest
+ * still go ahead. The collected rows are then written in one go by
+ * {@link AccountStore#persistBatch}.
+ */
+public final class BatchSettlement {
+
+    private final AccountStore.Account account;
+    private final List<TradeResult> results = new ArrayList<>();
+    private final List<Settlement> settlements = new ArrayList<>();
+    private final Map<String, Portfolio> changedHoldings = new LinkedHashMap<>();
+    private final List<Portfolio> closedHoldings = new ArrayList<>();
+    private BigDecimal walletBalance;
+
+    private BatchSettlement(AccountStore.Account account) {
+        this.account = account;
+    }
+
+    /**
+     * @param indexes the position of each instruction in the client's request, used in the results
+     */
+    public static BatchSettlement apply(AccountStore.Account account, List<TradeInstruction> instructions, List<Integer> indexes) {
+        BatchSettlement batch = new BatchSettlement(account);
+        for (int i = 0; i < instructions.size(); i++) {
+            batch.apply(instructions.get(i), indexes.get(i));
+        }
+        batch.walletBalance = account.getWallet().getBalance();
+        return batch;
+    }
+
+    private void apply(TradeInstruction instruction, int index) {
+        String symbol = instruction.stock().getSymbol();
+        try {
+            Settlement settlement = Settlement.apply(account.getUser(), account.getWallet(),
+                    account.getHoldings().get(symbol), instruction);
+            settlements.add(settlement);
+
+            Portfolio holding = settlement.getHolding();
+            if (settlement.isHoldingClosed()) {
+                account.getHoldings().remove(symbol);
+                changedHoldings.remove(symbol);
+                if (holding.getId() != null) {
+                    closedHoldings.add(holding);
+                }
+            } else {
+                account.getHoldings().put(symbol, holding);
+                changedHoldings.put(symbol, holding);
+            }
+            results.add(TradeResult.executed(index, symbol, instruction.side().name(), instruction.quantity(),
+                    instruction.price().toBigDecimal()));
+        } catch (RuntimeException e) {
+            results.add(TradeResult.rejected(index, symbol, instruction.side().name(), instruction.quantity(),
+                    e.getMessage()));
+        }
+    }
+
+    public AccountStore.Account getAccount() {
+        return account;
+    }
+
+    public BigDecimal getWalletBalance() {
+        return walletBalance;
+    }
+
+    public List<TradeResult> getResults() {
+        return results;
+    }
+
+    public List<Settlement> getSettlements() {
+        return settlements;
+    }
+
+    /**
+     * Final state of every holding the batch left open, new ones without an id.
+     */
+    public Collection<Portfolio> getChangedHoldings() {
+        return changedHoldings.values();
+    }
+
+    /**
+     * Previously stored holdings the batch sold out of.
+     */
+    public List<Portfolio> getClosedHoldings() {
+        return closedHoldings;
+    }
+}
@@ -0,0 +1,49 @@
+package com.tradingsim.service.trading;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Settles each fill on the calling thread straight against the database, holding
+ * the user's wallet row lock for the length of the transaction.
+ */
+@Service
+@ConditionalOnProperty(name = "trading.execution.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectTradeExecutor implements TradeExecutor {
+
+    @Autowired
+    private TradeSettlementService tradeSettlementService;
+
+    @Override
+    public CompletableFuture<BigDecimal> submit(TradeInstruction instruction) {
+        try {
+            return CompletableFuture.completedFuture(tradeSettlementService.settle(instruction).getBalance());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> submitMatch(List<TradeInstruction> instructions) {
+        try {
+            tradeSettlementService.settleAll(instructions);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<BatchSettlement> submitBatch(Long userId, List<TradeInstruction> instructions, List<Integer> indexes) {
+        try {
+            return CompletableFuture.completedFuture(tradeSettlementService.settleBatch(userId, instructions, indexes));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.dto.response.HoldingResponse;
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteListener;
+import com.tradingsim.service.market.QuoteStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps every holding valued at the latest price. Holdings are indexed by symbol, so a
+ * tick revalues only the positions in that stock and moves their owners' totals by the
+ * difference. Settled fills update the positions they touch. Revalued rows are written
+ * back to {@code portfolios} in batches every {@code trading.marks.flush-ms}, and
+ * portfolio reads are served from memory.
+ */
+@Service
+@DependsOn({"databaseInitializer", "journalRecovery"})
+public class MarkToMarket implements QuoteListener, SettlementListener {
+    private static final Logger logger = LoggerFactory.getLogger(MarkToMarket.class);
+
+    private static final String SELECT_HOLDINGS = "select id, user_id, stock_symbol, stock_name, quantity, " +
+            "average_buy_price, total_investment from portfolios";
+    private static final String UPDATE_MARK =
+            "update portfolios set current_value = ?, profit_loss = ? where user_id = ? and stock_symbol = ?";
+
+    @Value("${trading.marks.enabled:true}")
+    private boolean enabled;
+
+    @Value("${market.quotes.capacity:4096}")
+    private int capacity;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Book> books = new ConcurrentHashMap<>();
+    private final Set<Position> dirty = ConcurrentHashMap.newKeySet();
+    private AtomicReferenceArray<Position[]> holders;  // positions in each stock, by quote id
+
+    /**
+     * One user's positions and their totals in paise.
+     */
+    private static final class Book {
+        final Map<String, Position> positions = new LinkedHashMap<>();
+        long investmentPaise;
+        long valuePaise;
+    }
+
+    // Guarded by its book
+    private static final class Position {
+        final Book book;
+        final Long userId;
+        final String symbol;
+        final String name;
+        final int quoteId;
+        Long id;
+        int quantity;
+        long averagePaise;
+        long investmentPaise;
+        long valuePaise;
+        boolean closed;
+        boolean dirty;  // queued for the next flush
+
+        Position(Book book, Long userId, String symbol, String name, int quoteId) {
+            this.book = book;
+            this.userId = userId;
+            this.symbol = symbol;
+            this.name = name;
+            this.quoteId = quoteId;
+        }
+    }
+
+    /**
+     * A user's holdings valued at the latest prices, with the totals in paise.
+     */
+    public record Marks(List<HoldingResponse> holdings, long investmentPaise, long valuePaise) {
+    }
+
+    @PostConstruct
+    public void load() {
+        holders = new AtomicReferenceArray<>(capacity);
+        meterRegistry.gauge("trading.marks.dirty", dirty, Set::size);
+        if (!enabled) {
+            return;
+        }
+
+        int[] count = new int[1];
+        jdbcTemplate.query(SELECT_HOLDINGS, rs -> {
+            Long userId = rs.getLong("user_id");
+            Book book = books.computeIfAbsent(userId, id -> new Book());
+            synchronized (book) {
+                Position position = open(book, userId, rs.getString("stock_symbol"), rs.getString("stock_name"));
+                if (position != null) {
+                    position.id = rs.getLong("id");
+                    update(position, rs.getInt("quantity"), Money.toPaise(rs.getBigDecimal("average_buy_price")),
+                            Money.toPaise(rs.getBigDecimal("total_investment")));
+                    count[0]++;
+                }
+            }
+        });
+        logger.info("Marking {} holdings of {} users to market", count[0], books.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void onQuote(Quote quote) {
+        if (!enabled || quote.id() >= holders.length() || quote.pricePaise() <= 0) {
+            return;
+        }
+        Position[] positions = holders.get(quote.id());
+        if (positions == null) {
+            return;
+        }
+        for (Position position : positions) {
+            synchronized (position.book) {
+                if (!position.closed) {
+                    revalue(position, quote.pricePaise());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onSettled(List<Settlement> settlements) {
+        if (!enabled) {
+            return;
+        }
+        for (Settlement settlement : settlements) {
+            Trade trade = settlement.getTrade();
+            Portfolio holding = settlement.getHolding();
+            Long userId = trade.getUser().getId();
+            Book book = books.computeIfAbsent(userId, id -> new Book());
+            synchronized (book) {
+                Position position = book.positions.get(trade.getStockSymbol());
+                if (settlement.isHoldingClosed()) {
+                    if (position != null) {
+                        close(position);
+                    }
+                    continue;
+                }
+                if (position == null) {
+                    position = open(book, userId, holding.getStockSymbol(), holding.getStockName());
+                    if (position == null) {
+                        continue;
+                    }
+                }
+                if (holding.getId() != null) {
+                    position.id = holding.getId();
+                }
+                update(position, holding.getQuantity(), Money.toPaise(holding.getAverageBuyPrice()),
+                        Money.toPaise(holding.getTotalInvestment()));
+            }
+        }
+    }
+
+    /**
+     * The user's holdings at the latest prices, read from memory.
+     */
+    public Marks marks(Long userId) {
+        Book book = books.get(userId);
+        if (book == null) {
+            return new Marks(List.of(), 0, 0);
+        }
+        synchronized (book) {
+            List<HoldingResponse> holdings = new ArrayList<>(book.positions.size());
+            for (Position position : book.positions.values()) {
+                holdings.add(new HoldingResponse(position.id, position.symbol, position.name, position.quantity,
+                        Money.toRupees(position.averagePaise), Money.toRupees(position.valuePaise),
+                        Money.toRupees(position.valuePaise - position.investmentPaise),
+                        Money.toRupees(position.investmentPaise)));
+            }
+            return new Marks(holdings, book.investmentPaise, book.valuePaise);
+        }
+    }
+
+    /**
+     * Total value of the user's holdings at the latest prices, in paise.
+     */
+    public long valuePaise(Long userId) {
+        Book book = books.get(userId);
+        if (book == null) {
+            return 0;
+        }
+        synchronized (book) {
+            return book.valuePaise;
+        }
+    }
+
+    /**
+     * Writes the values of holdings revalued since the last flush in one JDBC batch.
+     */
+    @Scheduled(fixedDelayString = "${trading.marks.flush-ms:10000}")
+    public void flush() {
+        List<Position> flushed = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (Iterator<Position> it = dirty.iterator(); it.hasNext(); ) {
+            Position position = it.next();
+            it.remove();
+            synchronized (position.book) {
+                position.dirty = false;
+                if (!position.closed) {
+                    flushed.add(position);
+                    rows.add(new Object[]{Money.toRupees(position.valuePaise),
+                            Money.toRupees(position.valuePaise - position.investmentPaise), position.userId, position.symbol});
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_MARK, rows);
+        } catch (RuntimeException e) {
+            for (Position position : flushed) {
+                synchronized (position.book) {
+                    if (!position.dirty && !position.closed) {
+                        position.dirty = true;
+                        dirty.add(position);
+                    }
+                }
+            }
+            logger.warn("Could not write {} holding values, will retry: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    // The methods below are called with the book locked
+
+    private Position open(Book book, Long userId, String symbol, String name) {
+        int quoteId = quoteStore.idOf(symbol);
+        if (quoteId < 0 || quoteId >= holders.length()) {
+            logger.warn("Cannot mark holding of {} in {} to market: stock is not listed", userId, symbol);
+            return null;
+        }
+        Position position = new Position(book, userId, symbol, name, quoteId);
+        book.positions.put(symbol, position);
+        synchronized (holders) {
+            Position[] current = holders.get(quoteId);
+            Position[] next = current == null ? new Position[1] : Arrays.copyOf(current, current.length + 1);
+            next[next.length - 1] = position;
+            holders.set(quoteId, next);
+        }
+        return position;
+    }
+
+    private void close(Position position) {
+        position.closed = true;
+        position.book.positions.remove(position.symbol);
+        position.book.investmentPaise -= position.investmentPaise;
+        position.book.valuePaise -= position.valuePaise;
+        dirty.remove(position);
+        synchronized (holders) {
+            Position[] current = holders.get(position.quoteId);
+            Position[] next = Arrays.stream(current).filter(p -> p != position).toArray(Position[]::new);
+            holders.set(position.quoteId, next.length == 0 ? null : next);
+        }
+    }
+
+    private void update(Position position, int quantity, long averagePaise, long investmentPaise) {
+        position.book.investmentPaise += investmentPaise - position.investmentPaise;
+        position.investmentPaise = investmentPaise;
+        position.averagePaise = averagePaise;
+        position.quantity = quantity;
+        revalue(position, quoteStore.get(position.quoteId).pricePaise());
+    }
+
+    private void revalue(Position position, long pricePaise) {
+        long value = pricePaise * position.quantity;
+        if (value != position.valuePaise) {
+            position.book.valuePaise += value - position.valuePaise;
+            position.valuePaise = value;
+            if (!position.dirty) {
+                position.dirty = true;
+                dirty.add(position);
+            }
+        }
+    }
+}
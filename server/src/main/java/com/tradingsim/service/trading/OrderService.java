@@ -0,0 +1,196 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.*;
+import com.tradingsim.repository.PortfolioRepository;
+import com.tradingsim.repository.WalletRepository;
+import com.tradingsim.service.trading.journal.TradeJournal;
+import com.tradingsim.service.trading.matching.MatchingEngine;
+import com.tradingsim.service.trading.matching.Order;
+import com.tradingsim.service.trading.risk.RiskEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Places single orders: market orders settle through the {@link TradeExecutor},
+ * limit and stop orders go to the {@link MatchingEngine}. Every order is first checked
+ * against the user's {@link RiskEngine} limits, and cash and shares already committed
+ * to resting orders or unsettled fills are never spent twice.
+ */
+@Service
+public class OrderService {
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private TradeExecutor tradeExecutor;
+
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    @Autowired
+    private AsyncFillWriter fillWriter;
+
+    @Autowired
+    private TradeJournal tradeJournal;
+
+    @Autowired
+    private RiskEngine riskEngine;
+
+    /**
+     * Gives a new order its id and journals it before anything else happens to it. A
+     * journal failure fails the request.
+     */
+    public long receive(Long userId, String symbol, Trade.TradeType side, Order.OrderType orderType,
+                        Order.TimeInForce timeInForce, long limitPaise, long stopPaise, int quantity) {
+        long orderId = matchingEngine.nextOrderId();
+        tradeJournal.appendOrder(orderId, userId, symbol, side, orderType, timeInForce, limitPaise, stopPaise, quantity);
+        return orderId;
+    }
+
+    /**
+     * Receives a market order, fills it at the stock's current price and returns the
+     * new wallet balance.
+     */
+    public BigDecimal executeMarket(Long userId, Stock stock, Trade.TradeType side, int quantity) {
+        long orderId = receiveMarket(userId, stock.getSymbol(), side, quantity);
+        TradeInstruction instruction = marketInstruction(orderId, userId, stock, side, quantity);
+        try {
+            return tradeExecutor.execute(instruction);
+        } finally {
+            riskEngine.release(userId, orderId);
+        }
+    }
+
+    /**
+     * Settles every market order of a batch against one snapshot of the user's account.
+     * Each order must have been {@link #receiveMarket received} and {@link #reserve reserved};
+     * the reservations are released once the batch is done.
+     */
+    public BatchSettlement executeBatch(Long userId, List<Long> orderIds, List<TradeInstruction> instructions,
+                                        List<Integer> indexes) {
+        try {
+            return tradeExecutor.executeBatch(userId, instructions, indexes);
+        } finally {
+            orderIds.forEach(orderId -> riskEngine.release(userId, orderId));
+        }
+    }
+
+    /**
+     * Like {@link #executeMarket} for an order already {@link #receive received},
+     * completing the future with the new wallet balance.
+     */
+    public CompletableFuture<BigDecimal> submitMarket(long orderId, Long userId, Stock stock, Trade.TradeType side,
+                                                      int quantity) {
+        TradeInstruction instruction = marketInstruction(orderId, userId, stock, side, quantity);
+        try {
+            return tradeExecutor.submit(instruction)
+                    .whenComplete((walletBalance, error) -> riskEngine.release(userId, orderId));
+        } catch (RuntimeException e) {
+            riskEngine.release(userId, orderId);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks a {@link #receive received} limit or stop order against what the user has
+     * left, reserves its exposure and queues it on its book. The returned future
+     * completes once the book has processed it.
+     *
+     * @throws TradeRejectedException if a limit would be broken or the cash or shares it needs are not available
+     */
+    public CompletableFuture<Order> placeOrder(long orderId, Long userId, Stock stock, Trade.TradeType side,
+                                               Order.OrderType orderType, Order.TimeInForce timeInForce,
+                                               long limitPaise, long stopPaise, int quantity) {
+        long pricePaise = limitPaise != 0 ? limitPaise : stopPaise;
+        reserve(orderId, userId, stock.getSymbol(), side, quantity, pricePaise);
+        try {
+            checkAvailable(userId, stock.getSymbol(), side, quantity, pricePaise);
+            Order order = new Order(orderId, userId, stock.getSymbol(), side, orderType, timeInForce,
+                    limitPaise, stopPaise, quantity);
+            return matchingEngine.submit(order, Money.toPaise(stock.getCurrentPrice()));
+        } catch (RuntimeException e) {
+            riskEngine.release(userId, orderId);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks the order against the user's risk limits and against what is left after
+     * resting orders and unsettled fills.
+     *
+     * @throws TradeRejectedException if a limit would be broken or the cash or shares are not available
+     */
+    public void preTradeCheck(Long userId, String symbol, Trade.TradeType side, int quantity, long pricePaise) {
+        riskEngine.check(userId, symbol, side, quantity, pricePaise);
+        checkAvailable(userId, symbol, side, quantity, pricePaise);
+    }
+
+    /**
+     * Counts a {@link #receive received} order against the user's risk limits until it
+     * is released; availability is left to settlement.
+     *
+     * @throws TradeRejectedException if a limit would be broken
+     */
+    public void reserve(long orderId, Long userId, String symbol, Trade.TradeType side, int quantity, long pricePaise) {
+        riskEngine.reserve(orderId, userId, symbol, side, quantity, pricePaise);
+    }
+
+    /**
+     * Receives a market order, which is journaled as MARKET/IOC.
+     */
+    public long receiveMarket(Long userId, String symbol, Trade.TradeType side, int quantity) {
+        return receive(userId, symbol, side, Order.OrderType.MARKET, Order.TimeInForce.IOC, 0, 0, quantity);
+    }
+
+    private void checkAvailable(Long userId, String symbol, Trade.TradeType side, int quantity, long pricePaise) {
+        long amountPaise = pricePaise * quantity;
+
+        User user = new User();
+        user.setId(userId);
+
+        if (side == Trade.TradeType.BUY) {
+            Wallet wallet = walletRepository.findByUser(user)
+                    .orElseThrow(() -> new RuntimeException("Error: Wallet not found for user"));
+            if (Money.toPaise(wallet.getBalance()) - heldPaise(userId) < amountPaise) {
+                throw new TradeRejectedException("Insufficient balance for this trade");
+            }
+        } else {
+            Portfolio portfolio = portfolioRepository.findByUserAndStockSymbol(user, symbol)
+                    .orElseThrow(() -> new RuntimeException("Error: You don't own this stock"));
+            if (portfolio.getQuantity() - heldShares(userId, symbol) < quantity) {
+                throw new TradeRejectedException("Not enough shares to sell");
+            }
+        }
+    }
+
+    private TradeInstruction marketInstruction(long orderId, Long userId, Stock stock, Trade.TradeType side,
+                                               int quantity) {
+        Money price = Money.of(stock.getCurrentPrice());
+        riskEngine.reserve(orderId, userId, stock.getSymbol(), side, quantity, price.paise());
+        return new TradeInstruction(userId, stock, side, quantity, price,
+                heldPaise(userId), heldShares(userId, stock.getSymbol()));
+    }
+
+    /**
+     * Cash committed to resting buy orders and unsettled buy fills.
+     */
+    public long heldPaise(Long userId) {
+        return matchingEngine.reservedPaise(userId) + fillWriter.pendingBuyPaise(userId);
+    }
+
+    /**
+     * Shares committed to resting sell orders and unsettled sell fills.
+     */
+    public int heldShares(Long userId, String symbol) {
+        return matchingEngine.reservedShares(userId, symbol) + fillWriter.pendingSellShares(userId, symbol);
+    }
+}
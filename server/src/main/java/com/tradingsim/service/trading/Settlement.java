@@ -0,0 +1,160 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * The in-memory effect of one fill: the updated wallet and holding plus the trade and
+ * wallet transaction to record. Computing it is independent of how the rows are
+ * loaded or written, so direct and sharded execution share the same rules.
+ */
+public final class Settlement {
+
+    private final Wallet wallet;
+    private final Money balanceChange;
+    private final Portfolio holding;
+    private final boolean holdingClosed;
+    private final Transaction transaction;
+    private final Trade trade;
+
+    private Settlement(Wallet wallet, Money balanceChange, Portfolio holding, boolean holdingClosed,
+                       Transaction transaction, Trade trade) {
+        this.wallet = wallet;
+        this.balanceChange = balanceChange;
+        this.holding = holding;
+        this.holdingClosed = holdingClosed;
+        this.transaction = transaction;
+        this.trade = trade;
+    }
+
+    /**
+     * Checks the instruction against the wallet and holding and applies it to them in place.
+     * Nothing is modified when the instruction is rejected.
+     *
+     * @param holding the user's current holding of the symbol, or null if there is none
+     */
+    public static Settlement apply(User user, Wallet wallet, Portfolio holding, TradeInstruction instruction) {
+        Stock stock = instruction.stock();
+        int quantity = instruction.quantity();
+        Money price = instruction.price();
+        Money tradeAmount = instruction.amount();
+        Money balance = Money.of(wallet.getBalance());
+        boolean holdingClosed = false;
+        Transaction transaction;
+
+        if (instruction.side() == Trade.TradeType.BUY) {
+            // Check if user has enough balance
+            Money available = balance.minus(Money.ofPaise(instruction.heldPaise()));
+            if (available.isLessThan(tradeAmount)) {
+                throw new TradeRejectedException("Insufficient balance for this trade");
+            }
+
+            wallet.setBalance(balance.minus(tradeAmount).toBigDecimal());
+            transaction = transaction(wallet, Transaction.TransactionType.TRADE_BUY, tradeAmount,
+                    "Bought " + quantity + " " + stock.getSymbol() + " shares");
+
+            if (holding == null) {
+                holding = new Portfolio();
+                holding.setUser(user);
+                holding.setStockSymbol(stock.getSymbol());
+                holding.setStockName(stock.getName());
+                holding.setQuantity(quantity);
+                holding.setAverageBuyPrice(price.toBigDecimal());
+                holding.setTotalInvestment(tradeAmount.toBigDecimal());
+            } else {
+                // Calculate new average buy price
+                int newQuantity = holding.getQuantity() + quantity;
+                Money newTotalInvestment = Money.of(holding.getTotalInvestment()).plus(tradeAmount);
+
+                holding.setQuantity(newQuantity);
+                holding.setAverageBuyPrice(newTotalInvestment.dividedBy(newQuantity).toBigDecimal());
+                holding.setTotalInvestment(newTotalInvestment.toBigDecimal());
+            }
+            revalue(holding, stock);
+
+        } else {
+            // Check if user owns the stock and has enough quantity
+            if (holding == null) {
+                throw new RuntimeException("Error: You don't own this stock");
+            }
+            if (holding.getQuantity() - instruction.heldShares() < quantity) {
+                throw new TradeRejectedException("Not enough shares to sell");
+            }
+
+            wallet.setBalance(balance.plus(tradeAmount).toBigDecimal());
+            transaction = transaction(wallet, Transaction.TransactionType.TRADE_SELL, tradeAmount,
+                    "Sold " + quantity + " " + stock.getSymbol() + " shares");
+
+            int newQuantity = holding.getQuantity() - quantity;
+            if (newQuantity == 0) {
+                holding.setQuantity(0);
+                holdingClosed = true;
+            } else {
+                // Adjust total investment and average buy price proportionally
+                Money soldInvestment = Money.of(holding.getAverageBuyPrice()).times(quantity);
+                holding.setTotalInvestment(Money.of(holding.getTotalInvestment()).minus(soldInvestment).toBigDecimal());
+                holding.setQuantity(newQuantity);
+                revalue(holding, stock);
+            }
+        }
+
+        Trade trade = new Trade();
+        trade.setUser(user);
+        trade.setStockSymbol(stock.getSymbol());
+        trade.setType(instruction.side());
+        trade.setQuantity(quantity);
+        trade.setPrice(price.toBigDecimal());
+        trade.setDate(LocalDateTime.now());
+
+        Money balanceChange = instruction.side() == Trade.TradeType.BUY ? Money.ZERO.minus(tradeAmount) : tradeAmount;
+        return new Settlement(wallet, balanceChange, holding, holdingClosed, transaction, trade);
+    }
+
+    private static void revalue(Portfolio holding, Stock stock) {
+        Money currentValue = Money.of(stock.getCurrentPrice()).times(holding.getQuantity());
+        holding.setCurrentValue(currentValue.toBigDecimal());
+        holding.setProfitLoss(currentValue.minus(Money.of(holding.getTotalInvestment())).toBigDecimal());
+    }
+
+    private static Transaction transaction(Wallet wallet, Transaction.TransactionType type, Money amount, String description) {
+        Transaction transaction = new Transaction();
+        transaction.setWallet(wallet);
+        transaction.setType(type);
+        transaction.setAmount(amount.toBigDecimal());
+        transaction.setDescription(description);
+        transaction.setBalanceAfter(wallet.getBalance());
+        return transaction;
+    }
+
+    public Wallet getWallet() {
+        return wallet;
+    }
+
+    /**
+     * What the fill did to the wallet balance: negative for a buy, positive for a sell.
+     */
+    public Money getBalanceChange() {
+        return balanceChange;
+    }
+
+    public Portfolio getHolding() {
+        return holding;
+    }
+
+    /**
+     * True when the fill sold the whole position and the holding row should be removed.
+     */
+    public boolean isHoldingClosed() {
+        return holdingClosed;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public Trade getTrade() {
+        return trade;
+    }
+}
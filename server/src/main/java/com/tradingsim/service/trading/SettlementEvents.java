@@ -0,0 +1,77 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.service.trading.journal.TradeJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Hands settlements to every {@link SettlementListener} after the current transaction
+ * commits, or straight away outside a transaction. Nothing is published for a
+ * transaction that rolls back.
+ *
+ * The {@link TradeJournal} is not a listener: it is written before the commit, so a
+ * settlement that cannot be journaled is never committed.
+ */
+@Component
+public class SettlementEvents {
+    private static final Logger logger = LoggerFactory.getLogger(SettlementEvents.class);
+
+    @Autowired
+    private ObjectProvider<SettlementListener> listenerProvider;
+
+    @Autowired
+    private TradeJournal tradeJournal;
+
+    private volatile List<SettlementListener> listeners;
+
+    public void publish(Settlement settlement) {
+        publish(List.of(settlement));
+    }
+
+    public void publish(List<Settlement> settlements) {
+        tradeJournal.record(settlements);
+        if (settlements.isEmpty() || listeners().isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyListeners(settlements);
+                }
+            });
+        } else {
+            notifyListeners(settlements);
+        }
+    }
+
+    /**
+     * Looked up on first use, since listeners may depend on the beans that publish settlements.
+     */
+    private List<SettlementListener> listeners() {
+        List<SettlementListener> current = listeners;
+        if (current == null) {
+            current = listenerProvider.orderedStream().toList();
+            listeners = current;
+        }
+        return current;
+    }
+
+    private void notifyListeners(List<Settlement> settlements) {
+        for (SettlementListener listener : listeners()) {
+            try {
+                listener.onSettled(settlements);
+            } catch (RuntimeException e) {
+                // The fills are already committed; a failing listener must not fail the trade
+                logger.error("Settlement listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
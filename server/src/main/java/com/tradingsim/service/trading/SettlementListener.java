@@ -0,0 +1,12 @@
+package com.tradingsim.service.trading;
+
+import java.util.List;
+
+/**
+ * Notified of settled fills once the transaction that wrote them has committed, on
+ * the thread that committed it. Implementations should return quickly.
+ */
+public interface SettlementListener {
+
+    void onSettled(List<Settlement> settlements);
+}
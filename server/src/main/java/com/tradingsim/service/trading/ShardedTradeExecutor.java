@@ -0,0 +1,234 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.model.Portfolio;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes every fill for a user on one shard thread, picked by user id, so two
+ * fills for the same wallet can never interleave and no row locks are needed.
+ * Different users land on different shards and run in parallel.
+ *
+ * Each shard caches the wallets and holdings of its users, so settling a fill only
+ * writes. Balance writes are relative, so a deposit or correction made outside the
+ * executor is never overwritten, but the cached balance used for the funds check
+ * will not see it until the account is {@link #evict evicted}.
+ *
+ * Both sides of a match are written in one transaction by the first user's shard
+ * while the second user's shard is parked. Matches are queued on both shards under
+ * one lock, so every shard sees them in the same order and two matches can never
+ * wait on each other.
+ */
+@Service
+@ConditionalOnProperty(name = "trading.execution.mode", havingValue = "sharded")
+public class ShardedTradeExecutor implements TradeExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedTradeExecutor.class);
+
+    @Value("${trading.execution.shards:0}")
+    private int shardCount;
+
+    @Value("${trading.execution.accounts-per-shard:10000}")
+    private int accountsPerShard;
+
+    @Autowired
+    private AccountStore accountStore;
+
+    private Shard[] shards;
+
+    @PostConstruct
+    public void start() {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+        }
+        logger.info("Sharded trade execution started with {} shards", count);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public CompletableFuture<BigDecimal> submit(TradeInstruction instruction) {
+        Shard shard = shardFor(instruction.userId());
+        return CompletableFuture.supplyAsync(() -> shard.execute(instruction), shard.executor);
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> submitMatch(List<TradeInstruction> instructions) {
+        Shard first = shardFor(instructions.get(0).userId());
+        Shard second = instructions.size() > 1 ? shardFor(instructions.get(1).userId()) : first;
+        if (first == second) {
+            return CompletableFuture.runAsync(() -> first.executeMatch(instructions, first), first.executor);
+        }
+
+        CountDownLatch parked = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        second.executor.execute(() -> {
+            parked.countDown();
+            awaitUninterruptibly(written);
+        });
+        return CompletableFuture.runAsync(() -> {
+            try {
+                awaitUninterruptibly(parked);
+                first.executeMatch(instructions, second);
+            } finally {
+                written.countDown();
+            }
+        }, first.executor);
+    }
+
+    @Override
+    public CompletableFuture<BatchSettlement> submitBatch(Long userId, List<TradeInstruction> instructions, List<Integer> indexes) {
+        Shard shard = shardFor(userId);
+        return CompletableFuture.supplyAsync(() -> shard.executeBatch(userId, instructions, indexes), shard.executor);
+    }
+
+    /**
+     * Drops the cached account so the next fill reloads it from the database.
+     */
+    @Override
+    public void evict(Long userId) {
+        Shard shard = shardFor(userId);
+        shard.executor.execute(() -> shard.accounts.remove(userId));
+    }
+
+    private Shard shardFor(Long userId) {
+        return shards[Math.floorMod(Long.hashCode(userId), shards.length)];
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Shard {
+        private final ExecutorService executor;
+        private final Map<Long, AccountStore.Account> accounts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, AccountStore.Account> eldest) {
+                return size() > accountsPerShard;
+            }
+        };
+
+        Shard(int index) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "trade-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        AccountStore.Account account(Long userId) {
+            AccountStore.Account account = accounts.get(userId);
+            if (account == null) {
+                account = accountStore.load(userId);
+                accounts.put(userId, account);
+            }
+            return account;
+        }
+
+        BatchSettlement executeBatch(Long userId, List<TradeInstruction> instructions, List<Integer> indexes) {
+            BatchSettlement batch = BatchSettlement.apply(account(userId), instructions, indexes);
+            try {
+                accountStore.persistBatch(batch);
+            } catch (RuntimeException e) {
+                accounts.remove(userId);
+                throw e;
+            }
+            return batch;
+        }
+
+        BigDecimal execute(TradeInstruction instruction) {
+            AccountStore.Account account = account(instruction.userId());
+            Settlement settlement;
+            try {
+                settlement = apply(account, instruction);
+                accountStore.persist(settlement);
+            } catch (RuntimeException e) {
+                // The cached copy may already reflect the fill; reload it next time
+                accounts.remove(instruction.userId());
+                throw e;
+            }
+            remember(account, settlement);
+            return account.getWallet().getBalance();
+        }
+
+        /**
+         * Runs on this shard while {@code other}, which owns the second side, is parked.
+         */
+        void executeMatch(List<TradeInstruction> instructions, Shard other) {
+            List<AccountStore.Account> sides = new ArrayList<>();
+            List<Settlement> settlements = new ArrayList<>();
+            try {
+                for (int i = 0; i < instructions.size(); i++) {
+                    TradeInstruction instruction = instructions.get(i);
+                    try {
+                        AccountStore.Account account = (i == 0 ? this : other).account(instruction.userId());
+                        sides.add(account);
+                        settlements.add(apply(account, instruction));
+                    } catch (RuntimeException e) {
+                        throw new SideRejectedException(instruction, e);
+                    }
+                }
+                accountStore.persistAll(settlements);
+            } catch (RuntimeException e) {
+                for (int i = 0; i < instructions.size(); i++) {
+                    (i == 0 ? this : other).accounts.remove(instructions.get(i).userId());
+                }
+                throw e;
+            }
+            for (int i = 0; i < settlements.size(); i++) {
+                remember(sides.get(i), settlements.get(i));
+            }
+        }
+
+        private Settlement apply(AccountStore.Account account, TradeInstruction instruction) {
+            return Settlement.apply(account.getUser(), account.getWallet(),
+                    account.getHoldings().get(instruction.stock().getSymbol()), instruction);
+        }
+
+        private void remember(AccountStore.Account account, Settlement settlement) {
+            Portfolio holding = settlement.getHolding();
+            if (settlement.isHoldingClosed()) {
+                account.getHoldings().remove(holding.getStockSymbol());
+            } else {
+                account.getHoldings().put(holding.getStockSymbol(), holding);
+            }
+        }
+    }
+}
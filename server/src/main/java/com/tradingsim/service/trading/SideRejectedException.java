@@ -0,0 +1,20 @@
+package com.tradingsim.service.trading;
+
+/**
+ * Thrown while settling a match when one side of it could not be applied, so the
+ * fill writer knows which order to reject. The cause says what went wrong.
+ */
+class SideRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient TradeInstruction instruction;
+
+    SideRejectedException(TradeInstruction instruction, RuntimeException cause) {
+        super(cause.getMessage(), cause);
+        this.instruction = instruction;
+    }
+
+    TradeInstruction getInstruction() {
+        return instruction;
+    }
+}
@@ -0,0 +1,59 @@
+package com.tradingsim.service.trading;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Applies fills to wallets and holdings. Selected with {@code trading.execution.mode}:
+ * {@code direct} settles on the calling thread, {@code sharded} serializes each
+ * user's fills on a dedicated shard thread.
+ */
+public interface TradeExecutor {
+
+    /**
+     * Queues the instruction; the future completes with the wallet balance after the fill.
+     */
+    CompletableFuture<BigDecimal> submit(TradeInstruction instruction);
+
+    /**
+     * Applies all of one user's instructions against a single snapshot of their account
+     * and writes the results in one transaction.
+     *
+     * @param indexes the position of each instruction in the client's request
+     */
+    CompletableFuture<BatchSettlement> submitBatch(Long userId, List<TradeInstruction> instructions, List<Integer> indexes);
+
+    /**
+     * Settles every side of one matching-engine execution in a single transaction:
+     * either all of the instructions are written or none are.
+     */
+    CompletableFuture<Void> submitMatch(List<TradeInstruction> instructions);
+
+    /**
+     * Called after the user's wallet was written outside the executor, so nothing it
+     * keeps in memory about the account is used again.
+     */
+    default void evict(Long userId) {
+    }
+
+    default BigDecimal execute(TradeInstruction instruction) {
+        return join(submit(instruction));
+    }
+
+    default BatchSettlement executeBatch(Long userId, List<TradeInstruction> instructions, List<Integer> indexes) {
+        return join(submitBatch(userId, instructions, indexes));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
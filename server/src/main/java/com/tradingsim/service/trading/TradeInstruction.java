@@ -0,0 +1,22 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+
+/**
+ * A fill to apply to one user's account. {@code heldPaise} and {@code heldShares}
+ * are cash and shares already promised elsewhere (resting orders, unsettled fills)
+ * that this execution must leave untouched.
+ */
+public record TradeInstruction(Long userId, Stock stock, Trade.TradeType side, int quantity, Money price,
+                               long heldPaise, int heldShares) {
+
+    public static TradeInstruction fill(Long userId, Stock stock, Trade.TradeType side, int quantity, Money price) {
+        return new TradeInstruction(userId, stock, side, quantity, price, 0, 0);
+    }
+
+    public Money amount() {
+        return price.times(quantity);
+    }
+}
@@ -0,0 +1,92 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.model.*;
+import com.tradingsim.repository.*;
+import com.tradingsim.service.ledger.TradeLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies a single fill by reading the user's wallet and holding from the database,
+ * applying the {@link Settlement} and writing the results back in one transaction.
+ * The wallet row stays locked until commit, so concurrent fills for one user run
+ * one after another instead of overwriting each other's balance.
+ */
+@Service
+public class TradeSettlementService {
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private TradeLedger tradeLedger;
+
+    @Autowired
+    private SettlementEvents settlementEvents;
+
+    @Autowired
+    private AccountStore accountStore;
+
+    @Transactional
+    public Wallet settle(TradeInstruction instruction) {
+        return apply(instruction);
+    }
+
+    /**
+     * Settles both sides of a match together, users in id order. A side that cannot
+     * be applied fails the match with a {@link SideRejectedException}.
+     */
+    @Transactional
+    public void settleAll(List<TradeInstruction> instructions) {
+        instructions.stream()
+                .sorted(Comparator.comparing(TradeInstruction::userId))
+                .forEach(instruction -> {
+                    try {
+                        apply(instruction);
+                    } catch (RuntimeException e) {
+                        throw new SideRejectedException(instruction, e);
+                    }
+                });
+    }
+
+    /**
+     * Applies one user's batch against their locked account and writes it in the same
+     * transaction.
+     */
+    @Transactional
+    public BatchSettlement settleBatch(Long userId, List<TradeInstruction> instructions, List<Integer> indexes) {
+        BatchSettlement batch = BatchSettlement.apply(accountStore.lock(userId), instructions, indexes);
+        accountStore.persistBatch(batch);
+        return batch;
+    }
+
+    private Wallet apply(TradeInstruction instruction) {
+        User user = new User();
+        user.setId(instruction.userId());
+
+        Wallet wallet = walletRepository.lockByUser(user)
+                .orElseThrow(() -> new RuntimeException("Error: Wallet not found for user"));
+        Portfolio holding = portfolioRepository.findByUserAndStockSymbol(user, instruction.stock().getSymbol())
+                .orElse(null);
+
+        Settlement settlement = Settlement.apply(user, wallet, holding, instruction);
+
+        walletRepository.save(wallet);
+        if (settlement.isHoldingClosed()) {
+            portfolioRepository.delete(settlement.getHolding());
+        } else {
+            portfolioRepository.save(settlement.getHolding());
+        }
+        tradeLedger.record(settlement.getTrade(), settlement.getTransaction());
+        settlementEvents.publish(settlement);
+
+        return wallet;
+    }
+}
@@ -0,0 +1,61 @@
+package com.tradingsim.service.trading.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads every intact record from a journal directory in append order. Reading a
+ * segment stops at its first missing or corrupt record.
+ */
+public class JournalReader {
+
+    public interface Visitor {
+        /**
+         * @param position where the record starts, as returned by {@link JournalWriter#append}
+         * @param payload  the record's payload, positioned at its start
+         */
+        void visit(long position, byte type, ByteBuffer payload);
+    }
+
+    private final Path directory;
+    private long records;
+    private int segments;
+
+    public JournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    public void read(Visitor visitor) throws IOException {
+        List<Path> files = JournalSegments.list(directory);
+        for (Path file : files) {
+            MappedByteBuffer segment;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            segments++;
+            long index = JournalSegments.index(file);
+
+            int position = 0;
+            int length;
+            while ((length = JournalSegments.recordLength(segment, position)) > 0) {
+                byte type = segment.get(position + JournalWriter.HEADER_BYTES);
+                visitor.visit(JournalSegments.position(index, position), type, segment.slice(position + JournalWriter.HEADER_BYTES + 1, length - 1));
+                records++;
+                position += JournalWriter.HEADER_BYTES + length;
+            }
+        }
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+}
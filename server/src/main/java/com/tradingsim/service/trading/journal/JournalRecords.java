@@ -0,0 +1,120 @@
+package com.tradingsim.service.trading.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary layout of the journal's record types. Amounts are in paise.
+ */
+public final class JournalRecords {
+
+    public static final byte ORDER = 1;
+    public static final byte SETTLEMENT = 2;
+    public static final byte ABORT = 3;
+
+    private JournalRecords() {
+    }
+
+    /**
+     * An order as received from a client, before any checks. Market orders are
+     * journaled as MARKET/IOC without a limit.
+     */
+    public record OrderRecord(long orderId, long userId, String symbol, boolean buy, String orderType,
+                              String timeInForce, long limitPaise, long stopPaise, int quantity, long timestamp) {
+    }
+
+    /**
+     * A settled fill together with the wallet and holding state it left behind, so
+     * replay only needs the latest record per account and holding. The timestamp is
+     * the wallet transaction's creation time, to compare against the database.
+     */
+    public record SettlementRecord(long userId, long walletId, String symbol, String stockName, boolean buy,
+                                   int quantity, long pricePaise, long balancePaise, int holdingQuantity,
+                                   long averagePricePaise, long investmentPaise, long timestamp) {
+    }
+
+    static void encode(OrderRecord order, ByteBuffer buffer) {
+        buffer.putLong(order.orderId());
+        buffer.putLong(order.userId());
+        buffer.put((byte) (order.buy() ? 1 : 0));
+        buffer.putLong(order.limitPaise());
+        buffer.putLong(order.stopPaise());
+        buffer.putInt(order.quantity());
+        buffer.putLong(order.timestamp());
+        putString(buffer, order.symbol());
+        putString(buffer, order.orderType());
+        putString(buffer, order.timeInForce());
+    }
+
+    static OrderRecord decodeOrder(ByteBuffer buffer) {
+        long orderId = buffer.getLong();
+        long userId = buffer.getLong();
+        boolean buy = buffer.get() == 1;
+        long limitPaise = buffer.getLong();
+        long stopPaise = buffer.getLong();
+        int quantity = buffer.getInt();
+        long timestamp = buffer.getLong();
+        return new OrderRecord(orderId, userId, getString(buffer), buy, getString(buffer), getString(buffer),
+                limitPaise, stopPaise, quantity, timestamp);
+    }
+
+    static void encode(SettlementRecord settlement, ByteBuffer buffer) {
+        buffer.putLong(settlement.userId());
+        buffer.putLong(settlement.walletId());
+        buffer.put((byte) (settlement.buy() ? 1 : 0));
+        buffer.putInt(settlement.quantity());
+        buffer.putLong(settlement.pricePaise());
+        buffer.putLong(settlement.balancePaise());
+        buffer.putInt(settlement.holdingQuantity());
+        buffer.putLong(settlement.averagePricePaise());
+        buffer.putLong(settlement.investmentPaise());
+        buffer.putLong(settlement.timestamp());
+        putString(buffer, settlement.symbol());
+        putString(buffer, settlement.stockName());
+    }
+
+    static SettlementRecord decodeSettlement(ByteBuffer buffer) {
+        long userId = buffer.getLong();
+        long walletId = buffer.getLong();
+        boolean buy = buffer.get() == 1;
+        int quantity = buffer.getInt();
+        long pricePaise = buffer.getLong();
+        long balancePaise = buffer.getLong();
+        int holdingQuantity = buffer.getInt();
+        long averagePricePaise = buffer.getLong();
+        long investmentPaise = buffer.getLong();
+        long timestamp = buffer.getLong();
+        return new SettlementRecord(userId, walletId, getString(buffer), getString(buffer), buy, quantity,
+                pricePaise, balancePaise, holdingQuantity, averagePricePaise, investmentPaise, timestamp);
+    }
+
+    /**
+     * Positions of settlement records whose transaction did not commit after all.
+     */
+    static void encodeAbort(long[] positions, ByteBuffer buffer) {
+        buffer.putInt(positions.length);
+        for (long position : positions) {
+            buffer.putLong(position);
+        }
+    }
+
+    static long[] decodeAbort(ByteBuffer buffer) {
+        long[] positions = new long[buffer.getInt()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = buffer.getLong();
+        }
+        return positions;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package com.tradingsim.service.trading.journal;
+
+import com.tradingsim.model.Money;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Restores wallet balances and holdings from the trade journal at startup, before
+ * any trading starts, when {@code trading.journal.restore-on-startup=true}. Meant for
+ * recovering after a crash lost database writes. Only state the database has not
+ * caught up with is restored: an account is left alone unless its last journaled
+ * settlement is newer than its last wallet transaction in the database, and then
+ * only the holdings settled after that transaction are rewritten. Trade and
+ * transaction history is not rebuilt.
+ */
+@Component
+public class JournalRecovery {
+    private static final Logger logger = LoggerFactory.getLogger(JournalRecovery.class);
+
+    @Value("${trading.journal.restore-on-startup:false}")
+    private boolean restoreOnStartup;
+
+    @Autowired
+    private TradeJournal tradeJournal;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final String SELECT_LATEST_TRANSACTIONS =
+            "select wallet_id, max(created_at) from transactions group by wallet_id";
+    private static final String UPDATE_BALANCE = "update wallets set balance = ? where id = ?";
+    private static final String DELETE_HOLDING = "delete from portfolios where user_id = ? and stock_symbol = ?";
+    private static final String INSERT_HOLDING =
+            "insert into portfolios (user_id, stock_symbol, stock_name, quantity, average_buy_price, current_value, profit_loss, total_investment) " +
+            "select ?, ?, ?, ?, ?, s.current_price * ?, s.current_price * ? - ?, ? from stocks s where s.symbol = ?";
+
+    @PostConstruct
+    public void restore() throws IOException {
+        if (!restoreOnStartup || !tradeJournal.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        JournalReplayer replayer = new JournalReplayer().replay(tradeJournal.getDirectory());
+        Map<Long, Long> latestInDatabase = latestTransactions();
+
+        List<Object[]> balances = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        int current = 0;
+        for (JournalReplayer.Account account : replayer.getAccounts().values()) {
+            long databaseMillis = latestInDatabase.getOrDefault(account.getWalletId(), Long.MIN_VALUE);
+            if (account.getLastTimestamp() <= databaseMillis) {
+                current++;
+                continue;
+            }
+            balances.add(new Object[]{Money.toRupees(account.getBalancePaise()), account.getWalletId()});
+            for (JournalRecords.SettlementRecord holding : account.getHoldings().values()) {
+                if (holding.timestamp() <= databaseMillis) {
+                    continue;
+                }
+                deletes.add(new Object[]{account.getUserId(), holding.symbol()});
+                if (holding.holdingQuantity() > 0) {
+                    int quantity = holding.holdingQuantity();
+                    inserts.add(new Object[]{account.getUserId(), holding.symbol(), holding.stockName(), quantity,
+                            Money.toRupees(holding.averagePricePaise()), quantity, quantity,
+                            Money.toRupees(holding.investmentPaise()), Money.toRupees(holding.investmentPaise()),
+                            holding.symbol()});
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE, balances);
+            jdbcTemplate.batchUpdate(DELETE_HOLDING, deletes);
+            jdbcTemplate.batchUpdate(INSERT_HOLDING, inserts);
+        });
+        logger.info("Restored {} wallets and {} holdings from {} journal records in {} segments, {} accounts already current ({} ms)",
+                balances.size(), inserts.size(), replayer.getOrders() + replayer.getSettlements(),
+                replayer.getSegments(), current, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Creation time of each wallet's newest transaction, in epoch milliseconds.
+     */
+    private Map<Long, Long> latestTransactions() {
+        Map<Long, Long> latest = new HashMap<>();
+        jdbcTemplate.query(SELECT_LATEST_TRANSACTIONS, rs -> {
+            Timestamp createdAt = rs.getTimestamp(2);
+            if (createdAt != null) {
+                latest.put(rs.getLong(1), createdAt.getTime());
+            }
+        });
+        return latest;
+    }
+}
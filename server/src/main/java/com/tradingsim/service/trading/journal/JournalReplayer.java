@@ -0,0 +1,116 @@
+package com.tradingsim.service.trading.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rebuilds wallet balances and holdings from a journal. Every settlement record
+ * carries the state it left behind, so the last record per wallet and per holding wins.
+ * Settlements voided by a later abort record are skipped.
+ */
+public class JournalReplayer {
+
+    /**
+     * Replayed state of one user's account. Holdings with zero quantity were closed.
+     */
+    public static class Account {
+        private final long userId;
+        private long walletId;
+        private long balancePaise;
+        private long lastTimestamp;
+        private final Map<String, JournalRecords.SettlementRecord> holdings = new HashMap<>();
+
+        Account(long userId) {
+            this.userId = userId;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public long getWalletId() {
+            return walletId;
+        }
+
+        public long getBalancePaise() {
+            return balancePaise;
+        }
+
+        /**
+         * Time of the account's last settlement, in epoch milliseconds.
+         */
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        /**
+         * Last settlement per symbol; its holding fields describe the position.
+         */
+        public Map<String, JournalRecords.SettlementRecord> getHoldings() {
+            return holdings;
+        }
+    }
+
+    private final Map<Long, Account> accounts = new HashMap<>();
+    private long orders;
+    private long settlements;
+    private long lastOrderId;
+    private JournalReader reader;
+
+    public JournalReplayer replay(Path directory) throws IOException {
+        // Aborts come after the records they void, so collect them first
+        Set<Long> aborted = new HashSet<>();
+        new JournalReader(directory).read((position, type, payload) -> {
+            if (type == JournalRecords.ABORT) {
+                for (long voided : JournalRecords.decodeAbort(payload)) {
+                    aborted.add(voided);
+                }
+            }
+        });
+
+        reader = new JournalReader(directory);
+        reader.read((position, type, payload) -> {
+            if (type == JournalRecords.ORDER) {
+                JournalRecords.OrderRecord order = JournalRecords.decodeOrder(payload);
+                lastOrderId = Math.max(lastOrderId, order.orderId());
+                orders++;
+            } else if (type == JournalRecords.SETTLEMENT && !aborted.contains(position)) {
+                apply(JournalRecords.decodeSettlement(payload));
+                settlements++;
+            }
+        });
+        return this;
+    }
+
+    private void apply(JournalRecords.SettlementRecord settlement) {
+        Account account = accounts.computeIfAbsent(settlement.userId(), Account::new);
+        account.walletId = settlement.walletId();
+        account.balancePaise = settlement.balancePaise();
+        account.lastTimestamp = settlement.timestamp();
+        account.holdings.put(settlement.symbol(), settlement);
+    }
+
+    public Map<Long, Account> getAccounts() {
+        return accounts;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public long getSettlements() {
+        return settlements;
+    }
+
+    public long getLastOrderId() {
+        return lastOrderId;
+    }
+
+    public int getSegments() {
+        return reader == null ? 0 : reader.getSegments();
+    }
+}
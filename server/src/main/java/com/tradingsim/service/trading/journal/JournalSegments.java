@@ -0,0 +1,82 @@
+package com.tradingsim.service.trading.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Naming and scanning of journal segment files ({@code journal-<index>.log}).
+ */
+final class JournalSegments {
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private JournalSegments() {
+    }
+
+    static Path path(Path directory, long index) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, index, SUFFIX));
+    }
+
+    static long index(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Journal-wide position of a record: segment index in the high half, offset in the low.
+     */
+    static long position(long segmentIndex, int offset) {
+        return segmentIndex << 32 | offset;
+    }
+
+    static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Position just after the last intact record in the segment.
+     */
+    static int validEnd(ByteBuffer segment) {
+        int position = 0;
+        while (true) {
+            int length = recordLength(segment, position);
+            if (length <= 0) {
+                return position;
+            }
+            position += JournalWriter.HEADER_BYTES + length;
+        }
+    }
+
+    /**
+     * Length of the record at the position, or 0 when there is no intact record there.
+     */
+    static int recordLength(ByteBuffer segment, int position) {
+        if (position + JournalWriter.HEADER_BYTES > segment.limit()) {
+            return 0;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || position + JournalWriter.HEADER_BYTES + length > segment.limit()) {
+            return 0;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(position + JournalWriter.HEADER_BYTES, length));
+        return (int) crc.getValue() == segment.getInt(position + Integer.BYTES) ? length : 0;
+    }
+}
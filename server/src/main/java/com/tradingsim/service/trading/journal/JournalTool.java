@@ -0,0 +1,73 @@
+package com.tradingsim.service.trading.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line access to a trade journal, runnable without the application context:
+ * <pre>
+ *   replay &lt;directory&gt;                 verify checksums and print the rebuilt accounts
+ *   bench  &lt;directory&gt; [records]       append synthetic settlements and report appends/second
+ * </pre>
+ * From the packaged jar: {@code java -cp server.jar -Dloader.main=com.tradingsim.service.trading.journal.JournalTool
+ * org.springframework.boot.loader.launch.PropertiesLauncher replay ./data/journal}
+ */
+public final class JournalTool {
+
+    private JournalTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: JournalTool replay|bench <directory> [records]");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[1]);
+        if ("bench".equals(args[0])) {
+            bench(directory, args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000);
+        } else {
+            replay(directory);
+        }
+    }
+
+    private static void replay(Path directory) throws IOException {
+        long start = System.nanoTime();
+        JournalReplayer replayer = new JournalReplayer().replay(directory);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        for (JournalReplayer.Account account : replayer.getAccounts().values()) {
+            System.out.printf("user %d wallet %d balance %.2f%n", account.getUserId(), account.getWalletId(),
+                    account.getBalancePaise() / 100.0);
+            for (JournalRecords.SettlementRecord holding : account.getHoldings().values()) {
+                if (holding.holdingQuantity() > 0) {
+                    System.out.printf("  %-12s %8d @ %.2f%n", holding.symbol(), holding.holdingQuantity(),
+                            holding.averagePricePaise() / 100.0);
+                }
+            }
+        }
+        System.out.printf("%d orders, %d settlements, %d accounts from %d segments in %d ms%n",
+                replayer.getOrders(), replayer.getSettlements(), replayer.getAccounts().size(),
+                replayer.getSegments(), elapsedMs);
+    }
+
+    private static void bench(Path directory, int records) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(256);
+        try (JournalWriter writer = new JournalWriter(directory, 64 * 1024 * 1024)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < records; i++) {
+                payload.clear();
+                JournalRecords.encode(new JournalRecords.SettlementRecord(i % 10_000, i % 10_000, "RELIANCE",
+                        "Reliance Industries Ltd", (i & 1) == 0, 10, 287540, 100_000_000L, 10, 287540, 2875400,
+                        System.currentTimeMillis()), payload);
+                payload.flip();
+                writer.append(JournalRecords.SETTLEMENT, payload);
+            }
+            writer.force();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d appends in %.2f s: %.0f appends/s%n", records, seconds, records / seconds);
+        }
+    }
+}
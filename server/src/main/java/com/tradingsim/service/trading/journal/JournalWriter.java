@@ -0,0 +1,109 @@
+package com.tradingsim.service.trading.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Appends records to memory-mapped, fixed-size journal segments. Each record is
+ * {@code [int length][int crc32c][byte type][payload]}, where the length covers the
+ * type byte and payload and the checksum covers the same bytes. The length is
+ * written last, so a record torn by a crash reads as the end of the journal.
+ *
+ * Not thread-safe; callers serialize appends.
+ */
+public class JournalWriter implements Closeable {
+
+    static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final CRC32C crc = new CRC32C();
+
+    private long segmentIndex;
+    private MappedByteBuffer segment;
+
+    public JournalWriter(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        List<Path> segments = JournalSegments.list(directory);
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            openSegment(JournalSegments.index(last));
+            segment.position(JournalSegments.validEnd(segment));
+            // Clear whatever a crash left after the last valid record
+            for (int i = segment.position(); i < segment.limit(); i++) {
+                segment.put(i, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Appends one record. The payload is read from its position to its limit.
+     *
+     * @return where the record starts, as {@link JournalSegments#position}
+     */
+    public long append(byte type, ByteBuffer payload) throws IOException {
+        int length = 1 + payload.remaining();
+        if (HEADER_BYTES + length > segmentBytes - Integer.BYTES) {
+            throw new IllegalArgumentException("Journal record of " + length + " bytes does not fit in a segment");
+        }
+        // Keep room for the zero length that marks the end of the segment
+        if (segment.remaining() < HEADER_BYTES + length + Integer.BYTES) {
+            roll();
+        }
+
+        int start = segment.position();
+        crc.reset();
+        crc.update(type);
+        crc.update(payload.duplicate());
+
+        segment.position(start + Integer.BYTES);
+        segment.putInt((int) crc.getValue());
+        segment.put(type);
+        segment.put(payload);
+        segment.putInt(start, length);
+        return JournalSegments.position(segmentIndex, start);
+    }
+
+    /**
+     * Forces appended records to the storage device.
+     */
+    public void force() {
+        segment.force();
+    }
+
+    public long getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    @Override
+    public void close() {
+        segment.force();
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        openSegment(segmentIndex + 1);
+    }
+
+    private void openSegment(long index) throws IOException {
+        Path path = JournalSegments.path(directory, index);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segmentIndex = index;
+    }
+}
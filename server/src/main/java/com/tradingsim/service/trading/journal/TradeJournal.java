@@ -0,0 +1,200 @@
+package com.tradingsim.service.trading.journal;
+
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.trading.Settlement;
+import com.tradingsim.service.trading.matching.Order;
+import com.tradingsim.model.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of received orders and settled fills, written to memory-mapped
+ * segments under {@code trading.journal.directory}. Both are appended before the
+ * caller is answered, and a failed append fails the request: an order when it is
+ * {@link com.tradingsim.service.trading.OrderService#receive received}, a settlement
+ * just before the transaction that writes it commits. If that commit then fails, an
+ * abort record voids the settlement again. Records reach the page cache immediately
+ * and so survive a process crash; {@code trading.journal.fsync=true} also forces each
+ * one to disk.
+ *
+ * Disabled unless {@code trading.journal.enabled=true}.
+ */
+@Component
+public class TradeJournal {
+    private static final Logger logger = LoggerFactory.getLogger(TradeJournal.class);
+
+    @Value("${trading.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${trading.journal.directory:./data/journal}")
+    private String directory;
+
+    @Value("${trading.journal.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${trading.journal.fsync:false}")
+    private boolean fsync;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private JournalWriter writer;
+    private long lastOrderId;
+    private Timer appendTimer;
+    private Counter appended;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        lastOrderId = new JournalReplayer().replay(getDirectory()).getLastOrderId();
+        writer = new JournalWriter(getDirectory(), segmentSizeMb * 1024 * 1024);
+        appendTimer = Timer.builder("trading.journal.append.latency")
+                .description("Time to append one record to the trade journal")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        appended = meterRegistry.counter("trading.journal.records");
+        meterRegistry.gauge("trading.journal.segment", writer, JournalWriter::getSegmentIndex);
+        logger.info("Trade journal open in {} at segment {}, last order id {}", getDirectory().toAbsolutePath(),
+                writer.getSegmentIndex(), lastOrderId);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return Paths.get(directory);
+    }
+
+    /**
+     * Highest order id in the journal when it was opened, so ids are not handed out twice
+     * across restarts.
+     */
+    public long getLastOrderId() {
+        return lastOrderId;
+    }
+
+    public void appendOrder(long orderId, Long userId, String symbol, Trade.TradeType side, Order.OrderType orderType,
+                            Order.TimeInForce timeInForce, long limitPaise, long stopPaise, int quantity) {
+        if (!enabled) {
+            return;
+        }
+        JournalRecords.OrderRecord order = new JournalRecords.OrderRecord(orderId, userId, symbol,
+                side == Trade.TradeType.BUY, orderType.name(), timeInForce.name(), limitPaise, stopPaise, quantity,
+                System.currentTimeMillis());
+        append(JournalRecords.ORDER, buffer -> JournalRecords.encode(order, buffer));
+    }
+
+    /**
+     * Journals the settlements just before the current transaction commits, or straight
+     * away outside a transaction. Throwing from here rolls the transaction back.
+     */
+    public void record(List<Settlement> settlements) {
+        if (!enabled || settlements.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(settlements);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long[] positions;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                positions = append(settlements);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (positions != null && status != STATUS_COMMITTED) {
+                    abort(positions);
+                }
+            }
+        });
+    }
+
+    private long[] append(List<Settlement> settlements) {
+        long[] positions = new long[settlements.size()];
+        for (int i = 0; i < positions.length; i++) {
+            JournalRecords.SettlementRecord record = toRecord(settlements.get(i));
+            positions[i] = append(JournalRecords.SETTLEMENT, buffer -> JournalRecords.encode(record, buffer));
+        }
+        return positions;
+    }
+
+    private void abort(long[] positions) {
+        try {
+            append(JournalRecords.ABORT, buffer -> JournalRecords.encodeAbort(positions, buffer));
+        } catch (RuntimeException e) {
+            // Replay will apply these settlements although the database never committed them
+            logger.error("Could not journal the abort of {} settlements at {}", positions.length,
+                    Arrays.toString(positions), e);
+        }
+    }
+
+    private static JournalRecords.SettlementRecord toRecord(Settlement settlement) {
+        Trade trade = settlement.getTrade();
+        Portfolio holding = settlement.getHolding();
+        long timestamp = settlement.getTransaction().getCreatedAt()
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new JournalRecords.SettlementRecord(trade.getUser().getId(),
+                settlement.getWallet().getId(), trade.getStockSymbol(), holding.getStockName(),
+                trade.getType() == Trade.TradeType.BUY, trade.getQuantity(), Money.toPaise(trade.getPrice()),
+                Money.toPaise(settlement.getWallet().getBalance()),
+                settlement.isHoldingClosed() ? 0 : holding.getQuantity(),
+                Money.toPaise(holding.getAverageBuyPrice()), Money.toPaise(holding.getTotalInvestment()),
+                timestamp);
+    }
+
+    private synchronized long append(byte type, Consumer<ByteBuffer> encoder) {
+        long start = System.nanoTime();
+        scratch.clear();
+        encoder.accept(scratch);
+        scratch.flip();
+        long position;
+        try {
+            position = writer.append(type, scratch);
+            if (fsync) {
+                writer.force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to trade journal", e);
+        }
+        appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        appended.increment();
+        return position;
+    }
+}
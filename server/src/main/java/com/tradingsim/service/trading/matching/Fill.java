@@ -0,0 +1,13 @@
+package com.tradingsim.service.trading.matching;
+
+import com.tradingsim.model.Trade;
+
+import java.time.LocalDateTime;
+
+/**
+ * One execution of an order. {@code counterOrderId} is 0 when the simulator
+ * itself took the other side at the reference price.
+ */
+public record Fill(long orderId, Long userId, String symbol, Trade.TradeType side,
+                   int quantity, long pricePaise, long counterOrderId, LocalDateTime executedAt) {
+}
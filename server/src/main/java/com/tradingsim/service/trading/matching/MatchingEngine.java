@@ -0,0 +1,345 @@
+package com.tradingsim.service.trading.matching;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteListener;
+import com.tradingsim.service.trading.AsyncFillWriter;
+import com.tradingsim.service.trading.journal.TradeJournal;
+import com.tradingsim.service.trading.risk.RiskEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes orders to one order book per symbol. Books are partitioned across a fixed
+ * set of matching threads by symbol, so each book has exactly one writer and needs
+ * no locking. Fills are handed to {@link AsyncFillWriter} and settled off the
+ * matching thread; a fill that cannot be settled is taken back on the book and the
+ * order whose side failed is rejected. Every quote update moves its book's reference
+ * price. Closed orders can still be looked up for a while after they are done.
+ */
+@Service
+public class MatchingEngine implements QuoteListener {
+    private static final Logger logger = LoggerFactory.getLogger(MatchingEngine.class);
+
+    @Value("${trading.matching.threads:0}")
+    private int threadCount;
+
+    @Value("${trading.matching.queue-capacity:65536}")
+    private int queueCapacity;
+
+    @Value("${trading.matching.retention-minutes:30}")
+    private long retentionMinutes;
+
+    @Autowired
+    private AsyncFillWriter fillWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TradeJournal tradeJournal;
+
+    @Autowired
+    private RiskEngine riskEngine;
+
+    private final AtomicLong orderIds = new AtomicLong();
+    private final Map<Long, Order> openOrders = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Order>> openOrdersByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Order> closedOrders = new ConcurrentHashMap<>();
+
+    private BookWorker[] workers;
+    private Timer matchTimer;
+
+    @PostConstruct
+    public void start() {
+        // Carry on after the last id journaled before the restart
+        orderIds.set(tradeJournal.getLastOrderId());
+
+        int threads = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        workers = new BookWorker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new BookWorker(i);
+            workers[i].thread.start();
+        }
+
+        matchTimer = Timer.builder("trading.matching.latency")
+                .description("Time from order submission until the book has processed it")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        meterRegistry.gauge("trading.matching.queue.depth", this, MatchingEngine::queueDepth);
+        meterRegistry.gauge("trading.matching.open.orders", openOrders, Map::size);
+        meterRegistry.gauge("trading.matching.closed.orders", closedOrders, Map::size);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (BookWorker worker : workers) {
+            worker.running = false;
+        }
+        for (BookWorker worker : workers) {
+            worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public long nextOrderId() {
+        return orderIds.incrementAndGet();
+    }
+
+    /**
+     * Queues an order on its book's matching thread. The returned future completes
+     * once the order has been matched and either rested or closed.
+     */
+    public CompletableFuture<Order> submit(Order order, long referencePaise) {
+        remember(order);
+
+        CompletableFuture<Order> result = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        boolean queued = workerFor(order.getSymbol()).offer(worker -> {
+            worker.book(order.getSymbol()).submit(order, referencePaise);
+            matchTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            result.complete(order);
+        });
+
+        if (!queued) {
+            order.setStatus(Order.Status.REJECTED);
+            forget(order);
+            throw new TradeRejectedException("Order queue for " + order.getSymbol() + " is full, try again shortly");
+        }
+        return result;
+    }
+
+    public CompletableFuture<Boolean> cancel(Long userId, long orderId) {
+        Order order = openOrders.get(orderId);
+        if (order == null || !order.getUserId().equals(userId)) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        boolean queued = workerFor(order.getSymbol())
+                .offer(worker -> result.complete(worker.book(order.getSymbol()).cancel(order)));
+        if (!queued) {
+            result.complete(false);
+        }
+        return result;
+    }
+
+    /**
+     * Feeds a new market price to the symbol's book so stops fire and crossed
+     * limit orders fill.
+     */
+    public void onPrice(String symbol, long pricePaise) {
+        // A symbol nobody has ordered yet has no book to update
+        if (!workerFor(symbol).offer(worker -> worker.existingBook(symbol).ifPresent(book -> book.onPrice(pricePaise)))) {
+            logger.warn("Dropped price update for {}: matching queue is full", symbol);
+        }
+    }
+
+    @Override
+    public void onQuote(Quote quote) {
+        onPrice(quote.symbol(), quote.pricePaise());
+    }
+
+    @Scheduled(cron = "${trading.matching.day-expiry-cron:0 30 15 * * MON-FRI}", zone = "Asia/Kolkata")
+    public void expireDayOrders() {
+        for (BookWorker worker : workers) {
+            worker.offer(w -> w.books.values().forEach(book -> book.expire(Order.TimeInForce.DAY)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trading.matching.cleanup-interval-ms:60000}")
+    public void evictClosedOrders() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        closedOrders.values().removeIf(order -> order.getClosedAt() != null && order.getClosedAt().isBefore(cutoff));
+    }
+
+    /**
+     * A working order, or one that closed within the retention window.
+     */
+    public Order getOrder(long orderId) {
+        Order order = openOrders.get(orderId);
+        return order != null ? order : closedOrders.get(orderId);
+    }
+
+    public List<Order> getOpenOrders(Long userId) {
+        List<Order> orders = new ArrayList<>(openOrdersByUser.getOrDefault(userId, Set.of()));
+        orders.sort(Comparator.comparingLong(Order::getId));
+        return orders;
+    }
+
+    /**
+     * Cash, in paise, committed to the user's resting buy orders.
+     */
+    public long reservedPaise(Long userId) {
+        long reserved = 0;
+        for (Order order : openOrdersByUser.getOrDefault(userId, Set.of())) {
+            if (order.isBuy()) {
+                reserved += order.reservePaise() * order.remaining();
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Shares of the symbol committed to the user's resting sell orders.
+     */
+    public int reservedShares(Long userId, String symbol) {
+        int reserved = 0;
+        for (Order order : openOrdersByUser.getOrDefault(userId, Set.of())) {
+            if (!order.isBuy() && order.getSymbol().equals(symbol)) {
+                reserved += order.remaining();
+            }
+        }
+        return reserved;
+    }
+
+    private double queueDepth() {
+        int depth = 0;
+        for (BookWorker worker : workers) {
+            depth += worker.commands.size();
+        }
+        return depth;
+    }
+
+    private BookWorker workerFor(String symbol) {
+        return workers[Math.floorMod(symbol.hashCode(), workers.length)];
+    }
+
+    private void remember(Order order) {
+        closedOrders.remove(order.getId());
+        openOrders.put(order.getId(), order);
+        openOrdersByUser.computeIfAbsent(order.getUserId(), id -> ConcurrentHashMap.newKeySet()).add(order);
+    }
+
+    private void forget(Order order) {
+        // Kept where the order lookup finds it until the retention window runs out
+        closedOrders.put(order.getId(), order);
+        openOrders.remove(order.getId());
+        Collection<Order> userOrders = openOrdersByUser.get(order.getUserId());
+        if (userOrders != null) {
+            userOrders.remove(order);
+        }
+    }
+
+    /**
+     * Undoes an execution the fill writer gave up on. Only the order whose side could
+     * not be settled is rejected; the other side of a user-to-user match gets its
+     * shares back. When the failure was not down to one side the aggressor is
+     * rejected, as the resting order had its cash and shares reserved while it waited.
+     */
+    private void reject(Order order, Order counter, int quantity, Fill refused, String reason) {
+        Order failed = counter != null && refused != null && refused.orderId() == counter.getId() ? counter : order;
+        Order restored = failed == order ? counter : order;
+        logger.warn("Rejecting order {} after its fill of {} could not be settled: {}", failed.getId(), quantity, reason);
+        try {
+            workerFor(order.getSymbol()).put(worker -> worker.existingBook(order.getSymbol()).ifPresent(book -> {
+                book.reject(failed, quantity);
+                if (restored != null) {
+                    book.restore(restored, quantity);
+                    if (restored.isActive()) {
+                        remember(restored);
+                    }
+                }
+            }));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Fill fill(Order order, long counterOrderId, int quantity, long pricePaise, LocalDateTime at) {
+        return new Fill(order.getId(), order.getUserId(), order.getSymbol(), order.getSide(),
+                quantity, pricePaise, counterOrderId, at);
+    }
+
+    private interface Command {
+        void run(BookWorker worker);
+    }
+
+    private final class BookWorker implements Runnable, OrderBook.Listener {
+        private final BlockingQueue<Command> commands = new ArrayBlockingQueue<>(queueCapacity);
+        private final Map<String, OrderBook> books = new HashMap<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        BookWorker(int index) {
+            thread = new Thread(this, "matching-" + index);
+            thread.setDaemon(true);
+        }
+
+        boolean offer(Command command) {
+            return commands.offer(command);
+        }
+
+        void put(Command command) throws InterruptedException {
+            commands.put(command);
+        }
+
+        OrderBook book(String symbol) {
+            return books.computeIfAbsent(symbol, s -> new OrderBook(s, this));
+        }
+
+        Optional<OrderBook> existingBook(String symbol) {
+            return Optional.ofNullable(books.get(symbol));
+        }
+
+        @Override
+        public void run() {
+            while (running || !commands.isEmpty()) {
+                try {
+                    Command command = commands.poll(100, TimeUnit.MILLISECONDS);
+                    if (command != null) {
+                        command.run(this);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    logger.error("Matching command failed on {}", thread.getName(), e);
+                }
+            }
+        }
+
+        @Override
+        public void onFill(Order order, Order counter, int quantity, long pricePaise) {
+            LocalDateTime now = LocalDateTime.now();
+            if (counter == null) {
+                fillWriter.enqueue(List.of(fill(order, 0L, quantity, pricePaise, now)),
+                        (refused, reason) -> reject(order, null, quantity, refused, reason));
+            } else {
+                fillWriter.enqueue(List.of(fill(order, counter.getId(), quantity, pricePaise, now),
+                                fill(counter, order.getId(), quantity, pricePaise, now)),
+                        (refused, reason) -> reject(order, counter, quantity, refused, reason));
+            }
+        }
+
+        @Override
+        public void onClosed(Order order) {
+            forget(order);
+            // Filled shares stay reserved until the fill writer has settled them
+            riskEngine.release(order.getUserId(), order.getId(), order.remaining());
+        }
+    }
+}
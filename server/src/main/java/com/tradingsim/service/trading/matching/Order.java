@@ -0,0 +1,170 @@
+package com.tradingsim.service.trading.matching;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Trade;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A working order. Fill state is only ever written by the matching thread that
+ * owns the order's book; other threads may read it through the volatile fields.
+ */
+public class Order {
+
+    public enum OrderType {
+        MARKET, LIMIT, STOP
+    }
+
+    public enum TimeInForce {
+        DAY, GTC, IOC, FOK
+    }
+
+    public enum Status {
+        NEW, OPEN, PARTIALLY_FILLED, FILLED, CANCELLED, EXPIRED, REJECTED
+    }
+
+    private final long id;
+    private final Long userId;
+    private final String symbol;
+    private final Trade.TradeType side;
+    private final OrderType orderType;
+    private final TimeInForce timeInForce;
+    private final long limitPaise;  // 0 when the order has no limit
+    private final long stopPaise;   // 0 unless this is a STOP order
+    private final int quantity;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile int filledQuantity;
+    private volatile Status status = Status.NEW;
+    private volatile LocalDateTime closedAt;
+    private boolean triggered;
+    private long priority;  // place in time priority on the book, 0 until it first rests
+
+    public Order(long id, Long userId, String symbol, Trade.TradeType side, OrderType orderType,
+                 TimeInForce timeInForce, long limitPaise, long stopPaise, int quantity) {
+        this.id = id;
+        this.userId = userId;
+        this.symbol = symbol;
+        this.side = side;
+        this.orderType = orderType;
+        this.timeInForce = timeInForce;
+        this.limitPaise = limitPaise;
+        this.stopPaise = stopPaise;
+        this.quantity = quantity;
+        this.triggered = orderType != OrderType.STOP;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public Trade.TradeType getSide() {
+        return side;
+    }
+
+    public OrderType getOrderType() {
+        return orderType;
+    }
+
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    public BigDecimal getPrice() {
+        return limitPaise == 0 ? null : Money.toRupees(limitPaise);
+    }
+
+    public BigDecimal getStopPrice() {
+        return stopPaise == 0 ? null : Money.toRupees(stopPaise);
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getClosedAt() {
+        return closedAt;
+    }
+
+    public boolean isBuy() {
+        return side == Trade.TradeType.BUY;
+    }
+
+    public boolean isActive() {
+        return status == Status.NEW || status == Status.OPEN || status == Status.PARTIALLY_FILLED;
+    }
+
+    long limitPaise() {
+        return limitPaise;
+    }
+
+    long stopPaise() {
+        return stopPaise;
+    }
+
+    int remaining() {
+        return quantity - filledQuantity;
+    }
+
+    boolean triggered() {
+        return triggered;
+    }
+
+    void trigger() {
+        triggered = true;
+    }
+
+    long priority() {
+        return priority;
+    }
+
+    void setPriority(long priority) {
+        this.priority = priority;
+    }
+
+    void fill(int qty) {
+        filledQuantity += qty;
+        setStatus(filledQuantity == quantity ? Status.FILLED : Status.PARTIALLY_FILLED);
+    }
+
+    /**
+     * Takes back a fill whose settlement failed.
+     */
+    void unfill(int qty) {
+        filledQuantity -= qty;
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+        closedAt = isActive() ? null : LocalDateTime.now();
+    }
+
+    /**
+     * Price used to reserve cash for a resting buy: the limit if there is one,
+     * otherwise the stop trigger as the best available estimate.
+     */
+    long reservePaise() {
+        return limitPaise != 0 ? limitPaise : stopPaise;
+    }
+}
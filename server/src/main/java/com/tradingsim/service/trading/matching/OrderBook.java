@@ -0,0 +1,340 @@
+package com.tradingsim.service.trading.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Price-time priority book for one symbol. Not thread-safe: every method must be
+ * called from the single matching thread that owns the book.
+ *
+ * The simulator acts as counterparty of last resort at the reference (last traded)
+ * price, so marketable orders always fill. Resting orders on the other side are
+ * used first whenever they offer a price at least as good as the reference.
+ */
+class OrderBook {
+
+    interface Listener {
+        /**
+         * One execution. {@code counter} is the resting order on the other side, or
+         * null when the simulator took it; both orders are already updated.
+         */
+        void onFill(Order order, Order counter, int quantity, long pricePaise);
+
+        void onClosed(Order order);
+    }
+
+    private final String symbol;
+    private final Listener listener;
+
+    private final TreeMap<Long, ArrayDeque<Order>> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final TreeMap<Long, ArrayDeque<Order>> asks = new TreeMap<>();
+    // Buy stops trigger when the price rises to the stop, sell stops when it falls to it
+    private final TreeMap<Long, ArrayDeque<Order>> buyStops = new TreeMap<>();
+    private final TreeMap<Long, ArrayDeque<Order>> sellStops = new TreeMap<>(Comparator.reverseOrder());
+
+    private long referencePaise;
+    private long sequence;
+
+    OrderBook(String symbol, Listener listener) {
+        this.symbol = symbol;
+        this.listener = listener;
+    }
+
+    String getSymbol() {
+        return symbol;
+    }
+
+    long getReferencePaise() {
+        return referencePaise;
+    }
+
+    void submit(Order order, long referencePaise) {
+        if (referencePaise > 0) {
+            this.referencePaise = referencePaise;
+        }
+
+        if (!order.triggered()) {
+            if (stopReached(order)) {
+                order.trigger();
+            } else {
+                add(order.isBuy() ? buyStops : sellStops, order.stopPaise(), order);
+                order.setStatus(Order.Status.OPEN);
+                return;
+            }
+        }
+        execute(order);
+    }
+
+    /**
+     * Moves the reference price, fires any stops it crosses and fills resting limit
+     * orders the market has traded through, best price first and FIFO within a level.
+     */
+    void onPrice(long pricePaise) {
+        referencePaise = pricePaise;
+
+        List<Order> triggered = new ArrayList<>();
+        drain(buyStops.headMap(pricePaise, true), triggered);
+        drain(sellStops.headMap(pricePaise, true), triggered);
+        for (Order order : triggered) {
+            order.trigger();
+            execute(order);
+        }
+
+        sweep(bids.headMap(pricePaise, true));
+        sweep(asks.headMap(pricePaise, true));
+    }
+
+    boolean cancel(Order order) {
+        if (!remove(order)) {
+            return false;
+        }
+        close(order, Order.Status.CANCELLED);
+        return true;
+    }
+
+    /**
+     * Takes back a fill that could not be settled and rejects the order, pulling
+     * whatever is left of it off the book.
+     */
+    void reject(Order order, int quantity) {
+        if (order.isActive()) {
+            remove(order);
+        }
+        order.unfill(quantity);
+        close(order, Order.Status.REJECTED);
+    }
+
+    /**
+     * Takes back a fill that was not settled because the other side of the match
+     * failed. A resting order keeps its place; one the fill completed goes back on the
+     * book at its original time priority, or is matched again if it never rested.
+     */
+    void restore(Order order, int quantity) {
+        boolean completed = order.getStatus() == Order.Status.FILLED;
+        order.unfill(quantity);
+        if (order.isActive()) {
+            order.setStatus(order.getFilledQuantity() == 0 ? Order.Status.OPEN : Order.Status.PARTIALLY_FILLED);
+        } else if (!completed) {
+            // Cancelled or expired since; the shares given back are released with the rest
+            close(order, order.getStatus());
+        } else if (order.priority() == 0) {
+            order.setStatus(Order.Status.NEW);
+            execute(order);
+        } else {
+            order.setStatus(order.getFilledQuantity() == 0 ? Order.Status.OPEN : Order.Status.PARTIALLY_FILLED);
+            insert(order.isBuy() ? bids : asks, order.limitPaise(), order);
+        }
+    }
+
+    void expire(Order.TimeInForce timeInForce) {
+        expire(bids, timeInForce);
+        expire(asks, timeInForce);
+        expire(buyStops, timeInForce);
+        expire(sellStops, timeInForce);
+    }
+
+    private boolean remove(Order order) {
+        TreeMap<Long, ArrayDeque<Order>> side;
+        long price;
+        if (!order.triggered()) {
+            side = order.isBuy() ? buyStops : sellStops;
+            price = order.stopPaise();
+        } else {
+            side = order.isBuy() ? bids : asks;
+            price = order.limitPaise();
+        }
+
+        ArrayDeque<Order> level = side.get(price);
+        if (level == null || !level.remove(order)) {
+            return false;
+        }
+        removeIfEmpty(side, price, level);
+        return true;
+    }
+
+    private void execute(Order order) {
+        if (order.getTimeInForce() == Order.TimeInForce.FOK && !canFillCompletely(order)) {
+            close(order, Order.Status.CANCELLED);
+            return;
+        }
+
+        match(order);
+
+        if (order.remaining() == 0) {
+            return;
+        }
+        if (order.getTimeInForce() == Order.TimeInForce.IOC || order.getTimeInForce() == Order.TimeInForce.FOK
+                || order.limitPaise() == 0) {
+            // Nothing left to rest on; market orders only get here without a reference price
+            close(order, Order.Status.CANCELLED);
+            return;
+        }
+        order.setPriority(++sequence);
+        add(order.isBuy() ? bids : asks, order.limitPaise(), order);
+        if (order.getFilledQuantity() == 0) {
+            order.setStatus(Order.Status.OPEN);
+        }
+    }
+
+    private void match(Order order) {
+        TreeMap<Long, ArrayDeque<Order>> opposite = order.isBuy() ? asks : bids;
+
+        while (order.remaining() > 0) {
+            Map.Entry<Long, ArrayDeque<Order>> best = opposite.firstEntry();
+            if (best != null && atLeastAsGoodAsReference(order, best.getKey()) && crosses(order, best.getKey())) {
+                ArrayDeque<Order> level = best.getValue();
+                Order resting = level.peekFirst();
+                if (resting.getUserId().equals(order.getUserId())) {
+                    // Self-trade prevention: cancel the older resting order
+                    level.pollFirst();
+                    removeIfEmpty(opposite, best.getKey(), level);
+                    close(resting, Order.Status.CANCELLED);
+                    continue;
+                }
+
+                int quantity = Math.min(order.remaining(), resting.remaining());
+                fill(order, resting, quantity, best.getKey());
+                if (resting.remaining() == 0) {
+                    level.pollFirst();
+                    removeIfEmpty(opposite, best.getKey(), level);
+                }
+            } else if (referencePaise > 0 && crosses(order, referencePaise)) {
+                fill(order, null, order.remaining(), referencePaise);
+            } else {
+                break;
+            }
+        }
+    }
+
+    private boolean canFillCompletely(Order order) {
+        if (referencePaise > 0 && crosses(order, referencePaise)) {
+            return true;
+        }
+        TreeMap<Long, ArrayDeque<Order>> opposite = order.isBuy() ? asks : bids;
+        long available = 0;
+        for (Map.Entry<Long, ArrayDeque<Order>> level : opposite.entrySet()) {
+            if (!crosses(order, level.getKey())) {
+                break;
+            }
+            for (Order resting : level.getValue()) {
+                if (!resting.getUserId().equals(order.getUserId())) {
+                    available += resting.remaining();
+                }
+            }
+            if (available >= order.remaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sweep(Map<Long, ArrayDeque<Order>> crossedLevels) {
+        Iterator<ArrayDeque<Order>> levels = crossedLevels.values().iterator();
+        while (levels.hasNext()) {
+            for (Order order : levels.next()) {
+                fill(order, null, order.remaining(), referencePaise);
+            }
+            levels.remove();
+        }
+    }
+
+    private void drain(Map<Long, ArrayDeque<Order>> levels, List<Order> into) {
+        Iterator<ArrayDeque<Order>> iterator = levels.values().iterator();
+        while (iterator.hasNext()) {
+            into.addAll(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private void expire(TreeMap<Long, ArrayDeque<Order>> side, Order.TimeInForce timeInForce) {
+        Iterator<ArrayDeque<Order>> levels = side.values().iterator();
+        while (levels.hasNext()) {
+            ArrayDeque<Order> level = levels.next();
+            Iterator<Order> orders = level.iterator();
+            while (orders.hasNext()) {
+                Order order = orders.next();
+                if (order.getTimeInForce() == timeInForce) {
+                    orders.remove();
+                    close(order, Order.Status.EXPIRED);
+                }
+            }
+            if (level.isEmpty()) {
+                levels.remove();
+            }
+        }
+    }
+
+    /**
+     * Fills both sides of an execution before reporting it, so the listener sees a
+     * user-to-user match as a single event.
+     */
+    private void fill(Order order, Order counter, int quantity, long pricePaise) {
+        order.fill(quantity);
+        if (counter != null) {
+            counter.fill(quantity);
+        }
+        listener.onFill(order, counter, quantity, pricePaise);
+        if (order.remaining() == 0) {
+            listener.onClosed(order);
+        }
+        if (counter != null && counter.remaining() == 0) {
+            listener.onClosed(counter);
+        }
+    }
+
+    private void close(Order order, Order.Status status) {
+        order.setStatus(status);
+        listener.onClosed(order);
+    }
+
+    private boolean stopReached(Order order) {
+        if (referencePaise == 0) {
+            return false;
+        }
+        return order.isBuy() ? referencePaise >= order.stopPaise() : referencePaise <= order.stopPaise();
+    }
+
+    private boolean atLeastAsGoodAsReference(Order order, long pricePaise) {
+        if (referencePaise == 0) {
+            return true;
+        }
+        return order.isBuy() ? pricePaise <= referencePaise : pricePaise >= referencePaise;
+    }
+
+    private static boolean crosses(Order order, long pricePaise) {
+        if (order.limitPaise() == 0) {
+            return true;
+        }
+        return order.isBuy() ? pricePaise <= order.limitPaise() : pricePaise >= order.limitPaise();
+    }
+
+    private static void add(TreeMap<Long, ArrayDeque<Order>> side, long price, Order order) {
+        side.computeIfAbsent(price, p -> new ArrayDeque<>()).addLast(order);
+    }
+
+    /**
+     * Puts an order back in its level ahead of everything that rested after it.
+     */
+    private static void insert(TreeMap<Long, ArrayDeque<Order>> side, long price, Order order) {
+        ArrayDeque<Order> level = side.computeIfAbsent(price, p -> new ArrayDeque<>());
+        ArrayDeque<Order> ahead = new ArrayDeque<>();
+        while (!level.isEmpty() && level.peekFirst().priority() < order.priority()) {
+            ahead.addLast(level.pollFirst());
+        }
+        level.addFirst(order);
+        while (!ahead.isEmpty()) {
+            level.addFirst(ahead.pollLast());
+        }
+    }
+
+    private static void removeIfEmpty(TreeMap<Long, ArrayDeque<Order>> side, long price, ArrayDeque<Order> level) {
+        if (level.isEmpty()) {
+            side.remove(price);
+        }
+    }
+}
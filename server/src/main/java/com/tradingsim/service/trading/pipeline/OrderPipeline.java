@@ -0,0 +1,229 @@
+package com.tradingsim.service.trading.pipeline;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.trading.OrderService;
+import com.tradingsim.service.trading.matching.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts orders without waiting on the database. An accepted order becomes an
+ * {@link OrderTicket} that moves through validation, risk and execution stages, each
+ * with its own workers and bounded queue; clients poll the ticket for the outcome.
+ *
+ * Execution includes persistence: a fill's wallet and holding are written in the
+ * same transaction that checks them. Enabled with {@code trading.pipeline.enabled=true}.
+ */
+@Service
+public class OrderPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(OrderPipeline.class);
+
+    @Value("${trading.pipeline.enabled:false}")
+    private boolean enabled;
+
+    @Value("${trading.pipeline.workers:16}")
+    private int workers;
+
+    @Value("${trading.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${trading.pipeline.virtual-threads:true}")
+    private boolean virtualThreads;
+
+    @Value("${trading.pipeline.retention-minutes:30}")
+    private long retentionMinutes;
+
+    @Autowired
+    private QuoteStore quoteStore;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, OrderTicket> tickets = new ConcurrentHashMap<>();
+
+    private PipelineStage validation;
+    private PipelineStage risk;
+    private PipelineStage execution;
+    private Timer submitTimer;
+    private Timer completionTimer;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        validation = new PipelineStage("validation", workers, queueCapacity, virtualThreads, meterRegistry);
+        risk = new PipelineStage("risk", workers, queueCapacity, virtualThreads, meterRegistry);
+        execution = new PipelineStage("execution", workers, queueCapacity, virtualThreads, meterRegistry);
+
+        submitTimer = Timer.builder("trading.pipeline.submit.latency")
+                .description("Time to accept an order into the pipeline")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        completionTimer = Timer.builder("trading.pipeline.completion.latency")
+                .description("Time from accepting an order until it is executed, routed or rejected")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("trading.pipeline.tickets", tickets, Map::size);
+        logger.info("Order pipeline started ({} workers per stage, {} threads)", workers,
+                virtualThreads ? "virtual" : "platform");
+    }
+
+    /**
+     * Lets every accepted order finish, upstream stages first.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        validation.shutdown(TimeUnit.SECONDS.toMillis(10));
+        risk.shutdown(TimeUnit.SECONDS.toMillis(10));
+        execution.shutdown(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accepts the order and returns its ticket straight away.
+     *
+     * @throws TradeRejectedException when the pipeline is full
+     */
+    public OrderTicket submit(Long userId, String symbol, Trade.TradeType side, Order.OrderType orderType,
+                              Order.TimeInForce timeInForce, long limitPaise, long stopPaise, int quantity) {
+        long start = System.nanoTime();
+        long orderId = orderService.receive(userId, symbol, side, orderType, timeInForce, limitPaise, stopPaise, quantity);
+        OrderTicket ticket = new OrderTicket(orderId, userId, symbol, side, orderType,
+                timeInForce, limitPaise, stopPaise, quantity);
+        tickets.put(ticket.getId(), ticket);
+
+        if (!validation.offer(() -> validate(ticket))) {
+            tickets.remove(ticket.getId());
+            throw new TradeRejectedException("Too many orders in progress, try again shortly");
+        }
+        submitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return ticket;
+    }
+
+    public OrderTicket getTicket(long id) {
+        return tickets.get(id);
+    }
+
+    @Scheduled(fixedDelayString = "${trading.pipeline.cleanup-interval-ms:60000}")
+    public void evictCompletedTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        tickets.values().removeIf(ticket -> ticket.isDone() && ticket.getCompletedAt().isBefore(cutoff));
+    }
+
+    private void validate(OrderTicket ticket) {
+        run(ticket, () -> {
+            quote(ticket);
+            ticket.advance(OrderTicket.Stage.VALIDATED);
+            risk.put(() -> checkRisk(ticket));
+        });
+    }
+
+    private void checkRisk(OrderTicket ticket) {
+        run(ticket, () -> {
+            Stock stock = quote(ticket);
+            long pricePaise = ticket.getOrderType() == Order.OrderType.MARKET ? Money.toPaise(stock.getCurrentPrice())
+                    : ticket.limitPaise() != 0 ? ticket.limitPaise() : ticket.stopPaise();
+            orderService.preTradeCheck(ticket.getUserId(), stock.getSymbol(), ticket.getSide(), ticket.getQuantity(),
+                    pricePaise);
+            ticket.advance(OrderTicket.Stage.RISK_CHECKED);
+            execution.put(() -> execute(ticket));
+        });
+    }
+
+    /**
+     * Executes at the price when the order leaves the queue, not the one it was checked
+     * at; both submitMarket and placeOrder reserve the order's exposure at that price.
+     */
+    private void execute(OrderTicket ticket) {
+        run(ticket, () -> {
+            Stock stock = quote(ticket);
+            if (ticket.getOrderType() == Order.OrderType.MARKET) {
+                Money price = Money.of(stock.getCurrentPrice());
+                orderService.submitMarket(ticket.getId(), ticket.getUserId(), stock, ticket.getSide(),
+                                ticket.getQuantity())
+                        .whenComplete((walletBalance, error) -> {
+                            if (error != null) {
+                                reject(ticket, error);
+                            } else {
+                                ticket.executed(price, walletBalance);
+                                completed(ticket);
+                            }
+                        });
+            } else {
+                orderService.placeOrder(ticket.getId(), ticket.getUserId(), stock, ticket.getSide(),
+                                ticket.getOrderType(), ticket.getTimeInForce(), ticket.limitPaise(),
+                                ticket.stopPaise(), ticket.getQuantity())
+                        .whenComplete((order, error) -> {
+                            if (error != null) {
+                                reject(ticket, error);
+                            } else {
+                                ticket.routed(order);
+                                completed(ticket);
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * The order's stock at its current quote.
+     */
+    private Stock quote(OrderTicket ticket) {
+        Stock stock = quoteStore.findBySymbol(ticket.getSymbol())
+                .orElseThrow(() -> new TradeRejectedException("Stock not found"));
+        if (stock.getCurrentPrice() == null || stock.getCurrentPrice().signum() <= 0) {
+            throw new TradeRejectedException("No price available for " + stock.getSymbol());
+        }
+        return stock;
+    }
+
+    private void run(OrderTicket ticket, Runnable stage) {
+        try {
+            stage.run();
+        } catch (RuntimeException e) {
+            reject(ticket, e);
+        }
+    }
+
+    private void reject(OrderTicket ticket, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!(cause instanceof TradeRejectedException)) {
+            logger.warn("Order {} failed in stage {}", ticket.getId(), ticket.getStage(), cause);
+        }
+        ticket.rejected(cause.getMessage());
+        completed(ticket);
+    }
+
+    private void completed(OrderTicket ticket) {
+        completionTimer.record(Duration.between(ticket.getAcceptedAt(), ticket.getCompletedAt()));
+    }
+}
@@ -0,0 +1,149 @@
+package com.tradingsim.service.trading.pipeline;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.trading.matching.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An order accepted by the {@link OrderPipeline} and its progress through it. Updated
+ * by the stage threads and read by status requests, hence the volatile fields.
+ */
+public class OrderTicket {
+
+    public enum Stage {
+        QUEUED, VALIDATED, RISK_CHECKED, EXECUTED, ROUTED, REJECTED
+    }
+
+    private final long id;
+    private final Long userId;
+    private final String symbol;
+    private final Trade.TradeType side;
+    private final Order.OrderType orderType;
+    private final Order.TimeInForce timeInForce;
+    private final long limitPaise;
+    private final long stopPaise;
+    private final int quantity;
+    private final LocalDateTime acceptedAt = LocalDateTime.now();
+
+    private volatile Stage stage = Stage.QUEUED;
+    private volatile BigDecimal price;
+    private volatile BigDecimal walletBalance;
+    private volatile Order order;
+    private volatile String message;
+    private volatile LocalDateTime completedAt;
+
+    public OrderTicket(long id, Long userId, String symbol, Trade.TradeType side, Order.OrderType orderType,
+                       Order.TimeInForce timeInForce, long limitPaise, long stopPaise, int quantity) {
+        this.id = id;
+        this.userId = userId;
+        this.symbol = symbol;
+        this.side = side;
+        this.orderType = orderType;
+        this.timeInForce = timeInForce;
+        this.limitPaise = limitPaise;
+        this.stopPaise = stopPaise;
+        this.quantity = quantity;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public Trade.TradeType getSide() {
+        return side;
+    }
+
+    public Order.OrderType getOrderType() {
+        return orderType;
+    }
+
+    public Order.TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * Execution price of a market order once executed.
+     */
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public BigDecimal getWalletBalance() {
+        return walletBalance;
+    }
+
+    /**
+     * The resting order once a limit or stop order has been routed to its book.
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public LocalDateTime getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public boolean isDone() {
+        return completedAt != null;
+    }
+
+    long limitPaise() {
+        return limitPaise;
+    }
+
+    long stopPaise() {
+        return stopPaise;
+    }
+
+    void advance(Stage stage) {
+        this.stage = stage;
+    }
+
+    void executed(Money price, BigDecimal walletBalance) {
+        this.price = price.toBigDecimal();
+        this.walletBalance = walletBalance;
+        complete(Stage.EXECUTED);
+    }
+
+    void routed(Order order) {
+        this.order = order;
+        complete(Stage.ROUTED);
+    }
+
+    void rejected(String message) {
+        this.message = message;
+        complete(Stage.REJECTED);
+    }
+
+    private void complete(Stage stage) {
+        this.completedAt = LocalDateTime.now();
+        this.stage = stage;
+    }
+}
@@ -0,0 +1,68 @@
+package com.tradingsim.service.trading.pipeline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One stage of the order pipeline: a fixed number of workers fed from a bounded queue.
+ */
+class PipelineStage {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    PipelineStage(String name, int workers, int capacity, boolean virtualThreads, MeterRegistry meterRegistry) {
+        this.name = name;
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("order-" + name + "-", 0).factory()
+                : Thread.ofPlatform().name("order-" + name + "-", 0).daemon().factory();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.prestartAllCoreThreads();
+        meterRegistry.gauge("trading.pipeline.queue.depth", Tags.of("stage", name), executor.getQueue(), BlockingQueue::size);
+    }
+
+    /**
+     * Queues the task unless the stage is full.
+     *
+     * @return false when the queue is full
+     */
+    boolean offer(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Queues the task, waiting for room so an upstream stage slows down instead of
+     * dropping work it has already accepted.
+     */
+    void put(Runnable task) {
+        try {
+            // Workers are all started, so adding straight to the queue is enough to get the task run
+            while (!executor.getQueue().offer(task, 100, TimeUnit.MILLISECONDS)) {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Order pipeline stage " + name + " is shut down");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while queueing for " + name, e);
+        }
+    }
+
+    void shutdown(long timeoutMillis) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
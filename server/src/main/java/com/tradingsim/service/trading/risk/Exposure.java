@@ -0,0 +1,177 @@
+package com.tradingsim.service.trading.risk;
+
+import com.tradingsim.model.Money;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A user's settled cash, positions and today's turnover, kept current from fills,
+ * plus what their accepted but unsettled orders have reserved. Guarded by its own
+ * monitor.
+ */
+class Exposure {
+
+    enum Rule {
+        ORDER_NOTIONAL("Order value exceeds your limit of ₹%s per order"),
+        POSITION("This order would take your position above the limit of ₹%s per stock"),
+        DAILY_TURNOVER("This order would exceed your daily trading limit of ₹%s"),
+        CONCENTRATION("This order would put more than %s%% of your account in one stock");
+
+        private final String message;
+
+        Rule(String message) {
+            this.message = message;
+        }
+    }
+
+    private final RiskLimits limits;
+    private final Map<String, long[]> positions = new HashMap<>();  // symbol -> {quantity, cost in paise}
+    private long cashPaise;
+    private long totalCostPaise;
+    private long day;
+    private long turnoverPaise;
+    private final Map<Long, Reservation> reservations = new HashMap<>();
+    private final Map<String, long[]> pendingBuys = new HashMap<>();  // symbol -> {quantity, notional in paise}
+    private long pendingTurnoverPaise;
+    private volatile boolean stale;
+
+    /**
+     * The part of an accepted order that has not settled or closed yet.
+     */
+    private static final class Reservation {
+        private final String symbol;
+        private final boolean buy;
+        private final long pricePaise;
+        private int quantity;
+
+        Reservation(String symbol, boolean buy, long pricePaise, int quantity) {
+            this.symbol = symbol;
+            this.buy = buy;
+            this.pricePaise = pricePaise;
+            this.quantity = quantity;
+        }
+    }
+
+    Exposure(RiskLimits limits, long cashPaise, long day, long turnoverPaise) {
+        this.limits = limits;
+        this.cashPaise = cashPaise;
+        this.day = day;
+        this.turnoverPaise = turnoverPaise;
+    }
+
+    /**
+     * The first limit the order would break, or null when it is within all of them.
+     */
+    Rule violation(String symbol, boolean buy, int quantity, long pricePaise, long today) {
+        long notional = pricePaise * quantity;
+        if (notional > limits.maxOrderPaise()) {
+            return Rule.ORDER_NOTIONAL;
+        }
+        long turnover = (day == today ? turnoverPaise : 0) + pendingTurnoverPaise;
+        if (turnover + notional > limits.maxTurnoverPaise()) {
+            return Rule.DAILY_TURNOVER;
+        }
+        if (!buy) {
+            return null;
+        }
+
+        long[] position = positions.get(symbol);
+        long[] pending = pendingBuys.get(symbol);
+        long heldQuantity = (position == null ? 0 : position[0]) + (pending == null ? 0 : pending[0]);
+        long heldCost = (position == null ? 0 : position[1]) + (pending == null ? 0 : pending[1]);
+        if ((heldQuantity + quantity) * pricePaise > limits.maxPositionPaise()) {
+            return Rule.POSITION;
+        }
+        long accountPaise = cashPaise + totalCostPaise;
+        if (limits.maxConcentrationBps() != Long.MAX_VALUE
+                && (heldCost + notional) * 10_000 > limits.maxConcentrationBps() * accountPaise) {
+            return Rule.CONCENTRATION;
+        }
+        return null;
+    }
+
+    String message(Rule rule) {
+        return switch (rule) {
+            case ORDER_NOTIONAL -> String.format(rule.message, Money.toRupees(limits.maxOrderPaise()));
+            case POSITION -> String.format(rule.message, Money.toRupees(limits.maxPositionPaise()));
+            case DAILY_TURNOVER -> String.format(rule.message, Money.toRupees(limits.maxTurnoverPaise()));
+            case CONCENTRATION -> String.format(rule.message, BigDecimal.valueOf(limits.maxConcentrationBps(), 2));
+        };
+    }
+
+    /**
+     * Sets a holding to its state after a fill; a zero quantity removes it.
+     */
+    void position(String symbol, int quantity, long costPaise) {
+        long[] previous = quantity == 0 ? positions.remove(symbol) : positions.put(symbol, new long[]{quantity, costPaise});
+        totalCostPaise += (quantity == 0 ? 0 : costPaise) - (previous == null ? 0 : previous[1]);
+    }
+
+    /**
+     * Counts the order against the limits until it is {@link #release released}.
+     */
+    void reserve(long orderId, String symbol, boolean buy, int quantity, long pricePaise) {
+        Reservation reservation = reservations.computeIfAbsent(orderId, id -> new Reservation(symbol, buy, pricePaise, 0));
+        reservation.quantity += quantity;
+        adjust(reservation, quantity);
+    }
+
+    /**
+     * Stops counting up to {@code quantity} of the order's reserved shares.
+     */
+    void release(long orderId, int quantity) {
+        Reservation reservation = reservations.get(orderId);
+        if (reservation == null) {
+            return;
+        }
+        int released = Math.min(quantity, reservation.quantity);
+        reservation.quantity -= released;
+        if (reservation.quantity == 0) {
+            reservations.remove(orderId);
+        }
+        adjust(reservation, -released);
+    }
+
+    /**
+     * Takes over the reservations of the exposure this one replaces.
+     */
+    Exposure carry(Exposure previous) {
+        synchronized (previous) {
+            previous.reservations.forEach((orderId, reservation) -> reserve(orderId, reservation.symbol,
+                    reservation.buy, reservation.quantity, reservation.pricePaise));
+        }
+        return this;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    void markStale() {
+        stale = true;
+    }
+
+    private void adjust(Reservation reservation, int quantity) {
+        long notional = reservation.pricePaise * quantity;
+        pendingTurnoverPaise += notional;
+        if (reservation.buy) {
+            long[] pending = pendingBuys.computeIfAbsent(reservation.symbol, symbol -> new long[2]);
+            pending[0] += quantity;
+            pending[1] += notional;
+            if (pending[0] == 0) {
+                pendingBuys.remove(reservation.symbol);
+            }
+        }
+    }
+
+    void filled(long cashPaise, long notionalPaise, long today) {
+        this.cashPaise = cashPaise;
+        if (day != today) {
+            day = today;
+            turnoverPaise = 0;
+        }
+        turnoverPaise += notionalPaise;
+    }
+}
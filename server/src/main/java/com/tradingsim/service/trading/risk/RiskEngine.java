@@ -0,0 +1,183 @@
+package com.tradingsim.service.trading.risk;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.trading.AccountStore;
+import com.tradingsim.service.trading.Settlement;
+import com.tradingsim.service.trading.SettlementListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-trade limits checked against in-memory exposure: order value, position value per
+ * symbol, daily turnover and concentration in one stock (see {@link RiskProperties}).
+ * A user's exposure is loaded from the database on their first order and then kept
+ * current from settled fills, so a check never touches the database.
+ *
+ * An accepted order {@link #reserve reserves} its exposure until each share of it
+ * has either settled or been released, so orders still in flight count against the
+ * limits as well.
+ */
+@Service
+public class RiskEngine implements SettlementListener {
+
+    @Autowired
+    private RiskProperties properties;
+
+    @Autowired
+    private AccountStore accountStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Exposure> exposures = new ConcurrentHashMap<>();
+
+    /**
+     * @throws TradeRejectedException with the reason when the order breaks a limit
+     */
+    public void check(Long userId, String symbol, Trade.TradeType side, int quantity, long pricePaise) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Exposure exposure = exposure(userId);
+        Exposure.Rule violation;
+        synchronized (exposure) {
+            violation = exposure.violation(symbol, side == Trade.TradeType.BUY, quantity, pricePaise, today());
+        }
+        reject(exposure, violation);
+    }
+
+    /**
+     * Checks the order like {@link #check} and, if it passes, counts it against the
+     * limits until its shares are released: by {@link #release(Long, long, int)} as they
+     * settle, and by {@link #release(Long, long)} for whatever is left once it is done.
+     *
+     * @throws TradeRejectedException with the reason when the order breaks a limit
+     */
+    public void reserve(long orderId, Long userId, String symbol, Trade.TradeType side, int quantity, long pricePaise) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        boolean buy = side == Trade.TradeType.BUY;
+        while (true) {
+            Exposure exposure = exposure(userId);
+            Exposure.Rule violation;
+            synchronized (exposure) {
+                if (exposure.isStale()) {
+                    // Reloaded since it was looked up; reserve on the replacement so it is not lost
+                    continue;
+                }
+                violation = exposure.violation(symbol, buy, quantity, pricePaise, today());
+                if (violation == null) {
+                    exposure.reserve(orderId, symbol, buy, quantity, pricePaise);
+                }
+            }
+            reject(exposure, violation);
+            return;
+        }
+    }
+
+    public void release(Long userId, long orderId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        // Going through the map orders this with an exposure being replaced on reload
+        exposures.computeIfPresent(userId, (id, exposure) -> {
+            synchronized (exposure) {
+                exposure.release(orderId, quantity);
+            }
+            return exposure;
+        });
+    }
+
+    public void release(Long userId, long orderId) {
+        release(userId, orderId, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void onSettled(List<Settlement> settlements) {
+        for (Settlement settlement : settlements) {
+            Trade trade = settlement.getTrade();
+            // Users without loaded exposure pick this fill up from the database when they are loaded
+            exposures.computeIfPresent(trade.getUser().getId(), (userId, exposure) -> {
+                Portfolio holding = settlement.getHolding();
+                synchronized (exposure) {
+                    exposure.position(trade.getStockSymbol(), settlement.isHoldingClosed() ? 0 : holding.getQuantity(),
+                            Money.toPaise(holding.getTotalInvestment()));
+                    exposure.filled(Money.toPaise(settlement.getWallet().getBalance()),
+                            Money.toPaise(trade.getPrice()) * trade.getQuantity(), today());
+                }
+                return exposure;
+            });
+        }
+    }
+
+    /**
+     * Reloads limits, competition membership and turnover on each user's next order,
+     * by default at midnight market time when daily turnover starts over. Reservations
+     * carry over.
+     */
+    @Scheduled(cron = "${trading.risk.reload-cron:0 0 0 * * *}", zone = "Asia/Kolkata")
+    public void reload() {
+        exposures.values().forEach(Exposure::markStale);
+    }
+
+    private Exposure exposure(Long userId) {
+        Exposure exposure = exposures.get(userId);
+        if (exposure != null && !exposure.isStale()) {
+            return exposure;
+        }
+        return exposures.compute(userId, (id, current) -> current == null ? load(id)
+                : current.isStale() ? load(id).carry(current) : current);
+    }
+
+    private void reject(Exposure exposure, Exposure.Rule violation) {
+        if (violation != null) {
+            meterRegistry.counter("trading.risk.rejections", "rule", violation.name()).increment();
+            throw new TradeRejectedException(exposure.message(violation));
+        }
+    }
+
+    private Exposure load(Long userId) {
+        AccountStore.Account account = accountStore.load(userId);
+
+        List<String> roles = jdbcTemplate.queryForList("select r.name from user_roles ur join roles r on r.id = ur.role_id " +
+                "where ur.user_id = ?", String.class, userId);
+        List<Long> competitions = jdbcTemplate.queryForList("select cp.competition_id from competition_participants cp " +
+                "join competitions c on c.id = cp.competition_id where cp.user_id = ? and c.active = true", Long.class, userId);
+        // The market day starts at midnight market time; trade times are stored in server time
+        LocalDateTime dayStart = LocalDate.now(CandleAggregator.MARKET_ZONE).atStartOfDay(CandleAggregator.MARKET_ZONE)
+                .withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        BigDecimal turnover = jdbcTemplate.queryForObject("select coalesce(sum(price * quantity), 0) from trades " +
+                "where user_id = ? and date >= ?", BigDecimal.class, userId, dayStart);
+
+        String userClass = roles.contains("ROLE_ADMIN") ? "ADMIN" : "USER";
+        Exposure exposure = new Exposure(RiskLimits.resolve(properties, userClass, competitions),
+                Money.toPaise(account.getWallet().getBalance()), today(), Money.toPaise(turnover));
+        for (Portfolio holding : account.getHoldings().values()) {
+            exposure.position(holding.getStockSymbol(), holding.getQuantity(), Money.toPaise(holding.getTotalInvestment()));
+        }
+        return exposure;
+    }
+
+    private static long today() {
+        return LocalDate.now(CandleAggregator.MARKET_ZONE).toEpochDay();
+    }
+}
@@ -0,0 +1,46 @@
+package com.tradingsim.service.trading.risk;
+
+import com.tradingsim.model.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+
+/**
+ * One user's effective limits in paise and basis points; {@link Long#MAX_VALUE} when unlimited.
+ */
+record RiskLimits(long maxOrderPaise, long maxPositionPaise, long maxTurnoverPaise, long maxConcentrationBps) {
+
+    static RiskLimits resolve(RiskProperties properties, String userClass, Collection<Long> competitionIds) {
+        RiskProperties.Limits defaults = properties.getDefaults();
+        RiskProperties.Limits forClass = properties.getClasses().getOrDefault(userClass, defaults);
+
+        long maxOrder = paise(first(forClass.getMaxOrderNotional(), defaults.getMaxOrderNotional()));
+        long maxPosition = paise(first(forClass.getMaxPositionValue(), defaults.getMaxPositionValue()));
+        long maxTurnover = paise(first(forClass.getMaxDailyTurnover(), defaults.getMaxDailyTurnover()));
+        long maxConcentration = bps(first(forClass.getMaxConcentrationPercent(), defaults.getMaxConcentrationPercent()));
+
+        for (Long competitionId : competitionIds) {
+            RiskProperties.Limits competition = properties.getCompetitions().get(competitionId);
+            if (competition != null) {
+                maxOrder = Math.min(maxOrder, paise(competition.getMaxOrderNotional()));
+                maxPosition = Math.min(maxPosition, paise(competition.getMaxPositionValue()));
+                maxTurnover = Math.min(maxTurnover, paise(competition.getMaxDailyTurnover()));
+                maxConcentration = Math.min(maxConcentration, bps(competition.getMaxConcentrationPercent()));
+            }
+        }
+        return new RiskLimits(maxOrder, maxPosition, maxTurnover, maxConcentration);
+    }
+
+    private static BigDecimal first(BigDecimal value, BigDecimal fallback) {
+        return value != null ? value : fallback;
+    }
+
+    private static long paise(BigDecimal rupees) {
+        return rupees == null ? Long.MAX_VALUE : Money.toPaise(rupees);
+    }
+
+    private static long bps(BigDecimal percent) {
+        return percent == null ? Long.MAX_VALUE : percent.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
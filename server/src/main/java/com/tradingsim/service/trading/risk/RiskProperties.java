@@ -0,0 +1,37 @@
+package com.tradingsim.service.trading.risk;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-trade limits under {@code trading.risk}. A user gets the limits of their class
+ * ({@code USER} or {@code ADMIN}), falling back to {@code defaults} for anything the
+ * class leaves unset; every active competition they take part in can tighten them further.
+ * Unset limits are not enforced.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trading.risk")
+public class RiskProperties {
+
+    private boolean enabled = false;
+
+    private Limits defaults = new Limits();
+
+    private Map<String, Limits> classes = new HashMap<>();
+
+    private Map<Long, Limits> competitions = new HashMap<>();
+
+    @Data
+    public static class Limits {
+        private BigDecimal maxOrderNotional;     // Value of a single order
+        private BigDecimal maxPositionValue;     // Value of one symbol's holding after a buy, at the order price
+        private BigDecimal maxDailyTurnover;     // Value bought plus sold since midnight
+        private BigDecimal maxConcentrationPercent;  // One symbol's cost as a share of cash plus all holdings at cost
+    }
+}
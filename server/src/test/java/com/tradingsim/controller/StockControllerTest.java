@@ -0,0 +1,91 @@
+package com.tradingsim.controller;
+
+import com.tradingsim.dto.response.StockQuoteResponse;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockControllerTest {
+
+    private final QuoteStore quoteStore = mock(QuoteStore.class);
+    private final StockController controller = new StockController();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "quoteStore", quoteStore);
+        when(quoteStore.epoch()).thenReturn(1_700L);
+        when(quoteStore.sequence()).thenReturn(42L);
+        when(quoteStore.getAll()).thenReturn(List.of(quote("TCS", 40), quote("INFY", 42)));
+        when(quoteStore.changedSince(40L)).thenReturn(List.of(quote("INFY", 42)));
+    }
+
+    @Test
+    void listIsTaggedWithEpochAndSequence() {
+        ResponseEntity<?> response = controller.getAllStocks(null, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"1700-42\"");
+        assertThat(response.getHeaders().getFirst("X-Quote-Sequence")).isEqualTo("1700-42");
+        assertThat(symbols(response)).containsExactly("TCS", "INFY");
+    }
+
+    @Test
+    void currentTagIsNotModified() {
+        ResponseEntity<?> response = controller.getAllStocks(null, "\"1700-42\"");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        verify(quoteStore, never()).getAll();
+    }
+
+    @Test
+    void tagFromAnEarlierRunGetsTheList() {
+        // Sequences started over at the restart, so the old tag can even equal the new sequence
+        ResponseEntity<?> response = controller.getAllStocks(null, "\"42\"");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(symbols(response)).containsExactly("TCS", "INFY");
+    }
+
+    @Test
+    void sinceReturnsOnlyLaterChanges() {
+        ResponseEntity<?> response = controller.getAllStocks("1700-40", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(symbols(response)).containsExactly("INFY");
+        assertThat(controller.getAllStocks("1700-42", null).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void sinceFromAnEarlierRunGetsTheFullList() {
+        for (String since : List.of("1699-9000", "1699-40", "9000", "1700-x")) {
+            ResponseEntity<?> response = controller.getAllStocks(since, null);
+
+            assertThat(response.getStatusCode()).as(since).isEqualTo(HttpStatus.OK);
+            assertThat(symbols(response)).as(since).containsExactly("TCS", "INFY");
+        }
+        verify(quoteStore, never()).changedSince(anyLong());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> symbols(ResponseEntity<?> response) {
+        return ((List<StockQuoteResponse>) response.getBody()).stream().map(StockQuoteResponse::getSymbol).toList();
+    }
+
+    private static Quote quote(String symbol, long sequence) {
+        return new Quote(0, 1L, symbol, symbol, 100_00, 0, 0, 0, 0, 0, 1_000, sequence);
+    }
+}
@@ -0,0 +1,170 @@
+package com.tradingsim.repository;
+
+import com.tradingsim.dto.response.HoldingResponse;
+import com.tradingsim.dto.response.TradeResponse;
+import com.tradingsim.dto.response.TransactionResponse;
+import com.tradingsim.model.ERole;
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Role;
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.Transaction;
+import com.tradingsim.model.User;
+import com.tradingsim.model.Wallet;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Each read behind the portfolio, trade and wallet endpoints is one statement, with no
+ * user, role or wallet loaded on the way.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ResponseProjectionTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        User user = user("trader@example.com");
+        Wallet wallet = wallet(user, "98765.43");
+        User other = user("other@example.com");
+        Wallet otherWallet = wallet(other, "10.00");
+        LocalDateTime start = LocalDateTime.of(2026, 10, 1, 10, 0);
+        for (int i = 0; i < 5; i++) {
+            trade(user, "TCS", start.plusMinutes(i));
+            transaction(wallet, start.plusMinutes(i));
+            holding(user, "SYM" + i);
+        }
+        trade(other, "INFY", start);
+        transaction(otherWallet, start);
+        holding(other, "INFY");
+        entityManager.flush();
+        entityManager.clear();
+
+        userId = user.getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void holdingsAreOneStatement() {
+        List<HoldingResponse> holdings = portfolioRepository.findResponsesByUserId(userId);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(holdings).extracting(HoldingResponse::getStockSymbol)
+                .containsExactlyInAnyOrder("SYM0", "SYM1", "SYM2", "SYM3", "SYM4");
+        assertThat(holdings.get(0).getTotalInvestment()).isEqualByComparingTo("12345.00");
+    }
+
+    @Test
+    void tradesAreOneStatementNewestFirst() {
+        List<TradeResponse> trades = tradeRepository.findResponsesByUserId(userId);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(trades).hasSize(5).extracting(TradeResponse::getStockSymbol).containsOnly("TCS");
+        assertThat(trades).extracting(TradeResponse::getDate).isSortedAccordingTo((a, b) -> b.compareTo(a));
+    }
+
+    @Test
+    void transactionsAreOneStatementNewestFirst() {
+        List<TransactionResponse> transactions = transactionRepository.findResponsesByUserId(userId);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(transactions).hasSize(5);
+        assertThat(transactions).extracting(TransactionResponse::getCreatedAt)
+                .isSortedAccordingTo((a, b) -> b.compareTo(a));
+    }
+
+    @Test
+    void balanceIsOneStatement() {
+        assertThat(walletRepository.findBalanceByUserId(userId)).hasValueSatisfying(balance ->
+                assertThat(balance).isEqualByComparingTo("98765.43"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private User user(String email) {
+        Role role = entityManager.persist(new Role(ERole.values()[0]));
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ01");
+        user.getRoles().add(role);
+        return entityManager.persist(user);
+    }
+
+    private Wallet wallet(User user, String balance) {
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        wallet.setBalance(new BigDecimal(balance));
+        return entityManager.persist(wallet);
+    }
+
+    private void trade(User user, String symbol, LocalDateTime date) {
+        Trade trade = new Trade();
+        trade.setUser(user);
+        trade.setStockSymbol(symbol);
+        trade.setType(Trade.TradeType.BUY);
+        trade.setQuantity(10);
+        trade.setPrice(new BigDecimal("1234.50"));
+        trade.setDate(date);
+        entityManager.persist(trade);
+    }
+
+    private void transaction(Wallet wallet, LocalDateTime createdAt) {
+        Transaction transaction = new Transaction();
+        transaction.setWallet(wallet);
+        transaction.setType(Transaction.TransactionType.values()[0]);
+        transaction.setAmount(new BigDecimal("12345.00"));
+        transaction.setDescription("Bought 10 TCS");
+        transaction.setCreatedAt(createdAt);
+        transaction.setBalanceAfter(new BigDecimal("50000.00"));
+        entityManager.persist(transaction);
+    }
+
+    private void holding(User user, String symbol) {
+        Portfolio holding = new Portfolio();
+        holding.setUser(user);
+        holding.setStockSymbol(symbol);
+        holding.setStockName(symbol + " Ltd");
+        holding.setQuantity(10);
+        holding.setAverageBuyPrice(new BigDecimal("1234.50"));
+        holding.setCurrentValue(new BigDecimal("12500.00"));
+        holding.setProfitLoss(new BigDecimal("155.00"));
+        holding.setTotalInvestment(new BigDecimal("12345.00"));
+        entityManager.persist(holding);
+    }
+}
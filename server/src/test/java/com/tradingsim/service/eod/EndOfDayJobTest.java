@@ -0,0 +1,201 @@
+package com.tradingsim.service.eod;
+
+import com.tradingsim.dto.response.EodReport;
+import com.tradingsim.model.EodRun;
+import com.tradingsim.repository.EodRunRepository;
+import com.tradingsim.service.ledger.TradeLedger;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.portfolio.PortfolioAnalytics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EndOfDayJobTest {
+
+    private final EodRunRepository eodRunRepository = mock(EodRunRepository.class);
+    private final PortfolioAnalytics portfolioAnalytics = mock(PortfolioAnalytics.class);
+    private final QuoteStore quoteStore = mock(QuoteStore.class);
+    private final Map<LocalDate, EodRun> runs = new ConcurrentHashMap<>();
+    private final List<long[]> chunks = new ArrayList<>();
+    private final List<LocalDateTime> cutoffs = new ArrayList<>();
+    private final LocalDate today = LocalDate.now(CandleAggregator.MARKET_ZONE);
+    private EndOfDayJob job;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("create table users (id bigint primary key)");
+        for (long id = 1; id <= 25; id++) {
+            jdbcTemplate.update("insert into users (id) values (?)", id);
+        }
+
+        when(eodRunRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(runs.get((LocalDate) invocation.getArgument(0))));
+        when(eodRunRepository.save(any())).thenAnswer(invocation -> {
+            EodRun run = invocation.getArgument(0);
+            runs.put(run.getBusinessDate(), run);
+            return run;
+        });
+        when(portfolioAnalytics.takeSnapshots(any(), any(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(2);
+            long to = invocation.getArgument(3);
+            synchronized (chunks) {
+                chunks.add(new long[]{from, to});
+                cutoffs.add(invocation.getArgument(1));
+            }
+            return (int) (to - from);
+        });
+        when(quoteStore.size()).thenReturn(7);
+
+        job = new EndOfDayJob();
+        ReflectionTestUtils.setField(job, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(job, "eodRunRepository", eodRunRepository);
+        ReflectionTestUtils.setField(job, "portfolioAnalytics", portfolioAnalytics);
+        ReflectionTestUtils.setField(job, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(job, "tradeLedger", mock(TradeLedger.class));
+        ReflectionTestUtils.setField(job, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "chunkSize", 10);
+        ReflectionTestUtils.setField(job, "threads", 2);
+        job.start();
+    }
+
+    @Test
+    void todaySnapshotsEveryUserInChunksThenRolls() {
+        EodReport report = job.run(today);
+
+        assertThat(chunks).extracting(chunk -> chunk[0] + "-" + chunk[1])
+                .containsExactlyInAnyOrder("0-10", "10-20", "20-25");
+        assertThat(report.getUsers()).isEqualTo(25);
+        assertThat(report.getSnapshots()).isEqualTo(25);
+        assertThat(report.getChunks()).isEqualTo(3);
+        assertThat(report.getSymbols()).isEqualTo(7);
+        assertThat(report.getPhase()).isEqualTo("DONE");
+        verify(quoteStore).openSession();
+        verify(quoteStore).writeBack();
+
+        EodRun run = runs.get(today);
+        assertThat(run.getLastUserId()).isEqualTo(25);
+        assertThat(run.getCutoffAt()).isNotNull();
+        assertThat(cutoffs).containsOnly(run.getCutoffAt());
+    }
+
+    @Test
+    void completedDateIsNotRunAgain() {
+        job.run(today);
+        chunks.clear();
+
+        EodReport report = job.run(today);
+
+        assertThat(chunks).isEmpty();
+        assertThat(report.getPhase()).isEqualTo("DONE");
+        verify(quoteStore).openSession();
+    }
+
+    @Test
+    void failedChunkLeavesTheCheckpointAfterTheLastRetiredOne() {
+        when(portfolioAnalytics.takeSnapshots(any(), any(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(2);
+            if (from == 10) {
+                throw new IllegalStateException("deadlock");
+            }
+            return (int) ((long) invocation.getArgument(3) - from);
+        });
+
+        assertThatThrownBy(() -> job.run(today)).hasMessageContaining("after user 10");
+
+        EodRun run = runs.get(today);
+        assertThat(run.getPhase()).isEqualTo(EodRun.Phase.SNAPSHOTS);
+        assertThat(run.getLastUserId()).isEqualTo(10);
+        assertThat(run.getError()).isNotNull();
+        verify(quoteStore, never()).openSession();
+    }
+
+    @Test
+    void resumedRunStartsAfterItsCheckpointWithItsOwnCutoff() {
+        LocalDateTime cutoff = today.atTime(16, 0);
+        EodRun stopped = new EodRun(today);
+        stopped.setLastUserId(20);
+        stopped.setUsers(20);
+        stopped.setStartedAt(cutoff);
+        stopped.setCutoffAt(cutoff);
+        runs.put(today, stopped);
+
+        EodReport report = job.run(today);
+
+        assertThat(chunks).extracting(chunk -> chunk[0] + "-" + chunk[1]).containsExactly("20-25");
+        assertThat(cutoffs).containsExactly(cutoff);
+        assertThat(report.getResumedAfterUserId()).isEqualTo(20);
+        assertThat(runs.get(today).getUsers()).isEqualTo(25);
+        verify(quoteStore).openSession();
+    }
+
+    @Test
+    void earlierDateIsResumedWithoutRolling() {
+        LocalDate yesterday = today.minusDays(1);
+        EodRun stopped = new EodRun(yesterday);
+        stopped.setLastUserId(10);
+        stopped.setStartedAt(yesterday.atTime(16, 0));
+        stopped.setCutoffAt(yesterday.atTime(16, 0));
+        runs.put(yesterday, stopped);
+
+        EodReport report = job.run(yesterday);
+
+        assertThat(chunks).extracting(chunk -> chunk[0] + "-" + chunk[1]).containsExactlyInAnyOrder("10-20", "20-25");
+        assertThat(report.getPhase()).isEqualTo("DONE");
+        assertThat(report.getSymbols()).isZero();
+        assertThat(runs.get(yesterday).getFinishedAt()).isNotNull();
+        verify(quoteStore, never()).openSession();
+        verify(quoteStore, never()).writeBack();
+    }
+
+    @Test
+    void earlierDateStoppedBeforeRollingIsNotRolled() {
+        LocalDate yesterday = today.minusDays(1);
+        EodRun stopped = new EodRun(yesterday);
+        stopped.setPhase(EodRun.Phase.ROLL);
+        stopped.setLastUserId(25);
+        stopped.setStartedAt(yesterday.atTime(16, 0));
+        runs.put(yesterday, stopped);
+
+        assertThat(job.run(yesterday).getPhase()).isEqualTo("DONE");
+
+        assertThat(chunks).isEmpty();
+        verify(quoteStore, never()).openSession();
+    }
+
+    @Test
+    void onlyTodayCanBeStarted() {
+        assertThatThrownBy(() -> job.run(today.plusDays(1))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> job.run(today.minusDays(3))).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("never started");
+
+        assertThat(runs).isEmpty();
+        assertThat(chunks).isEmpty();
+        verify(quoteStore, never()).openSession();
+        // The guard releases the job for the next run
+        assertThat(job.run(today).getPhase()).isEqualTo("DONE");
+    }
+}
@@ -0,0 +1,143 @@
+package com.tradingsim.service.ledger;
+
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.Transaction;
+import com.tradingsim.model.User;
+import com.tradingsim.model.Wallet;
+import com.tradingsim.repository.TradeRepository;
+import com.tradingsim.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TradeLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    private final TradeRepository tradeRepository = mock(TradeRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final TradeLedger ledger = new TradeLedger();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ledger.stop();
+    }
+
+    @Test
+    void savesInTheCallersTransactionByDefault() {
+        start(false);
+        ledger.record(trade(1), transaction(1));
+
+        verify(transactionRepository).saveAll(anyList());
+        verify(tradeRepository).saveAll(anyList());
+    }
+
+    @Test
+    void writeBehindBatchesEntriesAndFlushWaitsForThem() throws InterruptedException {
+        List<Integer> batchSizes = new ArrayList<>();
+        when(tradeRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            batchSizes.add(invocation.<List<?>>getArgument(0).size());
+            return invocation.getArgument(0);
+        });
+        start(true);
+
+        for (int i = 0; i < 25; i++) {
+            ledger.record(trade(i), transaction(i));
+        }
+        ledger.flush();
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(25);
+        assertThat(batchSizes).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(10));
+    }
+
+    @Test
+    void failedAttemptIsRetriedWithFreshIds() throws InterruptedException {
+        Trade trade = trade(1);
+        when(tradeRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> {
+                    trade.setId(99L);
+                    throw new DataAccessResourceFailureException("down");
+                })
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        start(true);
+
+        ledger.record(trade, transaction(1));
+        ledger.flush();
+
+        verify(tradeRepository, times(2)).saveAll(anyList());
+        assertThat(trade.getId()).isNull();
+        assertThat(directory.resolve("dead-letter.tsv")).doesNotExist();
+    }
+
+    @Test
+    void batchIsDeadLetteredAfterTheLastAttempt() throws Exception {
+        when(tradeRepository.saveAll(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+        start(true);
+
+        ledger.record(List.of(trade(1), trade(2)), List.of(transaction(1), transaction(2)));
+        ledger.flush();
+
+        verify(tradeRepository, times(3)).saveAll(anyList());
+        List<String> lines = Files.readAllLines(directory.resolve("dead-letter.tsv"));
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).startsWith("7\tTCS\tBUY\t1\t100.00\t");
+        assertThat(lines.get(1).split("\t")).hasSize(12).contains("TRADE_BUY", "200.00");
+    }
+
+    private void start(boolean writeBehind) {
+        ReflectionTestUtils.setField(ledger, "tradeRepository", tradeRepository);
+        ReflectionTestUtils.setField(ledger, "transactionRepository", transactionRepository);
+        ReflectionTestUtils.setField(ledger, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(ledger, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ledger, "writeBehind", writeBehind);
+        ReflectionTestUtils.setField(ledger, "batchSize", 10);
+        ReflectionTestUtils.setField(ledger, "flushIntervalMs", 5L);
+        ReflectionTestUtils.setField(ledger, "capacity", 100);
+        ReflectionTestUtils.setField(ledger, "maxAttempts", 3);
+        ReflectionTestUtils.setField(ledger, "deadLetterFile", directory.resolve("dead-letter.tsv"));
+        ledger.start();
+    }
+
+    private static Trade trade(int quantity) {
+        User user = new User();
+        user.setId(7L);
+        Trade trade = new Trade();
+        trade.setUser(user);
+        trade.setStockSymbol("TCS");
+        trade.setType(Trade.TradeType.BUY);
+        trade.setQuantity(quantity);
+        trade.setPrice(new BigDecimal("100.00"));
+        return trade;
+    }
+
+    private static Transaction transaction(int quantity) {
+        Wallet wallet = new Wallet();
+        wallet.setId(3L);
+        Transaction transaction = new Transaction();
+        transaction.setWallet(wallet);
+        transaction.setType(Transaction.TransactionType.TRADE_BUY);
+        transaction.setAmount(new BigDecimal("100.00").multiply(BigDecimal.valueOf(quantity)));
+        transaction.setBalanceAfter(BigDecimal.ZERO);
+        transaction.setDescription("Bought " + quantity + " TCS shares");
+        return transaction;
+    }
+}
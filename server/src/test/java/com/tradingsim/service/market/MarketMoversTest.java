@@ -0,0 +1,125 @@
+package com.tradingsim.service.market;
+
+import com.tradingsim.model.Stock;
+import com.tradingsim.repository.StockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MarketMoversTest {
+
+    @Test
+    void quotesLoadedBeforeStartAreRanked() {
+        QuoteStore quoteStore = store(stock(1L, "TCS", "3600.00", "3500.00", 500),
+                stock(2L, "INFY", "1400.00", "1500.00", 900),
+                stock(3L, "WIPRO", "450.00", "450.00", 0));
+
+        MarketMovers movers = movers(quoteStore);
+
+        assertThat(symbols(movers.topGainers(10))).containsExactly("TCS");
+        assertThat(symbols(movers.topLosers(10))).containsExactly("INFY");
+        assertThat(symbols(movers.mostActive(10))).containsExactly("INFY", "TCS");
+    }
+
+    @Test
+    void ticksMoveRankings() {
+        QuoteStore quoteStore = store(stock(1L, "TCS", "3500.00", "3500.00", 0),
+                stock(2L, "INFY", "1500.00", "1500.00", 0));
+        MarketMovers movers = movers(quoteStore);
+        assertThat(movers.topGainers(10)).isEmpty();
+
+        movers.onQuote(quoteStore.tick(quoteStore.idOf("TCS"), 3_535_00, 10));
+        movers.onQuote(quoteStore.tick(quoteStore.idOf("INFY"), 1_530_00, 5));
+        assertThat(symbols(movers.topGainers(10))).containsExactly("INFY", "TCS");
+
+        Quote older = quoteStore.tick(quoteStore.idOf("INFY"), 1_501_00, 5);
+        movers.onQuote(quoteStore.tick(quoteStore.idOf("INFY"), 1_400_00, 5));
+        // Arrives late, after the newer quote was applied
+        movers.onQuote(older);
+
+        assertThat(symbols(movers.topGainers(10))).containsExactly("TCS");
+        assertThat(symbols(movers.topLosers(10))).containsExactly("INFY");
+        assertThat(symbols(movers.mostActive(1))).containsExactly("INFY");
+    }
+
+    @Test
+    void sessionOpenRanksFromTheNewPreviousClose() {
+        QuoteStore quoteStore = store(stock(1L, "TCS", "3600.00", "3500.00", 500));
+        MarketMovers movers = movers(quoteStore);
+
+        quoteStore.openSession();
+        movers.onSessionOpen();
+
+        assertThat(movers.topGainers(10)).isEmpty();
+        assertThat(movers.mostActive(10)).isEmpty();
+    }
+
+    @Test
+    void rankingsMatchAFullSortOfTheMarket() {
+        Random random = new Random(29);
+        List<Stock> stocks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            stocks.add(stock((long) i + 1, "S" + i, "100.00", "100.00", 0));
+        }
+        QuoteStore quoteStore = store(stocks.toArray(new Stock[0]));
+        MarketMovers movers = movers(quoteStore);
+
+        for (int i = 0; i < 5_000; i++) {
+            int id = random.nextInt(200);
+            movers.onQuote(quoteStore.tick(id, 90_00 + random.nextInt(20_00), random.nextInt(100)));
+        }
+
+        List<Quote> all = quoteStore.getAll();
+        Comparator<Quote> byId = Comparator.comparingInt(Quote::id);
+        assertThat(movers.topGainers(50)).extracting(Quote::symbol).containsExactlyElementsOf(all.stream()
+                .filter(quote -> quote.changePaise() > 0)
+                .sorted(Comparator.comparingLong(MarketMoversTest::change).reversed().thenComparing(byId))
+                .limit(50).map(Quote::symbol).toList());
+        assertThat(movers.topLosers(50)).extracting(Quote::symbol).containsExactlyElementsOf(all.stream()
+                .filter(quote -> quote.changePaise() < 0)
+                .sorted(Comparator.comparingLong(MarketMoversTest::change).thenComparing(byId))
+                .limit(50).map(Quote::symbol).toList());
+        assertThat(movers.mostActive(50)).extracting(Quote::symbol).containsExactlyElementsOf(all.stream()
+                .filter(quote -> quote.volume() > 0)
+                .sorted(Comparator.comparingLong(Quote::volume).reversed().thenComparing(byId))
+                .limit(50).map(Quote::symbol).toList());
+    }
+
+    private static long change(Quote quote) {
+        return quote.changePaise() * 1_000_000 / quote.previousClosePaise();
+    }
+
+    private static QuoteStore store(Stock... stocks) {
+        return QuoteStoreTest.quoteStore(mock(StockRepository.class), mock(JdbcTemplate.class), stocks);
+    }
+
+    private static MarketMovers movers(QuoteStore quoteStore) {
+        MarketMovers movers = new MarketMovers();
+        ReflectionTestUtils.setField(movers, "capacity", 512);
+        ReflectionTestUtils.setField(movers, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(movers, "meterRegistry", new SimpleMeterRegistry());
+        movers.start();
+        return movers;
+    }
+
+    private static Stock stock(Long id, String symbol, String price, String previousClose, long volume) {
+        Stock stock = QuoteStoreTest.stock(id, symbol, price);
+        stock.setPreviousClose(new BigDecimal(previousClose));
+        stock.setVolume(volume);
+        return stock;
+    }
+
+    private static List<String> symbols(List<Quote> quotes) {
+        return quotes.stream().map(Quote::symbol).toList();
+    }
+}
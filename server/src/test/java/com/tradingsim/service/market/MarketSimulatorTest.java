@@ -0,0 +1,132 @@
+package com.tradingsim.service.market;
+
+import com.tradingsim.repository.StockRepository;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static com.tradingsim.service.market.QuoteStoreTest.stock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MarketSimulatorTest {
+
+    private final StockRepository stockRepository = mock(StockRepository.class);
+    private final MarketSimulatorProperties properties = new MarketSimulatorProperties();
+    private QuoteStore quoteStore;
+    private MarketSimulator simulator;
+
+    @BeforeEach
+    void setUp() {
+        quoteStore = QuoteStoreTest.quoteStore(stockRepository, mock(JdbcTemplate.class),
+                stock(1L, "TCS", "100000.00"), stock(2L, "FLAT", "500.00"));
+        MarketSimulatorProperties.Model flat = new MarketSimulatorProperties.Model();
+        flat.setVolatility(0.0);
+        flat.setDrift(0.0);
+        properties.getSymbols().put("FLAT", flat);
+
+        simulator = new MarketSimulator();
+        ReflectionTestUtils.setField(simulator, "properties", properties);
+        ReflectionTestUtils.setField(simulator, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(simulator, "meterRegistry", new SimpleMeterRegistry());
+        simulator.start();
+    }
+
+    @Test
+    void pricesMoveOnTheTickGridAndTradeVolume() {
+        for (int i = 0; i < 100; i++) {
+            simulator.tick();
+        }
+
+        Quote quote = quoteStore.get(quoteStore.idOf("TCS"));
+        assertThat(quote.pricePaise() % 5).isZero();
+        assertThat(quote.pricePaise()).isNotEqualTo(100_000_00);
+        assertThat(quote.highPaise()).isGreaterThanOrEqualTo(quote.pricePaise());
+        assertThat(quote.lowPaise()).isLessThanOrEqualTo(quote.pricePaise());
+        assertThat(quote.volume()).isPositive();
+    }
+
+    @Test
+    void perSymbolModelOverridesTheDefaults() {
+        for (int i = 0; i < 100; i++) {
+            simulator.tick();
+        }
+
+        assertThat(quoteStore.get(quoteStore.idOf("FLAT")).pricePaise()).isEqualTo(500_00);
+    }
+
+    @Test
+    void logReturnsMatchTheConfiguredModel() {
+        // One simulated trading day per tick so each step is large enough to measure
+        properties.setTimeScale(6.25 * 3600 * 10);
+        properties.setVolatility(0.4);
+        properties.setDrift(0.1);
+        int id = quoteStore.idOf("TCS");
+        int steps = 20_000;
+
+        double sum = 0;
+        double sumOfSquares = 0;
+        double previous = quoteStore.get(id).pricePaise();
+        for (int i = 0; i < steps; i++) {
+            simulator.tick();
+            double price = quoteStore.get(id).pricePaise();
+            double logReturn = Math.log(price / previous);
+            sum += logReturn;
+            sumOfSquares += logReturn * logReturn;
+            previous = price;
+        }
+
+        double dt = 1.0 / 252;
+        double mean = sum / steps;
+        double variance = sumOfSquares / steps - mean * mean;
+        assertThat(variance / dt).isCloseTo(0.4 * 0.4, within(0.01));
+        // The drift is small against the noise, so only check its order of magnitude
+        assertThat(mean / dt).isCloseTo(0.1 - 0.4 * 0.4 / 2, within(0.3));
+    }
+
+    @Test
+    void pricesOnlyMoveDuringTheSession() {
+        // Monday 2026-10-19 and Saturday 2026-10-17, market time
+        assertThat(simulator.inSession(at("2026-10-19T09:14:59"))).isFalse();
+        assertThat(simulator.inSession(at("2026-10-19T09:15:00"))).isTrue();
+        assertThat(simulator.inSession(at("2026-10-19T15:29:59"))).isTrue();
+        assertThat(simulator.inSession(at("2026-10-19T15:30:00"))).isFalse();
+        assertThat(simulator.inSession(at("2026-10-17T11:00:00"))).isFalse();
+
+        properties.setSessionOpen(properties.getSessionClose());
+        simulator.tickDuringSession();
+        assertThat(quoteStore.get(quoteStore.idOf("TCS")).volume()).isZero();
+
+        properties.setAroundTheClock(true);
+        simulator.tickDuringSession();
+        assertThat(quoteStore.get(quoteStore.idOf("TCS")).volume()).isPositive();
+    }
+
+    @Test
+    void symbolsListedLaterJoinTheWalk() {
+        simulator.tick();
+        when(stockRepository.findByIdGreaterThan(anyLong())).thenReturn(List.of(stock(3L, "WIPRO", "450.00")));
+        quoteStore.registerNewListings();
+        int id = quoteStore.idOf("WIPRO");
+
+        for (int i = 0; i < 100; i++) {
+            simulator.tick();
+        }
+
+        assertThat(quoteStore.get(id).volume()).isPositive();
+    }
+
+    private static ZonedDateTime at(String localTime) {
+        return LocalDateTime.parse(localTime).atZone(CandleAggregator.MARKET_ZONE);
+    }
+}
@@ -0,0 +1,180 @@
+package com.tradingsim.service.market;
+
+import com.tradingsim.model.Stock;
+import com.tradingsim.repository.StockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuoteStoreTest {
+
+    private final StockRepository stockRepository = mock(StockRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private QuoteStore quoteStore;
+
+    @BeforeEach
+    void setUp() {
+        quoteStore = quoteStore(stockRepository, jdbcTemplate, stock(1L, "TCS", "3500.00"), stock(2L, "INFY", "1500.00"));
+    }
+
+    @Test
+    void tickMovesPriceRangeAndVolume() {
+        int id = quoteStore.idOf("TCS");
+
+        quoteStore.tick(id, 3_600_00, 10);
+        Quote quote = quoteStore.tick(id, 3_400_00, 5);
+
+        assertThat(quote.pricePaise()).isEqualTo(3_400_00);
+        assertThat(quote.openPaise()).isEqualTo(3_600_00);
+        assertThat(quote.highPaise()).isEqualTo(3_600_00);
+        assertThat(quote.lowPaise()).isEqualTo(3_400_00);
+        assertThat(quote.volume()).isEqualTo(15);
+        assertThat(quoteStore.findBySymbol("TCS").orElseThrow().getCurrentPrice()).isEqualByComparingTo("3400.00");
+    }
+
+    @Test
+    void changedSinceReturnsOnlyNewerQuotes() {
+        long before = quoteStore.sequence();
+        quoteStore.tick(quoteStore.idOf("INFY"), 1_510_00, 1);
+
+        assertThat(quoteStore.changedSince(before)).extracting(Quote::symbol).containsExactly("INFY");
+        assertThat(quoteStore.changedSince(quoteStore.sequence())).isEmpty();
+    }
+
+    @Test
+    void unknownSymbolNeverQueriesTheDatabase() {
+        assertThat(quoteStore.idOf("NONE")).isEqualTo(-1);
+        assertThat(quoteStore.get("NONE")).isEmpty();
+
+        verify(stockRepository, never()).findBySymbol(anyString());
+    }
+
+    @Test
+    void newListingsAreRegisteredOnRefresh() {
+        when(stockRepository.findByIdGreaterThan(2L)).thenReturn(List.of(stock(3L, "WIPRO", "450.00")));
+        assertThat(quoteStore.idOf("WIPRO")).isEqualTo(-1);
+
+        quoteStore.registerNewListings();
+
+        assertThat(quoteStore.idOf("WIPRO")).isEqualTo(2);
+        assertThat(quoteStore.get(2).pricePaise()).isEqualTo(450_00);
+        assertThat(quoteStore.size()).isEqualTo(3);
+
+        // The next refresh only asks for stocks listed after it
+        quoteStore.registerNewListings();
+        verify(stockRepository).findByIdGreaterThan(3L);
+    }
+
+    @Test
+    void openSessionRollsTheCloseAndResetsTheDay() {
+        int id = quoteStore.idOf("TCS");
+        quoteStore.tick(id, 3_600_00, 10);
+
+        quoteStore.openSession();
+
+        Quote quote = quoteStore.get(id);
+        assertThat(quote.previousClosePaise()).isEqualTo(3_600_00);
+        assertThat(quote.openPaise()).isZero();
+        assertThat(quote.volume()).isZero();
+        assertThat(quoteStore.tick(id, 3_610_00, 1).openPaise()).isEqualTo(3_610_00);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writeBackWritesOnlyChangedQuotes() {
+        quoteStore.writeBack();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        quoteStore.tick(quoteStore.idOf("TCS"), 3_550_00, 1);
+        quoteStore.writeBack();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertThat(rows.getValue()).hasSize(1);
+        assertThat(rows.getValue().get(0)[0]).isEqualTo(new BigDecimal("3550.00"));
+        assertThat(rows.getValue().get(0)[7]).isEqualTo(1L);
+
+        clearInvocations(jdbcTemplate);
+        quoteStore.writeBack();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void readersNeverSeeAHalfAppliedTick() throws InterruptedException {
+        int id = quoteStore.idOf("TCS");
+        quoteStore.openSession();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Quote> torn = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            // Every tick is one share at a price that encodes the tick count
+            for (long n = 1; n <= 200_000; n++) {
+                quoteStore.tick(id, 1_000_00 + n, 1);
+            }
+            running.set(false);
+        });
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                Quote quote = quoteStore.get(id);
+                if (quote.volume() > 0 && (quote.pricePaise() - 1_000_00 != quote.volume()
+                        || quote.highPaise() != quote.pricePaise() || quote.openPaise() != 1_000_01)) {
+                    torn.compareAndSet(null, quote);
+                }
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+
+        assertThat(torn.get()).isNull();
+        assertThat(quoteStore.get(id).volume()).isEqualTo(200_000);
+    }
+
+    /**
+     * A loaded store over the given stocks, without listeners.
+     */
+    @SuppressWarnings("unchecked")
+    static QuoteStore quoteStore(StockRepository stockRepository, JdbcTemplate jdbcTemplate, Stock... stocks) {
+        when(stockRepository.findAll()).thenReturn(List.of(stocks));
+        ObjectProvider<QuoteListener> listenerProvider = mock(ObjectProvider.class);
+        when(listenerProvider.orderedStream()).thenAnswer(invocation -> Stream.empty());
+
+        QuoteStore quoteStore = new QuoteStore();
+        ReflectionTestUtils.setField(quoteStore, "capacity", Math.max(16, stocks.length * 2));
+        ReflectionTestUtils.setField(quoteStore, "stockRepository", stockRepository);
+        ReflectionTestUtils.setField(quoteStore, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(quoteStore, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(quoteStore, "listenerProvider", listenerProvider);
+        quoteStore.load();
+        return quoteStore;
+    }
+
+    static Stock stock(Long id, String symbol, String price) {
+        Stock stock = new Stock();
+        stock.setId(id);
+        stock.setSymbol(symbol);
+        stock.setName(symbol);
+        stock.setCurrentPrice(new BigDecimal(price));
+        return stock;
+    }
+}
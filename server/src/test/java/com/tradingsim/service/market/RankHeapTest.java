@@ -0,0 +1,76 @@
+package com.tradingsim.service.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankHeapTest {
+
+    @Test
+    void topMatchesAFullSortThroughSetsAndRemoves() {
+        Random random = new Random(23);
+        RankHeap heap = new RankHeap(500);
+        Map<Integer, Long> keys = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(500);
+            if (random.nextInt(10) == 0) {
+                heap.remove(id);
+                keys.remove(id);
+            } else {
+                // A narrow key range makes ties common
+                long key = random.nextInt(200) - 50;
+                heap.set(id, key);
+                keys.put(id, key);
+            }
+            if (step % 50 == 0) {
+                int limit = 1 + random.nextInt(60);
+                long floor = random.nextInt(3) - 1;
+                assertThat(heap.top(limit, floor)).as("step %d", step).containsExactly(sorted(keys, limit, floor));
+                assertThat(heap.size()).isEqualTo(keys.size());
+            }
+        }
+    }
+
+    @Test
+    void tiesGoToTheLowerId() {
+        RankHeap heap = new RankHeap(8);
+        heap.set(5, 10);
+        heap.set(2, 10);
+        heap.set(7, 20);
+        heap.set(0, 10);
+
+        assertThat(heap.top(10, 0)).containsExactly(7, 0, 2, 5);
+        heap.set(7, 10);
+        assertThat(heap.top(2, 0)).containsExactly(0, 2);
+    }
+
+    @Test
+    void keysAtOrBelowTheFloorAreLeftOut() {
+        RankHeap heap = new RankHeap(4);
+        heap.set(0, 3);
+        heap.set(1, 0);
+        heap.set(2, -4);
+
+        assertThat(heap.top(4, 0)).containsExactly(0);
+        heap.remove(0);
+        assertThat(heap.top(4, 0)).isEmpty();
+        assertThat(heap.top(4, Long.MIN_VALUE)).containsExactly(1, 2);
+    }
+
+    private static int[] sorted(Map<Integer, Long> keys, int limit, long floor) {
+        return keys.entrySet().stream()
+                .filter(entry -> entry.getValue() > floor)
+                .sorted(Map.Entry.<Integer, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+}
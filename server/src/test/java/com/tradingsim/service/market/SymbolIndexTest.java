@@ -0,0 +1,153 @@
+package com.tradingsim.service.market;
+
+import com.tradingsim.model.Stock;
+import com.tradingsim.repository.StockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SymbolIndexTest {
+
+    private final StockRepository stockRepository = mock(StockRepository.class);
+
+    @Test
+    void matchesAreRankedBySymbolThenNameThenWordThenInfix() {
+        QuoteStore quoteStore = store(
+                stock(1L, "TCS", "Tata Consultancy Services"),
+                stock(2L, "TATAMOTORS", "Tata Motors"),
+                stock(3L, "TATASTEEL", "Tata Steel"),
+                stock(4L, "HEROMOTOCO", "Hero MotoCorp"),
+                stock(5L, "M&M", "Mahindra & Mahindra"));
+        quoteStore.tick(quoteStore.idOf("TATASTEEL"), 150_00, 900);
+        quoteStore.tick(quoteStore.idOf("TATAMOTORS"), 900_00, 100);
+        SymbolIndex index = index(quoteStore);
+
+        assertThat(symbols(index.search("tata", 10))).containsExactly("TATASTEEL", "TATAMOTORS", "TCS");
+        assertThat(symbols(index.search(" TCS ", 10))).containsExactly("TCS");
+        assertThat(symbols(index.search("moto", 10))).containsExactly("TATAMOTORS", "HEROMOTOCO");
+        assertThat(symbols(index.search("sultan", 10))).containsExactly("TCS");
+        assertThat(symbols(index.search("m&", 10))).containsExactly("M&M");
+        assertThat(symbols(index.search("tata", 2))).containsExactly("TATASTEEL", "TATAMOTORS");
+        assertThat(index.search("", 10)).isEmpty();
+        assertThat(index.search("tata", 0)).isEmpty();
+    }
+
+    @Test
+    void stocksListedLaterAreFound() {
+        QuoteStore quoteStore = store(stock(1L, "TCS", "Tata Consultancy Services"));
+        SymbolIndex index = index(quoteStore);
+        assertThat(index.search("in", 10)).isEmpty();
+
+        when(stockRepository.findByIdGreaterThan(1L)).thenReturn(List.of(stock(2L, "INFY", "Infosys")));
+        quoteStore.registerNewListings();
+
+        assertThat(symbols(index.search("in", 10))).containsExactly("INFY");
+        assertThat(symbols(index.search("fosy", 10))).containsExactly("INFY");
+        assertThat(symbols(index.search("tata", 10))).containsExactly("TCS");
+    }
+
+    @Test
+    void searchMatchesANaiveScanOfEveryStock() {
+        Random random = new Random(17);
+        Map<String, String> names = new LinkedHashMap<>();
+        while (names.size() < 300) {
+            StringBuilder name = new StringBuilder(word(random));
+            for (int w = random.nextInt(3); w > 0; w--) {
+                name.append(' ').append(word(random));
+            }
+            names.putIfAbsent(word(random).toUpperCase(Locale.ROOT), name.toString());
+        }
+        List<Stock> stocks = new ArrayList<>();
+        names.forEach((symbol, name) -> stocks.add(stock((long) stocks.size() + 1, symbol, name)));
+        // Listed in two batches so the merged snapshot is checked too
+        QuoteStore quoteStore = store(stocks.subList(0, 200).toArray(new Stock[0]));
+        SymbolIndex index = index(quoteStore);
+        index.search("a", 1);
+        when(stockRepository.findByIdGreaterThan(200L)).thenReturn(stocks.subList(200, stocks.size()));
+        quoteStore.registerNewListings();
+        for (Stock stock : stocks) {
+            quoteStore.tick(quoteStore.idOf(stock.getSymbol()), 100_00, random.nextInt(5));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            String word = word(random);
+            String query = word.substring(0, Math.min(word.length(), 1 + random.nextInt(4)));
+            int limit = 1 + random.nextInt(15);
+            assertThat(symbols(index.search(query, limit))).as("%s limit %d", query, limit)
+                    .isEqualTo(naive(quoteStore, stocks, query, limit));
+        }
+    }
+
+    private static List<String> naive(QuoteStore quoteStore, List<Stock> stocks, String query, int limit) {
+        record Ranked(String symbol, int rank, long volume) {
+        }
+        List<Ranked> ranked = new ArrayList<>();
+        for (Stock stock : stocks) {
+            String symbol = stock.getSymbol().toLowerCase(Locale.ROOT);
+            String name = stock.getName().toLowerCase(Locale.ROOT);
+            List<String> words = List.of(name.split("[^a-z0-9&]+"));
+            int rank;
+            if (symbol.equals(query)) {
+                rank = 0;
+            } else if (symbol.startsWith(query)) {
+                rank = 1;
+            } else if (name.startsWith(query)) {
+                rank = 2;
+            } else if (words.subList(1, words.size()).stream().anyMatch(word -> word.startsWith(query))) {
+                rank = 3;
+            } else if (query.length() >= 3 && name.contains(query)) {
+                rank = 4;
+            } else {
+                continue;
+            }
+            ranked.add(new Ranked(stock.getSymbol(), rank, quoteStore.get(stock.getSymbol()).orElseThrow().volume()));
+        }
+        return ranked.stream()
+                .sorted(Comparator.comparingInt(Ranked::rank)
+                        .thenComparing(Comparator.comparingLong(Ranked::volume).reversed())
+                        .thenComparing(Ranked::symbol))
+                .limit(limit)
+                .map(Ranked::symbol)
+                .toList();
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int n = 2 + random.nextInt(5); n > 0; n--) {
+            word.append((char) ('a' + random.nextInt(5)));
+        }
+        return word.toString();
+    }
+
+    private QuoteStore store(Stock... stocks) {
+        return QuoteStoreTest.quoteStore(stockRepository, mock(JdbcTemplate.class), stocks);
+    }
+
+    private static SymbolIndex index(QuoteStore quoteStore) {
+        SymbolIndex index = new SymbolIndex();
+        ReflectionTestUtils.setField(index, "quoteStore", quoteStore);
+        return index;
+    }
+
+    private static Stock stock(Long id, String symbol, String name) {
+        Stock stock = QuoteStoreTest.stock(id, symbol, "100.00");
+        stock.setName(name);
+        return stock;
+    }
+
+    private static List<String> symbols(List<Quote> quotes) {
+        return quotes.stream().map(Quote::symbol).toList();
+    }
+}
@@ -0,0 +1,179 @@
+package com.tradingsim.service.market.candles;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.repository.CandleRepository;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.history.HistoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CandleAggregatorTest {
+
+    private static final long DAY = 86_400_000L;
+
+    private final CandleRepository candleRepository = mock(CandleRepository.class);
+    private JdbcTemplate jdbcTemplate;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("create table candles (id bigint auto_increment primary key, stock_symbol varchar(20), " +
+                "bar_interval varchar(8), open_time timestamp, open decimal(15,2), high decimal(15,2), " +
+                "low decimal(15,2), close_price decimal(15,2), volume bigint, " +
+                "unique (stock_symbol, bar_interval, open_time))");
+        when(candleRepository.findByOpenTimeGreaterThanEqual(any())).thenAnswer(invocation -> stored());
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    void volumeBeforeTheFirstQuoteIsNotCounted() {
+        CandleAggregator aggregator = aggregator();
+
+        aggregator.onQuote(quote(100_00, 5_000, now));
+        aggregator.onQuote(quote(101_00, 5_120, now));
+
+        assertThat(aggregator.current("TCS", Candle.Interval.D1).orElseThrow().volume()).isEqualTo(120);
+    }
+
+    @Test
+    void newSessionVolumeStartsOver() {
+        CandleAggregator aggregator = aggregator();
+        aggregator.onQuote(quote(100_00, 5_000, now - DAY));
+        aggregator.onQuote(quote(101_00, 5_100, now - DAY));
+
+        aggregator.onQuote(quote(102_00, 30, now));
+
+        assertThat(aggregator.current("TCS", Candle.Interval.D1).orElseThrow().volume()).isEqualTo(30);
+        aggregator.flush();
+        assertThat(storedVolume(Candle.Interval.D1)).containsExactly(100L);
+    }
+
+    @Test
+    void writingABarAgainChangesNothing() throws Exception {
+        CandleAggregator aggregator = aggregator();
+        Bar bar = new Bar("TCS", Candle.Interval.D1, Candle.Interval.D1.bucket(now, CandleAggregator.MARKET_OFFSET_MILLIS),
+                100_00, 105_00, 99_00, 104_00, 700);
+
+        aggregator.save(List.of(bar));
+        aggregator.save(List.of(bar));
+
+        assertThat(storedVolume(Candle.Interval.D1)).containsExactly(700L);
+        assertThat(stored().get(0).getHigh()).isEqualByComparingTo("105.00");
+    }
+
+    @Test
+    void barFormingAtShutdownIsContinuedAfterRestart() {
+        CandleAggregator before = aggregator();
+        before.onQuote(quote(100_00, 1_000, now));
+        before.onQuote(quote(110_00, 1_300, now));
+        before.stop();
+
+        CandleAggregator after = aggregator();
+        after.onQuote(quote(90_00, 1_300, now));
+        after.onQuote(quote(95_00, 1_500, now));
+        Bar bar = after.current("TCS", Candle.Interval.D1).orElseThrow();
+
+        assertThat(bar.open()).isEqualTo(100_00);
+        assertThat(bar.high()).isEqualTo(110_00);
+        assertThat(bar.low()).isEqualTo(90_00);
+        assertThat(bar.close()).isEqualTo(95_00);
+        assertThat(bar.volume()).isEqualTo(500);
+
+        after.stop();
+        assertThat(storedVolume(Candle.Interval.D1)).containsExactly(500L);
+    }
+
+    @Test
+    void storedBarsAreReadNewestFirstUpToWhatStillFits() throws Exception {
+        when(candleRepository.findByStockSymbolAndBarIntervalAndOpenTimeGreaterThanEqualAndOpenTimeLessThanOrderByOpenTimeDesc(
+                any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            List<Candle> newestFirst = stored().reversed();
+            return newestFirst.subList(0, Math.min(newestFirst.size(), ((Limit) invocation.getArgument(4)).max()));
+        });
+        CandleAggregator aggregator = aggregator();
+        ReflectionTestUtils.setField(aggregator, "maxBars", 5);
+        List<Bar> days = new ArrayList<>();
+        for (int day = 25; day > 5; day--) {
+            long openTime = Candle.Interval.D1.bucket(now - day * DAY, CandleAggregator.MARKET_OFFSET_MILLIS);
+            days.add(new Bar("TCS", Candle.Interval.D1, openTime, 100_00, 100_00, 100_00, 100_00 + day, day));
+        }
+        aggregator.save(days);
+        aggregator.onQuote(quote(100_00, 5_000, now));
+
+        List<Bar> bars = aggregator.getCandles("TCS", Candle.Interval.D1, 0, now + DAY);
+
+        verify(candleRepository).findByStockSymbolAndBarIntervalAndOpenTimeGreaterThanEqualAndOpenTimeLessThanOrderByOpenTimeDesc(
+                eq("TCS"), eq(Candle.Interval.D1), any(), any(), eq(Limit.of(4)));
+        assertThat(bars).hasSize(5);
+        assertThat(bars.subList(0, 4)).extracting(Bar::openTime).containsExactlyElementsOf(
+                days.subList(16, 20).stream().map(Bar::openTime).toList());
+        assertThat(bars.get(4).openTime()).isEqualTo(Candle.Interval.D1.bucket(now, CandleAggregator.MARKET_OFFSET_MILLIS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private CandleAggregator aggregator() {
+        QuoteStore quoteStore = mock(QuoteStore.class);
+        when(quoteStore.idOf("TCS")).thenReturn(0);
+        HistoryStore historyStore = mock(HistoryStore.class);
+        ObjectProvider<BarListener> barListenerProvider = mock(ObjectProvider.class);
+        when(barListenerProvider.orderedStream()).thenAnswer(invocation -> Stream.empty());
+
+        CandleAggregator aggregator = new CandleAggregator();
+        ReflectionTestUtils.setField(aggregator, "capacity", 16);
+        ReflectionTestUtils.setField(aggregator, "ringSize", 8);
+        ReflectionTestUtils.setField(aggregator, "maxBars", 100);
+        ReflectionTestUtils.setField(aggregator, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(aggregator, "candleRepository", candleRepository);
+        ReflectionTestUtils.setField(aggregator, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(aggregator, "historyStore", historyStore);
+        ReflectionTestUtils.setField(aggregator, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(aggregator, "barListenerProvider", barListenerProvider);
+        aggregator.start();
+        return aggregator;
+    }
+
+    private List<Candle> stored() {
+        return jdbcTemplate.query("select * from candles order by open_time", (rs, row) -> {
+            Candle candle = new Candle();
+            candle.setStockSymbol(rs.getString("stock_symbol"));
+            candle.setBarInterval(Candle.Interval.valueOf(rs.getString("bar_interval")));
+            candle.setOpenTime(rs.getTimestamp("open_time").toLocalDateTime());
+            candle.setOpen(rs.getBigDecimal("open"));
+            candle.setHigh(rs.getBigDecimal("high"));
+            candle.setLow(rs.getBigDecimal("low"));
+            candle.setClose(rs.getBigDecimal("close_price"));
+            candle.setVolume(rs.getLong("volume"));
+            return candle;
+        });
+    }
+
+    private List<Long> storedVolume(Candle.Interval interval) {
+        return jdbcTemplate.queryForList("select volume from candles where bar_interval = ? order by open_time",
+                Long.class, interval.name());
+    }
+
+    private static Quote quote(long pricePaise, long volume, long at) {
+        return new Quote(0, 1L, "TCS", "TCS", pricePaise, 0, 0, 0, 0, volume, at, 0);
+    }
+}
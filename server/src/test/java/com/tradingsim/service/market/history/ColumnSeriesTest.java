@@ -0,0 +1,109 @@
+package com.tradingsim.service.market.history;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnSeriesTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rangeReadsMatchAFullScanAcrossSegments() throws Exception {
+        ColumnSeries series = new ColumnSeries(directory, 2, 4, 2);
+        // Repeated timestamps, some straddling a segment boundary
+        long[] times = {10, 10, 20, 30, 30, 30, 40, 50, 60, 60, 70, 80, 90, 100, 100, 110, 120, 130};
+        for (int i = 0; i < times.length; i++) {
+            assertThat(series.append(times[i], i)).isTrue();
+        }
+
+        for (long time = 0; time <= 140; time += 5) {
+            long expected = times.length;
+            for (int i = times.length - 1; i >= 0; i--) {
+                if (times[i] >= time) {
+                    expected = i;
+                }
+            }
+            assertThat(series.lowerBound(time)).as("lower bound of %d", time).isEqualTo(expected);
+        }
+
+        List<Long> values = new ArrayList<>();
+        long visited = series.scan(30, 100, (s, row) -> values.add(s.get(row, 1)));
+        assertThat(values).containsExactly(3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L);
+        assertThat(visited).isEqualTo(10);
+    }
+
+    @Test
+    void olderSegmentsStayWithinTheMappedLimit() throws Exception {
+        ColumnSeries series = new ColumnSeries(directory, 2, 4, 2);
+        for (int i = 1; i <= 40; i++) {
+            series.append(i, i * 10L);
+        }
+
+        long sum = 0;
+        for (long row = 0; row < series.size(); row++) {
+            sum += series.get(row, 1);
+        }
+
+        assertThat(sum).isEqualTo(10L * 40 * 41 / 2);
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(series, "readable")).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void reopeningContinuesAfterTheLastRow() throws Exception {
+        ColumnSeries series = new ColumnSeries(directory, 3, 4, 2);
+        for (int i = 1; i <= 10; i++) {
+            series.append(i * 100L, i, -i);
+        }
+        series.close();
+
+        ColumnSeries reopened = new ColumnSeries(directory, 3, 4, 2);
+        assertThat(reopened.size()).isEqualTo(10);
+        assertThat(reopened.append(1_100, 11, -11)).isTrue();
+        assertThat(reopened.append(1_000, 0, 0)).isFalse();
+
+        assertThat(reopened.size()).isEqualTo(11);
+        assertThat(reopened.get(2, 2)).isEqualTo(-3);
+        assertThat(reopened.lowerBound(550)).isEqualTo(5);
+        assertThat(reopened.time(10)).isEqualTo(1_100);
+    }
+
+    @Test
+    void anotherSegmentSizeIsRefused() throws Exception {
+        ColumnSeries series = new ColumnSeries(directory, 2, 4, 2);
+        for (int i = 1; i <= 6; i++) {
+            series.append(i, i);
+        }
+        series.close();
+
+        assertThatThrownBy(() -> new ColumnSeries(directory, 2, 8, 2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("4-row segments");
+    }
+
+    @Test
+    void seriesWithoutHeaderIsCheckedAgainstItsSegmentFiles() throws Exception {
+        ColumnSeries series = new ColumnSeries(directory, 2, 4, 2);
+        for (int i = 1; i <= 6; i++) {
+            series.append(i, i);
+        }
+        series.close();
+        Files.delete(directory.resolve("series.hdr"));
+
+        assertThatThrownBy(() -> new ColumnSeries(directory, 2, 8, 2)).isInstanceOf(IllegalStateException.class);
+
+        ColumnSeries reopened = new ColumnSeries(directory, 2, 4, 2);
+        assertThat(reopened.size()).isEqualTo(6);
+        assertThat(directory.resolve("series.hdr")).exists();
+    }
+}
@@ -0,0 +1,174 @@
+package com.tradingsim.service.market.history;
+
+import com.tradingsim.dto.response.ImportReport;
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HistoryImporterTest {
+
+    @TempDir
+    Path importDirectory;
+
+    @TempDir
+    Path historyDirectory;
+
+    private final CandleAggregator candleAggregator = mock(CandleAggregator.class);
+    private final HistoryStore historyStore = new HistoryStore();
+    private final HistoryImporter importer = new HistoryImporter();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(historyStore, "enabled", true);
+        ReflectionTestUtils.setField(historyStore, "directory", historyDirectory.toString());
+        ReflectionTestUtils.setField(historyStore, "segmentRows", 64);
+        ReflectionTestUtils.setField(historyStore, "mappedSegments", 2);
+        when(candleAggregator.save(any())).thenAnswer(invocation -> historyStore.appendBars(invocation.getArgument(0)));
+
+        QuoteStore quoteStore = mock(QuoteStore.class);
+        when(quoteStore.idOf(anyString())).thenReturn(-1);
+        when(quoteStore.idOf("TCS")).thenReturn(0);
+        when(quoteStore.idOf("INFY")).thenReturn(1);
+
+        ReflectionTestUtils.setField(importer, "directory", importDirectory.toString());
+        ReflectionTestUtils.setField(importer, "threads", 2);
+        ReflectionTestUtils.setField(importer, "batchSize", 2);
+        ReflectionTestUtils.setField(importer, "candleAggregator", candleAggregator);
+        ReflectionTestUtils.setField(importer, "quoteStore", quoteStore);
+    }
+
+    @Test
+    void csvRowsAreValidatedAndWrittenInBatches() throws Exception {
+        Files.writeString(importDirectory.resolve("TCS_1d.csv"), """
+                Date,Open,High,Low,Close,Volume
+                2024-01-01,100.00,105.50,99.00,104.00,1200
+                2024-01-02,104.00,106.00,103.00,105.25,900
+
+                2024-01-03,105.00,104.00,103.00,105.50,800
+                2024-01-04,abc,106.00,103.00,105.00,800
+                2024-01-05,"105.00","107.00","104.00","106.00","700"
+                2024-01-08,106.00,108.00,105.00,107.00,-5
+                2024-01-09,107.00,109.00,106.00,108.00,600
+                """);
+
+        ImportReport report = importer.importPaths(List.of("TCS_1d.csv"), Candle.Interval.D1);
+
+        assertThat(report.getRows()).isEqualTo(4);
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getFiles()).singleElement().satisfies(file -> {
+            assertThat(file.getSymbol()).isEqualTo("TCS");
+            assertThat(file.getError()).isNull();
+        });
+        verify(candleAggregator, times(2)).save(any());
+
+        List<Bar> bars = historyStore.bars("TCS", Candle.Interval.D1, 0, Long.MAX_VALUE, Integer.MAX_VALUE);
+        assertThat(bars).extracting(Bar::volume).containsExactly(1200L, 900L, 700L, 600L);
+        assertThat(bars.get(0)).isEqualTo(new Bar("TCS", Candle.Interval.D1, day("2024-01-01"),
+                100_00, 105_50, 99_00, 104_00, 1200));
+    }
+
+    @Test
+    void symbolColumnOverridesTheFileNameAndUnlistedSymbolsAreRejected() throws Exception {
+        Files.writeString(importDirectory.resolve("mixed.csv"), """
+                symbol,timestamp,open,high,low,close,volume
+                infy,2024-01-01T09:15:00,1500,1510,1495,1505,10
+                XYZ,2024-01-01T09:15:00,10,11,9,10,10
+                """);
+
+        ImportReport report = importer.importPaths(List.of("mixed.csv"), Candle.Interval.D1);
+
+        assertThat(report.getRows()).isEqualTo(1);
+        assertThat(report.getRejected()).isEqualTo(1);
+        assertThat(historyStore.bars("INFY", Candle.Interval.D1, 0, Long.MAX_VALUE, Integer.MAX_VALUE)).hasSize(1);
+    }
+
+    @Test
+    void reimportSkipsEveryStoredRow() throws Exception {
+        Path folder = Files.createDirectory(importDirectory.resolve("daily"));
+        Files.writeString(folder.resolve("TCS.csv"), """
+                date,open,high,low,close,volume
+                2024-01-01,100,101,99,100,10
+                2024-01-02,100,102,99,101,20
+                2024-01-03,101,103,100,102,30
+                """);
+        Files.writeString(folder.resolve("INFY.csv"), """
+                date,open,high,low,close,volume
+                2024-01-01,1500,1510,1490,1505,5
+                """);
+        Files.writeString(folder.resolve("notes.txt"), "not history");
+
+        ImportReport first = importer.importPaths(List.of("daily"), Candle.Interval.D1);
+        ImportReport second = importer.importPaths(List.of("daily"), Candle.Interval.D1);
+
+        assertThat(first.getFiles()).hasSize(2);
+        assertThat(first.getRows()).isEqualTo(4);
+        assertThat(second.getRows()).isZero();
+        assertThat(second.getSkipped()).isEqualTo(4);
+        assertThat(historyStore.bars("TCS", Candle.Interval.D1, 0, Long.MAX_VALUE, Integer.MAX_VALUE)).hasSize(3);
+    }
+
+    @Test
+    void historicalDataJsonIsReadNewestFirstAsFlatBars() throws Exception {
+        Files.writeString(importDirectory.resolve("TCS.json"), """
+                {"datasets": [
+                  {"metric": "Price", "label": "Price on NSE", "values": [
+                    ["2024-01-03", "3800.50"], ["2024-01-02", "3750"], ["bad", "1"], ["2024-01-01", "3700.25"]]},
+                  {"metric": "DMA50", "values": [["2024-01-03", "3600"]]},
+                  {"metric": "Volume", "values": [["2024-01-03", 2100, {"delivery": 40}], ["2024-01-01", 1500]]}
+                ]}
+                """);
+
+        ImportReport report = importer.importPaths(List.of("TCS.json"), Candle.Interval.D1);
+
+        assertThat(report.getRows()).isEqualTo(3);
+        assertThat(report.getRejected()).isEqualTo(1);
+        assertThat(historyStore.bars("TCS", Candle.Interval.D1, 0, Long.MAX_VALUE, Integer.MAX_VALUE)).containsExactly(
+                new Bar("TCS", Candle.Interval.D1, day("2024-01-01"), 3700_25, 3700_25, 3700_25, 3700_25, 1500),
+                new Bar("TCS", Candle.Interval.D1, day("2024-01-02"), 3750_00, 3750_00, 3750_00, 3750_00, 0),
+                new Bar("TCS", Candle.Interval.D1, day("2024-01-03"), 3800_50, 3800_50, 3800_50, 3800_50, 2100));
+    }
+
+    @Test
+    void badFileIsReportedWithoutFailingTheImport() throws Exception {
+        Files.writeString(importDirectory.resolve("TCS.csv"), "date,open,close\n2024-01-01,1,1\n");
+        Files.writeString(importDirectory.resolve("INFY.csv"), "date,open,high,low,close,volume\n2024-01-01,1,1,1,1,1\n");
+
+        ImportReport report = importer.importPaths(List.of("TCS.csv", "INFY.csv"), Candle.Interval.D1);
+
+        assertThat(report.getRows()).isEqualTo(1);
+        assertThat(report.getFiles()).extracting(ImportReport.FileResult::getError)
+                .containsExactly("CSV header needs date, open, high, low, close and volume columns", null);
+    }
+
+    @Test
+    void pathsOutsideTheImportDirectoryAreRefused() {
+        assertThatThrownBy(() -> importer.importPaths(List.of("../" + historyDirectory.getFileName()), Candle.Interval.D1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> importer.importPaths(List.of("missing.csv"), Candle.Interval.D1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long day(String date) {
+        return Candle.Interval.D1.bucket(LocalDate.parse(date).atStartOfDay(CandleAggregator.MARKET_ZONE)
+                .toInstant().toEpochMilli(), CandleAggregator.MARKET_OFFSET_MILLIS);
+    }
+}
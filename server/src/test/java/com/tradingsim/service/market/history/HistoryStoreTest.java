@@ -0,0 +1,97 @@
+package com.tradingsim.service.market.history;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.candles.Bar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final HistoryStore store = new HistoryStore();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        ReflectionTestUtils.setField(store, "segmentRows", 4);
+        ReflectionTestUtils.setField(store, "mappedSegments", 2);
+    }
+
+    @Test
+    void tickVolumeCountsOnlyWhatTradedAfterTheFirstQuote() {
+        store.onQuote(quote(1_000, 5_000));
+        store.onQuote(quote(2_000, 5_150));
+        store.onQuote(quote(3_000, 5_200));
+        // The next session's cumulative volume starts over
+        store.onQuote(quote(4_000, 40));
+
+        assertThat(volumes(store.ticks("TCS"))).containsExactly(0L, 150L, 50L, 40L);
+    }
+
+    @Test
+    void barsAtOrBeforeTheLastStoredOneAreSkipped() throws Exception {
+        Bar first = bar(60_000, 100);
+        Bar second = bar(120_000, 200);
+
+        assertThat(store.appendBars(List.of(first, second))).isEqualTo(2);
+        assertThat(store.appendBars(List.of(second, bar(90_000, 300), bar(180_000, 400)))).isEqualTo(1);
+
+        assertThat(store.bars("TCS", Candle.Interval.M1, 0, Long.MAX_VALUE, Integer.MAX_VALUE))
+                .extracting(Bar::openTime).containsExactly(60_000L, 120_000L, 180_000L);
+        assertThat(store.bars("TCS", Candle.Interval.M1, 100_000, 180_000, Integer.MAX_VALUE)).containsExactly(second);
+    }
+
+    @Test
+    void onlyTheNewestBarsOfTheRangeAreRead() throws Exception {
+        List<Bar> minutes = new ArrayList<>();
+        for (int minute = 1; minute <= 20; minute++) {
+            minutes.add(bar(minute * 60_000L, minute));
+        }
+        store.appendBars(minutes);
+
+        assertThat(store.bars("TCS", Candle.Interval.M1, 0, Long.MAX_VALUE, 3))
+                .extracting(Bar::volume).containsExactly(18L, 19L, 20L);
+        assertThat(store.bars("TCS", Candle.Interval.M1, 5 * 60_000L, 11 * 60_000L, 4))
+                .extracting(Bar::volume).containsExactly(7L, 8L, 9L, 10L);
+        assertThat(store.bars("TCS", Candle.Interval.M1, 5 * 60_000L, 8 * 60_000L, 10))
+                .extracting(Bar::volume).containsExactly(5L, 6L, 7L);
+        assertThat(store.bars("TCS", Candle.Interval.M1, 0, Long.MAX_VALUE, 0)).isEmpty();
+    }
+
+    @Test
+    void disabledStoreRecordsNothing() {
+        ReflectionTestUtils.setField(store, "enabled", false);
+
+        store.onQuote(quote(1_000, 5_000));
+
+        assertThat(store.ticks("TCS")).isNull();
+        assertThat(store.bars("TCS", Candle.Interval.M1, 0, Long.MAX_VALUE, Integer.MAX_VALUE)).isEmpty();
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    private static List<Long> volumes(ColumnSeries ticks) {
+        List<Long> volumes = new ArrayList<>();
+        ticks.scan(0, Long.MAX_VALUE, (series, row) -> volumes.add(series.get(row, HistoryStore.TICK_VOLUME)));
+        return volumes;
+    }
+
+    private static Quote quote(long at, long volume) {
+        return new Quote(0, 1L, "TCS", "TCS", 100_00, 0, 0, 0, 0, volume, at, 0);
+    }
+
+    private static Bar bar(long openTime, long volume) {
+        return new Bar("TCS", Candle.Interval.M1, openTime, 100_00, 101_00, 99_00, 100_50, volume);
+    }
+}
@@ -0,0 +1,196 @@
+package com.tradingsim.service.market.index;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.model.Stock;
+import com.tradingsim.repository.StockRepository;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteListener;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MarketIndicesTest {
+
+    private final CandleAggregator candleAggregator = mock(CandleAggregator.class);
+    private final MarketIndexProperties properties = new MarketIndexProperties();
+    private QuoteStore quoteStore;
+
+    @BeforeEach
+    void setUp() {
+        quoteStore = quoteStore(stock(1L, "TCS", "3000.00"), stock(2L, "INFY", "1500.00"),
+                stock(3L, "HDFCBANK", "1600.00"), stock(4L, "NOPRICE", "0.00"));
+        when(candleAggregator.getCandles(anyString(), eq(Candle.Interval.D1), anyLong(), anyLong())).thenReturn(List.of());
+    }
+
+    @Test
+    void weightsAreHeldAtThePreviousCloseAndANewIndexStartsAtTheBaseLevel() {
+        weights("IT", "TCS", 60.0, "INFY", 40.0);
+
+        IndexSnapshot snapshot = indices().get("IT").orElseThrow();
+
+        assertThat(snapshot.levelPaise()).isEqualTo(1000_00);
+        assertThat(snapshot.previousClosePaise()).isEqualTo(1000_00);
+        assertThat(snapshot.constituents()).extracting(IndexSnapshot.Constituent::symbol).containsExactly("TCS", "INFY");
+        assertThat(snapshot.constituents()[0].weightPercent()).isCloseTo(60, within(1e-9));
+        assertThat(snapshot.constituents()[1].weightPercent()).isCloseTo(40, within(1e-9));
+    }
+
+    @Test
+    void levelCarriesOnFromTheLastStoredDailyClose() {
+        weights("IT", "TCS", 60.0, "INFY", 40.0);
+        when(candleAggregator.getCandles(eq("IT"), eq(Candle.Interval.D1), anyLong(), anyLong()))
+                .thenReturn(List.of(new Bar("IT", Candle.Interval.D1, 0, 1_200_00, 1_250_00, 1_190_00, 1_234_56, 0)));
+        MarketIndices indices = indices();
+
+        // TCS is 60% of the index, so a 10% move lifts it 6%
+        indices.onQuote(quoteStore.tick(quoteStore.idOf("TCS"), 3_300_00, 1));
+
+        IndexSnapshot snapshot = indices.get("IT").orElseThrow();
+        assertThat(snapshot.previousClosePaise()).isEqualTo(1_234_56);
+        assertThat(snapshot.levelPaise()).isEqualTo(Math.round(1_234_56 * 1.06));
+        verify(candleAggregator).record(eq("IT"), anyLong(), eq(snapshot.levelPaise()));
+    }
+
+    @Test
+    void incrementalLevelsMatchAFullRecompute() {
+        shares("BIG", "TCS", 3_600_000L, "INFY", 4_100_000L, "HDFCBANK", 7_500_000L);
+        MarketIndices indices = indices();
+        long[] shares = {3_600_000L, 4_100_000L, 7_500_000L};
+        String[] symbols = {"TCS", "INFY", "HDFCBANK"};
+        long[] previousCloses = {3_000_00, 1_500_00, 1_600_00};
+        double divisor = 0;
+        for (int m = 0; m < 3; m++) {
+            divisor += (double) shares[m] * previousCloses[m];
+        }
+        divisor /= 1000_00;
+
+        Random random = new Random(31);
+        for (int i = 0; i < 100_000; i++) {
+            int m = random.nextInt(3);
+            long price = previousCloses[m] + random.nextInt(40_001) - 20_000;
+            indices.onQuote(quoteStore.tick(quoteStore.idOf(symbols[m]), price, 1));
+        }
+
+        double capitalisation = 0;
+        for (int m = 0; m < 3; m++) {
+            capitalisation += (double) shares[m] * quoteStore.get(symbols[m]).orElseThrow().pricePaise();
+        }
+        assertThat(indices.get("BIG").orElseThrow().levelPaise()).isCloseTo(Math.round(capitalisation / divisor), within(1L));
+    }
+
+    @Test
+    void onlyMemberTicksMoveAnIndexAndLateTicksAreDropped() {
+        weights("IT", "TCS", 50.0, "INFY", 50.0);
+        MarketIndices indices = indices();
+
+        indices.onQuote(quoteStore.tick(quoteStore.idOf("HDFCBANK"), 1_700_00, 1));
+        Quote older = quoteStore.tick(quoteStore.idOf("INFY"), 1_650_00, 1);
+        indices.onQuote(quoteStore.tick(quoteStore.idOf("INFY"), 1_350_00, 1));
+        long level = indices.get("IT").orElseThrow().levelPaise();
+        indices.onQuote(older);
+
+        assertThat(level).isEqualTo(950_00);
+        assertThat(indices.get("IT").orElseThrow().levelPaise()).isEqualTo(level);
+        verify(candleAggregator, never()).record(eq("HDFCBANK"), anyLong(), anyLong());
+    }
+
+    @Test
+    void constituentsWithoutAListingOrPriceAreSkipped() {
+        weights("IT", "TCS", 50.0, "UNKNOWN", 50.0);
+        shares("EMPTY", "NOPRICE", 100L);
+
+        MarketIndices indices = indices();
+
+        assertThat(indices.getAll()).extracting(IndexSnapshot::code).containsExactly("IT");
+        assertThat(indices.get("IT").orElseThrow().constituents()).hasSize(1);
+    }
+
+    @Test
+    void sessionOpenMakesTheLastLevelThePreviousClose() {
+        weights("IT", "TCS", 60.0, "INFY", 40.0);
+        MarketIndices indices = indices();
+        indices.onQuote(quoteStore.tick(quoteStore.idOf("INFY"), 1_650_00, 1));
+        long level = indices.get("IT").orElseThrow().levelPaise();
+
+        quoteStore.openSession();
+        indices.onSessionOpen();
+
+        IndexSnapshot snapshot = indices.get("IT").orElseThrow();
+        assertThat(snapshot.levelPaise()).isEqualTo(level);
+        assertThat(snapshot.previousClosePaise()).isEqualTo(level);
+    }
+
+    private void weights(String code, Object... symbolsAndWeights) {
+        MarketIndexProperties.Definition definition = new MarketIndexProperties.Definition();
+        for (int i = 0; i < symbolsAndWeights.length; i += 2) {
+            definition.getWeights().put((String) symbolsAndWeights[i], (Double) symbolsAndWeights[i + 1]);
+        }
+        properties.getDefinitions().put(code, definition);
+    }
+
+    private void shares(String code, Object... symbolsAndShares) {
+        MarketIndexProperties.Definition definition = new MarketIndexProperties.Definition();
+        for (int i = 0; i < symbolsAndShares.length; i += 2) {
+            definition.getShares().put((String) symbolsAndShares[i], (Long) symbolsAndShares[i + 1]);
+        }
+        properties.getDefinitions().put(code, definition);
+    }
+
+    private MarketIndices indices() {
+        MarketIndices indices = new MarketIndices();
+        ReflectionTestUtils.setField(indices, "capacity", 16);
+        ReflectionTestUtils.setField(indices, "properties", properties);
+        ReflectionTestUtils.setField(indices, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(indices, "candleAggregator", candleAggregator);
+        indices.start();
+        return indices;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QuoteStore quoteStore(Stock... stocks) {
+        StockRepository stockRepository = mock(StockRepository.class);
+        when(stockRepository.findAll()).thenReturn(List.of(stocks));
+        ObjectProvider<QuoteListener> listenerProvider = mock(ObjectProvider.class);
+        when(listenerProvider.orderedStream()).thenAnswer(invocation -> Stream.empty());
+
+        QuoteStore quoteStore = new QuoteStore();
+        ReflectionTestUtils.setField(quoteStore, "capacity", 16);
+        ReflectionTestUtils.setField(quoteStore, "stockRepository", stockRepository);
+        ReflectionTestUtils.setField(quoteStore, "jdbcTemplate", mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(quoteStore, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(quoteStore, "listenerProvider", listenerProvider);
+        quoteStore.load();
+        return quoteStore;
+    }
+
+    private static Stock stock(Long id, String symbol, String price) {
+        Stock stock = new Stock();
+        stock.setId(id);
+        stock.setSymbol(symbol);
+        stock.setName(symbol);
+        stock.setCurrentPrice(new BigDecimal(price));
+        stock.setPreviousClose(new BigDecimal(price));
+        return stock;
+    }
+}
@@ -0,0 +1,100 @@
+package com.tradingsim.service.market.indicators;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.market.candles.Bar;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndicatorEngineTest {
+
+    private final QuoteStore quoteStore = mock(QuoteStore.class);
+    private final CandleAggregator candleAggregator = mock(CandleAggregator.class);
+    private final IndicatorEngine engine = new IndicatorEngine();
+    private final List<Bar> bars = IndicatorStateTest.randomBars(60, new Random(19));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(engine, "seedBars", 40);
+        ReflectionTestUtils.setField(engine, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(engine, "candleAggregator", candleAggregator);
+        ReflectionTestUtils.setField(engine, "meterRegistry", new SimpleMeterRegistry());
+        engine.start();
+        when(quoteStore.idOf(anyString())).thenReturn(-1);
+        when(quoteStore.idOf("TCS")).thenReturn(0);
+        when(candleAggregator.current("TCS", Candle.Interval.M1)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void seriesIsSeededWithTheLastStoredBarsAndThenFollowsClosedBars() {
+        when(candleAggregator.getCandles(eq("TCS"), eq(Candle.Interval.M1), anyLong(), anyLong()))
+                .thenReturn(bars.subList(0, 50));
+
+        IndicatorStateTest.assertMatches(engine.get("TCS", Candle.Interval.M1).orElseThrow(),
+                IndicatorStateTest.recompute(bars.subList(10, 50)));
+
+        engine.onBar(bars.get(50));
+        engine.onBar(new Bar("TCS", Candle.Interval.D1, 0, 1, 1, 1, 1, 1));
+        IndicatorStateTest.assertMatches(engine.get("TCS", Candle.Interval.M1).orElseThrow(),
+                IndicatorStateTest.recompute(bars.subList(10, 51)));
+        verify(candleAggregator, times(1)).getCandles(anyString(), eq(Candle.Interval.M1), anyLong(), anyLong());
+    }
+
+    @Test
+    void formingBarIsIncludedInReadsOnly() {
+        when(candleAggregator.getCandles(eq("TCS"), eq(Candle.Interval.M1), anyLong(), anyLong()))
+                .thenReturn(bars.subList(0, 40));
+        when(candleAggregator.current("TCS", Candle.Interval.M1)).thenReturn(Optional.of(bars.get(40)));
+
+        IndicatorStateTest.assertMatches(engine.get("TCS", Candle.Interval.M1).orElseThrow(),
+                IndicatorStateTest.recompute(bars.subList(0, 41)));
+
+        when(candleAggregator.current("TCS", Candle.Interval.M1)).thenReturn(Optional.empty());
+        assertThat(engine.get("TCS", Candle.Interval.M1).orElseThrow().bars()).isEqualTo(40);
+    }
+
+    @Test
+    void barsClosingWhileSeedingAreAppliedAfterTheSeed() {
+        when(candleAggregator.getCandles(eq("TCS"), eq(Candle.Interval.M1), anyLong(), anyLong()))
+                .thenAnswer(invocation -> {
+                    engine.onBar(bars.get(40));
+                    return bars.subList(0, 40);
+                });
+
+        IndicatorStateTest.assertMatches(engine.get("TCS", Candle.Interval.M1).orElseThrow(),
+                IndicatorStateTest.recompute(bars.subList(0, 41)));
+    }
+
+    @Test
+    void failedSeedIsRetriedOnTheNextRequest() {
+        when(candleAggregator.getCandles(eq("TCS"), eq(Candle.Interval.M1), anyLong(), anyLong()))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(bars.subList(0, 40));
+
+        assertThatThrownBy(() -> engine.get("TCS", Candle.Interval.M1)).hasMessage("database down");
+
+        assertThat(engine.get("TCS", Candle.Interval.M1).orElseThrow().bars()).isEqualTo(40);
+    }
+
+    @Test
+    void unlistedSymbolHasNoIndicators() {
+        assertThat(engine.get("XYZ", Candle.Interval.M1)).isEmpty();
+    }
+}
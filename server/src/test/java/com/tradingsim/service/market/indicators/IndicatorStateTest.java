@@ -0,0 +1,180 @@
+package com.tradingsim.service.market.indicators;
+
+import com.tradingsim.model.Candle;
+import com.tradingsim.service.market.candles.Bar;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndicatorStateTest {
+
+    @Test
+    void incrementalValuesMatchAFullRecompute() {
+        List<Bar> bars = randomBars(600, new Random(7));
+        IndicatorState state = new IndicatorState("TCS", Candle.Interval.M1);
+
+        for (int n = 1; n <= bars.size(); n++) {
+            state.add(bars.get(n - 1));
+            assertMatches(state.snapshot(null), recompute(bars.subList(0, n)));
+        }
+    }
+
+    @Test
+    void formingBarIsCountedWithoutChangingTheState() {
+        List<Bar> bars = randomBars(250, new Random(11));
+        IndicatorState state = new IndicatorState("TCS", Candle.Interval.M1);
+        bars.subList(0, 249).forEach(state::add);
+
+        assertMatches(state.snapshot(bars.get(249)), recompute(bars));
+        assertMatches(state.snapshot(null), recompute(bars.subList(0, 249)));
+        // A forming bar the state already has is not counted twice
+        assertMatches(state.snapshot(bars.get(248)), recompute(bars.subList(0, 249)));
+    }
+
+    @Test
+    void staleBarsAreIgnored() {
+        List<Bar> bars = randomBars(40, new Random(3));
+        IndicatorState state = new IndicatorState("TCS", Candle.Interval.M1);
+        bars.forEach(state::add);
+
+        state.add(bars.get(10));
+        state.add(bars.get(39));
+
+        assertThat(state.snapshot(null).bars()).isEqualTo(40);
+        assertMatches(state.snapshot(null), recompute(bars));
+    }
+
+    @Test
+    void valuesAreNaNUntilTheirPeriodHasPassed() {
+        IndicatorState state = new IndicatorState("TCS", Candle.Interval.M1);
+        assertThat(state.snapshot(null).close()).isNaN();
+
+        randomBars(14, new Random(5)).forEach(state::add);
+        Indicators indicators = state.snapshot(null);
+
+        assertThat(indicators.atr14()).isNotNaN();
+        assertThat(indicators.ema12()).isNotNaN();
+        assertThat(indicators.rsi14()).isNaN();
+        assertThat(indicators.sma20()).isNaN();
+        assertThat(indicators.macd()).isNaN();
+    }
+
+    static List<Bar> randomBars(int count, Random random) {
+        List<Bar> bars = new ArrayList<>(count);
+        long close = 1_000_00;
+        for (int i = 0; i < count; i++) {
+            long open = close;
+            close = Math.max(1_00, close + random.nextInt(2_001) - 1_000);
+            long high = Math.max(open, close) + random.nextInt(500);
+            long low = Math.max(1, Math.min(open, close) - random.nextInt(500));
+            bars.add(new Bar("TCS", Candle.Interval.M1, (i + 1) * 60_000L, open, high, low, close, random.nextInt(1_000)));
+        }
+        return bars;
+    }
+
+    /**
+     * Every indicator computed from scratch over the whole list, straight from the definitions.
+     */
+    static Indicators recompute(List<Bar> bars) {
+        int n = bars.size();
+        double[] closes = new double[n];
+        double[] ranges = new double[n];
+        for (int i = 0; i < n; i++) {
+            Bar bar = bars.get(i);
+            closes[i] = bar.close();
+            ranges[i] = i == 0 ? bar.high() - bar.low()
+                    : Math.max(bar.high() - bar.low(), Math.max(Math.abs(bar.high() - closes[i - 1]),
+                    Math.abs(bar.low() - closes[i - 1])));
+        }
+
+        double sma = Double.NaN;
+        double deviation = Double.NaN;
+        if (n >= 20) {
+            double sum = 0;
+            for (int i = n - 20; i < n; i++) {
+                sum += closes[i];
+            }
+            sma = sum / 20;
+            double squares = 0;
+            for (int i = n - 20; i < n; i++) {
+                squares += (closes[i] - sma) * (closes[i] - sma);
+            }
+            deviation = Math.sqrt(squares / 20);
+        }
+
+        double[] ema12 = smooth(closes, 12, 2.0 / 13);
+        double[] ema26 = smooth(closes, 26, 2.0 / 27);
+        double[] macdLine = new double[Math.max(0, n - 25)];
+        for (int i = 25; i < n; i++) {
+            macdLine[i - 25] = ema12[i] - ema26[i];
+        }
+        double[] signal = smooth(macdLine, 9, 2.0 / 10);
+
+        double[] gains = new double[Math.max(0, n - 1)];
+        double[] losses = new double[gains.length];
+        for (int i = 1; i < n; i++) {
+            gains[i - 1] = Math.max(closes[i] - closes[i - 1], 0);
+            losses[i - 1] = Math.max(closes[i - 1] - closes[i], 0);
+        }
+        double gain = last(smooth(gains, 14, 1.0 / 14));
+        double loss = last(smooth(losses, 14, 1.0 / 14));
+        double rsi = Double.isNaN(gain) ? Double.NaN : loss == 0 ? 100 : 100 - 100 / (1 + gain / loss);
+
+        double macd = n >= 26 ? last(macdLine) : Double.NaN;
+        double signalValue = last(signal);
+        return new Indicators("TCS", Candle.Interval.M1, n == 0 ? Long.MIN_VALUE : bars.get(n - 1).openTime(), n,
+                n == 0 ? Double.NaN : closes[n - 1], sma, last(ema12), last(ema26),
+                last(smooth(closes, 50, 2.0 / 51)), last(smooth(closes, 200, 2.0 / 201)), rsi,
+                macd, signalValue, macd - signalValue, sma + 2 * deviation, sma - 2 * deviation,
+                last(smooth(ranges, 14, 1.0 / 14)));
+    }
+
+    // Average of the first period values, then exponential smoothing; NaN before that
+    private static double[] smooth(double[] values, int period, double alpha) {
+        double[] smoothed = new double[values.length];
+        double value = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i < period) {
+                value += values[i];
+                smoothed[i] = Double.NaN;
+                if (i == period - 1) {
+                    value /= period;
+                    smoothed[i] = value;
+                }
+            } else {
+                value += alpha * (values[i] - value);
+                smoothed[i] = value;
+            }
+        }
+        return smoothed;
+    }
+
+    private static double last(double[] values) {
+        return values.length == 0 ? Double.NaN : values[values.length - 1];
+    }
+
+    static void assertMatches(Indicators actual, Indicators expected) {
+        assertThat(actual.bars()).isEqualTo(expected.bars());
+        assertThat(actual.openTime()).isEqualTo(expected.openTime());
+        double[] a = values(actual);
+        double[] e = values(expected);
+        for (int i = 0; i < a.length; i++) {
+            if (Double.isNaN(e[i])) {
+                assertThat(a[i]).as("value %d after %d bars", i, expected.bars()).isNaN();
+            } else {
+                assertThat(Math.abs(a[i] - e[i])).as("value %d after %d bars", i, expected.bars())
+                        .isLessThanOrEqualTo(1e-6 * Math.max(1, Math.abs(e[i])));
+            }
+        }
+    }
+
+    private static double[] values(Indicators indicators) {
+        return new double[]{indicators.close(), indicators.sma20(), indicators.ema12(), indicators.ema26(),
+                indicators.ema50(), indicators.ema200(), indicators.rsi14(), indicators.macd(), indicators.macdSignal(),
+                indicators.macdHistogram(), indicators.bollingerUpper(), indicators.bollingerLower(), indicators.atr14()};
+    }
+}
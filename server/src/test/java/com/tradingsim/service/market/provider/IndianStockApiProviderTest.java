@@ -0,0 +1,216 @@
+package com.tradingsim.service.market.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.tradingsim.exception.MarketDataException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndianStockApiProviderTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMs;
+    private HttpServer server;
+    private MarketProviderProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private IndianStockApiProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            int request = requests.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"request\": " + request + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        properties = new MarketProviderProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.setTimeoutMs(2000);
+        properties.setMaxRequestsPerSecond(1000);
+        properties.setMaxQueueMs(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (provider != null) {
+            provider.stop();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentRequestsForTheSameKeyShareOneUpstreamCall() throws Exception {
+        delayMs = 200;
+        start();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        CountDownLatch ready = new CountDownLatch(8);
+        List<Future<JsonNode>> answers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            answers.add(callers.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return provider.stock("Tata Consultancy");
+            }));
+        }
+        for (Future<JsonNode> answer : answers) {
+            assertThat(answer.get(5, TimeUnit.SECONDS).get("request").asInt()).isEqualTo(1);
+        }
+        callers.shutdown();
+
+        assertThat(requests).hasValue(1);
+        assertThat(outcome("loaded")).isEqualTo(1);
+        assertThat(outcome("coalesced")).isEqualTo(7);
+    }
+
+    @Test
+    void staleAnswerIsServedWhileItIsRefreshed() throws Exception {
+        properties.setTtlMs(50);
+        properties.setStaleMs(10_000);
+        start();
+        assertThat(provider.trending().get("request").asInt()).isEqualTo(1);
+        Thread.sleep(80);
+
+        assertThat(provider.trending().get("request").asInt()).isEqualTo(1);
+        assertThat(outcome("stale")).isEqualTo(1);
+
+        awaitRequests(2);
+        Thread.sleep(50);
+        assertThat(provider.trending().get("request").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void cachedAnswerIsServedWhenTheUpstreamFails() throws Exception {
+        properties.setTtlMs(10);
+        properties.setStaleMs(0);
+        start();
+        provider.nseMostActive();
+        Thread.sleep(20);
+        status = 503;
+
+        assertThat(provider.nseMostActive().get("request").asInt()).isEqualTo(1);
+        assertThat(requests).hasValue(2);
+    }
+
+    @Test
+    void requestsOverTheRateLimitAreRefusedWithoutReachingTheUpstream() {
+        properties.setMaxRequestsPerSecond(1);
+        start();
+        provider.stock("TCS");
+
+        assertThatThrownBy(() -> provider.stock("INFY"))
+                .isInstanceOf(MarketDataException.class)
+                .hasMessageContaining("rate limit");
+        assertThat(requests).hasValue(1);
+        assertThat(breaker().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void breakerOpensOnFailuresAndClosesAfterASuccessfulTrial() throws Exception {
+        properties.setFailureThreshold(2);
+        properties.setOpenMs(200);
+        status = 500;
+        start();
+
+        assertThatThrownBy(() -> provider.stock("A")).hasMessageContaining("answered 500");
+        assertThat(breaker().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThatThrownBy(() -> provider.stock("B")).hasMessageContaining("answered 500");
+        assertThat(breaker().state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> provider.stock("C")).hasMessageContaining("unavailable");
+        assertThat(requests).hasValue(2);
+
+        Thread.sleep(250);
+        assertThatThrownBy(() -> provider.stock("D")).hasMessageContaining("answered 500");
+        assertThat(breaker().state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(250);
+        status = 404;
+        assertThatThrownBy(() -> provider.stock("E")).hasMessageContaining("answered 404");
+        assertThat(breaker().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(requests).hasValue(4);
+    }
+
+    @Test
+    void requestThatCannotBeBuiltCountsAsAFailure() {
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + " /");
+        properties.setFailureThreshold(1);
+        start();
+
+        assertThatThrownBy(() -> provider.stock("TCS")).isInstanceOf(MarketDataException.class);
+
+        assertThat(breaker().state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void trialRefusedByTheRateLimitIsGivenBack() throws Exception {
+        properties.setFailureThreshold(1);
+        properties.setOpenMs(100);
+        properties.setMaxRequestsPerSecond(1);
+        status = 500;
+        start();
+        assertThatThrownBy(() -> provider.stock("A")).hasMessageContaining("answered 500");
+        Thread.sleep(150);
+
+        assertThatThrownBy(() -> provider.stock("B")).hasMessageContaining("rate limit");
+        assertThat(breaker().state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(1000);
+        status = 200;
+        assertThat(provider.stock("C").get("request").asInt()).isEqualTo(2);
+        assertThat(breaker().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private void start() {
+        meterRegistry = new SimpleMeterRegistry();
+        provider = new IndianStockApiProvider();
+        ReflectionTestUtils.setField(provider, "properties", properties);
+        ReflectionTestUtils.setField(provider, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(provider, "meterRegistry", meterRegistry);
+        provider.start();
+    }
+
+    private CircuitBreaker breaker() {
+        return (CircuitBreaker) ReflectionTestUtils.getField(provider, "circuitBreaker");
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.counter("market.provider.requests", "outcome", outcome).count();
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (requests.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(requests).hasValue(count);
+    }
+}
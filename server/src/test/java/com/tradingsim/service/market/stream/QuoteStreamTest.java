@@ -0,0 +1,133 @@
+package com.tradingsim.service.market.stream;
+
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuoteStreamTest {
+
+    private final QuoteStore quoteStore = mock(QuoteStore.class);
+    private QuoteStream quoteStream;
+
+    @BeforeEach
+    void setUp() {
+        when(quoteStore.idOf("TCS")).thenReturn(0);
+        when(quoteStore.idOf("INFY")).thenReturn(1);
+        when(quoteStore.idOf("NONE")).thenReturn(-1);
+        when(quoteStore.get(0)).thenReturn(quote(0, "TCS", 3_500_00));
+        when(quoteStore.get(1)).thenReturn(quote(1, "INFY", 1_500_00));
+
+        quoteStream = new QuoteStream();
+        ReflectionTestUtils.setField(quoteStream, "capacity", 16);
+        ReflectionTestUtils.setField(quoteStream, "maxSubscribers", 3);
+        ReflectionTestUtils.setField(quoteStream, "maxSymbols", 10);
+        ReflectionTestUtils.setField(quoteStream, "flushMs", 5L);
+        ReflectionTestUtils.setField(quoteStream, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(quoteStream, "meterRegistry", new SimpleMeterRegistry());
+        quoteStream.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        quoteStream.stop();
+    }
+
+    @Test
+    void subscriberGetsCurrentQuotesThenUpdates() throws InterruptedException {
+        BlockingQueue<List<Quote>> messages = new LinkedBlockingQueue<>();
+        quoteStream.subscribe(List.of("TCS", "INFY", "NONE"), messages::add);
+
+        assertThat(messages.poll(1, TimeUnit.SECONDS)).extracting(Quote::symbol).containsExactly("TCS", "INFY");
+        quoteStream.onQuote(quote(1, "INFY", 1_510_00));
+        assertThat(messages.poll(1, TimeUnit.SECONDS)).extracting(Quote::pricePaise).containsExactly(1_510_00L);
+    }
+
+    @Test
+    void slowSubscriberOnlyGetsTheLatestQuotePerSymbol() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<List<Quote>> messages = new LinkedBlockingQueue<>();
+        quoteStream.subscribe(List.of("TCS", "INFY"), quotes -> {
+            messages.add(quotes);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(messages.poll(1, TimeUnit.SECONDS)).hasSize(2);
+
+        // The first write is still blocked while these arrive
+        for (long price = 3_501_00; price <= 3_600_00; price += 100) {
+            quoteStream.onQuote(quote(0, "TCS", price));
+        }
+        release.countDown();
+
+        assertThat(messages.poll(1, TimeUnit.SECONDS)).extracting(Quote::pricePaise).containsExactly(3_600_00L);
+        assertThat(messages.poll(50, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void blockedSubscriberDoesNotHoldUpOthers() throws InterruptedException {
+        CountDownLatch never = new CountDownLatch(1);
+        quoteStream.subscribe(List.of("TCS"), quotes -> {
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        BlockingQueue<List<Quote>> messages = new LinkedBlockingQueue<>();
+        quoteStream.subscribe(List.of("TCS"), messages::add);
+        messages.poll(1, TimeUnit.SECONDS);
+
+        quoteStream.onQuote(quote(0, "TCS", 3_510_00));
+
+        assertThat(messages.poll(1, TimeUnit.SECONDS)).extracting(Quote::pricePaise).containsExactly(3_510_00L);
+        never.countDown();
+    }
+
+    @Test
+    void failingSinkIsUnsubscribed() throws InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        quoteStream.subscribe(List.of("TCS"), quotes -> {
+            failed.countDown();
+            throw new IOException("Broken pipe");
+        });
+        assertThat(failed.await(1, TimeUnit.SECONDS)).isTrue();
+
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (quoteStream.subscriberCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(quoteStream.subscriberCount()).isZero();
+        quoteStream.onQuote(quote(0, "TCS", 3_510_00));
+    }
+
+    @Test
+    void subscribersAreCappedPerNode() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(quoteStream.subscribe(List.of("TCS"), quotes -> { })).isNotNull();
+        }
+
+        assertThat(quoteStream.subscribe(List.of("TCS"), quotes -> { })).isNull();
+    }
+
+    private static Quote quote(int id, String symbol, long pricePaise) {
+        return new Quote(id, id + 1L, symbol, symbol, pricePaise, 3_500_00, 0, 0, 0, 0, System.currentTimeMillis(), 0);
+    }
+}
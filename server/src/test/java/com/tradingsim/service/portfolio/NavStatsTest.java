@@ -0,0 +1,97 @@
+package com.tradingsim.service.portfolio;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.PortfolioSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class NavStatsTest {
+
+    @Test
+    void statsCarriedThroughSnapshotsMatchARecomputeOverAThousandDays() {
+        Random random = new Random(42);
+        int days = 1000;
+        long[] navs = new long[days];
+        long[] flows = new long[days];
+        long nav = 1_000_000_00L;
+        for (int day = 0; day < days; day++) {
+            long flow = random.nextInt(10) == 0 ? (random.nextInt(200_001) - 100_000) * 100L : 0;
+            nav = Math.max(1_00, Math.round(nav * (1 + random.nextGaussian() * 0.02)) + flow);
+            navs[day] = nav;
+            flows[day] = flow;
+        }
+
+        // Each day extends only the previous day's stored snapshot
+        NavStats stats = new NavStats();
+        for (int day = 0; day < days; day++) {
+            if (day > 0) {
+                stats = NavStats.of(snapshot(stats));
+            }
+            stats.add(navs[day], flows[day]);
+        }
+
+        double[] returns = new double[days - 1];
+        double unit = 1;
+        double peak = 1;
+        double maxDrawdown = 0;
+        for (int day = 1; day < days; day++) {
+            returns[day - 1] = (double) (navs[day] - flows[day]) / navs[day - 1] - 1;
+            unit *= 1 + returns[day - 1];
+            peak = Math.max(peak, unit);
+            maxDrawdown = Math.max(maxDrawdown, 1 - unit / peak);
+        }
+        double mean = 0;
+        for (double r : returns) {
+            mean += r / returns.length;
+        }
+        double variance = 0;
+        for (double r : returns) {
+            variance += (r - mean) * (r - mean) / (returns.length - 1);
+        }
+
+        assertThat(stats.returnCount).isEqualTo(days - 1);
+        assertThat(stats.navPaise).isEqualTo(navs[days - 1]);
+        assertThat(stats.meanDailyReturn()).isCloseTo(mean, within(1e-12));
+        assertThat(stats.dailyVolatility()).isCloseTo(Math.sqrt(variance), within(1e-9));
+        assertThat(stats.unitValue).isCloseTo(unit, within(1e-9 * unit));
+        assertThat(stats.maxDrawdown).isCloseTo(maxDrawdown, within(1e-12));
+    }
+
+    @Test
+    void flowsDoNotCountAsReturns() {
+        NavStats stats = new NavStats();
+        stats.add(100_000_00, 100_000_00);
+        stats.add(150_000_00, 50_000_00);
+        stats.add(120_000_00, -30_000_00);
+
+        assertThat(stats.returnSum).isZero();
+        assertThat(stats.unitValue).isEqualTo(1);
+        assertThat(stats.maxDrawdown).isZero();
+    }
+
+    @Test
+    void ratiosAreNaNUntilThereAreEnoughReturns() {
+        NavStats stats = new NavStats();
+        assertThat(stats.meanDailyReturn()).isNaN();
+        stats.add(100_00, 0);
+        stats.add(110_00, 0);
+        assertThat(stats.meanDailyReturn()).isCloseTo(0.10, within(1e-12));
+        assertThat(stats.dailyVolatility()).isNaN();
+    }
+
+    private static PortfolioSnapshot snapshot(NavStats stats) {
+        PortfolioSnapshot snapshot = new PortfolioSnapshot();
+        snapshot.setNav(Money.toRupees(stats.navPaise));
+        snapshot.setUnitValue(stats.unitValue);
+        snapshot.setPeakUnitValue(stats.peakUnitValue);
+        snapshot.setMaxDrawdown(stats.maxDrawdown);
+        snapshot.setReturnCount(stats.returnCount);
+        snapshot.setReturnSum(stats.returnSum);
+        snapshot.setReturnSumSquares(stats.returnSumSquares);
+        return snapshot;
+    }
+}
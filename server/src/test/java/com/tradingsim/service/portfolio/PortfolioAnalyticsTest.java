@@ -0,0 +1,177 @@
+package com.tradingsim.service.portfolio;
+
+import com.tradingsim.model.PortfolioSnapshot;
+import com.tradingsim.repository.PortfolioSnapshotRepository;
+import com.tradingsim.repository.WalletRepository;
+import com.tradingsim.service.market.candles.CandleAggregator;
+import com.tradingsim.service.trading.MarkToMarket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PortfolioAnalyticsTest {
+
+    private static final LocalTime CLOSE = LocalTime.of(16, 0);
+
+    private final PortfolioSnapshotRepository snapshotRepository = mock(PortfolioSnapshotRepository.class);
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final LocalDate today = LocalDate.now(CandleAggregator.MARKET_ZONE);
+    private JdbcTemplate jdbcTemplate;
+    private PortfolioAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("create table wallets (id bigint primary key, user_id bigint not null, " +
+                "balance decimal(15, 2) not null)");
+        jdbcTemplate.execute("create table portfolios (user_id bigint not null, current_value decimal(15, 2))");
+        jdbcTemplate.execute("create table transactions (id bigint auto_increment primary key, " +
+                "wallet_id bigint not null, type varchar(20) not null, amount decimal(15, 2) not null, " +
+                "created_at timestamp not null)");
+        jdbcTemplate.execute("create table portfolio_snapshots (id bigint auto_increment primary key, " +
+                "user_id bigint not null, snapshot_date date not null, snapshot_at timestamp not null, " +
+                "cash decimal(15, 2) not null, holdings_value decimal(15, 2) not null, nav decimal(15, 2) not null, " +
+                "net_flow decimal(15, 2) not null, unit_value double not null, peak_unit_value double not null, " +
+                "max_drawdown double not null, return_count int not null, return_sum double not null, " +
+                "return_sum_squares double not null, unique (user_id, snapshot_date))");
+
+        when(snapshotRepository.findByUserIdOrderBySnapshotDateAsc(anyLong())).thenAnswer(invocation ->
+                snapshots(invocation.getArgument(0)));
+        when(walletRepository.findBalanceByUserId(anyLong())).thenAnswer(invocation -> Optional.ofNullable(
+                jdbcTemplate.query("select balance from wallets where user_id = ?",
+                        rs -> rs.next() ? rs.getBigDecimal(1) : null, (Long) invocation.getArgument(0))));
+
+        MarkToMarket markToMarket = mock(MarkToMarket.class);
+        when(markToMarket.isEnabled()).thenReturn(false);
+        analytics = new PortfolioAnalytics();
+        ReflectionTestUtils.setField(analytics, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(analytics, "snapshotRepository", snapshotRepository);
+        ReflectionTestUtils.setField(analytics, "walletRepository", walletRepository);
+        ReflectionTestUtils.setField(analytics, "markToMarket", markToMarket);
+        ReflectionTestUtils.setField(analytics, "riskFreeRate", 0.065);
+        ReflectionTestUtils.setField(analytics, "cacheTtlMs", 0L);
+    }
+
+    @Test
+    void flowsAfterTheCutoffCountTowardsTheNextDay() {
+        LocalDate first = today.minusDays(2);
+        LocalDate second = today.minusDays(1);
+        wallet(1L, "1000.00");
+        flow("DEPOSIT", "1000.00", first.atTime(10, 0));
+
+        assertThat(analytics.takeSnapshots(first, first.atTime(CLOSE), 0, 10)).isEqualTo(1);
+
+        // Deposited after the first close, so part of the second day
+        flow("DEPOSIT", "500.00", first.atTime(17, 0));
+        setBalance("1500.00");
+        analytics.takeSnapshots(second, second.atTime(CLOSE), 0, 10);
+
+        List<PortfolioSnapshot> snapshots = snapshots(1L);
+        assertThat(snapshots).extracting(PortfolioSnapshot::getNetFlow)
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactly(new BigDecimal("1000.00"), new BigDecimal("500.00"));
+        assertThat(snapshots.get(1).getSnapshotAt()).isEqualTo(second.atTime(CLOSE));
+        assertThat(snapshots.get(1).getReturnCount()).isEqualTo(1);
+        assertThat(snapshots.get(1).getReturnSum()).isZero();
+        assertThat(snapshots.get(1).getUnitValue()).isEqualTo(1);
+
+        // Withdrawn after the second close, so part of today's live NAV
+        flow("WITHDRAWAL", "100.00", second.atTime(16, 30));
+        setBalance("1400.00");
+        Performance performance = analytics.performance(1L);
+
+        assertThat(performance.navHistory()).extracting(Performance.NavPoint::netFlowPaise)
+                .containsExactly(1000_00L, 500_00L, -100_00L);
+        assertThat(performance.navPaise()).isEqualTo(1400_00L);
+        assertThat(performance.timeWeightedReturn()).isCloseTo(0, within(1e-12));
+    }
+
+    @Test
+    void retakingADayReadsTheSameFlows() {
+        LocalDate first = today.minusDays(2);
+        LocalDate second = today.minusDays(1);
+        wallet(1L, "1000.00");
+        flow("DEPOSIT", "1000.00", first.atTime(10, 0));
+        analytics.takeSnapshots(first, first.atTime(CLOSE), 0, 10);
+        flow("DEPOSIT", "200.00", second.atTime(11, 0));
+        setBalance("1300.00");
+
+        analytics.takeSnapshots(second, second.atTime(CLOSE), 0, 10);
+        PortfolioSnapshot taken = snapshots(1L).get(1);
+        analytics.takeSnapshots(second, second.atTime(CLOSE), 0, 10);
+
+        List<PortfolioSnapshot> snapshots = snapshots(1L);
+        assertThat(snapshots).hasSize(2);
+        assertThat(snapshots.get(1).getNetFlow()).isEqualByComparingTo("200.00");
+        assertThat(snapshots.get(1).getUnitValue()).isEqualTo(taken.getUnitValue());
+        assertThat(snapshots.get(1).getUnitValue()).isCloseTo(1100.0 / 1000, within(1e-12));
+    }
+
+    @Test
+    void onlyUsersInTheChunkAreSnapshotted() {
+        wallet(1L, "100.00");
+        wallet(2L, "200.00");
+        wallet(3L, "300.00");
+        LocalDate day = today.minusDays(1);
+
+        assertThat(analytics.takeSnapshots(day, day.atTime(CLOSE), 1, 2)).isEqualTo(1);
+
+        assertThat(snapshots(1L)).isEmpty();
+        assertThat(snapshots(2L)).extracting(PortfolioSnapshot::getNav).singleElement()
+                .satisfies(nav -> assertThat(nav).isEqualByComparingTo("200.00"));
+        assertThat(snapshots(3L)).isEmpty();
+    }
+
+    @Test
+    void tenPercentGainOverAYearIsATenPercentXirr() {
+        LocalDate start = today.minusDays(365);
+        wallet(1L, "1000.00");
+        flow("DEPOSIT", "1000.00", start.atTime(10, 0));
+        analytics.takeSnapshots(start, start.atTime(CLOSE), 0, 10);
+        setBalance("1100.00");
+
+        Performance performance = analytics.performance(1L);
+
+        assertThat(performance.xirr()).isCloseTo(0.10, within(1e-9));
+        assertThat(performance.timeWeightedReturn()).isCloseTo(0.10, within(1e-12));
+        assertThat(performance.days()).isEqualTo(2);
+    }
+
+    private void wallet(Long userId, String balance) {
+        jdbcTemplate.update("insert into wallets (id, user_id, balance) values (?, ?, ?)", userId, userId,
+                new BigDecimal(balance));
+    }
+
+    private void setBalance(String balance) {
+        jdbcTemplate.update("update wallets set balance = ? where user_id = 1", new BigDecimal(balance));
+    }
+
+    private void flow(String type, String amount, LocalDateTime at) {
+        jdbcTemplate.update("insert into transactions (wallet_id, type, amount, created_at) values (1, ?, ?, ?)",
+                type, new BigDecimal(amount), Timestamp.valueOf(at));
+    }
+
+    private List<PortfolioSnapshot> snapshots(Long userId) {
+        return jdbcTemplate.query("select * from portfolio_snapshots where user_id = ? order by snapshot_date",
+                new BeanPropertyRowMapper<>(PortfolioSnapshot.class), userId);
+    }
+}
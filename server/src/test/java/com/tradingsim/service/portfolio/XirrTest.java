@@ -0,0 +1,39 @@
+package com.tradingsim.service.portfolio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class XirrTest {
+
+    @Test
+    void tenPercentGainOverOneYearIsTenPercent() {
+        assertThat(Xirr.solve(new int[]{0, 365}, new double[]{-100_000, 110_000})).isCloseTo(0.10, within(1e-9));
+    }
+
+    @Test
+    void rateDiscountsEveryFlowToZero() {
+        int[] days = {0, 90, 200, 365, 500};
+        double[] amounts = {-100_000, -50_000, 20_000, -10_000, 175_000};
+
+        double rate = Xirr.solve(days, amounts);
+
+        double value = 0;
+        for (int k = 0; k < days.length; k++) {
+            value += amounts[k] / Math.pow(1 + rate, days[k] / 365.0);
+        }
+        assertThat(value).isCloseTo(0, within(1e-4));
+    }
+
+    @Test
+    void lossIsNegative() {
+        assertThat(Xirr.solve(new int[]{0, 730}, new double[]{-100_000, 81_000})).isCloseTo(-0.10, within(1e-9));
+    }
+
+    @Test
+    void flowsThatDoNotChangeSignHaveNoRate() {
+        assertThat(Xirr.solve(new int[]{0, 365}, new double[]{-100_000, -10_000})).isNaN();
+        assertThat(Xirr.solve(new int[]{0, 365}, new double[]{100_000, 10_000})).isNaN();
+    }
+}
@@ -0,0 +1,87 @@
+package com.tradingsim.service.portfolio.risk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CholeskyTest {
+
+    @Test
+    void factorOfAKnownMatrix() {
+        double[] l = Cholesky.factor(new double[]{4, 2, 2, 10}, 2);
+
+        assertThat(l).containsExactly(new double[]{2, 0, 1, 3}, within(1e-12));
+    }
+
+    @Test
+    void factorTimesItsTransposeIsTheCovariance() {
+        int n = 30;
+        double[] covariance = randomCovariance(n, 250, new Random(7));
+
+        double[] l = Cholesky.factor(covariance, n);
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                assertThat(l[i * n + j]).isZero();
+            }
+            assertThat(l[i * n + i]).isPositive();
+        }
+        assertProduct(l, covariance, n);
+    }
+
+    @Test
+    void seriesMovingTogetherGetAZeroColumn() {
+        // The third series is the first one doubled, and the fourth never moves
+        double[] covariance = {
+                1.0, 0.3, 2.0, 0,
+                0.3, 0.5, 0.6, 0,
+                2.0, 0.6, 4.0, 0,
+                0, 0, 0, 0};
+
+        double[] l = Cholesky.factor(covariance, 4);
+
+        assertThat(l[2 * 4 + 2]).isZero();
+        assertThat(l[3 * 4 + 3]).isZero();
+        assertThat(l).doesNotContain(Double.NaN);
+        assertProduct(l, covariance, 4);
+    }
+
+    /**
+     * Sample covariance of {@code days} random returns driven partly by a common factor.
+     */
+    static double[] randomCovariance(int n, int days, Random random) {
+        double[][] returns = new double[days][n];
+        for (int day = 0; day < days; day++) {
+            double market = random.nextGaussian() * 0.01;
+            for (int i = 0; i < n; i++) {
+                returns[day][i] = (0.5 + i % 5 * 0.2) * market + random.nextGaussian() * 0.012;
+            }
+        }
+        double[] covariance = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double sum = 0;
+                for (double[] r : returns) {
+                    sum += r[i] * r[j];
+                }
+                covariance[i * n + j] = sum / days;
+            }
+        }
+        return covariance;
+    }
+
+    private static void assertProduct(double[] l, double[] covariance, int n) {
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    sum += l[i * n + k] * l[j * n + k];
+                }
+                assertThat(sum).isCloseTo(covariance[i * n + j], within(1e-12));
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.tradingsim.service.portfolio.risk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MonteCarloTest {
+
+    private static final int STOCKS = 30;
+    private static final int PATHS = 100_000;
+
+    private final ForkJoinPool single = new ForkJoinPool(1);
+    private final ForkJoinPool parallel = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        single.shutdownNow();
+        parallel.shutdownNow();
+    }
+
+    @Test
+    void sameSeedGivesTheSameLossesOnAnyPoolSize() {
+        double[] values = values();
+        double[] cholesky = Cholesky.factor(CholeskyTest.randomCovariance(STOCKS, 250, new Random(3)), STOCKS);
+        double[][] first = simulate(single, values, cholesky, 10_000, 42);
+        double[][] second = simulate(parallel, values, cholesky, 10_000, 42);
+        double[][] other = simulate(parallel, values, cholesky, 10_000, 43);
+
+        assertThat(second[0]).containsExactly(first[0]);
+        assertThat(second[1]).containsExactly(first[1]);
+        assertThat(other[0]).isNotEqualTo(first[0]);
+    }
+
+    @Test
+    void tailsMatchAPlainSimulationOfTheSameCovariance() {
+        double[] values = values();
+        double[] cholesky = Cholesky.factor(CholeskyTest.randomCovariance(STOCKS, 250, new Random(11)), STOCKS);
+        double[] losses = simulate(parallel, values, cholesky, PATHS, 20_261_018)[0];
+
+        // One path at a time from an unrelated generator
+        Random random = new Random(99);
+        double[] expected = new double[PATHS];
+        double[] z = new double[STOCKS];
+        for (int path = 0; path < PATHS; path++) {
+            for (int i = 0; i < STOCKS; i++) {
+                z[i] = random.nextGaussian();
+            }
+            for (int i = 0; i < STOCKS; i++) {
+                double r = 0;
+                for (int j = 0; j < STOCKS; j++) {
+                    r += cholesky[i * STOCKS + j] * z[j];
+                }
+                expected[path] -= values[i] * Math.expm1(r);
+            }
+        }
+        Arrays.sort(losses);
+        Arrays.sort(expected);
+
+        for (double level : new double[]{0.95, 0.99}) {
+            double var = quantile(expected, level);
+            assertThat(quantile(losses, level)).isCloseTo(var, within(0.015 * var));
+        }
+        double shortfall = shortfall(expected, 0.99);
+        assertThat(shortfall(losses, 0.99)).isCloseTo(shortfall, within(0.015 * shortfall));
+    }
+
+    @Test
+    void tailsSitJustBelowDeltaNormal() {
+        double[] values = values();
+        double[] covariance = CholeskyTest.randomCovariance(STOCKS, 250, new Random(11));
+        double[] losses = simulate(parallel, values, Cholesky.factor(covariance, STOCKS), PATHS, 20_261_018)[0];
+
+        double variance = 0;
+        for (int i = 0; i < STOCKS; i++) {
+            for (int j = 0; j < STOCKS; j++) {
+                variance += values[i] * covariance[i * STOCKS + j] * values[j];
+            }
+        }
+        double sigma = Math.sqrt(variance);
+        Arrays.sort(losses);
+
+        // Simulated prices cannot fall below zero, so the loss tail is a little shorter than the normal one
+        assertRatio(quantile(losses, 0.95) / (1.644854 * sigma));
+        assertRatio(quantile(losses, 0.99) / (2.326348 * sigma));
+        // Normal expected shortfall at 99% is phi(z99) / 0.01 standard deviations
+        assertRatio(shortfall(losses, 0.99) / (2.665214 * sigma));
+    }
+
+    @Test
+    void horizonScalesTheDailyDrawsByTheRootOfItsLength() {
+        double[] values = {1_000_000};
+        double dailyVolatility = 0.02;
+        double[] daily = new double[PATHS];
+        double[] horizon = new double[PATHS];
+
+        MonteCarlo.simulate(parallel, values, new double[]{dailyVolatility}, 9, 5, daily, horizon);
+
+        for (int path = 0; path < PATHS; path += 997) {
+            double r = Math.log1p(-daily[path] / values[0]);
+            assertThat(-horizon[path] / values[0]).isCloseTo(Math.expm1(3 * r), within(1e-9));
+        }
+        double sum = 0;
+        double sumSquares = 0;
+        for (double loss : daily) {
+            double r = Math.log1p(-loss / values[0]);
+            sum += r;
+            sumSquares += r * r;
+        }
+        double mean = sum / PATHS;
+        assertThat(Math.sqrt(sumSquares / PATHS - mean * mean)).isCloseTo(dailyVolatility, within(dailyVolatility * 0.01));
+    }
+
+    @Test
+    void stockThatNeverMovesLosesNothing() {
+        double[] daily = new double[5_000];
+        double[] horizon = new double[5_000];
+
+        MonteCarlo.simulate(single, new double[]{250_000}, new double[]{0}, 10, 1, daily, horizon);
+
+        assertThat(Arrays.stream(daily).map(Math::abs).max().orElseThrow()).isZero();
+        assertThat(Arrays.stream(horizon).map(Math::abs).max().orElseThrow()).isZero();
+    }
+
+    private static double[] values() {
+        double[] values = new double[STOCKS];
+        for (int i = 0; i < STOCKS; i++) {
+            values[i] = 10_000 + i * 1_500;
+        }
+        return values;
+    }
+
+    private static double[][] simulate(ForkJoinPool pool, double[] values, double[] cholesky, int paths, long seed) {
+        double[] daily = new double[paths];
+        double[] horizon = new double[paths];
+        MonteCarlo.simulate(pool, values, cholesky, 10, seed, daily, horizon);
+        return new double[][]{daily, horizon};
+    }
+
+    private static void assertRatio(double ratio) {
+        assertThat(ratio).isBetween(0.96, 1.0);
+    }
+
+    private static double quantile(double[] sorted, double level) {
+        return sorted[(int) Math.ceil(level * sorted.length) - 1];
+    }
+
+    private static double shortfall(double[] sorted, double level) {
+        int from = (int) Math.ceil(level * sorted.length) - 1;
+        double sum = 0;
+        for (int i = from; i < sorted.length; i++) {
+            sum += sorted[i];
+        }
+        return sum / (sorted.length - from);
+    }
+}
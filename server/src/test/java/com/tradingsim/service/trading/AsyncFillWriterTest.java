@@ -0,0 +1,159 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.trading.matching.Fill;
+import com.tradingsim.service.trading.risk.RiskEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncFillWriterTest {
+
+    private final TradeExecutor tradeExecutor = mock(TradeExecutor.class);
+    private final QuoteStore quoteStore = mock(QuoteStore.class);
+    private final RiskEngine riskEngine = mock(RiskEngine.class);
+    private final AsyncFillWriter writer = new AsyncFillWriter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(writer, "tradeExecutor", tradeExecutor);
+        ReflectionTestUtils.setField(writer, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(writer, "riskEngine", riskEngine);
+        ReflectionTestUtils.setField(writer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "maxAttempts", 3);
+        ReflectionTestUtils.setField(writer, "retryBackoffMs", 1L);
+
+        Stock stock = new Stock();
+        stock.setSymbol("TCS");
+        when(quoteStore.findBySymbol("TCS")).thenReturn(Optional.of(stock));
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    void bothSidesOfAMatchAreSettledTogether() throws Exception {
+        when(tradeExecutor.submitMatch(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        writer.enqueue(List.of(fill(1, 10L, Trade.TradeType.BUY), fill(2, 20L, Trade.TradeType.SELL)), (refused, reason) -> {
+        });
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TradeInstruction>> match = ArgumentCaptor.forClass(List.class);
+        verify(tradeExecutor, timeout(1000)).submitMatch(match.capture());
+        assertThat(match.getValue()).extracting(TradeInstruction::userId).containsExactly(10L, 20L);
+        awaitSettled(10L, 20L);
+        verify(riskEngine, timeout(1000)).release(10L, 1L, 5);
+        verify(riskEngine, timeout(1000)).release(20L, 2L, 5);
+    }
+
+    @Test
+    void databaseFailureIsRetried() throws Exception {
+        when(tradeExecutor.submitMatch(any()))
+                .thenReturn(CompletableFuture.failedFuture(new DataAccessResourceFailureException("down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        CompletableFuture<String> rejected = new CompletableFuture<>();
+
+        writer.enqueue(List.of(fill(1, 10L, Trade.TradeType.BUY)), (refused, reason) -> rejected.complete(reason));
+
+        verify(tradeExecutor, timeout(1000).times(2)).submitMatch(any());
+        awaitSettled(10L);
+        assertThat(rejected).isNotDone();
+    }
+
+    @Test
+    void refusedFillIsRejectedWithoutRetry() throws Exception {
+        when(tradeExecutor.submitMatch(any()))
+                .thenReturn(CompletableFuture.failedFuture(new TradeRejectedException("Insufficient balance for this trade")));
+        CompletableFuture<String> rejected = new CompletableFuture<>();
+
+        writer.enqueue(List.of(fill(1, 10L, Trade.TradeType.BUY)), (refused, reason) -> rejected.complete(reason));
+
+        assertThat(rejected.get(1, TimeUnit.SECONDS)).isEqualTo("Insufficient balance for this trade");
+        verify(tradeExecutor, timeout(1000).times(1)).submitMatch(any());
+        assertThat(writer.pendingBuyPaise(10L)).isZero();
+    }
+
+    @Test
+    void refusedSideOfAMatchIsReported() throws Exception {
+        when(tradeExecutor.submitMatch(any())).thenAnswer(invocation -> {
+            List<TradeInstruction> instructions = invocation.getArgument(0);
+            return CompletableFuture.failedFuture(new SideRejectedException(instructions.get(1),
+                    new TradeRejectedException("Not enough shares to sell")));
+        });
+        CompletableFuture<Fill> rejected = new CompletableFuture<>();
+
+        writer.enqueue(List.of(fill(1, 10L, Trade.TradeType.BUY), fill(2, 20L, Trade.TradeType.SELL)),
+                (refused, reason) -> rejected.complete(refused));
+
+        assertThat(rejected.get(1, TimeUnit.SECONDS).orderId()).isEqualTo(2L);
+        verify(tradeExecutor, timeout(1000).times(1)).submitMatch(any());
+    }
+
+    @Test
+    void fillIsRejectedOnceRetriesRunOut() throws Exception {
+        when(tradeExecutor.submitMatch(any()))
+                .thenReturn(CompletableFuture.failedFuture(new DataAccessResourceFailureException("down")));
+        CompletableFuture<String> rejected = new CompletableFuture<>();
+
+        writer.enqueue(List.of(fill(1, 10L, Trade.TradeType.SELL)), (refused, reason) -> rejected.complete(reason));
+
+        assertThat(rejected.get(1, TimeUnit.SECONDS)).isEqualTo("down");
+        verify(tradeExecutor, timeout(1000).times(3)).submitMatch(any());
+        assertThat(writer.pendingSellShares(10L, "TCS")).isZero();
+    }
+
+    @Test
+    void fillsArePendingUntilSettled() {
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        when(tradeExecutor.submitMatch(any())).thenReturn(settled);
+
+        writer.enqueue(List.of(fill(1, 10L, Trade.TradeType.BUY)), (refused, reason) -> {
+        });
+
+        assertThat(writer.pendingBuyPaise(10L)).isEqualTo(5 * 100_00L);
+        verify(tradeExecutor, timeout(1000)).submitMatch(any());
+        settled.complete(null);
+        assertThat(writer.pendingBuyPaise(10L)).isZero();
+    }
+
+    private void awaitSettled(Long... userIds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        for (Long userId : userIds) {
+            while ((writer.pendingBuyPaise(userId) != 0 || writer.pendingSellShares(userId, "TCS") != 0)
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(writer.pendingBuyPaise(userId)).isZero();
+            assertThat(writer.pendingSellShares(userId, "TCS")).isZero();
+        }
+    }
+
+    private static Fill fill(long orderId, Long userId, Trade.TradeType side) {
+        return new Fill(orderId, userId, "TCS", side, 5, 100_00, 0L, LocalDateTime.now());
+    }
+}
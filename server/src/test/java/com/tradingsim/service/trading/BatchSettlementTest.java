@@ -0,0 +1,80 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.dto.response.TradeResult;
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchSettlementTest {
+
+    private final Stock tcs = SettlementTest.stock("TCS", "100.00");
+    private final Stock infy = SettlementTest.stock("INFY", "50.00");
+
+    @Test
+    void laterOrdersSeeTheSnapshotLeftByEarlierOnes() {
+        AccountStore.Account account = account("1000.00", Map.of());
+
+        BatchSettlement batch = BatchSettlement.apply(account, List.of(
+                order(tcs, Trade.TradeType.BUY, 6),
+                order(tcs, Trade.TradeType.BUY, 6),   // only 400 left
+                order(infy, Trade.TradeType.BUY, 8),
+                order(tcs, Trade.TradeType.SELL, 6)), List.of(0, 1, 2, 3));
+
+        assertThat(batch.getResults()).extracting(TradeResult::getStatus)
+                .containsExactly("EXECUTED", "REJECTED", "EXECUTED", "EXECUTED");
+        assertThat(batch.getResults()).extracting(TradeResult::getIndex).containsExactly(0, 1, 2, 3);
+        assertThat(batch.getWalletBalance()).isEqualByComparingTo("600.00");
+        assertThat(batch.getSettlements()).hasSize(3);
+    }
+
+    @Test
+    void holdingOpenedAndClosedInOneBatchIsNeverWritten() {
+        AccountStore.Account account = account("1000.00", Map.of());
+
+        BatchSettlement batch = BatchSettlement.apply(account, List.of(
+                order(tcs, Trade.TradeType.BUY, 2),
+                order(tcs, Trade.TradeType.SELL, 2)), List.of(0, 1));
+
+        assertThat(batch.getChangedHoldings()).isEmpty();
+        assertThat(batch.getClosedHoldings()).isEmpty();
+        assertThat(account.getHoldings()).isEmpty();
+    }
+
+    @Test
+    void storedHoldingSoldOutIsDeletedAndOthersUpdated() {
+        Portfolio stored = new Portfolio();
+        stored.setId(5L);
+        stored.setStockSymbol("TCS");
+        stored.setQuantity(3);
+        stored.setAverageBuyPrice(new BigDecimal("90.00"));
+        stored.setTotalInvestment(new BigDecimal("270.00"));
+        AccountStore.Account account = account("0.00", Map.of("TCS", stored));
+
+        BatchSettlement batch = BatchSettlement.apply(account, List.of(
+                order(tcs, Trade.TradeType.SELL, 3),
+                order(infy, Trade.TradeType.BUY, 2),
+                order(infy, Trade.TradeType.SELL, 5)), List.of(4, 7, 9));
+
+        assertThat(batch.getClosedHoldings()).containsExactly(stored);
+        assertThat(batch.getChangedHoldings()).extracting(Portfolio::getStockSymbol).containsExactly("INFY");
+        assertThat(batch.getResults()).extracting(TradeResult::getStatus).containsExactly("EXECUTED", "EXECUTED", "REJECTED");
+        assertThat(batch.getWalletBalance()).isEqualByComparingTo("200.00");
+    }
+
+    private AccountStore.Account account(String balance, Map<String, Portfolio> holdings) {
+        return new AccountStore.Account(SettlementTest.user(1L), SettlementTest.wallet(balance), new HashMap<>(holdings));
+    }
+
+    private TradeInstruction order(Stock stock, Trade.TradeType side, int quantity) {
+        return TradeInstruction.fill(1L, stock, side, quantity, Money.of(stock.getCurrentPrice()));
+    }
+}
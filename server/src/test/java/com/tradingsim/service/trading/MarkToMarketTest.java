@@ -0,0 +1,259 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.dto.response.HoldingResponse;
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.User;
+import com.tradingsim.model.Wallet;
+import com.tradingsim.service.market.Quote;
+import com.tradingsim.service.market.QuoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MarkToMarketTest {
+
+    private static final String[] SYMBOLS = {"TCS", "INFY", "WIPRO"};
+
+    private final QuoteStore quoteStore = mock(QuoteStore.class);
+    private final long[] prices = {3_500_00, 1_500_00, 450_00};
+    private JdbcTemplate jdbcTemplate;
+    private MarkToMarket current;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        createPortfolios();
+        when(quoteStore.idOf(anyString())).thenReturn(-1);
+        for (int id = 0; id < SYMBOLS.length; id++) {
+            when(quoteStore.idOf(SYMBOLS[id])).thenReturn(id);
+        }
+        when(quoteStore.get(anyInt())).thenAnswer(invocation -> quote(invocation.getArgument(0)));
+    }
+
+    @Test
+    void loadedHoldingsAreValuedAndOnlyTheTickedStockMoves() {
+        insert(1L, 1L, "TCS", 10, "3000.00");
+        insert(2L, 1L, "INFY", 20, "1400.00");
+        insert(3L, 2L, "TCS", 5, "3600.00");
+        insert(4L, 2L, "DELISTED", 5, "10.00");
+        MarkToMarket marks = markToMarket(true);
+
+        assertThat(marks.valuePaise(1L)).isEqualTo(10 * 3_500_00L + 20 * 1_500_00L);
+        marks.flush();
+
+        tick(0, 3_600_00);
+
+        MarkToMarket.Marks first = marks.marks(1L);
+        assertThat(first.valuePaise()).isEqualTo(10 * 3_600_00L + 20 * 1_500_00L);
+        assertThat(first.investmentPaise()).isEqualTo(10 * 3_000_00L + 20 * 1_400_00L);
+        assertThat(first.holdings()).extracting(HoldingResponse::getStockSymbol).containsExactly("TCS", "INFY");
+        assertThat(first.holdings().get(0).getProfitLoss()).isEqualByComparingTo("6000.00");
+        assertThat(marks.marks(2L).holdings()).extracting(HoldingResponse::getStockSymbol).containsExactly("TCS");
+        assertThat(marks.marks(3L).holdings()).isEmpty();
+
+        marks.flush();
+        assertThat(storedValue(1L, "TCS")).isEqualByComparingTo("36000.00");
+        assertThat(storedValue(2L, "TCS")).isEqualByComparingTo("18000.00");
+        assertThat(storedValue(1L, "INFY")).isEqualByComparingTo("30000.00");
+    }
+
+    @Test
+    void settledFillsOpenUpdateAndCloseHoldings() {
+        MarkToMarket marks = markToMarket(true);
+
+        Settlement buy = settle(1L, null, Trade.TradeType.BUY, 10, 3_400_00);
+        marks.onSettled(List.of(buy));
+        Portfolio holding = buy.getHolding();
+        assertThat(marks.marks(1L).holdings()).singleElement().satisfies(h -> {
+            assertThat(h.getQuantity()).isEqualTo(10);
+            assertThat(h.getCurrentValue()).isEqualByComparingTo("35000.00");
+            assertThat(h.getTotalInvestment()).isEqualByComparingTo("34000.00");
+        });
+
+        marks.onSettled(List.of(settle(1L, holding, Trade.TradeType.SELL, 4, 3_500_00)));
+        assertThat(marks.valuePaise(1L)).isEqualTo(6 * 3_500_00L);
+
+        marks.onSettled(List.of(settle(1L, holding, Trade.TradeType.SELL, 6, 3_500_00)));
+        tick(0, 3_700_00);
+        assertThat(marks.marks(1L).holdings()).isEmpty();
+        assertThat(marks.marks(1L).investmentPaise()).isZero();
+        assertThat(marks.valuePaise(1L)).isZero();
+    }
+
+    @Test
+    void failedWriteIsRetriedOnTheNextFlush() {
+        insert(1L, 1L, "TCS", 10, "3000.00");
+        MarkToMarket marks = markToMarket(true);
+        marks.flush();
+        tick(0, 3_800_00);
+        jdbcTemplate.execute("drop table portfolios");
+
+        marks.flush();
+        createPortfolios();
+        insert(1L, 1L, "TCS", 10, "3000.00");
+        marks.flush();
+
+        assertThat(storedValue(1L, "TCS")).isEqualByComparingTo("38000.00");
+    }
+
+    @Test
+    void totalsMatchARecomputeFromQuotesAfterRandomTicksAndFills() {
+        Random random = new Random(37);
+        Map<Long, Map<String, Portfolio>> model = new HashMap<>();
+        long rowId = 1;
+        for (long userId = 1; userId <= 30; userId++) {
+            for (String symbol : SYMBOLS) {
+                if (random.nextBoolean()) {
+                    int quantity = 1 + random.nextInt(50);
+                    String average = BigDecimal.valueOf(100_00 + random.nextInt(400_000), 2).toPlainString();
+                    insert(rowId++, userId, symbol, quantity, average);
+                    model.computeIfAbsent(userId, id -> new LinkedHashMap<>())
+                            .put(symbol, portfolio(userId, symbol, quantity, average));
+                }
+            }
+        }
+        MarkToMarket marks = markToMarket(true);
+
+        for (int step = 0; step < 5_000; step++) {
+            int id = random.nextInt(SYMBOLS.length);
+            if (random.nextInt(4) > 0) {
+                tick(id, Math.max(1_00, prices[id] + random.nextInt(2_001) - 1_000), marks);
+                continue;
+            }
+            long userId = 1 + random.nextInt(30);
+            Map<String, Portfolio> holdings = model.computeIfAbsent(userId, u -> new LinkedHashMap<>());
+            Portfolio holding = holdings.get(SYMBOLS[id]);
+            Settlement settlement;
+            if (holding == null || random.nextBoolean()) {
+                settlement = settle(userId, holding, Trade.TradeType.BUY, 1 + random.nextInt(20), prices[id], SYMBOLS[id]);
+                holdings.put(SYMBOLS[id], settlement.getHolding());
+            } else {
+                settlement = settle(userId, holding, Trade.TradeType.SELL, 1 + random.nextInt(holding.getQuantity()),
+                        prices[id], SYMBOLS[id]);
+                if (settlement.isHoldingClosed()) {
+                    holdings.remove(SYMBOLS[id]);
+                }
+            }
+            marks.onSettled(List.of(settlement));
+        }
+
+        for (long userId = 1; userId <= 30; userId++) {
+            long value = 0;
+            long investment = 0;
+            for (Portfolio holding : model.getOrDefault(userId, Map.of()).values()) {
+                value += prices[List.of(SYMBOLS).indexOf(holding.getStockSymbol())] * holding.getQuantity();
+                investment += Money.toPaise(holding.getTotalInvestment());
+            }
+            MarkToMarket.Marks recorded = marks.marks(userId);
+            assertThat(recorded.valuePaise()).as("user %d", userId).isEqualTo(value);
+            assertThat(recorded.investmentPaise()).as("user %d", userId).isEqualTo(investment);
+            assertThat(recorded.holdings()).hasSize(model.getOrDefault(userId, Map.of()).size());
+        }
+    }
+
+    @Test
+    void disabledMarksHoldNothing() {
+        insert(1L, 1L, "TCS", 10, "3000.00");
+        MarkToMarket marks = markToMarket(false);
+
+        tick(0, 3_600_00, marks);
+
+        assertThat(marks.isEnabled()).isFalse();
+        assertThat(marks.marks(1L).holdings()).isEmpty();
+    }
+
+    private MarkToMarket markToMarket(boolean enabled) {
+        MarkToMarket marks = new MarkToMarket();
+        ReflectionTestUtils.setField(marks, "enabled", enabled);
+        ReflectionTestUtils.setField(marks, "capacity", 16);
+        ReflectionTestUtils.setField(marks, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(marks, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(marks, "meterRegistry", new SimpleMeterRegistry());
+        marks.load();
+        current = marks;
+        return marks;
+    }
+
+    private void tick(int id, long pricePaise) {
+        tick(id, pricePaise, current);
+    }
+
+    private void tick(int id, long pricePaise, MarkToMarket marks) {
+        prices[id] = pricePaise;
+        marks.onQuote(quote(id));
+    }
+
+    private Quote quote(int id) {
+        return new Quote(id, id + 1L, SYMBOLS[id], SYMBOLS[id], prices[id], 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    private Settlement settle(Long userId, Portfolio holding, Trade.TradeType side, int quantity, long pricePaise) {
+        return settle(userId, holding, side, quantity, pricePaise, "TCS");
+    }
+
+    private Settlement settle(Long userId, Portfolio holding, Trade.TradeType side, int quantity, long pricePaise,
+                              String symbol) {
+        User user = new User();
+        user.setId(userId);
+        Wallet wallet = new Wallet();
+        wallet.setBalance(new BigDecimal("100000000.00"));
+        Stock stock = new Stock();
+        stock.setSymbol(symbol);
+        stock.setName(symbol);
+        stock.setCurrentPrice(Money.toRupees(pricePaise));
+        return Settlement.apply(user, wallet, holding,
+                TradeInstruction.fill(userId, stock, side, quantity, Money.ofPaise(pricePaise)));
+    }
+
+    private static Portfolio portfolio(Long userId, String symbol, int quantity, String average) {
+        User user = new User();
+        user.setId(userId);
+        Portfolio portfolio = new Portfolio();
+        portfolio.setUser(user);
+        portfolio.setStockSymbol(symbol);
+        portfolio.setStockName(symbol);
+        portfolio.setQuantity(quantity);
+        portfolio.setAverageBuyPrice(new BigDecimal(average));
+        portfolio.setTotalInvestment(new BigDecimal(average).multiply(BigDecimal.valueOf(quantity)));
+        return portfolio;
+    }
+
+    private void createPortfolios() {
+        jdbcTemplate.execute("create table portfolios (id bigint primary key, user_id bigint, stock_symbol varchar(20), " +
+                "stock_name varchar(100), quantity int, average_buy_price decimal(15,2), current_value decimal(15,2), " +
+                "profit_loss decimal(15,2), total_investment decimal(15,2))");
+    }
+
+    private void insert(Long id, Long userId, String symbol, int quantity, String average) {
+        BigDecimal investment = new BigDecimal(average).multiply(BigDecimal.valueOf(quantity));
+        jdbcTemplate.update("insert into portfolios (id, user_id, stock_symbol, stock_name, quantity, average_buy_price, " +
+                "total_investment) values (?, ?, ?, ?, ?, ?, ?)", id, userId, symbol, symbol, quantity,
+                new BigDecimal(average), investment);
+    }
+
+    private BigDecimal storedValue(Long userId, String symbol) {
+        return jdbcTemplate.queryForObject("select current_value from portfolios where user_id = ? and stock_symbol = ?",
+                BigDecimal.class, userId, symbol);
+    }
+}
@@ -0,0 +1,112 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Portfolio;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.Transaction;
+import com.tradingsim.model.User;
+import com.tradingsim.model.Wallet;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SettlementTest {
+
+    private final User user = user(1L);
+    private final Stock stock = stock("TCS", "3500.00");
+
+    @Test
+    void buyOpensHoldingAndDebitsWallet() {
+        Wallet wallet = wallet("100000.00");
+
+        Settlement settlement = Settlement.apply(user, wallet, null,
+                TradeInstruction.fill(1L, stock, Trade.TradeType.BUY, 10, Money.of(new BigDecimal("3400.00"))));
+
+        assertThat(wallet.getBalance()).isEqualByComparingTo("66000.00");
+        assertThat(settlement.getBalanceChange()).isEqualTo(Money.of(new BigDecimal("-34000.00")));
+        assertThat(settlement.getHolding().getQuantity()).isEqualTo(10);
+        assertThat(settlement.getHolding().getAverageBuyPrice()).isEqualByComparingTo("3400.00");
+        assertThat(settlement.getHolding().getProfitLoss()).isEqualByComparingTo("1000.00");
+        assertThat(settlement.getTransaction().getType()).isEqualTo(Transaction.TransactionType.TRADE_BUY);
+        assertThat(settlement.getTransaction().getBalanceAfter()).isEqualByComparingTo("66000.00");
+        assertThat(settlement.isHoldingClosed()).isFalse();
+    }
+
+    @Test
+    void buyAveragesIntoExistingHolding() {
+        Portfolio holding = holding(10, "3000.00");
+
+        Settlement.apply(user, wallet("100000.00"), holding,
+                TradeInstruction.fill(1L, stock, Trade.TradeType.BUY, 10, Money.of(new BigDecimal("4000.00"))));
+
+        assertThat(holding.getQuantity()).isEqualTo(20);
+        assertThat(holding.getAverageBuyPrice()).isEqualByComparingTo("3500.00");
+        assertThat(holding.getTotalInvestment()).isEqualByComparingTo("70000.00");
+    }
+
+    @Test
+    void sellingEverythingClosesTheHolding() {
+        Wallet wallet = wallet("0.00");
+
+        Settlement settlement = Settlement.apply(user, wallet, holding(5, "3000.00"),
+                TradeInstruction.fill(1L, stock, Trade.TradeType.SELL, 5, Money.of(new BigDecimal("3500.00"))));
+
+        assertThat(settlement.isHoldingClosed()).isTrue();
+        assertThat(wallet.getBalance()).isEqualByComparingTo("17500.00");
+        assertThat(settlement.getBalanceChange()).isEqualTo(Money.of(new BigDecimal("17500.00")));
+    }
+
+    @Test
+    void heldCashAndSharesAreLeftAlone() {
+        Wallet wallet = wallet("1000.00");
+        TradeInstruction buy = new TradeInstruction(1L, stock, Trade.TradeType.BUY, 1, Money.of(new BigDecimal("600.00")),
+                50_000, 0);
+        assertThatThrownBy(() -> Settlement.apply(user, wallet, null, buy))
+                .isInstanceOf(TradeRejectedException.class);
+        assertThat(wallet.getBalance()).isEqualByComparingTo("1000.00");
+
+        Portfolio holding = holding(10, "3000.00");
+        TradeInstruction sell = new TradeInstruction(1L, stock, Trade.TradeType.SELL, 5, Money.of(new BigDecimal("3500.00")),
+                0, 6);
+        assertThatThrownBy(() -> Settlement.apply(user, wallet, holding, sell))
+                .isInstanceOf(TradeRejectedException.class);
+        assertThat(holding.getQuantity()).isEqualTo(10);
+    }
+
+    static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    static Wallet wallet(String balance) {
+        Wallet wallet = new Wallet();
+        wallet.setId(1L);
+        wallet.setBalance(new BigDecimal(balance));
+        return wallet;
+    }
+
+    static Stock stock(String symbol, String price) {
+        Stock stock = new Stock();
+        stock.setSymbol(symbol);
+        stock.setName(symbol);
+        stock.setCurrentPrice(new BigDecimal(price));
+        return stock;
+    }
+
+    private Portfolio holding(int quantity, String averagePrice) {
+        Portfolio holding = new Portfolio();
+        holding.setId(7L);
+        holding.setUser(user);
+        holding.setStockSymbol(stock.getSymbol());
+        holding.setQuantity(quantity);
+        holding.setAverageBuyPrice(new BigDecimal(averagePrice));
+        holding.setTotalInvestment(new BigDecimal(averagePrice).multiply(BigDecimal.valueOf(quantity)));
+        return holding;
+    }
+}
@@ -0,0 +1,122 @@
+package com.tradingsim.service.trading;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardedTradeExecutorTest {
+
+    private final AccountStore accountStore = mock(AccountStore.class);
+    private final ShardedTradeExecutor executor = new ShardedTradeExecutor();
+    private final Stock stock = SettlementTest.stock("TCS", "100.00");
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(executor, "accountStore", accountStore);
+        ReflectionTestUtils.setField(executor, "shardCount", 4);
+        ReflectionTestUtils.setField(executor, "accountsPerShard", 100);
+        when(accountStore.load(anyLong())).thenAnswer(invocation -> new AccountStore.Account(
+                SettlementTest.user(invocation.getArgument(0)), SettlementTest.wallet(invocation.getArgument(0, Long.class) < 3 ? "1000.00" : "1000000.00"), new HashMap<>()));
+        executor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.stop();
+    }
+
+    @Test
+    void accountIsLoadedOnceAndKeptUpToDate() {
+        assertThat(executor.execute(buy(1L, 2))).isEqualByComparingTo("800.00");
+        assertThat(executor.execute(buy(1L, 3))).isEqualByComparingTo("500.00");
+
+        verify(accountStore, times(1)).load(1L);
+        verify(accountStore, times(2)).persist(any());
+    }
+
+    @Test
+    void evictedAccountIsReloaded() {
+        assertThat(executor.execute(buy(1L, 2))).isEqualByComparingTo("800.00");
+
+        // As after a wallet write outside the executor, which the reload picks up
+        executor.evict(1L);
+
+        assertThat(executor.execute(buy(1L, 3))).isEqualByComparingTo("700.00");
+        verify(accountStore, times(2)).load(1L);
+    }
+
+    @Test
+    void failedWriteDropsTheCachedAccount() {
+        doThrow(new DataAccessResourceFailureException("down")).when(accountStore).persist(any());
+        assertThatThrownBy(() -> executor.execute(buy(1L, 2))).isInstanceOf(DataAccessResourceFailureException.class);
+
+        doThrow(new TradeRejectedException("no")).when(accountStore).persist(any());
+        assertThatThrownBy(() -> executor.execute(buy(1L, 2))).isInstanceOf(TradeRejectedException.class);
+        verify(accountStore, times(2)).load(1L);
+    }
+
+    @Test
+    void bothSidesOfAMatchAreWrittenTogether() {
+        executor.submitMatch(List.of(buy(1L, 2), buy(2L, 3))).join();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Settlement>> written = ArgumentCaptor.forClass(List.class);
+        verify(accountStore).persistAll(written.capture());
+        assertThat(written.getValue()).extracting(settlement -> settlement.getBalanceChange())
+                .containsExactly(Money.of(new BigDecimal("-200.00")), Money.of(new BigDecimal("-300.00")));
+    }
+
+    @Test
+    void refusedSideOfAMatchIsNamed() {
+        TradeInstruction tooLarge = buy(2L, 20);
+
+        assertThatThrownBy(() -> executor.submitMatch(List.of(buy(3L, 1), tooLarge)).join())
+                .hasCauseInstanceOf(SideRejectedException.class)
+                .cause().satisfies(e -> assertThat(((SideRejectedException) e).getInstruction()).isSameAs(tooLarge))
+                .hasRootCauseInstanceOf(TradeRejectedException.class);
+    }
+
+    @Test
+    void crossingMatchesDoNotDeadlock() throws Exception {
+        List<CompletableFuture<Void>> matches = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long a = 3 + i % 7;
+            long b = 10 + (i * 3 + 1) % 5;
+            matches.add(i % 2 == 0
+                    ? executor.submitMatch(List.of(buy(a, 1), buy(b, 1)))
+                    : executor.submitMatch(List.of(buy(b, 1), buy(a, 1))));
+            executor.submit(buy(b, 0));
+        }
+        CompletableFuture.allOf(matches.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        verify(accountStore, times(2_000)).persistAll(any());
+    }
+
+    private TradeInstruction buy(Long userId, int quantity) {
+        return TradeInstruction.fill(userId, stock, Trade.TradeType.BUY, quantity, Money.of(new BigDecimal("100.00")));
+    }
+
+}
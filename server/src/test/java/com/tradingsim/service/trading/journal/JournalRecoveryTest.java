@@ -0,0 +1,98 @@
+package com.tradingsim.service.trading.journal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JournalRecoveryTest {
+
+    private static final long DATABASE_MILLIS = Timestamp.valueOf("2026-01-05 10:00:00").getTime();
+
+    @TempDir
+    Path directory;
+
+    private JdbcTemplate jdbcTemplate;
+    private JournalRecovery recovery;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + directory.getFileName() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table wallets (id bigint primary key, balance decimal(15,2))");
+        jdbcTemplate.execute("create table transactions (id bigint auto_increment primary key, wallet_id bigint, created_at timestamp)");
+        jdbcTemplate.execute("create table stocks (symbol varchar(20) primary key, current_price decimal(15,2))");
+        jdbcTemplate.execute("create table portfolios (id bigint auto_increment primary key, user_id bigint, stock_symbol varchar(20), " +
+                "stock_name varchar(100), quantity int, average_buy_price decimal(15,2), current_value decimal(15,2), " +
+                "profit_loss decimal(15,2), total_investment decimal(15,2))");
+        jdbcTemplate.update("insert into stocks values ('TCS', 120.00), ('INFY', 50.00)");
+        jdbcTemplate.update("insert into wallets values (11, 500.00), (12, 500.00)");
+        jdbcTemplate.update("insert into transactions (wallet_id, created_at) values (11, ?), (12, ?)",
+                new Timestamp(DATABASE_MILLIS), new Timestamp(DATABASE_MILLIS));
+        jdbcTemplate.update("insert into portfolios (user_id, stock_symbol, stock_name, quantity) values (1, 'TCS', 'TCS', 4)");
+        jdbcTemplate.update("insert into portfolios (user_id, stock_symbol, stock_name, quantity) values (1, 'INFY', 'INFY', 2)");
+
+        TradeJournal tradeJournal = mock(TradeJournal.class);
+        when(tradeJournal.isEnabled()).thenReturn(true);
+        when(tradeJournal.getDirectory()).thenReturn(directory);
+        recovery = new JournalRecovery();
+        ReflectionTestUtils.setField(recovery, "restoreOnStartup", true);
+        ReflectionTestUtils.setField(recovery, "tradeJournal", tradeJournal);
+        ReflectionTestUtils.setField(recovery, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(recovery, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    @Test
+    void restoresOnlyWhatIsNewerThanTheDatabase() throws IOException {
+        try (JournalWriter writer = new JournalWriter(directory, 1 << 16)) {
+            // User 1: INFY is already in the database, TCS settled after the last transaction
+            settlement(writer, 1, 11, "INFY", 400_00, 9, DATABASE_MILLIS - 1_000);
+            settlement(writer, 1, 11, "TCS", 300_00, 6, DATABASE_MILLIS + 1_000);
+            // User 2: nothing newer than the database
+            settlement(writer, 2, 12, "TCS", 100_00, 3, DATABASE_MILLIS);
+        }
+
+        recovery.restore();
+
+        assertThat(balance(11)).isEqualByComparingTo("300.00");
+        assertThat(balance(12)).isEqualByComparingTo("500.00");
+        assertThat(quantity(1, "TCS")).isEqualTo(6);
+        assertThat(quantity(1, "INFY")).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from portfolios where user_id = 2", Integer.class))
+                .isZero();
+    }
+
+    private BigDecimal balance(long walletId) {
+        return jdbcTemplate.queryForObject("select balance from wallets where id = ?", BigDecimal.class, walletId);
+    }
+
+    private int quantity(long userId, String symbol) {
+        return jdbcTemplate.queryForObject("select quantity from portfolios where user_id = ? and stock_symbol = ?",
+                Integer.class, userId, symbol);
+    }
+
+    private static void settlement(JournalWriter writer, long userId, long walletId, String symbol, long balancePaise,
+                                   int holdingQuantity, long timestamp) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        JournalRecords.encode(new JournalRecords.SettlementRecord(userId, walletId, symbol, symbol, true, 1, 100_00,
+                balancePaise, holdingQuantity, 100_00, holdingQuantity * 100_00L, timestamp), buffer);
+        buffer.flip();
+        writer.append(JournalRecords.SETTLEMENT, buffer);
+    }
+}
@@ -0,0 +1,118 @@
+package com.tradingsim.service.trading.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalReplayerTest {
+
+    @TempDir
+    Path directory;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(512);
+
+    @Test
+    void lastRecordPerWalletAndHoldingWins() throws IOException {
+        try (JournalWriter writer = new JournalWriter(directory, 1 << 16)) {
+            order(writer, 41);
+            settlement(writer, 1, "TCS", 900_00, 5, 1_000);
+            settlement(writer, 1, "INFY", 800_00, 2, 2_000);
+            settlement(writer, 1, "TCS", 950_00, 0, 3_000);
+            order(writer, 42);
+            settlement(writer, 2, "TCS", 100_00, 1, 4_000);
+        }
+
+        JournalReplayer replayer = new JournalReplayer().replay(directory);
+
+        assertThat(replayer.getOrders()).isEqualTo(2);
+        assertThat(replayer.getLastOrderId()).isEqualTo(42);
+        assertThat(replayer.getSettlements()).isEqualTo(4);
+        JournalReplayer.Account account = replayer.getAccounts().get(1L);
+        assertThat(account.getBalancePaise()).isEqualTo(950_00);
+        assertThat(account.getLastTimestamp()).isEqualTo(3_000);
+        assertThat(account.getHoldings().get("TCS").holdingQuantity()).isZero();
+        assertThat(account.getHoldings().get("INFY").holdingQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void abortedSettlementsAreSkipped() throws IOException {
+        try (JournalWriter writer = new JournalWriter(directory, 1 << 16)) {
+            settlement(writer, 1, "TCS", 900_00, 5, 1_000);
+            long aborted = settlement(writer, 1, "TCS", 500_00, 9, 2_000);
+            buffer.clear();
+            JournalRecords.encodeAbort(new long[]{aborted}, buffer);
+            buffer.flip();
+            writer.append(JournalRecords.ABORT, buffer);
+        }
+
+        JournalReplayer.Account account = new JournalReplayer().replay(directory).getAccounts().get(1L);
+
+        assertThat(account.getBalancePaise()).isEqualTo(900_00);
+        assertThat(account.getHoldings().get("TCS").holdingQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void segmentsRollAndReadBackInOrder() throws IOException {
+        try (JournalWriter writer = new JournalWriter(directory, 1024)) {
+            for (int i = 1; i <= 100; i++) {
+                order(writer, i);
+            }
+            assertThat(writer.getSegmentIndex()).isPositive();
+        }
+
+        List<Long> ids = new ArrayList<>();
+        JournalReader reader = new JournalReader(directory);
+        reader.read((position, type, payload) -> ids.add(JournalRecords.decodeOrder(payload).orderId()));
+
+        assertThat(ids).hasSize(100).isSorted();
+        assertThat(reader.getSegments()).isGreaterThan(1);
+    }
+
+    @Test
+    void tornRecordEndsTheJournalAndIsOverwrittenOnReopen() throws IOException {
+        long second;
+        try (JournalWriter writer = new JournalWriter(directory, 1 << 16)) {
+            order(writer, 1);
+            second = order(writer, 2);
+        }
+        // Flip a payload byte of the second record so its checksum no longer matches
+        try (RandomAccessFile file = new RandomAccessFile(JournalSegments.path(directory, 0).toFile(), "rw")) {
+            long offset = (second & 0xFFFFFFFFL) + JournalWriter.HEADER_BYTES + 3;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xFF);
+        }
+        assertThat(new JournalReplayer().replay(directory).getLastOrderId()).isEqualTo(1);
+
+        try (JournalWriter writer = new JournalWriter(directory, 1 << 16)) {
+            assertThat(order(writer, 3)).isEqualTo(second);
+        }
+        assertThat(new JournalReplayer().replay(directory).getLastOrderId()).isEqualTo(3);
+    }
+
+    private long order(JournalWriter writer, long orderId) throws IOException {
+        buffer.clear();
+        JournalRecords.encode(new JournalRecords.OrderRecord(orderId, 1, "TCS", true, "LIMIT", "DAY",
+                100_00, 0, 1, 0), buffer);
+        buffer.flip();
+        return writer.append(JournalRecords.ORDER, buffer);
+    }
+
+    private long settlement(JournalWriter writer, long userId, String symbol, long balancePaise, int holdingQuantity,
+                            long timestamp) throws IOException {
+        buffer.clear();
+        JournalRecords.encode(new JournalRecords.SettlementRecord(userId, userId + 100, symbol, symbol, true, 1,
+                100_00, balancePaise, holdingQuantity, 100_00, holdingQuantity * 100_00L, timestamp), buffer);
+        buffer.flip();
+        return writer.append(JournalRecords.SETTLEMENT, buffer);
+    }
+}
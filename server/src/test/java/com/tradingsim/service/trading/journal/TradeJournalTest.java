@@ -0,0 +1,127 @@
+package com.tradingsim.service.trading.journal;
+
+import com.tradingsim.model.Money;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.User;
+import com.tradingsim.model.Wallet;
+import com.tradingsim.service.trading.Settlement;
+import com.tradingsim.service.trading.TradeInstruction;
+import com.tradingsim.service.trading.matching.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TradeJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private TradeJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void appendsImmediatelyOutsideATransaction() throws IOException {
+        journal.record(List.of(buy("1000.00")));
+
+        assertThat(replay().getSettlements()).isEqualTo(1);
+    }
+
+    @Test
+    void appendsBeforeCommit() throws IOException {
+        TransactionSynchronizationManager.initSynchronization();
+        journal.record(List.of(buy("1000.00")));
+        assertThat(replay().getSettlements()).isZero();
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        JournalReplayer.Account account = replay().getAccounts().get(1L);
+        assertThat(account.getBalancePaise()).isEqualTo(Money.toPaise(new BigDecimal("900.00")));
+    }
+
+    @Test
+    void rollbackAfterAppendVoidsTheSettlements() throws IOException {
+        journal.record(List.of(buy("1000.00")));
+        TransactionSynchronizationManager.initSynchronization();
+        journal.record(List.of(buy("900.00")));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        JournalReplayer replayer = replay();
+        assertThat(replayer.getSettlements()).isEqualTo(1);
+        assertThat(replayer.getAccounts().get(1L).getBalancePaise()).isEqualTo(Money.toPaise(new BigDecimal("900.00")));
+    }
+
+    @Test
+    void reopeningSeedsTheLastOrderId() throws IOException {
+        journal.appendOrder(41, 1L, "TCS", Trade.TradeType.BUY, Order.OrderType.LIMIT, Order.TimeInForce.DAY,
+                100_00, 0, 1);
+        journal.appendOrder(42, 1L, "TCS", Trade.TradeType.BUY, Order.OrderType.MARKET, Order.TimeInForce.IOC,
+                0, 0, 1);
+        journal.stop();
+
+        journal = open();
+
+        assertThat(journal.getLastOrderId()).isEqualTo(42);
+    }
+
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        // A rollback here is a commit that failed after the journal had been written
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private JournalReplayer replay() throws IOException {
+        return new JournalReplayer().replay(directory);
+    }
+
+    private TradeJournal open() throws IOException {
+        TradeJournal journal = new TradeJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(journal, "meterRegistry", new SimpleMeterRegistry());
+        journal.start();
+        return journal;
+    }
+
+    private static Settlement buy(String balance) {
+        User user = new User();
+        user.setId(1L);
+        Wallet wallet = new Wallet();
+        wallet.setId(11L);
+        wallet.setBalance(new BigDecimal(balance));
+        Stock stock = new Stock();
+        stock.setSymbol("TCS");
+        stock.setName("Tata Consultancy");
+        stock.setCurrentPrice(new BigDecimal("100.00"));
+        return Settlement.apply(user, wallet, null,
+                TradeInstruction.fill(1L, stock, Trade.TradeType.BUY, 1, Money.of(new BigDecimal("100.00"))));
+    }
+}
@@ -0,0 +1,90 @@
+package com.tradingsim.service.trading.matching;
+
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.trading.AsyncFillWriter;
+import com.tradingsim.service.trading.journal.TradeJournal;
+import com.tradingsim.service.trading.risk.RiskEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class MatchingEngineTest {
+
+    private final AsyncFillWriter fillWriter = mock(AsyncFillWriter.class);
+    private final List<BiConsumer<Fill, String>> onRejected = new ArrayList<>();
+    private MatchingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> onRejected.add(invocation.getArgument(1))).when(fillWriter).enqueue(any(), any());
+
+        engine = new MatchingEngine();
+        ReflectionTestUtils.setField(engine, "threadCount", 1);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 64);
+        ReflectionTestUtils.setField(engine, "retentionMinutes", 30L);
+        ReflectionTestUtils.setField(engine, "fillWriter", fillWriter);
+        ReflectionTestUtils.setField(engine, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(engine, "tradeJournal", mock(TradeJournal.class));
+        ReflectionTestUtils.setField(engine, "riskEngine", mock(RiskEngine.class));
+        engine.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.stop();
+    }
+
+    @Test
+    void closedOrdersCanBeLookedUpUntilTheRetentionWindowRunsOut() {
+        Order buy = order(1L, Trade.TradeType.BUY, Order.OrderType.MARKET, 0, 5);
+        engine.submit(buy, 100_00).join();
+
+        assertThat(engine.getOrder(buy.getId())).isSameAs(buy);
+        assertThat(buy.getStatus()).isEqualTo(Order.Status.FILLED);
+        assertThat(engine.getOpenOrders(1L)).isEmpty();
+
+        engine.evictClosedOrders();
+        assertThat(engine.getOrder(buy.getId())).isSameAs(buy);
+        ReflectionTestUtils.setField(engine, "retentionMinutes", -1L);
+        engine.evictClosedOrders();
+        assertThat(engine.getOrder(buy.getId())).isNull();
+    }
+
+    @Test
+    void onlyTheSideThatFailedToSettleIsRejected() {
+        Order sell = order(1L, Trade.TradeType.SELL, Order.OrderType.LIMIT, 100_00, 5);
+        engine.submit(sell, 99_00).join();
+        Order buy = order(2L, Trade.TradeType.BUY, Order.OrderType.LIMIT, 100_00, 5);
+        engine.submit(buy, 100_00).join();
+        assertThat(sell.getStatus()).isEqualTo(Order.Status.FILLED);
+
+        onRejected.get(0).accept(new Fill(buy.getId(), 2L, "TCS", Trade.TradeType.BUY, 5, 100_00, sell.getId(),
+                LocalDateTime.now()), "Insufficient balance for this trade");
+        // Queued behind the rejection on the same book
+        engine.submit(order(3L, Trade.TradeType.BUY, Order.OrderType.LIMIT, 90_00, 1), 100_00).join();
+
+        assertThat(buy.getStatus()).isEqualTo(Order.Status.REJECTED);
+        assertThat(buy.getFilledQuantity()).isZero();
+        assertThat(sell.getStatus()).isEqualTo(Order.Status.OPEN);
+        assertThat(sell.getFilledQuantity()).isZero();
+        assertThat(engine.getOpenOrders(1L)).containsExactly(sell);
+        assertThat(engine.getOrder(buy.getId())).isSameAs(buy);
+    }
+
+    private Order order(Long userId, Trade.TradeType side, Order.OrderType type, long limitPaise, int quantity) {
+        return new Order(engine.nextOrderId(), userId, "TCS", side, type,
+                type == Order.OrderType.MARKET ? Order.TimeInForce.IOC : Order.TimeInForce.DAY, limitPaise, 0, quantity);
+    }
+}
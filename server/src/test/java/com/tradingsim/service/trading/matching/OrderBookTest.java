@@ -0,0 +1,198 @@
+package com.tradingsim.service.trading.matching;
+
+import com.tradingsim.model.Trade;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderBookTest {
+
+    private final List<Execution> fills = new ArrayList<>();
+    private final List<Order> closed = new ArrayList<>();
+    private OrderBook book;
+    private long ids;
+
+    private record Execution(Order order, Order counter, int quantity, long pricePaise) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        book = new OrderBook("TCS", new OrderBook.Listener() {
+            @Override
+            public void onFill(Order order, Order counter, int quantity, long pricePaise) {
+                fills.add(new Execution(order, counter, quantity, pricePaise));
+            }
+
+            @Override
+            public void onClosed(Order order) {
+                closed.add(order);
+            }
+        });
+    }
+
+    @Test
+    void marketOrderFillsAgainstSimulatorAtReference() {
+        Order buy = order(1L, Trade.TradeType.BUY, Order.OrderType.MARKET, Order.TimeInForce.IOC, 0, 0, 10);
+        book.submit(buy, 100_00);
+
+        assertThat(fills).containsExactly(new Execution(buy, null, 10, 100_00));
+        assertThat(buy.getStatus()).isEqualTo(Order.Status.FILLED);
+        assertThat(closed).containsExactly(buy);
+    }
+
+    @Test
+    void limitOrderRestsUntilPriceTradesThrough() {
+        Order buy = limit(1L, Trade.TradeType.BUY, 95_00, 5);
+        book.submit(buy, 100_00);
+
+        assertThat(fills).isEmpty();
+        assertThat(buy.getStatus()).isEqualTo(Order.Status.OPEN);
+
+        book.onPrice(96_00);
+        assertThat(fills).isEmpty();
+
+        book.onPrice(95_00);
+        assertThat(fills).containsExactly(new Execution(buy, null, 5, 95_00));
+        assertThat(buy.getStatus()).isEqualTo(Order.Status.FILLED);
+    }
+
+    @Test
+    void userToUserMatchIsReportedOnceWithBothSidesFilled() {
+        Order sell = limit(1L, Trade.TradeType.SELL, 100_00, 4);
+        book.submit(sell, 99_00);
+        Order buy = limit(2L, Trade.TradeType.BUY, 100_00, 10);
+        book.submit(buy, 100_00);
+
+        assertThat(fills).containsExactly(new Execution(buy, sell, 4, 100_00),
+                // The rest crosses the reference and the simulator takes it
+                new Execution(buy, null, 6, 100_00));
+        assertThat(sell.getStatus()).isEqualTo(Order.Status.FILLED);
+        assertThat(buy.getStatus()).isEqualTo(Order.Status.FILLED);
+        assertThat(closed).containsExactly(sell, buy);
+    }
+
+    @Test
+    void restingOrdersMatchInPriceThenTimePriority() {
+        Order first = limit(1L, Trade.TradeType.SELL, 101_00, 1);
+        Order second = limit(2L, Trade.TradeType.SELL, 101_00, 1);
+        Order better = limit(3L, Trade.TradeType.SELL, 100_50, 1);
+        book.submit(first, 100_00);
+        book.submit(second, 100_00);
+        book.submit(better, 100_00);
+
+        book.submit(limit(4L, Trade.TradeType.BUY, 101_00, 3), 101_00);
+
+        assertThat(fills).extracting(Execution::counter).containsExactly(better, first, second);
+        assertThat(fills).extracting(Execution::pricePaise).containsExactly(100_50L, 101_00L, 101_00L);
+    }
+
+    @Test
+    void selfTradeCancelsTheRestingOrder() {
+        Order sell = limit(1L, Trade.TradeType.SELL, 100_00, 5);
+        book.submit(sell, 99_00);
+        Order buy = limit(1L, Trade.TradeType.BUY, 100_00, 5);
+        book.submit(buy, 100_00);
+
+        assertThat(sell.getStatus()).isEqualTo(Order.Status.CANCELLED);
+        assertThat(fills).containsExactly(new Execution(buy, null, 5, 100_00));
+    }
+
+    @Test
+    void fillOrKillIsCancelledWhenItCannotFillCompletely() {
+        Order fok = order(1L, Trade.TradeType.BUY, Order.OrderType.LIMIT, Order.TimeInForce.FOK, 99_00, 0, 5);
+        book.submit(fok, 100_00);
+
+        assertThat(fok.getStatus()).isEqualTo(Order.Status.CANCELLED);
+        assertThat(fills).isEmpty();
+    }
+
+    @Test
+    void stopTriggersWhenPriceCrossesIt() {
+        Order stop = order(1L, Trade.TradeType.SELL, Order.OrderType.STOP, Order.TimeInForce.GTC, 0, 90_00, 3);
+        book.submit(stop, 100_00);
+        assertThat(stop.getStatus()).isEqualTo(Order.Status.OPEN);
+
+        book.onPrice(89_00);
+        assertThat(fills).containsExactly(new Execution(stop, null, 3, 89_00));
+    }
+
+    @Test
+    void cancelAndExpireCloseRestingOrders() {
+        Order day = limit(1L, Trade.TradeType.BUY, 90_00, 1);
+        Order gtc = order(1L, Trade.TradeType.BUY, Order.OrderType.LIMIT, Order.TimeInForce.GTC, 91_00, 0, 1);
+        book.submit(day, 100_00);
+        book.submit(gtc, 100_00);
+
+        book.expire(Order.TimeInForce.DAY);
+        assertThat(day.getStatus()).isEqualTo(Order.Status.EXPIRED);
+        assertThat(book.cancel(gtc)).isTrue();
+        assertThat(gtc.getStatus()).isEqualTo(Order.Status.CANCELLED);
+        assertThat(book.cancel(gtc)).isFalse();
+    }
+
+    @Test
+    void rejectTakesBackTheFillAndPullsTheOrder() {
+        Order sell = limit(1L, Trade.TradeType.SELL, 100_00, 10);
+        book.submit(sell, 99_00);
+        book.submit(limit(2L, Trade.TradeType.BUY, 100_00, 4), 100_00);
+        assertThat(sell.getStatus()).isEqualTo(Order.Status.PARTIALLY_FILLED);
+
+        book.reject(sell, 4);
+
+        assertThat(sell.getStatus()).isEqualTo(Order.Status.REJECTED);
+        assertThat(sell.getFilledQuantity()).isZero();
+        assertThat(closed).endsWith(sell);
+        // Nothing of it is left to match against
+        Order buy = limit(3L, Trade.TradeType.BUY, 100_00, 1);
+        book.submit(buy, 100_00);
+        assertThat(fills.get(fills.size() - 1)).isEqualTo(new Execution(buy, null, 1, 100_00));
+    }
+
+    @Test
+    void restoredCounterGoesBackAtItsTimePriority() {
+        Order first = limit(1L, Trade.TradeType.SELL, 100_00, 4);
+        Order second = limit(2L, Trade.TradeType.SELL, 100_00, 4);
+        book.submit(first, 99_00);
+        book.submit(second, 99_00);
+        Order buy = limit(3L, Trade.TradeType.BUY, 100_00, 4);
+        book.submit(buy, 100_00);
+        assertThat(first.getStatus()).isEqualTo(Order.Status.FILLED);
+
+        book.reject(buy, 4);
+        book.restore(first, 4);
+
+        assertThat(first.getStatus()).isEqualTo(Order.Status.OPEN);
+        assertThat(first.getFilledQuantity()).isZero();
+        assertThat(first.getClosedAt()).isNull();
+        book.submit(limit(4L, Trade.TradeType.BUY, 100_00, 6), 100_00);
+        assertThat(fills.subList(1, fills.size())).extracting(Execution::counter).containsExactly(first, second);
+    }
+
+    @Test
+    void restoredAggressorThatNeverRestedIsMatchedAgain() {
+        Order sell = limit(1L, Trade.TradeType.SELL, 100_00, 4);
+        book.submit(sell, 99_00);
+        Order buy = order(2L, Trade.TradeType.BUY, Order.OrderType.MARKET, Order.TimeInForce.IOC, 0, 0, 4);
+        book.submit(buy, 100_00);
+
+        book.reject(sell, 4);
+        book.restore(buy, 4);
+
+        assertThat(sell.getStatus()).isEqualTo(Order.Status.REJECTED);
+        assertThat(fills.get(fills.size() - 1)).isEqualTo(new Execution(buy, null, 4, 100_00));
+        assertThat(buy.getStatus()).isEqualTo(Order.Status.FILLED);
+    }
+
+    private Order limit(Long userId, Trade.TradeType side, long limitPaise, int quantity) {
+        return order(userId, side, Order.OrderType.LIMIT, Order.TimeInForce.DAY, limitPaise, 0, quantity);
+    }
+
+    private Order order(Long userId, Trade.TradeType side, Order.OrderType type, Order.TimeInForce timeInForce,
+                        long limitPaise, long stopPaise, int quantity) {
+        return new Order(++ids, userId, "TCS", side, type, timeInForce, limitPaise, stopPaise, quantity);
+    }
+}
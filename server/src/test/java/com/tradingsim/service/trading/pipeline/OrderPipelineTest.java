@@ -0,0 +1,120 @@
+package com.tradingsim.service.trading.pipeline;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.Stock;
+import com.tradingsim.model.Trade;
+import com.tradingsim.service.market.QuoteStore;
+import com.tradingsim.service.trading.OrderService;
+import com.tradingsim.service.trading.matching.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderPipelineTest {
+
+    private final QuoteStore quoteStore = mock(QuoteStore.class);
+    private final OrderService orderService = mock(OrderService.class);
+    private OrderPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new OrderPipeline();
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        ReflectionTestUtils.setField(pipeline, "workers", 1);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 16);
+        ReflectionTestUtils.setField(pipeline, "virtualThreads", false);
+        ReflectionTestUtils.setField(pipeline, "quoteStore", quoteStore);
+        ReflectionTestUtils.setField(pipeline, "orderService", orderService);
+        ReflectionTestUtils.setField(pipeline, "meterRegistry", new SimpleMeterRegistry());
+        pipeline.start();
+        when(orderService.receive(any(), any(), any(), any(), any(), anyLong(), anyLong(), anyInt())).thenReturn(1L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    void marketOrderExecutesAtTheQuoteWhenItLeavesTheQueue() throws InterruptedException {
+        // Validation, risk and execution each read the quote; it moves after validation
+        when(quoteStore.findBySymbol("TCS"))
+                .thenReturn(Optional.of(stock("100.00")))
+                .thenReturn(Optional.of(stock("110.00")))
+                .thenReturn(Optional.of(stock("120.00")));
+        when(orderService.submitMarket(eq(1L), eq(1L), any(), eq(Trade.TradeType.BUY), eq(5)))
+                .thenReturn(CompletableFuture.completedFuture(new BigDecimal("400.00")));
+
+        OrderTicket ticket = await(pipeline.submit(1L, "TCS", Trade.TradeType.BUY, Order.OrderType.MARKET,
+                Order.TimeInForce.IOC, 0, 0, 5));
+
+        assertThat(ticket.getStage()).isEqualTo(OrderTicket.Stage.EXECUTED);
+        assertThat(ticket.getPrice()).isEqualByComparingTo("120.00");
+        verify(orderService).preTradeCheck(1L, "TCS", Trade.TradeType.BUY, 5, 110_00);
+        ArgumentCaptor<Stock> executed = ArgumentCaptor.forClass(Stock.class);
+        verify(orderService).submitMarket(eq(1L), eq(1L), executed.capture(), eq(Trade.TradeType.BUY), eq(5));
+        assertThat(executed.getValue().getCurrentPrice()).isEqualByComparingTo("120.00");
+    }
+
+    @Test
+    void riskRejectionStopsTheOrder() throws InterruptedException {
+        when(quoteStore.findBySymbol("TCS")).thenReturn(Optional.of(stock("100.00")));
+        doThrow(new TradeRejectedException("Order value exceeds the limit"))
+                .when(orderService).preTradeCheck(1L, "TCS", Trade.TradeType.BUY, 5, 100_00);
+
+        OrderTicket ticket = await(pipeline.submit(1L, "TCS", Trade.TradeType.BUY, Order.OrderType.MARKET,
+                Order.TimeInForce.IOC, 0, 0, 5));
+
+        assertThat(ticket.getStage()).isEqualTo(OrderTicket.Stage.REJECTED);
+        assertThat(ticket.getMessage()).isEqualTo("Order value exceeds the limit");
+        verify(orderService, never()).submitMarket(anyLong(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void quoteGoneBeforeExecutionRejects() throws InterruptedException {
+        when(quoteStore.findBySymbol("TCS"))
+                .thenReturn(Optional.of(stock("100.00")))
+                .thenReturn(Optional.of(stock("100.00")))
+                .thenReturn(Optional.of(stock("0.00")));
+
+        OrderTicket ticket = await(pipeline.submit(1L, "TCS", Trade.TradeType.BUY, Order.OrderType.MARKET,
+                Order.TimeInForce.IOC, 0, 0, 5));
+
+        assertThat(ticket.getStage()).isEqualTo(OrderTicket.Stage.REJECTED);
+        verify(orderService, never()).submitMarket(anyLong(), any(), any(), any(), anyInt());
+    }
+
+    private static OrderTicket await(OrderTicket ticket) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!ticket.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        return ticket;
+    }
+
+    private static Stock stock(String price) {
+        Stock stock = new Stock();
+        stock.setSymbol("TCS");
+        stock.setName("TCS");
+        stock.setCurrentPrice(new BigDecimal(price));
+        return stock;
+    }
+}
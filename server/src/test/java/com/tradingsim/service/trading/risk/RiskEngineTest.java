@@ -0,0 +1,128 @@
+package com.tradingsim.service.trading.risk;
+
+import com.tradingsim.exception.TradeRejectedException;
+import com.tradingsim.model.Trade;
+import com.tradingsim.model.Wallet;
+import com.tradingsim.service.trading.AccountStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RiskEngineTest {
+
+    private final AccountStore accountStore = mock(AccountStore.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final RiskProperties properties = new RiskProperties();
+    private final RiskEngine riskEngine = new RiskEngine();
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.getDefaults().setMaxOrderNotional(new BigDecimal("10000.00"));
+        properties.getDefaults().setMaxPositionValue(new BigDecimal("15000.00"));
+        properties.getDefaults().setMaxDailyTurnover(new BigDecimal("25000.00"));
+        ReflectionTestUtils.setField(riskEngine, "properties", properties);
+        ReflectionTestUtils.setField(riskEngine, "accountStore", accountStore);
+        ReflectionTestUtils.setField(riskEngine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(riskEngine, "meterRegistry", new SimpleMeterRegistry());
+
+        Wallet wallet = new Wallet();
+        wallet.setBalance(new BigDecimal("100000.00"));
+        AccountStore.Account account = mock(AccountStore.Account.class);
+        when(account.getWallet()).thenReturn(wallet);
+        when(account.getHoldings()).thenReturn(Map.of());
+        when(accountStore.load(1L)).thenReturn(account);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(Object[].class))).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(anyString(), eq(BigDecimal.class), any(Object[].class)))
+                .thenReturn(BigDecimal.ZERO);
+    }
+
+    @Test
+    void acceptedOrdersCountAgainstThePositionLimit() {
+        riskEngine.reserve(1, 1L, "TCS", Trade.TradeType.BUY, 80, 100_00);
+
+        // 80 + 80 shares at ₹100 is above the ₹15,000 position limit although each order is within it
+        assertThatThrownBy(() -> riskEngine.reserve(2, 1L, "TCS", Trade.TradeType.BUY, 80, 100_00))
+                .isInstanceOf(TradeRejectedException.class)
+                .hasMessageContaining("position");
+        assertThatCode(() -> riskEngine.reserve(3, 1L, "INFY", Trade.TradeType.BUY, 80, 100_00))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void releasingAnOrderFreesItsExposure() {
+        riskEngine.reserve(1, 1L, "TCS", Trade.TradeType.BUY, 80, 100_00);
+        riskEngine.release(1L, 1, 30);
+        assertThatThrownBy(() -> riskEngine.check(1L, "TCS", Trade.TradeType.BUY, 101, 100_00))
+                .isInstanceOf(TradeRejectedException.class);
+        assertThatCode(() -> riskEngine.check(1L, "TCS", Trade.TradeType.BUY, 100, 100_00))
+                .doesNotThrowAnyException();
+
+        // Cancelling releases what is left; releasing more than is reserved is harmless
+        riskEngine.release(1L, 1);
+        riskEngine.release(1L, 1, 10);
+        riskEngine.reserve(2, 1L, "TCS", Trade.TradeType.BUY, 100, 100_00);
+        assertThatCode(() -> riskEngine.check(1L, "TCS", Trade.TradeType.BUY, 50, 100_00))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void sellsCountTowardsTurnover() {
+        riskEngine.reserve(1, 1L, "TCS", Trade.TradeType.SELL, 100, 100_00);
+        riskEngine.reserve(2, 1L, "INFY", Trade.TradeType.SELL, 100, 100_00);
+
+        assertThatThrownBy(() -> riskEngine.reserve(3, 1L, "WIPRO", Trade.TradeType.SELL, 60, 100_00))
+                .isInstanceOf(TradeRejectedException.class)
+                .hasMessageContaining("daily trading limit");
+    }
+
+    @Test
+    void rejectedOrderReservesNothing() {
+        assertThatThrownBy(() -> riskEngine.reserve(1, 1L, "TCS", Trade.TradeType.BUY, 200, 100_00))
+                .isInstanceOf(TradeRejectedException.class)
+                .hasMessageContaining("per order");
+
+        assertThatCode(() -> riskEngine.reserve(2, 1L, "TCS", Trade.TradeType.BUY, 100, 100_00))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void reservationsSurviveAReload() {
+        riskEngine.reserve(1, 1L, "TCS", Trade.TradeType.BUY, 80, 100_00);
+
+        riskEngine.reload();
+
+        assertThatThrownBy(() -> riskEngine.check(1L, "TCS", Trade.TradeType.BUY, 80, 100_00))
+                .isInstanceOf(TradeRejectedException.class);
+        verify(accountStore, times(2)).load(1L);
+        riskEngine.release(1L, 1);
+        assertThatCode(() -> riskEngine.check(1L, "TCS", Trade.TradeType.BUY, 80, 100_00))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void disabledEngineReservesNothing() {
+        properties.setEnabled(false);
+
+        assertThatCode(() -> riskEngine.reserve(1, 1L, "TCS", Trade.TradeType.BUY, 1_000, 100_00))
+                .doesNotThrowAnyException();
+        riskEngine.release(1L, 1);
+    }
+}